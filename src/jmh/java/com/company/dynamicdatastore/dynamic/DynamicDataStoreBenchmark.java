@@ -0,0 +1,96 @@
+package com.company.dynamicdatastore.dynamic;
+
+import io.jmix.core.LoadContext;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo pipeline đọc của DynamicDataStore trên handler in-memory:
+ * loadAll (một trang, có / không sort), loadAllValues, countAll, countAllValues.
+ *
+ * Chạy: gradle jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DynamicDataStoreBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * legacy: handler không khai báo khả năng gì; pushdown: handler tự cắt trang + đếm.
+     */
+    @Param({"legacy", "pushdown"})
+    public String handlerMode;
+
+    private DynamicDataStore store;
+    private LoadContext<Object> pageContext;
+    private LoadContext<Object> sortedPageContext;
+    private ValueLoadContext valuesContext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new DynamicDataStore("bench", null);
+        store.registerHandler(SyntheticOrderHandler.ENTITY,
+                new SyntheticOrderHandler(rows, "pushdown".equals(handlerMode)));
+
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName(SyntheticOrderHandler.ENTITY);
+
+        pageContext = new LoadContext<>(metaClass);
+        pageContext.setQueryString("select e from BenchOrder e")
+                .setFirstResult(rows / 2)
+                .setMaxResults(50);
+
+        sortedPageContext = new LoadContext<>(metaClass);
+        sortedPageContext.setQueryString("select e from BenchOrder e")
+                .setSort(Sort.by(Sort.Direction.DESC, "amount"))
+                .setFirstResult(0)
+                .setMaxResults(50);
+
+        valuesContext = new ValueLoadContext();
+        valuesContext.setQueryString("select e.id, e.name from BenchOrder e where e.quantity > :q")
+                .setParameter("q", 10L)
+                .setFirstResult(0)
+                .setMaxResults(50);
+        valuesContext.setProperties(List.of("id", "name"));
+    }
+
+    @Benchmark
+    public List<Object> loadAllPage() {
+        return store.loadAll(pageContext);
+    }
+
+    @Benchmark
+    public List<Object> loadAllSortedPage() {
+        return store.loadAll(sortedPageContext);
+    }
+
+    @Benchmark
+    public List<Object> loadAllValues() {
+        return store.loadAllValues(valuesContext);
+    }
+
+    @Benchmark
+    public long countAll() {
+        return store.countAll(pageContext);
+    }
+
+    @Benchmark
+    public long countAllValues() {
+        return store.countAllValues(valuesContext);
+    }
+}
@@ -0,0 +1,173 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.cache.VirtualEntityCache;
+import com.company.dynamicdatastore.dynamic.guard.HandlerGuardExecutor;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.runtime.DynamicMetaClassFactory;
+import com.company.dynamicdatastore.dynamic.runtime.RuntimeAwareDataStoreFactory;
+import io.jmix.core.DataStore;
+import io.jmix.core.EntityStates;
+import io.jmix.core.KeyValueMapper;
+import io.jmix.core.Metadata;
+import io.jmix.core.MetadataTools;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.impl.keyvalue.KeyValueMetaClassFactory;
+import io.jmix.core.metamodel.datatype.Datatype;
+import io.jmix.core.metamodel.datatype.DatatypeRegistry;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo các bước "runtime" quanh DynamicDataStore:
+ * parse JPQL của ValueLoadContext, dựng MetaClass động, tra cứu store qua DataStoreFactory.
+ *
+ * Không dựng Spring context: registry / factory được tạo tay, DatatypeRegistry của Jmix
+ * được thay bằng proxy tối giản (chỉ cần biết javaClass của từng datatype).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DynamicRuntimeBenchmark {
+
+    private static final List<RuntimeFieldDef> FIELDS = List.of(
+            new RuntimeFieldDef("id", UUID.class),
+            new RuntimeFieldDef("name", String.class),
+            new RuntimeFieldDef("amount", BigDecimal.class),
+            new RuntimeFieldDef("quantity", Long.class)
+    );
+
+    private DynamicDataStore store;
+    private ValueLoadContext valuesContext;
+    private DynamicMetaClassFactory metaClassFactory;
+    private RuntimeAwareDataStoreFactory dataStoreFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        // registry đòi đủ các bean Jmix của AbstractDataStore; benchmark không gọi tới chúng
+        beans.addBean("keyValueMapper", new KeyValueMapper());
+        beans.addBean("metadata", Proxy.newProxyInstance(Metadata.class.getClassLoader(),
+                new Class<?>[]{Metadata.class}, (proxy, method, args) -> defaultValue(method.getReturnType())));
+        beans.addBean("metadataTools", new MetadataTools());
+        beans.addBean("entityStates", new EntityStates());
+        DynamicStoreRegistry registry = new DynamicStoreRegistry(
+                beans.getBeanProvider(KeyValueMapper.class),
+                beans.getBeanProvider(Metadata.class),
+                beans.getBeanProvider(MetadataTools.class),
+                beans.getBeanProvider(EntityStates.class),
+                beans.getBeanProvider(DynamicStoreMetrics.class),
+                properties,
+                new VirtualEntityCache(properties),
+                new HandlerGuardExecutor());
+
+        store = registry.registerStore("bench");
+        for (int i = 0; i < 50; i++) {
+            registry.registerStore("tenant" + i);
+        }
+
+        valuesContext = new ValueLoadContext();
+        valuesContext.setQueryString(
+                "select e.id, e.name, e.amount from BenchOrder e where e.quantity > :q order by e.amount desc");
+
+        KeyValueMetaClassFactory keyValueMetaClassFactory = new KeyValueMetaClassFactory();
+        injectField(keyValueMetaClassFactory, DatatypeRegistry.class, datatypeRegistryStub());
+
+        metaClassFactory = new DynamicMetaClassFactory(keyValueMetaClassFactory, registry);
+        dataStoreFactory = new RuntimeAwareDataStoreFactory(registry);
+    }
+
+    @Benchmark
+    public String extractEntityNameFromValueQuery() {
+        return store.extractEntityNameFromValueQuery(valuesContext);
+    }
+
+    @Benchmark
+    public MetaClass buildAndRegisterMetaClass() {
+        return metaClassFactory.buildAndRegisterMetaClass("BenchOrder", FIELDS, "bench");
+    }
+
+    @Benchmark
+    public DataStore dataStoreFactoryGet() {
+        return dataStoreFactory.get("tenant25");
+    }
+
+    /**
+     * Gán dependency @Autowired theo kiểu field (không phụ thuộc tên field).
+     */
+    private static void injectField(Object target, Class<?> fieldType, Object value) throws IllegalAccessException {
+        for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getType() == fieldType) {
+                    field.setAccessible(true);
+                    field.set(target, value);
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("No field of type " + fieldType.getName() + " in " + target.getClass());
+    }
+
+    /**
+     * DatatypeRegistry tối giản: find/get(Class) trả về một Datatype proxy biết javaClass.
+     */
+    private static DatatypeRegistry datatypeRegistryStub() {
+        Map<Class<?>, Datatype<?>> datatypes = new ConcurrentHashMap<>();
+        return (DatatypeRegistry) Proxy.newProxyInstance(
+                DatatypeRegistry.class.getClassLoader(),
+                new Class<?>[]{DatatypeRegistry.class},
+                (proxy, method, args) -> {
+                    if (args != null && args.length == 1 && args[0] instanceof Class) {
+                        return datatypes.computeIfAbsent((Class<?>) args[0], DynamicRuntimeBenchmark::datatypeStub);
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Datatype<?> datatypeStub(Class<?> javaClass) {
+        return (Datatype<?>) Proxy.newProxyInstance(
+                Datatype.class.getClassLoader(),
+                new Class<?>[]{Datatype.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getJavaClass":
+                            return javaClass;
+                        case "toString":
+                            return "Datatype[" + javaClass.getSimpleName() + "]";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return null;
+    }
+}
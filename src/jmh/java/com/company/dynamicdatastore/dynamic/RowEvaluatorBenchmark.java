@@ -0,0 +1,95 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.query.RowEvaluator;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.entity.KeyValueEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Đo vòng lọc + sort top-K mà store tự làm khi handler không làm được:
+ * RowEvaluator (đọc slot theo kiểu) so với đường cũ (getValue + so sánh tổng quát),
+ * trên row CompactRow và KeyValueEntity thường.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowEvaluatorBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"compact", "keyvalue"})
+    public String rowMode;
+
+    private static final VirtualFilter FILTER = VirtualFilter.and(List.of(
+            VirtualFilter.compare("quantity", FilterOperator.GREATER, VirtualFilter.Operand.parameter("q")),
+            VirtualFilter.compare("amount", FilterOperator.LESS_OR_EQUAL, VirtualFilter.Operand.parameter("max"))));
+    private static final List<VirtualQuery.SortKey> SORT = List.of(new VirtualQuery.SortKey("amount", true));
+    private static final Map<String, Object> PARAMS = Map.of("q", 10L, "max", new BigDecimal("500.00"));
+
+    private List<Object> data;
+    private RowEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EntityMeta meta = new EntityMeta();
+        meta.setName(SyntheticOrderHandler.ENTITY);
+        meta.setAttributes(Map.of(
+                "id", UUID.class,
+                "name", String.class,
+                "amount", BigDecimal.class,
+                "quantity", Long.class));
+        RowLayout layout = RowLayout.of(meta);
+
+        data = new ArrayList<>(rows);
+        for (KeyValueEntity kv : SyntheticOrderHandler.generate(rows)) {
+            if ("compact".equals(rowMode)) {
+                data.add(layout.row("id", kv.getValue("id"), "name", kv.getValue("name"),
+                        "amount", kv.getValue("amount"), "quantity", kv.getValue("quantity")));
+            } else {
+                data.add(kv);
+            }
+        }
+        evaluator = RowEvaluator.compile(meta, FILTER, SORT);
+    }
+
+    @Benchmark
+    public List<Object> compiled() {
+        Predicate<Object> predicate = evaluator.predicate(PARAMS);
+        List<Object> matched = new ArrayList<>();
+        for (Object row : data) {
+            if (predicate.test(row)) matched.add(row);
+        }
+        return VirtualRows.sortAndPage(matched, evaluator.comparator(), 0, 50);
+    }
+
+    @Benchmark
+    public List<Object> generic() {
+        Predicate<Object> predicate = RowEvaluator.compile(null, FILTER, List.of()).predicate(PARAMS);
+        List<Object> matched = new ArrayList<>();
+        for (Object row : data) {
+            if (predicate.test(row)) matched.add(row);
+        }
+        return VirtualRows.sortAndPage(matched, VirtualRows.comparator(SORT), 0, 50);
+    }
+}
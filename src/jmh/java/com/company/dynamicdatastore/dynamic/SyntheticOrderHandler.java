@@ -0,0 +1,94 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Handler in-memory sinh dữ liệu giả cho benchmark (không cần Postgres).
+ *
+ * pushDown = false: giống handler demo, không khai báo khả năng gì -> store tự sort/cắt trang/đếm.
+ * pushDown = true : tự cắt trang và đếm -> đo lợi ích của các đường push-down.
+ */
+class SyntheticOrderHandler implements VirtualEntityHandler<Object> {
+
+    static final String ENTITY = "BenchOrder";
+
+    private final List<Object> rows;
+    private final List<KeyValueEntity> kvRows;
+    private final boolean pushDown;
+
+    SyntheticOrderHandler(int size, boolean pushDown) {
+        this.pushDown = pushDown;
+        this.kvRows = generate(size);
+        this.rows = new ArrayList<>(kvRows);
+    }
+
+    static List<KeyValueEntity> generate(int size) {
+        List<KeyValueEntity> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            KeyValueEntity e = new KeyValueEntity();
+            e.setValue("id", new UUID(0, i));
+            e.setValue("name", "Order-" + (i % 1000));
+            e.setValue("amount", BigDecimal.valueOf((i * 7919L) % 100_000, 2));
+            e.setValue("quantity", (long) (i % 50));
+            out.add(e);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx) {
+        return rows;
+    }
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+        return pushDown ? VirtualRows.page(rows, query.getOffset(), query.getLimit()) : rows;
+    }
+
+    @Override
+    public Object loadOne(LoadContext<Object> ctx, Object id) {
+        UUID uuid = (UUID) id;
+        int index = (int) uuid.getLeastSignificantBits();
+        return index >= 0 && index < rows.size() ? rows.get(index) : null;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        return kvRows;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return pushDown ? VirtualRows.page(kvRows, query.getOffset(), query.getLimit()) : kvRows;
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return pushDown;
+    }
+
+    @Override
+    public long count(LoadContext<Object> ctx) {
+        return rows.size();
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return kvRows.size();
+    }
+
+    @Override
+    public boolean supportsPaging() {
+        return pushDown;
+    }
+}
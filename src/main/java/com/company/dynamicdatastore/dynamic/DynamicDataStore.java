@@ -1,10 +1,28 @@
 package com.company.dynamicdatastore.dynamic;
 
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateRows;
+import com.company.dynamicdatastore.dynamic.aggregate.Aggregator;
+import com.company.dynamicdatastore.dynamic.aggregate.MaterializedAggregate;
+import com.company.dynamicdatastore.dynamic.async.SingleFlight;
+import com.company.dynamicdatastore.dynamic.change.ChangeFeed;
+import com.company.dynamicdatastore.dynamic.change.RowChange;
+import com.company.dynamicdatastore.dynamic.change.RowChangeListener;
+import com.company.dynamicdatastore.dynamic.change.RowChangeSink;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import com.company.dynamicdatastore.dynamic.query.JpqlQueryCache;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluatorCache;
+import com.company.dynamicdatastore.dynamic.query.ParsedJpql;
 import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.virtual.ObservableVirtualEntityHandler;
 import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
 import io.jmix.core.LoadContext;
 import io.jmix.core.SaveContext;
 import io.jmix.core.ValueLoadContext;
+import io.jmix.core.common.event.Subscription;
 import io.jmix.core.datastore.AbstractDataStore;
 import io.jmix.core.entity.KeyValueEntity;
 import io.jmix.core.metamodel.model.MetaClass;
@@ -13,7 +31,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * Một instance = một store runtime (ví dụ "storeA").
@@ -31,18 +56,43 @@ public class DynamicDataStore extends AbstractDataStore {
 
     private String storeName;
 
-    // mô tả schema động (optional, để tra cứu)
-    private final Map<String, EntityMeta> entities = new ConcurrentHashMap<>();
-
-    // entityName -> handler logic load
-    private final Map<String, VirtualEntityHandler<?>> handlers = new ConcurrentHashMap<>();
+    // entityName -> (EntityMeta, handler, MetaClass): snapshot bất biến, thay nguyên khối khi schema đổi
+    private final AtomicReference<StoreSchema> schema = new AtomicReference<>(StoreSchema.EMPTY);
 
     // thêm cái này để lấy metaClass động ra
     private final DynamicStoreRegistry registry;
 
+    // số id tối đa cho một lần handler.loadMany(...)
+    private int idBatchSize = 500;
+
+    // transaction ghi đang mở trên thread hiện tại
+    private final ThreadLocal<DynamicTransaction> currentTransaction = new ThreadLocal<>();
+
+    // JPQL -> ParsedJpql, registry thay bằng cache dùng chung cho mọi store
+    private JpqlQueryCache queryCache = new JpqlQueryCache(1024);
+
+    // filter/sort store tự làm, đã biên dịch theo hình dạng query
+    private RowEvaluatorCache rowEvaluators = new RowEvaluatorCache(1024);
+
+    // null = không đo (ví dụ store dựng ngoài Spring trong benchmark)
+    @Nullable
+    private DynamicStoreMetrics metrics;
+
+    // load / count giống hệt nhau đang chạy đồng thời (nhiều session mở cùng một view) -> chỉ gọi handler một lần
+    private boolean coalesceLoads = true;
+    private final SingleFlight<LoadKey, List<Object>> inFlightLoads = new SingleFlight<>();
+    private final SingleFlight<LoadKey, Long> inFlightCounts = new SingleFlight<>();
+
+    // entityName -> subscriber nhận thay đổi theo id (UI cập nhật từng dòng thay vì load lại)
+    private final ChangeFeed changes;
+
+    // (JPQL gộp, tham số) -> kết quả giữ sẵn, cập nhật theo change event
+    private final Map<MaterializedKey, MaterializedAggregate> materialized = new ConcurrentHashMap<>();
+
     public DynamicDataStore(String storeName, DynamicStoreRegistry registry) {
         this.storeName = storeName;
         this.registry = registry;
+        this.changes = new ChangeFeed(storeName);
     }
 
 
@@ -58,24 +108,127 @@ public class DynamicDataStore extends AbstractDataStore {
         this.storeName = name;
     }
 
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    // registry gọi
+    public void setIdBatchSize(int idBatchSize) {
+        if (idBatchSize <= 0) {
+            throw new IllegalArgumentException("idBatchSize must be positive: " + idBatchSize);
+        }
+        this.idBatchSize = idBatchSize;
+    }
+
+    // registry gọi
+    public void setQueryCache(JpqlQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    // registry gọi
+    public void setRowEvaluatorCache(RowEvaluatorCache rowEvaluators) {
+        this.rowEvaluators = rowEvaluators;
+    }
+
+    // registry gọi
+    public void setMetrics(@Nullable DynamicStoreMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isCoalesceLoads() {
+        return coalesceLoads;
+    }
+
+    // registry gọi
+    public void setCoalesceLoads(boolean coalesceLoads) {
+        this.coalesceLoads = coalesceLoads;
+    }
+
     // registry gọi
     public void registerEntity(EntityMeta meta) {
-        entities.put(meta.getName(), meta);
+        updateSchema(s -> s.withEntity(meta));
+    }
+
+    @Nullable
+    public EntityMeta getEntity(@Nullable String entityName) {
+        StoreSchema.EntityBinding b = binding(entityName);
+        return b != null ? b.getMeta() : null;
     }
 
     // registry gọi
     public void registerHandler(String entityName, VirtualEntityHandler<?> handler) {
-        handlers.put(entityName, handler);
+        connectChanges(entityName, handler);
+        updateSchema(s -> s.withHandler(entityName, handler));
+    }
+
+    //====================== CHANGE EVENTS ======================
+
+    /**
+     * Nhận thay đổi (INSERTED / UPDATED / DELETED theo id) của entity, do handler đẩy ra.
+     * Listener chạy trên thread của bên ghi -> chỉ xếp hàng (xem ContainerChangeUpdater cho UI).
+     */
+    public Subscription subscribe(String entityName, RowChangeListener listener) {
+        return changes.subscribe(entityName, listener);
+    }
+
+    /**
+     * Đẩy thay đổi cho subscriber của entity, dùng khi nguồn thay đổi nằm ngoài handler
+     * (webhook, message queue...).
+     */
+    public void publishChanges(String entityName, List<RowChange> rowChanges) {
+        changes.publish(entityName, rowChanges);
+    }
+
+    public RowChangeSink changeSink(String entityName) {
+        return changes.sink(entityName);
+    }
+
+    /**
+     * Gắn sink của entity cho handler nếu handler tự phát hiện được thay đổi.
+     * registerHandler(...) tự gọi; registry gọi thêm cho handler gốc bên trong decorator (cache...).
+     */
+    public void connectChanges(String entityName, VirtualEntityHandler<?> handler) {
+        if (handler instanceof ObservableVirtualEntityHandler) {
+            ((ObservableVirtualEntityHandler<?>) handler).setChangeSink(changes.sink(entityName));
+        }
+    }
+
+    public StoreSchema getSchema() {
+        return schema.get();
+    }
+
+    /**
+     * Áp một thay đổi schema (có thể gồm nhiều entity) và publish nguyên khối với version mới.
+     * change có thể bị gọi lại khi có ghi đồng thời -> phải là hàm thuần, không side effect.
+     */
+    public StoreSchema updateSchema(UnaryOperator<StoreSchema> change) {
+        return schema.updateAndGet(current -> change.apply(current).withVersion(current.getVersion() + 1));
+    }
+
+    /**
+     * Publish next nếu snapshot hiện tại vẫn là expected (CAS), dùng khi phải dựng dữ liệu nặng
+     * bên ngoài trước (ví dụ MetaClass) và không muốn dựng lại khi retry.
+     */
+    public boolean compareAndSetSchema(StoreSchema expected, StoreSchema next) {
+        return schema.compareAndSet(expected, next.withVersion(expected.getVersion() + 1));
     }
 
     //====================== LOAD ONE ======================
     @Override
     @Nullable
     protected Object loadOne(LoadContext<?> context) {
+        String entityName = context.getEntityMetaClass().getName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        if (metrics == null) return doLoadOne(context, binding);
+        return metrics.recordOne(storeName, entityName, "loadOne", () -> doLoadOne(context, binding));
+    }
+
+    @Nullable
+    private Object doLoadOne(LoadContext<?> context, @Nullable StoreSchema.EntityBinding binding) {
         Object id = context.getId();
         Class<Object> entityClass = context.getEntityMetaClass().getJavaClass();
         String entityName = context.getEntityMetaClass().getName();
-        VirtualEntityHandler<Object> handler = getHandler(entityName);
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
         if (handler == null) {
             log.warn("[{}] no handler for entity {}", storeName, entityName);
             return null;
@@ -90,24 +243,43 @@ public class DynamicDataStore extends AbstractDataStore {
     //====================== LOAD LIST ======================
     @Override
     protected List<Object> loadAll(LoadContext<?> context) {
+        String entityName = context.getEntityMetaClass().getName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        if (metrics == null) return doLoadAll(context, binding);
+        return metrics.recordList(storeName, entityName, "loadAll", propertiesOf(binding),
+                () -> doLoadAll(context, binding));
+    }
+
+    // binding đọc một lần cho cả lời gọi: handler và EntityMeta luôn cùng một snapshot schema
+    private List<Object> doLoadAll(LoadContext<?> context, @Nullable StoreSchema.EntityBinding binding) {
         Class<Object> entityClass = context.getEntityMetaClass().getJavaClass();
         String entityName = context.getEntityMetaClass().getName();
-        VirtualEntityHandler<Object> handler = getHandler(entityName);
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
         if (handler == null) {
             log.warn("[{}] no handler for entity {}", storeName, entityName);
             return Collections.emptyList();
         }
 
         if (!context.getIds().isEmpty()) {
-            List<Object> out = new ArrayList<>();
-            for (Object id : context.getIds()) {
-                Object one = handler.loadOne((LoadContext<Object>) context, id);
-                if (one != null) out.add(one);
+            // gom id thành từng lô để tránh N+1 xuống backend
+            List<?> ids = context.getIds();
+            List<Object> out = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += idBatchSize) {
+                List<?> chunk = ids.subList(from, Math.min(from + idBatchSize, ids.size()));
+                out.addAll(handler.loadMany((LoadContext<Object>) context, chunk));
             }
             return out;
         }
 
-        return handler.loadAll((LoadContext<Object>) context);
+        VirtualQuery query = VirtualQuery.of(context, parseQuery(context));
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return handler.loadAll((LoadContext<Object>) context);
+        }
+        EntityMeta meta = binding.getMeta();
+        return coalesce("loadAll", entityName, handler, meta, queryStringOf(context), query, () -> {
+            List<Object> rows = handler.loadAll((LoadContext<Object>) context, VirtualRows.pushDown(handler, query));
+            return VirtualRows.applyInStore(handler, query, rows, rowEvaluators, meta);
+        });
     }
 
 
@@ -115,18 +287,64 @@ public class DynamicDataStore extends AbstractDataStore {
 
     @Override
     protected long countAll(LoadContext<?> context) {
-        return loadAll(context).size();
+        String entityName = context.getEntityMetaClass().getName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        if (metrics == null) return doCountAll(context, binding);
+        return metrics.recordCount(storeName, entityName, "countAll", () -> doCountAll(context, binding));
+    }
+
+    private long doCountAll(LoadContext<?> context, @Nullable StoreSchema.EntityBinding binding) {
+        String entityName = context.getEntityMetaClass().getName();
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
+        if (handler == null) return 0;
+
+        // handler tự đếm được -> không cần kéo toàn bộ dữ liệu về
+        if (!context.getIds().isEmpty()) {
+            return doLoadAll(context, binding).size();
+        }
+        // count không phụ thuộc paging/sort
+        VirtualQuery query = VirtualQuery.of(context, parseQuery(context)).withoutPaging().withoutSort();
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return handler.loadAll((LoadContext<Object>) context).size();
+        }
+        return coalesceCount("countAll", entityName, handler, queryStringOf(context), query, () -> {
+            if (VirtualRows.canCountInHandler(handler, query)) {
+                return handler.count((LoadContext<Object>) context, VirtualRows.pushDown(handler, query));
+            }
+            List<Object> rows = handler.loadAll((LoadContext<Object>) context, VirtualRows.pushDown(handler, query));
+            return (long) VirtualRows.applyInStore(handler, query, rows, rowEvaluators, binding.getMeta()).size();
+        });
     }
 
     //====================== SAVE/DELETE ====================
+    /**
+     * Không ghi ngay: chỉ đưa vào DynamicTransaction hiện tại,
+     * commitTransaction(...) mới giao cả lô cho WritableVirtualEntityHandler (chốt ngay lúc này).
+     */
     @Override
     protected Set<Object> saveAll(SaveContext context) {
-        throw new UnsupportedOperationException("DynamicDataStore[" + storeName + "] read-only");
+        DynamicTransaction tx = requireTransaction();
+        Set<Object> saved = new LinkedHashSet<>();
+        for (Object entity : context.getEntitiesToSave()) {
+            String entityName = entityNameOf(entity);
+            StoreSchema.EntityBinding binding = binding(entityName);
+            tx.bufferSave(entityName, requireWritableHandler(entityName, binding), idPropertyOf(binding), entity);
+            saved.add(entity);
+        }
+        return saved;
     }
 
     @Override
     protected Set<Object> deleteAll(SaveContext context) {
-        throw new UnsupportedOperationException("DynamicDataStore[" + storeName + "] read-only");
+        DynamicTransaction tx = requireTransaction();
+        Set<Object> removed = new LinkedHashSet<>();
+        for (Object entity : context.getEntitiesToRemove()) {
+            String entityName = entityNameOf(entity);
+            StoreSchema.EntityBinding binding = binding(entityName);
+            tx.bufferRemove(entityName, requireWritableHandler(entityName, binding), idPropertyOf(binding), entity);
+            removed.add(entity);
+        }
+        return removed;
     }
 
     //====================== loadValues =====================
@@ -137,62 +355,574 @@ public class DynamicDataStore extends AbstractDataStore {
      */
     @Override
     protected List<Object> loadAllValues(ValueLoadContext context) {
-        String entityName = extractEntityNameFromValueQuery(context);
-        VirtualEntityHandler<Object> handler = getHandler(entityName);
+        ParsedJpql parsed = parseValueQuery(context);
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        StoreSchema.EntityBinding binding = binding(entityName);
+        if (metrics == null) return doLoadAllValues(context, parsed, binding);
+        Collection<String> properties = parsed != null && !parsed.getSelectedProperties().isEmpty()
+                ? parsed.getSelectedProperties()
+                : propertiesOf(binding);
+        return metrics.recordList(storeName, entityName, "loadAllValues", properties,
+                () -> doLoadAllValues(context, parsed, binding));
+    }
+
+    private List<Object> doLoadAllValues(ValueLoadContext context, @Nullable ParsedJpql parsed,
+                                         @Nullable StoreSchema.EntityBinding binding) {
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
         if (handler == null) {
             log.warn("[{}] no handler for entity {} (ValueLoadContext)", storeName, entityName);
             return Collections.emptyList();
         }
 
         // handler.loadAllKeyValue() -> List<KeyValueEntity>
-        return new ArrayList<>(handler.loadAllKeyValue(context));
+        // query.getProperties() = các cột trong select list -> handler chỉ cần lấy đúng các cột đó
+        VirtualQuery query = VirtualQuery.of(context, parsed);
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return new ArrayList<>(handler.loadAllKeyValue(context));
+        }
+        EntityMeta meta = binding.getMeta();
+        if (parsed.isAggregate()) {
+            AggregateQuery aggregate = AggregateQuery.of(parsed, query);
+            return coalesce("loadAllValues", entityName, handler, queryStringOf(context), query,
+                    aggregate.names(context.getProperties()),
+                    () -> new ArrayList<>(aggregate(context, aggregate, query, handler, meta)));
+        }
+        return coalesce("loadAllValues", entityName, handler, meta, queryStringOf(context), query, () -> {
+            List<KeyValueEntity> rows = VirtualRows.applyInStore(handler, query,
+                    handler.loadAllKeyValue(context, VirtualRows.pushDown(handler, query)),
+                    rowEvaluators, meta);
+            // chỉ copy khi handler trả về list bất biến (List.of...), tránh copy thừa cho list lớn
+            return rows instanceof ArrayList ? (List<Object>) (List<?>) rows : new ArrayList<>(rows);
+        });
     }
 
     @Override
     protected long countAllValues(ValueLoadContext context) {
-        String entityName = extractEntityNameFromValueQuery(context);
-        VirtualEntityHandler<Object> handler = getHandler(entityName);
+        ParsedJpql parsed = parseValueQuery(context);
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        StoreSchema.EntityBinding binding = binding(entityName);
+        if (metrics == null) return doCountAllValues(context, parsed, binding);
+        return metrics.recordCount(storeName, entityName, "countAllValues",
+                () -> doCountAllValues(context, parsed, binding));
+    }
+
+    private long doCountAllValues(ValueLoadContext context, @Nullable ParsedJpql parsed,
+                                  @Nullable StoreSchema.EntityBinding binding) {
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
         if (handler == null) return 0;
-        List<KeyValueEntity> list = handler.loadAllKeyValue(context);
-        return list.size();
+
+        VirtualQuery query = VirtualQuery.of(context, parsed).withoutPaging().withoutSort();
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return handler.loadAllKeyValue(context).size();
+        }
+        if (parsed.isAggregate()) {
+            // số nhóm
+            AggregateQuery aggregate = AggregateQuery.of(parsed, query);
+            return coalesceCount("countAllValues", entityName, handler, queryStringOf(context), query,
+                    () -> (long) aggregateGroups(context, aggregate, query, handler, binding.getMeta()).size());
+        }
+        return coalesceCount("countAllValues", entityName, handler, queryStringOf(context), query, () -> {
+            if (VirtualRows.canCountInHandler(handler, query)) {
+                return handler.countKeyValue(context, VirtualRows.pushDown(handler, query));
+            }
+            List<KeyValueEntity> list = handler.loadAllKeyValue(context, VirtualRows.pushDown(handler, query));
+            return (long) VirtualRows.applyInStore(handler, query, list, rowEvaluators, binding.getMeta()).size();
+        });
+    }
+
+    //====================== STREAM ========================
+    /**
+     * Duyệt dữ liệu của entity ảo dạng stream với bộ nhớ gần như hằng số
+     * (cho export, batch job...). Paging luôn áp dụng lazy; nếu store phải tự sort
+     * thì chỉ giữ offset + limit phần tử (top-K), không có limit thì buộc phải gom hết.
+     *
+     * Lưu ý: đi thẳng vào handler, không qua các bước kiểm tra quyền / event của
+     * DataManager. Người gọi phải đóng stream (try-with-resources).
+     */
+    @SuppressWarnings("unchecked")
+    public <E> Stream<E> stream(LoadContext<E> context) {
+        String entityName = context.getEntityMetaClass().getName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        VirtualEntityHandler<E> handler = handlerOf(binding);
+        if (handler == null) {
+            log.warn("[{}] no handler for entity {}", storeName, entityName);
+            return Stream.empty();
+        }
+
+        VirtualQuery query = VirtualQuery.of(context, parseQuery(context));
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return handler.loadAll(context).stream();
+        }
+        Stream<E> rows = handler.stream(context, VirtualRows.pushDown(handler, query));
+        return VirtualRows.applyInStore(handler, query, rows, rowEvaluators, binding.getMeta());
+    }
+
+    /**
+     * Phiên bản stream của loadValues(...).
+     */
+    public Stream<KeyValueEntity> streamValues(ValueLoadContext context) {
+        ParsedJpql parsed = parseValueQuery(context);
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        StoreSchema.EntityBinding binding = binding(entityName);
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
+        if (handler == null) {
+            log.warn("[{}] no handler for entity {} (ValueLoadContext)", storeName, entityName);
+            return Stream.empty();
+        }
+
+        VirtualQuery query = VirtualQuery.of(context, parsed);
+        if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+            return handler.loadAllKeyValue(context).stream();
+        }
+        if (parsed.isAggregate()) {
+            // kết quả gộp đã gọn (một row mỗi nhóm)
+            return aggregate(context, AggregateQuery.of(parsed, query), query, handler, binding.getMeta()).stream();
+        }
+        Stream<KeyValueEntity> rows = handler.streamKeyValue(context, VirtualRows.pushDown(handler, query));
+        return VirtualRows.applyInStore(handler, query, rows, rowEvaluators, binding.getMeta());
+    }
+
+    //====================== ASYNC ========================
+    /**
+     * Bản bất đồng bộ của load list, dùng handler.loadAllAsync(...) để handler có IO async
+     * không giữ thread trong lúc chờ. Sort/paging phía store chạy trong thenApply.
+     *
+     * Giống stream(): đi thẳng vào handler, không qua DataManager. Muốn giữ nguyên pipeline
+     * (quyền, event) thì dùng AsyncDynamicDataManager.
+     */
+    public <E> CompletableFuture<List<E>> loadAllAsync(LoadContext<E> context, Executor executor) {
+        return loadAllAsync(context, UnaryOperator.identity(), executor);
+    }
+
+    /**
+     * Như loadAllAsync(context, executor) nhưng cho phép chỉnh VirtualQuery trước khi chạy
+     * (ví dụ federated load lấy top offset + limit của từng store).
+     */
+    public <E> CompletableFuture<List<E>> loadAllAsync(LoadContext<E> context,
+                                                       UnaryOperator<VirtualQuery> adjust,
+                                                       Executor executor) {
+        String entityName = context.getEntityMetaClass().getName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        VirtualEntityHandler<E> handler = handlerOf(binding);
+        if (handler == null) {
+            log.warn("[{}] no handler for entity {}", storeName, entityName);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        VirtualQuery query = adjust.apply(VirtualQuery.of(context, parseQuery(context)));
+        try {
+            if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+                // chỉ lấy paging đã chỉnh (adjust), còn lại giữ nguyên context
+                LoadContext<E> raw = VirtualRows.legacyContext(context, query);
+                return CompletableFuture.supplyAsync(() -> handler.loadAll(raw), executor);
+            }
+        } catch (UnsupportedOperationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        EntityMeta meta = binding.getMeta();
+        return this.<E>coalesceAsync("loadAll", entityName, handler, meta, queryStringOf(context), query, () ->
+                handler.loadAllAsync(context, VirtualRows.pushDown(handler, query), executor)
+                        .thenApply(rows -> VirtualRows.applyInStore(handler, query, rows, rowEvaluators, meta)));
+    }
+
+    /**
+     * Bản bất đồng bộ của loadValues(...), cùng lưu ý như loadAllAsync(...).
+     */
+    public CompletableFuture<List<KeyValueEntity>> loadValuesAsync(ValueLoadContext context, Executor executor) {
+        return loadValuesAsync(context, UnaryOperator.identity(), executor);
+    }
+
+    public CompletableFuture<List<KeyValueEntity>> loadValuesAsync(ValueLoadContext context,
+                                                                   UnaryOperator<VirtualQuery> adjust,
+                                                                   Executor executor) {
+        ParsedJpql parsed = parseValueQuery(context);
+        String entityName = parsed != null ? parsed.getEntityName() : null;
+        StoreSchema.EntityBinding binding = binding(entityName);
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
+        if (handler == null) {
+            log.warn("[{}] no handler for entity {} (ValueLoadContext)", storeName, entityName);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        VirtualQuery query = adjust.apply(VirtualQuery.of(context, parsed));
+        try {
+            if (passRawContext(handler, query, entityName, queryStringOf(context))) {
+                ValueLoadContext raw = VirtualRows.legacyContext(context, query);
+                return CompletableFuture.supplyAsync(() -> handler.loadAllKeyValue(raw), executor);
+            }
+        } catch (UnsupportedOperationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        EntityMeta meta = binding.getMeta();
+        if (parsed.isAggregate()) {
+            AggregateQuery aggregate = AggregateQuery.of(parsed, query);
+            return this.<KeyValueEntity>coalesceAsync("loadAllValues", entityName, handler, queryStringOf(context), query,
+                    aggregate.names(context.getProperties()), () -> CompletableFuture.supplyAsync(
+                            () -> aggregate(context, aggregate, query, handler, meta), executor));
+        }
+        return this.<KeyValueEntity>coalesceAsync("loadAllValues", entityName, handler, meta, queryStringOf(context),
+                query, () -> handler.loadAllKeyValueAsync(context, VirtualRows.pushDown(handler, query), executor)
+                        .thenApply(rows -> VirtualRows.applyInStore(handler, query, rows, rowEvaluators, meta)));
+    }
+
+    //====================== AGGREGATE ========================
+
+    /**
+     * loadValues có hàm gộp / group by ("select e.status, sum(e.amount) from VirtualOrder e group by e.status"),
+     * mỗi nhóm một KeyValueEntity, sort / cắt trang trong store (kết quả thường nhỏ).
+     */
+    private List<KeyValueEntity> aggregate(ValueLoadContext context, AggregateQuery aggregate, VirtualQuery query,
+                                           VirtualEntityHandler<Object> handler, @Nullable EntityMeta meta) {
+        return AggregateRows.toEntities(aggregate, aggregateGroups(context, aggregate, query, handler, meta),
+                context.getProperties(), query);
+    }
+
+    /**
+     * - có MaterializedAggregate cho đúng JPQL + tham số (context không thêm Condition) -> đọc kết quả giữ sẵn
+     * - handler tự gộp được (SQL group by...) và lo hết filter -> handler.aggregate(...)
+     * - còn lại store gộp trong một lượt streamKeyValue, chỉ lấy các cột cần, không giữ row nào
+     */
+    private List<Object[]> aggregateGroups(ValueLoadContext context, AggregateQuery aggregate, VirtualQuery query,
+                                           VirtualEntityHandler<Object> handler, @Nullable EntityMeta meta) {
+        MaterializedAggregate m = materializedFor(context);
+        if (m != null) return m.rows();
+        if (VirtualRows.canAggregateInHandler(handler, query, aggregate)) {
+            return handler.aggregate(context, aggregate);
+        }
+        Aggregator aggregator = new Aggregator(meta, aggregate);
+        try (Stream<KeyValueEntity> rows = scanRows(context, handler, scanQuery(aggregate, query, meta, false), meta)) {
+            rows.forEach(aggregator::add);
+        }
+        return aggregator.result();
+    }
+
+    // lượt quét để gộp: không sort / paging, chỉ các cột hàm gộp cần (+ id nếu cần theo dõi từng bản ghi)
+    private static VirtualQuery scanQuery(AggregateQuery aggregate, VirtualQuery query, @Nullable EntityMeta meta,
+                                          boolean withId) {
+        List<String> properties = new ArrayList<>(aggregate.getProperties());
+        if (meta != null && (withId || properties.isEmpty()) && !properties.contains(meta.getIdProperty())) {
+            properties.add(0, meta.getIdProperty());
+        }
+        return new VirtualQuery(0, 0, List.of(), properties, query.getFilter(), query.getParameters(),
+                query.isFilterExact());
+    }
+
+    private Stream<KeyValueEntity> scanRows(ValueLoadContext context, VirtualEntityHandler<Object> handler,
+                                            VirtualQuery scan, @Nullable EntityMeta meta) {
+        return VirtualRows.applyInStore(handler, scan, handler.streamKeyValue(context, VirtualRows.pushDown(handler, scan)),
+                rowEvaluators, meta);
+    }
+
+    /**
+     * Giữ sẵn kết quả của một query gộp và cập nhật theo change event của entity (xem MaterializedAggregate).
+     * loadValues cùng chuỗi JPQL, cùng tham số và không thêm Condition sẽ đọc từ đây thay vì gọi handler.
+     * Gọi lại với cùng query + tham số trả về instance đã có; close() để bỏ.
+     *
+     * Chỉ nên dùng khi handler báo thay đổi (ObservableVirtualEntityHandler) hoặc nguồn ngoài gọi
+     * publishChanges(...), nếu không kết quả sẽ cũ dần cho tới lần refresh() tiếp theo.
+     */
+    public MaterializedAggregate materializeAggregate(String jpql, Map<String, Object> parameters) {
+        ParsedJpql parsed = queryCache.get(jpql);
+        if (!parsed.isComplete() || !parsed.isAggregate()) {
+            throw new IllegalArgumentException("DynamicDataStore[" + storeName + "] not a supported aggregate query: " + jpql);
+        }
+        String entityName = parsed.getEntityName();
+        StoreSchema.EntityBinding binding = binding(entityName);
+        EntityMeta meta = binding != null ? binding.getMeta() : null;
+        if (meta == null || binding.getHandler() == null) {
+            throw new IllegalArgumentException("DynamicDataStore[" + storeName + "] no handler for entity " + entityName);
+        }
+        MaterializedKey key = new MaterializedKey(jpql, parameters);
+        MaterializedAggregate existing = materialized.get(key);
+        if (existing != null) return existing;
+
+        VirtualQuery query = new VirtualQuery(0, 0, List.of(), List.of(), parsed.getWhere(), parameters, true);
+        AggregateQuery aggregate = AggregateQuery.of(parsed, query);
+        Predicate<Object> filter = parsed.getWhere() != null
+                ? rowEvaluators.get(meta, parsed.getWhere(), List.of()).predicate(parameters)
+                : row -> true;
+        VirtualQuery scan = scanQuery(aggregate, query, meta, true);
+        ValueLoadContext context = ValueLoadContext.create()
+                .setQuery(new ValueLoadContext.Query(jpql).setParameters(parameters));
+        MaterializedAggregate m = new MaterializedAggregate(entityName, meta, aggregate, filter, () -> {
+            // binding đọc lại mỗi lần quét: schema có thể đã thay handler
+            StoreSchema.EntityBinding current = binding(entityName);
+            VirtualEntityHandler<Object> handler = handlerOf(current);
+            return handler != null ? scanRows(context, handler, scan, current.getMeta()) : Stream.empty();
+        }, listener -> subscribe(entityName, listener), closed -> materialized.remove(key, closed));
+        m.refresh();
+        MaterializedAggregate raced = materialized.putIfAbsent(key, m);
+        if (raced != null) {
+            m.close();
+            return raced;
+        }
+        return m;
+    }
+
+    @Nullable
+    private MaterializedAggregate materializedFor(ValueLoadContext context) {
+        ValueLoadContext.Query q = context.getQuery();
+        if (materialized.isEmpty() || q == null || q.getCondition() != null) return null;
+        return materialized.get(new MaterializedKey(q.getQueryString(),
+                q.getParameters() != null ? q.getParameters() : Map.of()));
+    }
+
+    private static final class MaterializedKey {
+        final String queryString;
+        final Map<String, Object> parameters;
+
+        MaterializedKey(String queryString, Map<String, Object> parameters) {
+            this.queryString = queryString;
+            // tham số có thể mang giá trị null -> không dùng Map.copyOf
+            this.parameters = new HashMap<>(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MaterializedKey)) return false;
+            MaterializedKey k = (MaterializedKey) o;
+            return queryString.equals(k.queryString) && parameters.equals(k.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(queryString, parameters);
+        }
+    }
+
+    //====================== gộp load giống nhau ========================
+
+    /**
+     * Load giống hệt một load đang chạy trên store này thì chờ chung kết quả thay vì gọi handler lần nữa.
+     * Key = (operation, entity, handler, JPQL, VirtualQuery đã chuẩn hoá: filter + tham số + sort + paging
+     * + property); ràng buộc quyền của Jmix đi vào query dưới dạng Condition nên cũng nằm trong key.
+     *
+     * Bên chạy thật nhận list gốc, các bên chờ nhận bản sao row (AbstractDataStore và UI còn sửa entity
+     * trả về, không được dùng chung đối tượng giữa các session). Không cache: load xong là quên.
+     */
+    private List<Object> coalesce(String operation, String entityName, VirtualEntityHandler<?> handler,
+                                  @Nullable EntityMeta meta, @Nullable String queryString, VirtualQuery query,
+                                  Supplier<List<Object>> load) {
+        return coalesce(operation, entityName, handler, queryString, query, rowProperties(meta, query), load);
+    }
+
+    /**
+     * @param properties property cần copy của mỗi row cho bên chờ (row gộp: tên cột kết quả)
+     */
+    private List<Object> coalesce(String operation, String entityName, VirtualEntityHandler<?> handler,
+                                  @Nullable String queryString, VirtualQuery query, Collection<String> properties,
+                                  Supplier<List<Object>> load) {
+        if (!coalesceLoads) return load.get();
+        return inFlightLoads.run(new LoadKey(operation, entityName, handler, queryString, query), load,
+                rows -> followerCopy(operation, entityName, properties, rows));
+    }
+
+    private long coalesceCount(String operation, String entityName, VirtualEntityHandler<?> handler,
+                               @Nullable String queryString, VirtualQuery query, Supplier<Long> count) {
+        if (!coalesceLoads) return count.get();
+        return inFlightCounts.run(new LoadKey(operation, entityName, handler, queryString, query), count, n -> {
+            if (metrics != null) metrics.recordCoalesced(storeName, entityName, operation);
+            return n;
+        });
+    }
+
+    private <E> CompletableFuture<List<E>> coalesceAsync(String operation, String entityName,
+                                                         VirtualEntityHandler<?> handler, @Nullable EntityMeta meta,
+                                                         @Nullable String queryString, VirtualQuery query,
+                                                         Supplier<CompletableFuture<List<E>>> load) {
+        return coalesceAsync(operation, entityName, handler, queryString, query, rowProperties(meta, query), load);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <E> CompletableFuture<List<E>> coalesceAsync(String operation, String entityName,
+                                                         VirtualEntityHandler<?> handler, @Nullable String queryString,
+                                                         VirtualQuery query, Collection<String> properties,
+                                                         Supplier<CompletableFuture<List<E>>> load) {
+        if (!coalesceLoads) return load.get();
+        CompletableFuture shared = inFlightLoads.execute(new LoadKey(operation, entityName, handler, queryString, query),
+                (Supplier) load, rows -> followerCopy(operation, entityName, properties, rows));
+        return (CompletableFuture<List<E>>) shared;
+    }
+
+    private static Collection<String> rowProperties(@Nullable EntityMeta meta, VirtualQuery query) {
+        return query.getProperties().isEmpty() ? propertiesOf(meta) : query.getProperties();
+    }
+
+    private List<Object> followerCopy(String operation, String entityName, Collection<String> properties,
+                                      List<Object> rows) {
+        if (metrics != null) metrics.recordCoalesced(storeName, entityName, operation);
+        List<Object> out = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            out.add(VirtualRows.copy(row, properties));
+        }
+        return out;
+    }
+
+    /**
+     * Filter không dịch hết sang VirtualFilter (JpqlCondition, Condition lạ, JPQL parser không hiểu) mà handler
+     * không tự đọc context: lọc / đếm / cắt trang trên tập row rộng hơn sẽ trả thừa row và đếm sai
+     * -> true: gọi hàm cũ với context gốc và trả nguyên kết quả như trước khi có VirtualQuery
+     * (không đẩy paging / count xuống, không gộp load vì Condition thô không nằm trong key).
+     * Handler khai báo requiresExactFilter() thì báo lỗi thay vì fallback.
+     */
+    private boolean passRawContext(VirtualEntityHandler<?> handler, VirtualQuery query, @Nullable String entityName,
+                                   @Nullable String queryString) {
+        if (query.isFilterExact() || handler.handlesRawConditions()) return false;
+        if (handler.requiresExactFilter()) {
+            throw new UnsupportedOperationException("DynamicDataStore[" + storeName + "] condition of query on "
+                    + entityName + " cannot be translated and its handler requires an exact filter"
+                    + " (VirtualEntityHandler.requiresExactFilter()): " + queryString);
+        }
+        log.debug("[{}] condition of query on {} cannot be translated, passing the raw context to its handler: {}",
+                storeName, entityName, queryString);
+        return true;
+    }
+
+    @Nullable
+    private static String queryStringOf(LoadContext<?> context) {
+        return context.getQuery() != null ? context.getQuery().getQueryString() : null;
+    }
+
+    @Nullable
+    private static String queryStringOf(ValueLoadContext context) {
+        return context.getQuery() != null ? context.getQuery().getQueryString() : null;
+    }
+
+    private static final class LoadKey {
+        final String operation;
+        final String entityName;
+        final VirtualEntityHandler<?> handler;
+        @Nullable
+        final String queryString;
+        final VirtualQuery query;
+        final int hash;
+
+        LoadKey(String operation, String entityName, VirtualEntityHandler<?> handler,
+                @Nullable String queryString, VirtualQuery query) {
+            this.operation = operation;
+            this.entityName = entityName;
+            this.handler = handler;
+            this.queryString = queryString;
+            this.query = query;
+            this.hash = Objects.hash(operation, entityName, System.identityHashCode(handler), queryString, query);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LoadKey)) return false;
+            LoadKey k = (LoadKey) o;
+            // handler so sánh theo identity: schema đổi handler thì load mới không chờ kết quả của handler cũ
+            return hash == k.hash
+                    && handler == k.handler
+                    && operation.equals(k.operation)
+                    && entityName.equals(k.entityName)
+                    && Objects.equals(queryString, k.queryString)
+                    && query.equals(k.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     /**
      * Parse "select e.id, e.name from VirtualOrder e ..." => "VirtualOrder"
      */
     protected String extractEntityNameFromValueQuery(ValueLoadContext context) {
+        ParsedJpql parsed = parseValueQuery(context);
+        return parsed != null ? parsed.getEntityName() : null;
+    }
+
+    /**
+     * Parse JPQL của ValueLoadContext (select list, alias, where, order by).
+     * Kết quả được cache theo chuỗi query nên chỉ parse một lần cho mỗi câu.
+     */
+    @Nullable
+    public ParsedJpql parseValueQuery(ValueLoadContext context) {
         if (context.getQuery() == null || context.getQuery().getQueryString() == null)
             return null;
+        return queryCache.get(context.getQuery().getQueryString());
+    }
 
-        String jpql = context.getQuery().getQueryString();
-        String lower = jpql.toLowerCase(Locale.ROOT);
-        int idx = lower.indexOf(" from ");
-        if (idx < 0) return null;
-
-        String afterFrom = jpql.substring(idx + " from ".length()).trim();
-        String[] parts = afterFrom.split("\\s+");
-        return parts.length > 0 ? parts[0] : null;
+    /**
+     * JPQL của LoadContext ("select e from VirtualOrder e where ...") đã parse, để lấy where làm filter.
+     * null nếu context không có query string.
+     */
+    @Nullable
+    protected ParsedJpql parseQuery(LoadContext<?> context) {
+        if (context.getQuery() == null || context.getQuery().getQueryString() == null)
+            return null;
+        return queryCache.get(context.getQuery().getQueryString());
     }
 
-    //====================== TX lifecycle (no-op) ===========
+    //====================== TX lifecycle ===================
     @Override
     protected Object beginLoadTransaction(boolean joinTransaction) {
+        // đọc không cần transaction
         return new Object();
     }
 
     @Override
     protected Object beginSaveTransaction(boolean joinTransaction) {
-        return new Object();
+        DynamicTransaction current = currentTransaction.get();
+        if (joinTransaction && current != null && current.isActive()) {
+            return current.open();
+        }
+        DynamicTransaction tx = new DynamicTransaction(storeName, current);
+        currentTransaction.set(tx);
+        return tx.open();
     }
 
     @Override
     protected void commitTransaction(Object transaction) {
-        // no-op
+        DynamicTransaction.Scope scope = (DynamicTransaction.Scope) transaction;
+        DynamicTransaction tx = scope.getTransaction();
+        if (!scope.close()) {
+            // transaction lồng nhau: scope ngoài cùng sẽ commit
+            return;
+        }
+        // commit không nguyên tử giữa các entity (xem DynamicTransaction)
+        List<String> committed = new ArrayList<>();
+        try {
+            if (tx.isRollbackOnly()) {
+                throw new IllegalStateException("DynamicDataStore[" + storeName + "] transaction is rollback-only");
+            }
+            for (DynamicTransaction.Pending pending : tx.batches()) {
+                pending.handler.commit(pending.batch);
+                committed.add(pending.batch.getEntityName());
+            }
+            tx.completed(DynamicTransaction.Status.COMMITTED);
+        } catch (RuntimeException e) {
+            if (committed.isEmpty()) {
+                tx.completed(DynamicTransaction.Status.ROLLED_BACK);
+                throw e;
+            }
+            tx.completed(DynamicTransaction.Status.PARTIALLY_COMMITTED);
+            throw new PartialCommitException(storeName, committed, e);
+        } finally {
+            restorePrevious(tx);
+        }
     }
 
     @Override
     protected void rollbackTransaction(Object transaction) {
-        // no-op
+        // AbstractDataStore luôn gọi hàm này trong finally, kể cả sau khi commit thành công
+        DynamicTransaction.Scope scope = (DynamicTransaction.Scope) transaction;
+        if (scope.isClosed()) return;
+
+        DynamicTransaction tx = scope.getTransaction();
+        if (!scope.close()) {
+            // lỗi trong transaction lồng nhau: đánh dấu để scope ngoài cùng không commit
+            tx.markRollbackOnly();
+            return;
+        }
+        tx.completed(DynamicTransaction.Status.ROLLED_BACK);
+        restorePrevious(tx);
     }
 
     @Override
@@ -203,9 +933,69 @@ public class DynamicDataStore extends AbstractDataStore {
     protected static class NoopTxState implements TransactionContextState {}
 
     //====================== helper =========================
+
+    private DynamicTransaction requireTransaction() {
+        DynamicTransaction tx = currentTransaction.get();
+        if (tx == null || !tx.isActive()) {
+            throw new IllegalStateException("DynamicDataStore[" + storeName + "] no active save transaction");
+        }
+        return tx;
+    }
+
+    private void restorePrevious(DynamicTransaction tx) {
+        if (currentTransaction.get() != tx) return;
+        DynamicTransaction previous = tx.getPrevious();
+        if (previous != null) {
+            currentTransaction.set(previous);
+        } else {
+            currentTransaction.remove();
+        }
+    }
+
+    private WritableVirtualEntityHandler<Object> requireWritableHandler(String entityName,
+                                                                        @Nullable StoreSchema.EntityBinding binding) {
+        VirtualEntityHandler<Object> handler = handlerOf(binding);
+        if (!(handler instanceof WritableVirtualEntityHandler)
+                || !((WritableVirtualEntityHandler<Object>) handler).isWritable()) {
+            throw new UnsupportedOperationException("DynamicDataStore[" + storeName + "] entity "
+                    + entityName + " is read-only");
+        }
+        return (WritableVirtualEntityHandler<Object>) handler;
+    }
+
+    // danh sách field để ước lượng byte cho metrics
+    private static Collection<String> propertiesOf(@Nullable StoreSchema.EntityBinding binding) {
+        return propertiesOf(binding != null ? binding.getMeta() : null);
+    }
+
+    private static Collection<String> propertiesOf(@Nullable EntityMeta meta) {
+        return meta != null && meta.getAttributes() != null ? meta.getAttributes().keySet() : Collections.emptyList();
+    }
+
+    @Nullable
+    private static String idPropertyOf(@Nullable StoreSchema.EntityBinding binding) {
+        EntityMeta meta = binding != null ? binding.getMeta() : null;
+        return meta != null ? meta.getIdProperty() : null;
+    }
+
+    private String entityNameOf(Object entity) {
+        if (entity instanceof KeyValueEntity) {
+            MetaClass metaClass = ((KeyValueEntity) entity).getInstanceMetaClass();
+            if (metaClass != null) return metaClass.getName();
+        }
+        throw new IllegalArgumentException("DynamicDataStore[" + storeName
+                + "] cannot resolve entity name of " + entity);
+    }
+
+    // mỗi lời gọi đọc snapshot đúng một lần rồi dùng handler + EntityMeta của cùng binding đó
+    @Nullable
+    private StoreSchema.EntityBinding binding(@Nullable String entityName) {
+        return schema.get().binding(entityName);
+    }
+
     @SuppressWarnings("unchecked")
-    private <E> VirtualEntityHandler<E> getHandler(String entityName) {
-        if (entityName == null) return null;
-        return (VirtualEntityHandler<E>) handlers.get(entityName);
+    @Nullable
+    private static <E> VirtualEntityHandler<E> handlerOf(@Nullable StoreSchema.EntityBinding binding) {
+        return binding != null ? (VirtualEntityHandler<E>) binding.getHandler() : null;
     }
 }
@@ -0,0 +1,264 @@
+package com.company.dynamicdatastore.dynamic;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình chung cho các DynamicDataStore runtime (prefix "dynamic-store").
+ */
+@Component
+@ConfigurationProperties(prefix = "dynamic-store")
+public class DynamicStoreProperties {
+
+    /**
+     * Số id tối đa trong một lần gọi handler.loadMany(...).
+     */
+    private int idBatchSize = 500;
+
+    /**
+     * Số câu JPQL đã parse được giữ trong cache LRU.
+     */
+    private int jpqlCacheSize = 1024;
+
+    /**
+     * Số filter/sort đã biên dịch (RowEvaluator) được giữ trong cache LRU.
+     */
+    private int evaluatorCacheSize = 1024;
+
+    /**
+     * Tổng dung lượng (ước lượng) tối đa của tất cả entity ảo được cache.
+     */
+    private long cacheMaxBytes = 256L * 1024 * 1024;
+
+    /**
+     * Số load bất đồng bộ chạy đồng thời tối đa (AsyncDynamicDataManager).
+     */
+    private int asyncMaxConcurrency = 64;
+
+    /**
+     * Số load bất đồng bộ được xếp hàng chờ, vượt quá thì từ chối ngay (RejectedExecutionException).
+     */
+    private int asyncQueueCapacity = 1000;
+
+    /**
+     * Thời gian tối đa của một load bất đồng bộ.
+     */
+    private Duration asyncTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Dùng virtual thread nếu JVM hỗ trợ (Java 21+), không thì pool thread thường.
+     */
+    private boolean asyncVirtualThreads = true;
+
+    /**
+     * Nạp định nghĩa entity ảo từ DB (DynamicSchemaLoader) khi app khởi động.
+     */
+    private boolean schemaLoadOnStartup = true;
+
+    /**
+     * Số thread build MetaClass song song khi nạp schema (0 = số CPU).
+     */
+    private int schemaLoadParallelism = 0;
+
+    /**
+     * Fetch size của handler JDBC dựng từ định nghĩa đã lưu (handlerType = "jdbc").
+     */
+    private int jdbcFetchSize = 500;
+
+    /**
+     * Gộp các load / count giống hệt nhau đang chạy đồng thời trên một store thành một lời gọi handler.
+     */
+    private boolean coalesceLoads = true;
+
+    /**
+     * Bọc mọi handler đăng ký qua registry (addHandler, schema nạp từ DB) bằng bulkhead + timeout
+     * + circuit breaker theo các giá trị handler-* dưới đây (GuardedVirtualEntityHandler).
+     * Mặc định tắt: có timeout thì mỗi lời gọi handler chạy trên thread khác (HandlerGuardExecutor),
+     * handler nào cần thì bật riêng qua addHandler(..., HandlerGuardSpec).
+     */
+    private boolean handlerGuardEnabled = false;
+
+    /**
+     * Số lời gọi đồng thời tối đa xuống một handler, vượt quá thì từ chối ngay.
+     */
+    private int handlerMaxConcurrency = 32;
+
+    /**
+     * Thời gian tối đa của một lời gọi handler (0 = không giới hạn).
+     */
+    private Duration handlerTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Tỉ lệ lỗi (%) trong các lời gọi gần nhất làm circuit breaker mở.
+     */
+    private int handlerFailureRateThreshold = 50;
+
+    /**
+     * Thời gian circuit breaker mở (từ chối ngay) trước khi cho lời gọi thử.
+     */
+    private Duration handlerOpenDuration = Duration.ofSeconds(30);
+
+    /**
+     * Handler không dùng được thì trả kết quả thành công gần nhất cũ không quá khoảng này (0 = báo lỗi ngay).
+     */
+    private Duration handlerLastKnownGoodTtl = Duration.ZERO;
+
+    /**
+     * Số kết quả gần nhất (theo query) giữ cho mỗi handler khi bật handlerLastKnownGoodTtl.
+     */
+    private int handlerLastKnownGoodEntries = 256;
+
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    public void setIdBatchSize(int idBatchSize) {
+        this.idBatchSize = idBatchSize;
+    }
+
+    public int getJpqlCacheSize() {
+        return jpqlCacheSize;
+    }
+
+    public void setJpqlCacheSize(int jpqlCacheSize) {
+        this.jpqlCacheSize = jpqlCacheSize;
+    }
+
+    public int getEvaluatorCacheSize() {
+        return evaluatorCacheSize;
+    }
+
+    public void setEvaluatorCacheSize(int evaluatorCacheSize) {
+        this.evaluatorCacheSize = evaluatorCacheSize;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public int getAsyncMaxConcurrency() {
+        return asyncMaxConcurrency;
+    }
+
+    public void setAsyncMaxConcurrency(int asyncMaxConcurrency) {
+        this.asyncMaxConcurrency = asyncMaxConcurrency;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    public void setAsyncTimeout(Duration asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public boolean isAsyncVirtualThreads() {
+        return asyncVirtualThreads;
+    }
+
+    public void setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+        this.asyncVirtualThreads = asyncVirtualThreads;
+    }
+
+    public boolean isSchemaLoadOnStartup() {
+        return schemaLoadOnStartup;
+    }
+
+    public void setSchemaLoadOnStartup(boolean schemaLoadOnStartup) {
+        this.schemaLoadOnStartup = schemaLoadOnStartup;
+    }
+
+    public int getSchemaLoadParallelism() {
+        return schemaLoadParallelism;
+    }
+
+    public void setSchemaLoadParallelism(int schemaLoadParallelism) {
+        this.schemaLoadParallelism = schemaLoadParallelism;
+    }
+
+    public int getJdbcFetchSize() {
+        return jdbcFetchSize;
+    }
+
+    public void setJdbcFetchSize(int jdbcFetchSize) {
+        this.jdbcFetchSize = jdbcFetchSize;
+    }
+
+    public boolean isCoalesceLoads() {
+        return coalesceLoads;
+    }
+
+    public void setCoalesceLoads(boolean coalesceLoads) {
+        this.coalesceLoads = coalesceLoads;
+    }
+
+    public boolean isHandlerGuardEnabled() {
+        return handlerGuardEnabled;
+    }
+
+    public void setHandlerGuardEnabled(boolean handlerGuardEnabled) {
+        this.handlerGuardEnabled = handlerGuardEnabled;
+    }
+
+    public int getHandlerMaxConcurrency() {
+        return handlerMaxConcurrency;
+    }
+
+    public void setHandlerMaxConcurrency(int handlerMaxConcurrency) {
+        this.handlerMaxConcurrency = handlerMaxConcurrency;
+    }
+
+    public Duration getHandlerTimeout() {
+        return handlerTimeout;
+    }
+
+    public void setHandlerTimeout(Duration handlerTimeout) {
+        this.handlerTimeout = handlerTimeout;
+    }
+
+    public int getHandlerFailureRateThreshold() {
+        return handlerFailureRateThreshold;
+    }
+
+    public void setHandlerFailureRateThreshold(int handlerFailureRateThreshold) {
+        this.handlerFailureRateThreshold = handlerFailureRateThreshold;
+    }
+
+    public Duration getHandlerOpenDuration() {
+        return handlerOpenDuration;
+    }
+
+    public void setHandlerOpenDuration(Duration handlerOpenDuration) {
+        this.handlerOpenDuration = handlerOpenDuration;
+    }
+
+    public Duration getHandlerLastKnownGoodTtl() {
+        return handlerLastKnownGoodTtl;
+    }
+
+    public void setHandlerLastKnownGoodTtl(Duration handlerLastKnownGoodTtl) {
+        this.handlerLastKnownGoodTtl = handlerLastKnownGoodTtl;
+    }
+
+    public int getHandlerLastKnownGoodEntries() {
+        return handlerLastKnownGoodEntries;
+    }
+
+    public void setHandlerLastKnownGoodEntries(int handlerLastKnownGoodEntries) {
+        this.handlerLastKnownGoodEntries = handlerLastKnownGoodEntries;
+    }
+}
@@ -0,0 +1,210 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transaction ghi của DynamicDataStore: chỉ gom thay đổi trong RAM,
+ * không gì được ghi xuống handler cho tới khi commit.
+ *
+ * Gắn với thread hiện tại (giống transaction của Spring); nhiều lần
+ * DataManager.save(...) với joinTransaction dùng chung một instance.
+ *
+ * Handler ghi của mỗi entity được chốt lúc bản ghi đầu tiên của entity đó vào transaction,
+ * schema đổi giữa save và commit không làm lô bị giao cho handler khác.
+ *
+ * Commit KHÔNG nguyên tử giữa các entity: mỗi entity một lần handler.commit(batch), theo thứ tự entity
+ * được đưa vào. Lô thứ N lỗi thì các lô trước đã ghi xong vẫn giữ nguyên -> PartialCommitException
+ * (liệt kê entity đã ghi), status PARTIALLY_COMMITTED. Chỉ khi lô đầu tiên lỗi mới là ROLLED_BACK.
+ */
+public class DynamicTransaction {
+
+    public enum Status {ACTIVE, COMMITTED, PARTIALLY_COMMITTED, ROLLED_BACK}
+
+    private final String storeName;
+    private final DynamicTransaction previous;
+
+    // entityName -> thay đổi của entity đó (giữ thứ tự đưa vào)
+    private final Map<String, Changes> changes = new LinkedHashMap<>();
+
+    private Status status = Status.ACTIVE;
+    private int depth;
+    private boolean rollbackOnly;
+
+    DynamicTransaction(String storeName, @Nullable DynamicTransaction previous) {
+        this.storeName = storeName;
+        this.previous = previous;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isActive() {
+        return status == Status.ACTIVE;
+    }
+
+    @Nullable
+    DynamicTransaction getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Mỗi lần beginSaveTransaction (kể cả save lồng nhau với joinTransaction = true)
+     * mở một Scope; transaction chỉ thực sự commit / rollback khi Scope ngoài cùng đóng.
+     */
+    Scope open() {
+        depth++;
+        return new Scope(this);
+    }
+
+    /**
+     * @return true nếu đây là Scope cuối cùng (ngoài cùng)
+     */
+    private boolean leave() {
+        return --depth == 0;
+    }
+
+    void markRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    void bufferSave(String entityName, WritableVirtualEntityHandler<Object> handler,
+                    @Nullable String idProperty, Object entity) {
+        changesOf(entityName, handler).save(key(idProperty, entity), entity);
+    }
+
+    void bufferRemove(String entityName, WritableVirtualEntityHandler<Object> handler,
+                      @Nullable String idProperty, Object entity) {
+        changesOf(entityName, handler).remove(key(idProperty, entity), entity);
+    }
+
+    private Changes changesOf(String entityName, WritableVirtualEntityHandler<Object> handler) {
+        Changes c = changes.computeIfAbsent(entityName, n -> new Changes(handler));
+        if (c.handler != handler) {
+            throw new IllegalStateException("DynamicDataStore[" + storeName + "] handler of entity " + entityName
+                    + " was replaced during the transaction");
+        }
+        return c;
+    }
+
+    /**
+     * Các lô thay đổi theo entity (kèm handler đã chốt), theo thứ tự entity được đưa vào transaction.
+     */
+    List<Pending> batches() {
+        List<Pending> out = new ArrayList<>(changes.size());
+        for (Map.Entry<String, Changes> e : changes.entrySet()) {
+            VirtualWriteBatch<Object> batch = new VirtualWriteBatch<>(storeName, e.getKey(),
+                    new ArrayList<>(e.getValue().saved.values()), new ArrayList<>(e.getValue().removed.values()));
+            if (!batch.isEmpty()) out.add(new Pending(e.getValue().handler, batch));
+        }
+        return out;
+    }
+
+    void completed(Status status) {
+        this.status = status;
+        changes.clear();
+    }
+
+    /**
+     * Khoá để gộp các lần save cùng một bản ghi: theo id nếu có, không thì theo chính object.
+     */
+    private static Object key(@Nullable String idProperty, Object entity) {
+        Object id = idProperty != null ? VirtualRows.getValue(entity, idProperty) : null;
+        return id != null ? id : new IdentityKey(entity);
+    }
+
+    /**
+     * Handle mà DynamicDataStore trả về cho AbstractDataStore như "transaction object".
+     */
+    static final class Scope {
+        private final DynamicTransaction transaction;
+        private boolean closed;
+
+        private Scope(DynamicTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        DynamicTransaction getTransaction() {
+            return transaction;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Đóng scope; true nếu là scope ngoài cùng.
+         */
+        boolean close() {
+            closed = true;
+            return transaction.leave();
+        }
+    }
+
+    /**
+     * Lô thay đổi của một entity và handler sẽ ghi nó.
+     */
+    static final class Pending {
+        final WritableVirtualEntityHandler<Object> handler;
+        final VirtualWriteBatch<Object> batch;
+
+        Pending(WritableVirtualEntityHandler<Object> handler, VirtualWriteBatch<Object> batch) {
+            this.handler = handler;
+            this.batch = batch;
+        }
+    }
+
+    private static final class Changes {
+        final WritableVirtualEntityHandler<Object> handler;
+        final Map<Object, Object> saved = new LinkedHashMap<>();
+        final Map<Object, Object> removed = new LinkedHashMap<>();
+
+        Changes(WritableVirtualEntityHandler<Object> handler) {
+            this.handler = handler;
+        }
+
+        void save(Object key, Object entity) {
+            removed.remove(key);
+            saved.put(key, entity);
+        }
+
+        void remove(Object key, Object entity) {
+            saved.remove(key);
+            removed.put(key, entity);
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object ref;
+
+        IdentityKey(Object ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).ref == ref;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ref);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 public class EntityMeta {
     private String name;                      // Entity name
     private Map<String, Class<?>> attributes; // Fields
+    private String idProperty = "id";         // Field làm khoá chính
 
     public EntityMeta() {
     }
@@ -24,4 +25,12 @@ public class EntityMeta {
     public void setAttributes(Map<String, Class<?>> attributes) {
         this.attributes = attributes;
     }
+
+    public String getIdProperty() {
+        return idProperty;
+    }
+
+    public void setIdProperty(String idProperty) {
+        this.idProperty = idProperty;
+    }
 }
@@ -0,0 +1,41 @@
+package com.company.dynamicdatastore.dynamic;
+
+import io.jmix.core.metamodel.model.MetaClass;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Một phiên bản MetaClass của entity ảo trong registry.
+ * fields = định nghĩa field đã dùng để build (null nếu MetaClass được đăng ký thẳng, không rõ schema).
+ */
+public final class MetaClassVersion {
+
+    private final MetaClass metaClass;
+    @Nullable
+    private final List<RuntimeFieldDef> fields;
+    private final long version;
+
+    public MetaClassVersion(MetaClass metaClass, @Nullable List<RuntimeFieldDef> fields, long version) {
+        this.metaClass = metaClass;
+        this.fields = fields != null ? List.copyOf(fields) : null;
+        this.version = version;
+    }
+
+    public MetaClass getMetaClass() {
+        return metaClass;
+    }
+
+    @Nullable
+    public List<RuntimeFieldDef> getFields() {
+        return fields;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean matches(List<RuntimeFieldDef> other) {
+        return fields != null && fields.equals(other);
+    }
+}
@@ -0,0 +1,29 @@
+package com.company.dynamicdatastore.dynamic;
+
+import java.util.List;
+
+/**
+ * Commit của DynamicTransaction lỗi giữa chừng: các entity trong getCommittedEntities() đã được handler ghi xong
+ * và KHÔNG được hoàn tác (commit không nguyên tử giữa các entity), entity lỗi và các entity sau nó chưa ghi.
+ * getCause() là lỗi gốc của handler.
+ */
+public class PartialCommitException extends RuntimeException {
+
+    private final String storeName;
+    private final List<String> committedEntities;
+
+    public PartialCommitException(String storeName, List<String> committedEntities, RuntimeException cause) {
+        super("DynamicDataStore[" + storeName + "] commit failed after changes of " + committedEntities
+                + " were already written (commits across entities are not atomic): " + cause.getMessage(), cause);
+        this.storeName = storeName;
+        this.committedEntities = List.copyOf(committedEntities);
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public List<String> getCommittedEntities() {
+        return committedEntities;
+    }
+}
@@ -1,5 +1,7 @@
 package com.company.dynamicdatastore.dynamic;
 
+import java.util.Objects;
+
 public class RuntimeFieldDef {
     private final String name;
     private final Class<?> javaType;
@@ -16,4 +18,23 @@ public class RuntimeFieldDef {
     public Class<?> getJavaType() {
         return javaType;
     }
+
+    // so sánh theo giá trị để registry biết schema có đổi hay không
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RuntimeFieldDef)) return false;
+        RuntimeFieldDef that = (RuntimeFieldDef) o;
+        return name.equals(that.name) && javaType.equals(that.javaType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, javaType);
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + javaType.getSimpleName();
+    }
 }
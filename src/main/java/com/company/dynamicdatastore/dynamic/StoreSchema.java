@@ -0,0 +1,188 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot bất biến schema của một store: entityName -> (EntityMeta, handler, MetaClass).
+ *
+ * DynamicDataStore giữ snapshot trong một AtomicReference:
+ * - đọc (hot path) = 1 volatile read + 1 lần tra map, không thấy trạng thái nửa vời
+ * - ghi = copy-on-write, các with...() trả về snapshot mới; store đóng dấu version khi publish
+ * - ghi nhiều entity một lần: toBuilder() copy map đúng một lần cho cả lô
+ */
+public final class StoreSchema {
+
+    public static final StoreSchema EMPTY = new StoreSchema(Map.of(), 0);
+
+    private final Map<String, EntityBinding> bindings;
+    private final long version;
+
+    private StoreSchema(Map<String, EntityBinding> bindings, long version) {
+        this.bindings = bindings;
+        this.version = version;
+    }
+
+    @Nullable
+    public EntityBinding binding(@Nullable String entityName) {
+        return entityName != null ? bindings.get(entityName) : null;
+    }
+
+    public Collection<EntityBinding> getBindings() {
+        return bindings.values();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public StoreSchema withEntity(EntityMeta meta) {
+        return toBuilder().withEntity(meta).build();
+    }
+
+    public StoreSchema withHandler(String entityName, VirtualEntityHandler<?> handler) {
+        return toBuilder().withHandler(entityName, handler).build();
+    }
+
+    public StoreSchema withMetaClass(String entityName, MetaClassVersion metaClass) {
+        return toBuilder().withMetaClass(entityName, metaClass).build();
+    }
+
+    public StoreSchema without(String entityName) {
+        if (!bindings.containsKey(entityName)) return this;
+        return toBuilder().without(entityName).build();
+    }
+
+    /**
+     * Sửa nhiều entity rồi build() thành một snapshot mới; snapshot hiện tại không đổi.
+     */
+    public Builder toBuilder() {
+        return new Builder(bindings, version);
+    }
+
+    // store gọi khi publish
+    StoreSchema withVersion(long version) {
+        return new StoreSchema(bindings, version);
+    }
+
+    /**
+     * Bản nháp của snapshot: copy map một lần, các with...() sửa tại chỗ, build() dùng luôn map đó
+     * (không copy lần nữa) nên builder không dùng được sau build().
+     */
+    public static final class Builder {
+
+        @Nullable
+        private Map<String, EntityBinding> bindings;
+        private final long version;
+
+        private Builder(Map<String, EntityBinding> bindings, long version) {
+            this.bindings = new HashMap<>(bindings);
+            this.version = version;
+        }
+
+        @Nullable
+        public EntityBinding binding(@Nullable String entityName) {
+            return entityName != null ? editable().get(entityName) : null;
+        }
+
+        public Builder withEntity(EntityMeta meta) {
+            return put(bindingOrNew(meta.getName()).withMeta(meta));
+        }
+
+        public Builder withHandler(String entityName, VirtualEntityHandler<?> handler) {
+            return put(bindingOrNew(entityName).withHandler(handler));
+        }
+
+        public Builder withMetaClass(String entityName, MetaClassVersion metaClass) {
+            return put(bindingOrNew(entityName).withMetaClass(metaClass));
+        }
+
+        public Builder without(String entityName) {
+            editable().remove(entityName);
+            return this;
+        }
+
+        public StoreSchema build() {
+            StoreSchema built = new StoreSchema(Collections.unmodifiableMap(editable()), version);
+            bindings = null;
+            return built;
+        }
+
+        private EntityBinding bindingOrNew(String entityName) {
+            EntityBinding b = editable().get(entityName);
+            return b != null ? b : new EntityBinding(entityName, null, null, null);
+        }
+
+        private Builder put(EntityBinding binding) {
+            editable().put(binding.getName(), binding);
+            return this;
+        }
+
+        private Map<String, EntityBinding> editable() {
+            if (bindings == null) {
+                throw new IllegalStateException("StoreSchema.Builder already built");
+            }
+            return bindings;
+        }
+    }
+
+    /**
+     * Mọi thứ store biết về một entity ảo, luôn đi cùng nhau.
+     */
+    public static final class EntityBinding {
+
+        private final String name;
+        @Nullable
+        private final EntityMeta meta;
+        @Nullable
+        private final VirtualEntityHandler<?> handler;
+        @Nullable
+        private final MetaClassVersion metaClass;
+
+        EntityBinding(String name,
+                      @Nullable EntityMeta meta,
+                      @Nullable VirtualEntityHandler<?> handler,
+                      @Nullable MetaClassVersion metaClass) {
+            this.name = name;
+            this.meta = meta;
+            this.handler = handler;
+            this.metaClass = metaClass;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Nullable
+        public EntityMeta getMeta() {
+            return meta;
+        }
+
+        @Nullable
+        public VirtualEntityHandler<?> getHandler() {
+            return handler;
+        }
+
+        @Nullable
+        public MetaClassVersion getMetaClass() {
+            return metaClass;
+        }
+
+        EntityBinding withMeta(EntityMeta meta) {
+            return new EntityBinding(name, meta, handler, metaClass);
+        }
+
+        EntityBinding withHandler(VirtualEntityHandler<?> handler) {
+            return new EntityBinding(name, meta, handler, metaClass);
+        }
+
+        EntityBinding withMetaClass(MetaClassVersion metaClass) {
+            return new EntityBinding(name, meta, handler, metaClass);
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * Trạng thái của một hàm gộp trong một nhóm.
+ *
+ * Cột kiểu số của CompactRow được cộng / so sánh thẳng trên slot (long, double, decimal inline
+ * unscaled + scale), không box giá trị nào; row khác đi qua add(Object).
+ * remove(...) dùng cho aggregate duy trì theo change event: count / sum / avg trừ ngược được,
+ * min / max chỉ trừ được khi giá trị bị bỏ không phải cực trị hiện tại.
+ */
+abstract class Accumulator {
+
+    /**
+     * Giá trị của row (null = bỏ qua, trừ count(e)).
+     */
+    abstract void add(@Nullable Object value);
+
+    /**
+     * Đọc thẳng slot, row đã được kiểm tra là cùng layout và không ghi đè cột này.
+     */
+    void add(CompactRow row, int column) {
+        add(row.get(column));
+    }
+
+    /**
+     * Bỏ phần đóng góp của một giá trị đã add trước đó.
+     *
+     * @return false nếu không trừ được (cực trị của min / max bị bỏ): phải tính lại cả nhóm
+     */
+    abstract boolean remove(@Nullable Object value);
+
+    @Nullable
+    abstract Object result();
+
+    /**
+     * @param type kiểu attribute (null nếu không biết)
+     * @param kind kiểu slot của cột trong RowLayout (OBJECT nếu không đọc slot được)
+     */
+    static Accumulator create(AggregateFunction function, boolean countRows,
+                              @Nullable Class<?> type, RowLayout.Kind kind) {
+        boolean longSlot = kind == RowLayout.Kind.LONG || kind == RowLayout.Kind.INTEGER;
+        return switch (function) {
+            case COUNT -> countRows ? new CountRows() : new CountValues();
+            case SUM -> {
+                if (AggregateFunction.isIntegral(type)) yield new LongSum(longSlot);
+                if (type == Double.class || type == Float.class) yield new DoubleSum(kind == RowLayout.Kind.DOUBLE);
+                if (type == BigDecimal.class) yield new DecimalSum(kind == RowLayout.Kind.DECIMAL);
+                yield new AdaptiveSum();
+            }
+            case AVG -> new Avg(kind);
+            case MIN, MAX -> {
+                boolean max = function == AggregateFunction.MAX;
+                if (longSlot) yield new LongExtreme(max, kind == RowLayout.Kind.INTEGER);
+                if (kind == RowLayout.Kind.DOUBLE) yield new DoubleExtreme(max);
+                yield new ObjectExtreme(max);
+            }
+        };
+    }
+
+    //====================== count ======================
+
+    // count(e): mọi row
+    static final class CountRows extends Accumulator {
+        private long n;
+
+        @Override
+        void add(@Nullable Object value) {
+            n++;
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            n++;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            n--;
+            return true;
+        }
+
+        @Override
+        Object result() {
+            return n;
+        }
+    }
+
+    // count(e.x): giá trị khác null
+    static final class CountValues extends Accumulator {
+        private long n;
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value != null) n++;
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!row.isNull(column)) n++;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value != null) n--;
+            return true;
+        }
+
+        @Override
+        Object result() {
+            return n;
+        }
+    }
+
+    //====================== sum ======================
+
+    /**
+     * Cộng trên long, tràn thì chuyển sang BigDecimal thay vì ném ArithmeticException.
+     * Kết quả vẫn là Long khi tổng vừa long, chỉ là BigDecimal khi không vừa.
+     */
+    static final class LongSum extends Accumulator {
+        private final boolean longSlot;
+        private long sum;
+        @Nullable
+        private BigDecimal big;
+        private long n;
+
+        LongSum(boolean longSlot) {
+            this.longSlot = longSlot;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            plus(((Number) value).longValue());
+            n++;
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!longSlot) {
+                add(row.get(column));
+            } else if (!row.isNull(column)) {
+                plus(row.getLong(column));
+                n++;
+            }
+        }
+
+        private void plus(long v) {
+            if (big == null) {
+                try {
+                    sum = Math.addExact(sum, v);
+                    return;
+                } catch (ArithmeticException overflow) {
+                    big = BigDecimal.valueOf(sum);
+                }
+            }
+            big = big.add(BigDecimal.valueOf(v));
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            long v = ((Number) value).longValue();
+            if (big == null) {
+                try {
+                    sum = Math.subtractExact(sum, v);
+                    n--;
+                    return true;
+                } catch (ArithmeticException overflow) {
+                    big = BigDecimal.valueOf(sum);
+                }
+            }
+            big = big.subtract(BigDecimal.valueOf(v));
+            n--;
+            return true;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            if (n <= 0) return null;
+            return big != null ? narrow(big) : (Object) sum;
+        }
+    }
+
+    static final class DoubleSum extends Accumulator {
+        private final boolean doubleSlot;
+        private double sum;
+        private long n;
+
+        DoubleSum(boolean doubleSlot) {
+            this.doubleSlot = doubleSlot;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            sum += ((Number) value).doubleValue();
+            n++;
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!doubleSlot) {
+                add(row.get(column));
+            } else if (!row.isNull(column)) {
+                sum += row.getDouble(column);
+                n++;
+            }
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            // trừ số thực tích sai số làm tròn theo thời gian, refresh() định kỳ nếu cần chính xác tuyệt đối
+            sum -= ((Number) value).doubleValue();
+            n--;
+            return true;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            return n > 0 ? sum : null;
+        }
+    }
+
+    /**
+     * Cộng trên unscaled long khi mọi giá trị cùng scale và không tràn, chỉ khi khác scale / tràn
+     * mới chuyển hẳn sang BigDecimal.
+     */
+    static final class DecimalSum extends Accumulator {
+        private final boolean decimalSlot;
+        private long unscaled;
+        // -1 = chưa có giá trị nào
+        private int scale = -1;
+        @Nullable
+        private BigDecimal big;
+        private long n;
+
+        DecimalSum(boolean decimalSlot) {
+            this.decimalSlot = decimalSlot;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            n++;
+            BigDecimal d = toBigDecimal(value);
+            if (big == null && d.precision() <= 18 && d.scale() >= 0 && addUnscaled(d.unscaledValue().longValue(), d.scale())) {
+                return;
+            }
+            spill();
+            big = big.add(d);
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!decimalSlot || !row.isInlineDecimal(column)) {
+                add(row.get(column));
+                return;
+            }
+            if (row.isNull(column)) return;
+            n++;
+            long u = row.getUnscaled(column);
+            int s = row.getScale(column);
+            if (big == null && s >= 0 && addUnscaled(u, s)) return;
+            spill();
+            big = big.add(BigDecimal.valueOf(u, s));
+        }
+
+        private boolean addUnscaled(long u, int s) {
+            if (scale >= 0 && scale != s) return false;
+            try {
+                unscaled = Math.addExact(unscaled, u);
+                scale = s;
+                return true;
+            } catch (ArithmeticException overflow) {
+                return false;
+            }
+        }
+
+        private void spill() {
+            if (big == null) big = scale >= 0 ? BigDecimal.valueOf(unscaled, scale) : BigDecimal.ZERO;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            n--;
+            spill();
+            big = big.subtract(toBigDecimal(value));
+            return true;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            if (n <= 0) return null;
+            return big != null ? big : BigDecimal.valueOf(unscaled, scale);
+        }
+    }
+
+    /**
+     * Sum khi không biết kiểu attribute (property lồng, entity không có meta): kiểu kết quả theo các giá trị
+     * đã gặp và chỉ nới rộng, không bao giờ cắt phần lẻ: số nguyên -> Long, có Double / Float -> Double,
+     * có BigDecimal (hoặc số lạ) -> BigDecimal. Long tràn cũng chuyển sang BigDecimal.
+     */
+    static final class AdaptiveSum extends Accumulator {
+        private long longSum;
+        private double doubleSum;
+        private boolean floating;
+        @Nullable
+        private BigDecimal big;
+        private long n;
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            accumulate(value, false);
+            n++;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            accumulate(value, true);
+            n--;
+            return true;
+        }
+
+        private void accumulate(Object value, boolean subtract) {
+            boolean floatingValue = value instanceof Double || value instanceof Float;
+            if (big == null && !floatingValue && !isIntegral(value)) {
+                big = floating ? BigDecimal.valueOf(doubleSum) : BigDecimal.valueOf(longSum);
+            }
+            if (big != null) {
+                BigDecimal d = toBigDecimal(value);
+                big = subtract ? big.subtract(d) : big.add(d);
+                return;
+            }
+            if (floatingValue && !floating) {
+                floating = true;
+                doubleSum = longSum;
+            }
+            if (floating) {
+                double d = ((Number) value).doubleValue();
+                doubleSum = subtract ? doubleSum - d : doubleSum + d;
+                return;
+            }
+            long v = ((Number) value).longValue();
+            try {
+                longSum = subtract ? Math.subtractExact(longSum, v) : Math.addExact(longSum, v);
+            } catch (ArithmeticException overflow) {
+                BigDecimal d = BigDecimal.valueOf(v);
+                big = subtract ? BigDecimal.valueOf(longSum).subtract(d) : BigDecimal.valueOf(longSum).add(d);
+            }
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            if (n <= 0) return null;
+            if (big != null) return big;
+            return floating ? (Object) doubleSum : (Object) longSum;
+        }
+    }
+
+    //====================== avg ======================
+
+    static final class Avg extends Accumulator {
+        private final RowLayout.Kind kind;
+        private double sum;
+        private long n;
+
+        Avg(RowLayout.Kind kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            sum += ((Number) value).doubleValue();
+            n++;
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            switch (kind) {
+                case LONG, INTEGER -> {
+                    if (row.isNull(column)) return;
+                    sum += row.getLong(column);
+                }
+                case DOUBLE -> {
+                    if (row.isNull(column)) return;
+                    sum += row.getDouble(column);
+                }
+                default -> {
+                    add(row.get(column));
+                    return;
+                }
+            }
+            n++;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            sum -= ((Number) value).doubleValue();
+            n--;
+            return true;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            return n > 0 ? sum / n : null;
+        }
+    }
+
+    //====================== min / max ======================
+
+    static final class LongExtreme extends Accumulator {
+        private final boolean max;
+        private final boolean intResult;
+        private long best;
+        private long n;
+
+        LongExtreme(boolean max, boolean intResult) {
+            this.max = max;
+            this.intResult = intResult;
+        }
+
+        private void accept(long v) {
+            if (n == 0 || (max ? v > best : v < best)) best = v;
+            n++;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value != null) accept(((Number) value).longValue());
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!row.isNull(column)) accept(row.getLong(column));
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            n--;
+            return n > 0 && ((Number) value).longValue() != best;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            if (n <= 0) return null;
+            return intResult ? (Object) (int) best : (Object) best;
+        }
+    }
+
+    static final class DoubleExtreme extends Accumulator {
+        private final boolean max;
+        private double best;
+        private long n;
+
+        DoubleExtreme(boolean max) {
+            this.max = max;
+        }
+
+        private void accept(double v) {
+            if (n == 0 || (max ? Double.compare(v, best) > 0 : Double.compare(v, best) < 0)) best = v;
+            n++;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value != null) accept(((Number) value).doubleValue());
+        }
+
+        @Override
+        void add(CompactRow row, int column) {
+            if (!row.isNull(column)) accept(row.getDouble(column));
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            n--;
+            return n > 0 && Double.compare(((Number) value).doubleValue(), best) != 0;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            return n > 0 ? best : null;
+        }
+    }
+
+    // String, ngày giờ, BigDecimal...: so sánh như sort của store
+    static final class ObjectExtreme extends Accumulator {
+        private final boolean max;
+        @Nullable
+        private Object best;
+        private long n;
+
+        ObjectExtreme(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        void add(@Nullable Object value) {
+            if (value == null) return;
+            if (n == 0) {
+                best = value;
+            } else {
+                int c = VirtualRows.compareValues(value, best);
+                if (max ? c > 0 : c < 0) best = value;
+            }
+            n++;
+        }
+
+        @Override
+        boolean remove(@Nullable Object value) {
+            if (value == null) return true;
+            n--;
+            if (n <= 0) {
+                best = null;
+                return false;
+            }
+            return VirtualRows.compareValues(value, best) != 0;
+        }
+
+        @Override
+        @Nullable
+        Object result() {
+            return n > 0 ? best : null;
+        }
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    // tổng đã tràn long mà trừ ngược về lại vừa long thì trả Long như bình thường
+    private static Object narrow(BigDecimal value) {
+        try {
+            return value.longValueExact();
+        } catch (ArithmeticException overflow) {
+            return value;
+        }
+    }
+
+    static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        if (isIntegral(value)) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        return new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,55 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Hàm gộp hỗ trợ trong select list của loadValues: count / sum / avg / min / max.
+ */
+public enum AggregateFunction {
+    COUNT, SUM, AVG, MIN, MAX;
+
+    /**
+     * null nếu name không phải hàm gộp.
+     */
+    @Nullable
+    public static AggregateFunction of(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "count" -> COUNT;
+            case "sum" -> SUM;
+            case "avg" -> AVG;
+            case "min" -> MIN;
+            case "max" -> MAX;
+            default -> null;
+        };
+    }
+
+    /**
+     * Kiểu kết quả theo JPQL: count -> Long, avg -> Double, sum số nguyên -> Long, sum số thực -> Double,
+     * sum BigDecimal -> BigDecimal, min / max giữ kiểu attribute.
+     *
+     * @param attributeType kiểu attribute được gộp, null nếu không biết (hoặc count(e))
+     */
+    @Nullable
+    public Class<?> resultType(@Nullable Class<?> attributeType) {
+        switch (this) {
+            case COUNT:
+                return Long.class;
+            case AVG:
+                return Double.class;
+            case SUM:
+                if (isIntegral(attributeType)) return Long.class;
+                if (attributeType == Double.class || attributeType == Float.class) return Double.class;
+                if (attributeType == BigDecimal.class) return BigDecimal.class;
+                return null;
+            default:
+                return attributeType;
+        }
+    }
+
+    static boolean isIntegral(@Nullable Class<?> type) {
+        return type == Long.class || type == Integer.class || type == Short.class || type == Byte.class;
+    }
+}
@@ -0,0 +1,219 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.query.ParsedJpql;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Query gộp đã chuẩn hoá mà store đưa xuống handler (VirtualEntityHandler.aggregate(...)):
+ * các cột kết quả theo đúng thứ tự select list (cột nhóm hoặc hàm gộp), group by, filter và tham số.
+ *
+ * Mỗi nhóm là một Object[] theo thứ tự getColumns(); không group by thì luôn đúng một nhóm,
+ * kể cả khi không có bản ghi nào (count = 0, các hàm khác null) như SQL.
+ * Sort / paging trên kết quả (thường nhỏ) do store làm.
+ */
+public final class AggregateQuery {
+
+    private final List<Column> columns;
+    private final List<String> groupBy;
+    @Nullable
+    private final VirtualFilter filter;
+    private final Map<String, Object> parameters;
+
+    public AggregateQuery(List<Column> columns, List<String> groupBy,
+                          @Nullable VirtualFilter filter, Map<String, Object> parameters) {
+        this.columns = List.copyOf(columns);
+        this.groupBy = List.copyOf(groupBy);
+        this.filter = filter;
+        // tham số có thể mang giá trị null -> không dùng Map.copyOf
+        this.parameters = parameters.isEmpty() ? Map.of() : Collections.unmodifiableMap(new HashMap<>(parameters));
+    }
+
+    /**
+     * Cột lấy từ select list của JPQL (đã parse, isAggregate() = true), filter + tham số lấy từ query
+     * (where của JPQL AND Condition của context).
+     */
+    public static AggregateQuery of(ParsedJpql parsed, VirtualQuery query) {
+        List<Column> columns = new ArrayList<>(parsed.getSelectItems().size());
+        for (ParsedJpql.SelectItem item : parsed.getSelectItems()) {
+            columns.add(item.isAggregate()
+                    ? Column.measure(item.getFunction(), item.getPath(), item.getAlias())
+                    : Column.group(item.getPath(), item.getAlias()));
+        }
+        return new AggregateQuery(columns, parsed.getGroupBy(), query.getFilter(), query.getParameters());
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    @Nullable
+    public VirtualFilter getFilter() {
+        return filter;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Các property cần đọc từ mỗi bản ghi (cột nhóm + property trong hàm gộp), rỗng nếu chỉ có count(e).
+     */
+    public List<String> getProperties() {
+        Set<String> out = new LinkedHashSet<>(groupBy);
+        for (Column c : columns) {
+            if (c.getProperty() != null) out.add(c.getProperty());
+        }
+        return List.copyOf(out);
+    }
+
+    /**
+     * Tên property của từng cột trong KeyValueEntity kết quả: properties của ValueLoadContext nếu đủ số cột
+     * (theo vị trí, giống loadValues của JPA), không thì alias, không nữa thì tên tự đặt (Column.getName()).
+     */
+    public List<String> names(@Nullable List<String> contextProperties) {
+        if (contextProperties != null && contextProperties.size() == columns.size()) {
+            return List.copyOf(contextProperties);
+        }
+        List<String> out = new ArrayList<>(columns.size());
+        for (Column c : columns) out.add(c.getName());
+        return out;
+    }
+
+    /**
+     * Đổi sort key (theo tên cột kết quả, alias hoặc property nhóm) sang tên cột kết quả;
+     * key không khớp cột nào bị bỏ qua.
+     */
+    public List<VirtualQuery.SortKey> resolveSort(List<VirtualQuery.SortKey> sort, List<String> names) {
+        if (sort.isEmpty()) return sort;
+        List<VirtualQuery.SortKey> out = new ArrayList<>(sort.size());
+        for (VirtualQuery.SortKey key : sort) {
+            int i = names.indexOf(key.getProperty());
+            for (int c = 0; i < 0 && c < columns.size(); c++) {
+                Column column = columns.get(c);
+                if (key.getProperty().equals(column.getAlias())
+                        || (column.isGroup() && key.getProperty().equals(column.getProperty()))) {
+                    i = c;
+                }
+            }
+            if (i >= 0) out.add(new VirtualQuery.SortKey(names.get(i), key.isDescending()));
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AggregateQuery)) return false;
+        AggregateQuery that = (AggregateQuery) o;
+        return columns.equals(that.columns)
+                && groupBy.equals(that.groupBy)
+                && Objects.equals(filter, that.filter)
+                && parameters.equals(that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(columns, groupBy, filter, parameters);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateQuery{columns=" + columns + ", groupBy=" + groupBy
+                + (filter != null ? ", filter=" + filter : "") + "}";
+    }
+
+    /**
+     * Một cột kết quả: property nhóm (function = null) hoặc hàm gộp trên property (count(e): property = null).
+     */
+    public static final class Column {
+        @Nullable
+        private final AggregateFunction function;
+        @Nullable
+        private final String property;
+        @Nullable
+        private final String alias;
+
+        private Column(@Nullable AggregateFunction function, @Nullable String property, @Nullable String alias) {
+            this.function = function;
+            this.property = property;
+            this.alias = alias;
+        }
+
+        public static Column group(String property, @Nullable String alias) {
+            return new Column(null, Objects.requireNonNull(property), alias);
+        }
+
+        public static Column measure(AggregateFunction function, @Nullable String property, @Nullable String alias) {
+            if (property == null && function != AggregateFunction.COUNT) {
+                throw new IllegalArgumentException(function + " needs a property");
+            }
+            return new Column(Objects.requireNonNull(function), property, alias);
+        }
+
+        @Nullable
+        public AggregateFunction getFunction() {
+            return function;
+        }
+
+        @Nullable
+        public String getProperty() {
+            return property;
+        }
+
+        @Nullable
+        public String getAlias() {
+            return alias;
+        }
+
+        public boolean isGroup() {
+            return function == null;
+        }
+
+        /**
+         * alias, không có thì property (cột nhóm) hoặc "sum_amount", "count" (count(e)).
+         */
+        public String getName() {
+            if (alias != null) return alias;
+            if (function == null) return property;
+            String name = function.name().toLowerCase(Locale.ROOT);
+            return property != null ? name + "_" + property.replace('.', '_') : name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Column)) return false;
+            Column that = (Column) o;
+            return function == that.function && Objects.equals(property, that.property)
+                    && Objects.equals(alias, that.alias);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(function, property, alias);
+        }
+
+        @Override
+        public String toString() {
+            String s = function == null ? property
+                    : function.name().toLowerCase(Locale.ROOT) + "(" + (property != null ? property : "*") + ")";
+            return alias != null ? s + " as " + alias : s;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đổi kết quả gộp (mỗi nhóm một Object[]) thành KeyValueEntity cho loadValues, sort + cắt trang trong store.
+ */
+public final class AggregateRows {
+
+    private AggregateRows() {
+    }
+
+    /**
+     * @param contextProperties ValueLoadContext.getProperties() (tên cột theo vị trí), có thể null
+     * @param query             sort (tên cột kết quả, alias hoặc property nhóm) và paging của loadValues
+     */
+    public static List<KeyValueEntity> toEntities(AggregateQuery aggregate, List<Object[]> groups,
+                                                  @Nullable List<String> contextProperties, VirtualQuery query) {
+        List<String> names = aggregate.names(contextProperties);
+        List<KeyValueEntity> rows = new ArrayList<>(groups.size());
+        for (Object[] group : groups) {
+            KeyValueEntity row = new KeyValueEntity();
+            for (int i = 0; i < names.size(); i++) {
+                row.setValue(names.get(i), group[i]);
+            }
+            rows.add(row);
+        }
+        List<VirtualQuery.SortKey> sort = aggregate.resolveSort(query.getSort(), names);
+        if (!sort.isEmpty()) {
+            return VirtualRows.sortAndPage(rows, VirtualRows.comparator(sort), query.getOffset(), query.getLimit());
+        }
+        return query.hasPaging() ? VirtualRows.page(rows, query.getOffset(), query.getLimit()) : rows;
+    }
+}
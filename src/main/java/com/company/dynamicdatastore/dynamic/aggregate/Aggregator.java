@@ -0,0 +1,326 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tính AggregateQuery trong một lượt duyệt: add(row) cho từng bản ghi (đã lọc), result() ra các nhóm.
+ * Bộ nhớ theo số nhóm, không theo số bản ghi; row không bị giữ lại nên nguồn có thể là stream / cursor.
+ *
+ * Cột của CompactRow cùng layout với EntityMeta được đọc thẳng từ slot (xem Accumulator).
+ * Nhóm theo giá trị đã FilterSemantics.normalize (1 và 1L, 1.0 và 1.00 chung một nhóm),
+ * giá trị nhóm trả về là giá trị gặp đầu tiên.
+ *
+ * Không thread-safe: mỗi lượt tính dùng một instance.
+ */
+public final class Aggregator {
+
+    private final AggregateQuery query;
+    @Nullable
+    private final RowLayout layout;
+    private final Map<String, Class<?>> attributes;
+    // theo AggregateQuery.getGroupBy()
+    private final Input[] groupInputs;
+    // theo các cột hàm gộp trong AggregateQuery.getColumns(); null = count(e)
+    private final Input[] measureInputs;
+    private final AggregateQuery.Column[] measures;
+    // cột kết quả i: >= 0 là chỉ số trong groupBy, < 0 là -(chỉ số hàm gộp) - 1
+    private final int[] columnSource;
+    private final Map<Object, Group> groups = new HashMap<>();
+    // không group by: luôn đúng một nhóm
+    @Nullable
+    private final Group single;
+
+    public Aggregator(@Nullable EntityMeta meta, AggregateQuery query) {
+        this.query = query;
+        this.layout = meta != null && meta.getAttributes() != null ? RowLayout.of(meta) : null;
+        this.attributes = meta != null && meta.getAttributes() != null ? meta.getAttributes() : Map.of();
+
+        List<String> groupBy = query.getGroupBy();
+        this.groupInputs = new Input[groupBy.size()];
+        for (int i = 0; i < groupInputs.length; i++) {
+            groupInputs[i] = new Input(groupBy.get(i), layout);
+        }
+
+        List<AggregateQuery.Column> columns = query.getColumns();
+        List<AggregateQuery.Column> measureList = new ArrayList<>();
+        this.columnSource = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            AggregateQuery.Column c = columns.get(i);
+            if (c.isGroup()) {
+                int g = groupBy.indexOf(c.getProperty());
+                if (g < 0) {
+                    throw new IllegalArgumentException("Property '" + c.getProperty() + "' must appear in group by");
+                }
+                columnSource[i] = g;
+            } else {
+                columnSource[i] = -measureList.size() - 1;
+                measureList.add(c);
+            }
+        }
+        this.measures = measureList.toArray(new AggregateQuery.Column[0]);
+        this.measureInputs = new Input[measures.length];
+        for (int m = 0; m < measures.length; m++) {
+            String property = measures[m].getProperty();
+            measureInputs[m] = property != null ? new Input(property, layout) : null;
+        }
+        this.single = groupInputs.length == 0 ? newGroup(new Object[0]) : null;
+    }
+
+    public AggregateQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Thêm một bản ghi (KeyValueEntity, CompactRow hoặc entity Jmix) đã thoả filter.
+     */
+    public void add(Object row) {
+        Group g = single != null ? single : groupOf(row);
+        g.rows++;
+        Accumulator[] accumulators = g.accumulators;
+        for (int m = 0; m < measureInputs.length; m++) {
+            Input in = measureInputs[m];
+            if (in == null) {
+                accumulators[m].add(Boolean.TRUE);
+                continue;
+            }
+            CompactRow r = in.compact(row);
+            if (r != null) {
+                accumulators[m].add(r, in.index);
+            } else {
+                accumulators[m].add(in.value(row));
+            }
+        }
+    }
+
+    /**
+     * Mỗi nhóm một Object[] theo thứ tự AggregateQuery.getColumns(), thứ tự nhóm không xác định.
+     */
+    public List<Object[]> result() {
+        List<Object[]> out = new ArrayList<>(single != null ? 1 : groups.size());
+        if (single != null) {
+            out.add(row(single));
+        } else {
+            for (Group g : groups.values()) out.add(row(g));
+        }
+        return out;
+    }
+
+    public int groupCount() {
+        return single != null ? 1 : groups.size();
+    }
+
+    private Object[] row(Group g) {
+        Object[] out = new Object[columnSource.length];
+        for (int i = 0; i < out.length; i++) {
+            int source = columnSource[i];
+            out[i] = source >= 0 ? g.keyValues[source] : g.accumulators[-source - 1].result();
+        }
+        return out;
+    }
+
+    private Group groupOf(Object row) {
+        if (groupInputs.length == 1) {
+            Object value = groupInputs[0].value(row);
+            Object key = value != null ? FilterSemantics.normalize(value) : null;
+            Group g = groups.get(key);
+            if (g == null) {
+                g = newGroup(new Object[]{value});
+                groups.put(key, g);
+            }
+            return g;
+        }
+        Object[] values = new Object[groupInputs.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = groupInputs[i].value(row);
+        }
+        return groups.computeIfAbsent(keyOf(values), k -> newGroup(values));
+    }
+
+    private Object keyOf(Object[] groupValues) {
+        if (groupValues.length == 1) {
+            return groupValues[0] != null ? FilterSemantics.normalize(groupValues[0]) : null;
+        }
+        Object[] normalized = new Object[groupValues.length];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = groupValues[i] != null ? FilterSemantics.normalize(groupValues[i]) : null;
+        }
+        return new GroupKey(normalized);
+    }
+
+    private Group newGroup(Object[] keyValues) {
+        return new Group(keyValues, newAccumulators());
+    }
+
+    private Accumulator[] newAccumulators() {
+        Accumulator[] out = new Accumulator[measures.length];
+        for (int m = 0; m < measures.length; m++) {
+            Input in = measureInputs[m];
+            Class<?> type = in != null ? attributes.get(in.property) : null;
+            RowLayout.Kind kind = in != null ? in.kind : RowLayout.Kind.OBJECT;
+            out[m] = Accumulator.create(measures[m].getFunction(), in == null, type, kind);
+        }
+        return out;
+    }
+
+    //====================== cập nhật từng phần (MaterializedAggregate) ======================
+
+    /**
+     * Phần đóng góp của một row: [giá trị nhóm..., giá trị của từng hàm gộp...], giữ lại để trừ khi row đổi.
+     */
+    Object[] inputs(Object row) {
+        Object[] out = new Object[groupInputs.length + measureInputs.length];
+        for (int i = 0; i < groupInputs.length; i++) {
+            out[i] = groupInputs[i].value(row);
+        }
+        for (int m = 0; m < measureInputs.length; m++) {
+            Input in = measureInputs[m];
+            out[groupInputs.length + m] = in != null ? in.value(row) : Boolean.TRUE;
+        }
+        return out;
+    }
+
+    Object groupKeyOf(Object[] inputs) {
+        return single != null ? Group.SINGLE : keyOf(Arrays.copyOf(inputs, groupInputs.length));
+    }
+
+    void addInputs(Object[] inputs) {
+        Group g;
+        if (single != null) {
+            g = single;
+        } else {
+            Object[] values = Arrays.copyOf(inputs, groupInputs.length);
+            g = groups.computeIfAbsent(keyOf(values), k -> newGroup(values));
+        }
+        g.rows++;
+        addMeasures(g, inputs);
+    }
+
+    /**
+     * @return false nếu nhóm phải tính lại (cực trị min / max bị bỏ), xem recompute(...)
+     */
+    boolean removeInputs(Object[] inputs) {
+        Object key = groupKeyOf(inputs);
+        Group g = single != null ? single : groups.get(key);
+        if (g == null) return true;
+        g.rows--;
+        if (g.rows <= 0 && single == null) {
+            // nhóm rỗng biến mất như group by của SQL
+            groups.remove(key);
+            return true;
+        }
+        boolean exact = true;
+        for (int m = 0; m < measures.length; m++) {
+            exact &= g.accumulators[m].remove(inputs[groupInputs.length + m]);
+        }
+        return exact;
+    }
+
+    /**
+     * Tính lại hàm gộp của các nhóm trong dirtyKeys từ toàn bộ phần đóng góp còn lại (một lượt duyệt).
+     */
+    void recompute(Set<Object> dirtyKeys, Collection<Object[]> allInputs) {
+        Map<Object, Group> dirty = new HashMap<>();
+        for (Object key : dirtyKeys) {
+            Group g = single != null ? single : groups.get(key);
+            if (g == null) continue;
+            g.accumulators = newAccumulators();
+            dirty.put(key, g);
+        }
+        if (dirty.isEmpty()) return;
+        for (Object[] inputs : allInputs) {
+            Group g = dirty.get(groupKeyOf(inputs));
+            if (g != null) addMeasures(g, inputs);
+        }
+    }
+
+    private void addMeasures(Group g, Object[] inputs) {
+        for (int m = 0; m < measures.length; m++) {
+            g.accumulators[m].add(inputs[groupInputs.length + m]);
+        }
+    }
+
+    //====================== nội bộ ======================
+
+    private static final class Group {
+        static final Object SINGLE = new Object();
+
+        final Object[] keyValues;
+        Accumulator[] accumulators;
+        long rows;
+
+        Group(Object[] keyValues, Accumulator[] accumulators) {
+            this.keyValues = keyValues;
+            this.accumulators = accumulators;
+        }
+    }
+
+    private static final class GroupKey {
+        private final Object[] values;
+        private final int hash;
+
+        GroupKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof GroupKey && hash == ((GroupKey) o).hash && Arrays.equals(values, ((GroupKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // property của row, đọc slot nếu là CompactRow cùng layout (như Column của RowEvaluator)
+    private static final class Input {
+        final String property;
+        @Nullable
+        final RowLayout layout;
+        final int index;
+        final RowLayout.Kind kind;
+        // handler thường tự dựng RowLayout.of(meta) riêng: khác instance nhưng cùng cấu trúc -> nhớ lại
+        @Nullable
+        private RowLayout compatible;
+
+        Input(String property, @Nullable RowLayout layout) {
+            this.property = property;
+            this.layout = layout;
+            this.index = layout != null && property.indexOf('.') < 0 ? layout.column(property) : -1;
+            this.kind = index >= 0 ? layout.getKind(index) : RowLayout.Kind.OBJECT;
+        }
+
+        @Nullable
+        CompactRow compact(Object row) {
+            if (index < 0 || !(row instanceof CompactRow)) return null;
+            CompactRow r = (CompactRow) row;
+            RowLayout l = r.getLayout();
+            if (l != layout && l != compatible) {
+                if (!layout.sameShape(l)) return null;
+                compatible = l;
+            }
+            return r.overrides(property) ? null : r;
+        }
+
+        @Nullable
+        Object value(Object row) {
+            CompactRow r = compact(row);
+            return r != null ? r.get(index) : VirtualRows.getValue(row, property);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.change.RowChange;
+import com.company.dynamicdatastore.dynamic.change.RowChangeListener;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.common.event.Subscription;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Kết quả của một query gộp được giữ sẵn và cập nhật theo change event của entity
+ * (DynamicDataStore.materializeAggregate(...)): dashboard đọc lại bao nhiêu lần cũng không chạm handler.
+ *
+ * - refresh(): quét toàn bộ một lần (đăng ký nghe trước khi quét; id nào đổi trong lúc quét thì
+ *   thay đổi đó thắng row đã quét)
+ * - mỗi RowChange: bỏ phần đóng góp cũ của id, thêm phần mới nếu row còn thoả where -> O(1) cho
+ *   count / sum / avg; min / max chỉ khi cực trị bị bỏ mới đánh dấu nhóm, lần đọc sau tính lại các nhóm
+ *   đó trong một lượt trên phần đóng góp đã giữ (không gọi handler)
+ *
+ * Giữ phần đóng góp của từng id (giá trị nhóm + giá trị được gộp) nên bộ nhớ theo số bản ghi thoả where,
+ * không phải cả row. Chỉ đúng khi mọi lần ghi đều đi qua change event (handler là
+ * ObservableVirtualEntityHandler hoặc nguồn ngoài gọi publishChanges) và row trong RowChange có đủ
+ * các property query dùng; ghi vòng qua nó thì gọi refresh().
+ */
+public class MaterializedAggregate implements RowChangeListener, AutoCloseable {
+
+    private final String entityName;
+    private final String idProperty;
+    private final EntityMeta meta;
+    private final AggregateQuery query;
+    private final Predicate<Object> filter;
+    private final Supplier<Stream<?>> scan;
+    private final Subscription subscription;
+    private final Consumer<MaterializedAggregate> onClose;
+
+    private final Object lock = new Object();
+    private final Object refreshLock = new Object();
+    // id (đã normalize) -> phần đóng góp (Aggregator.inputs)
+    private Map<Object, Object[]> contributions = new HashMap<>();
+    private Aggregator state;
+    // nhóm có min / max phải tính lại trước lần đọc tới
+    private final Set<Object> dirty = new HashSet<>();
+    // khác null khi đang refresh: thay đổi tới trong lúc quét, áp sau khi quét xong
+    @Nullable
+    private List<RowChange> pending;
+    private volatile boolean closed;
+
+    /**
+     * @param filter    where của query (đã bind tham số), áp cho row trong change event
+     * @param scan      toàn bộ row thoả where, có id và các property của query; gọi trong refresh()
+     * @param subscribe đăng ký listener cho change event của entity
+     * @param onClose   store bỏ aggregate khỏi danh sách khi close()
+     */
+    public MaterializedAggregate(String entityName, EntityMeta meta, AggregateQuery query, Predicate<Object> filter,
+                                 Supplier<Stream<?>> scan, Function<RowChangeListener, Subscription> subscribe,
+                                 Consumer<MaterializedAggregate> onClose) {
+        this.entityName = entityName;
+        this.idProperty = meta.getIdProperty();
+        this.meta = meta;
+        this.query = query;
+        this.filter = filter;
+        this.scan = scan;
+        this.onClose = onClose;
+        this.state = new Aggregator(meta, query);
+        this.subscription = subscribe.apply(this);
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public AggregateQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Quét lại toàn bộ từ handler. Đọc đồng thời vẫn thấy kết quả cũ (cộng các thay đổi đã áp) cho tới khi xong.
+     */
+    public void refresh() {
+        synchronized (refreshLock) {
+            synchronized (lock) {
+                pending = new ArrayList<>();
+            }
+            Aggregator fresh = new Aggregator(meta, query);
+            Map<Object, Object[]> scanned = new HashMap<>();
+            try (Stream<?> rows = scan.get()) {
+                rows.forEach(row -> {
+                    Object id = VirtualRows.getValue(row, idProperty);
+                    if (id == null) return;
+                    Object[] inputs = fresh.inputs(row);
+                    if (scanned.put(FilterSemantics.normalize(id), inputs) == null) fresh.addInputs(inputs);
+                });
+            } catch (RuntimeException | Error e) {
+                synchronized (lock) {
+                    List<RowChange> missed = pending;
+                    pending = null;
+                    if (missed != null) missed.forEach(this::apply);
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                List<RowChange> missed = pending;
+                pending = null;
+                state = fresh;
+                contributions = scanned;
+                dirty.clear();
+                if (missed != null) missed.forEach(this::apply);
+            }
+        }
+    }
+
+    /**
+     * Các nhóm hiện tại, mỗi nhóm một Object[] theo thứ tự query.getColumns() (bản sao, thứ tự không xác định).
+     */
+    public List<Object[]> rows() {
+        synchronized (lock) {
+            if (!dirty.isEmpty()) {
+                state.recompute(dirty, contributions.values());
+                dirty.clear();
+            }
+            return state.result();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return contributions.size();
+        }
+    }
+
+    //====================== change event ======================
+
+    @Override
+    public void onChanges(List<RowChange> changes) {
+        if (closed) return;
+        synchronized (lock) {
+            if (pending != null) {
+                pending.addAll(changes);
+                return;
+            }
+            for (RowChange change : changes) apply(change);
+        }
+    }
+
+    // gọi trong lock
+    private void apply(RowChange change) {
+        Object id = FilterSemantics.normalize(change.getId());
+        Object[] old = contributions.remove(id);
+        if (old != null && !state.removeInputs(old)) {
+            dirty.add(state.groupKeyOf(old));
+        }
+        if (change.isDelete() || change.getRow() == null || !filter.test(change.getRow())) return;
+        Object[] inputs = state.inputs(change.getRow());
+        contributions.put(id, inputs);
+        state.addInputs(inputs);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        subscription.remove();
+        onClose.accept(this);
+        synchronized (lock) {
+            contributions = new HashMap<>();
+            dirty.clear();
+        }
+    }
+}
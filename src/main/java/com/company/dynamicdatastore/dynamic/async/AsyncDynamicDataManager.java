@@ -0,0 +1,113 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.vaadin.flow.component.Component;
+import io.jmix.core.DataManager;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Facade kiểu DataManager nhưng trả về CompletableFuture, để một màn hình load song song
+ * nhiều entity ảo mà không chặn thread request của Vaadin.
+ *
+ * Mỗi lời gọi vẫn đi qua DataManager (quyền, event, KeyValueMapper) nhưng chạy trên AsyncLoadExecutor:
+ * - quá dynamic-store.async-timeout -> future lỗi TimeoutException và thread đang chạy bị interrupt
+ * - cancel(...) future (hoặc AsyncLoadScope đóng khi view detach) -> interrupt tương tự
+ * - executor đầy -> future lỗi RejectedExecutionException ngay
+ *
+ * Dùng trong view:
+ *   AsyncLoadScope scope = asyncDataManager.scope(this);
+ *   scope.onUi(scope.loadValues(ctx), rowsDc::setItems, e -> notifications.show(e.getMessage()));
+ */
+@org.springframework.stereotype.Component("app_AsyncDynamicDataManager")
+public class AsyncDynamicDataManager {
+
+    private final DataManager dataManager;
+    private final AsyncLoadExecutor executor;
+    private final Duration defaultTimeout;
+
+    public AsyncDynamicDataManager(DataManager dataManager, DynamicStoreProperties properties) {
+        this.dataManager = dataManager;
+        this.executor = AsyncLoadExecutor.create(properties);
+        this.defaultTimeout = properties.getAsyncTimeout();
+    }
+
+    public <E> CompletableFuture<List<E>> loadList(LoadContext<E> context) {
+        return supply(() -> dataManager.loadList(context), defaultTimeout);
+    }
+
+    /**
+     * Future hoàn thành với null nếu không tìm thấy.
+     */
+    public <E> CompletableFuture<E> load(LoadContext<E> context) {
+        return supply(() -> dataManager.load(context), defaultTimeout);
+    }
+
+    public CompletableFuture<List<KeyValueEntity>> loadValues(ValueLoadContext context) {
+        return supply(() -> dataManager.loadValues(context), defaultTimeout);
+    }
+
+    public CompletableFuture<Long> getCount(LoadContext<?> context) {
+        return supply(() -> dataManager.getCount(context), defaultTimeout);
+    }
+
+    public CompletableFuture<Long> getCount(ValueLoadContext context) {
+        return supply(() -> dataManager.getCount(context), defaultTimeout);
+    }
+
+    /**
+     * Chạy call bất kỳ trên executor với timeout riêng; cancel/timeout sẽ interrupt thread đang chạy.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> call, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                // đã timeout/cancel trong lúc xếp hàng -> khỏi chạy
+                if (result.isDone()) return;
+                try {
+                    result.complete(call.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((r, t) -> {
+            if (t != null) task.cancel(true);
+        });
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Nhóm các load của một view: view detach (đóng tab, điều hướng đi) thì huỷ hết load còn chạy.
+     */
+    public AsyncLoadScope scope(Component owner) {
+        return new AsyncLoadScope(this, owner);
+    }
+
+    /**
+     * Executor dùng chung, ví dụ cho DynamicDataStore.loadAllAsync(ctx, executor).
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor có giới hạn cho các load bất đồng bộ của dynamic store.
+ *
+ * - Java 21+ và asyncVirtualThreads = true: mỗi task một virtual thread,
+ *   Semaphore giới hạn số task chạy cùng lúc, task chờ permit đóng vai hàng đợi.
+ * - Ngược lại (app hiện build Java 17): ThreadPoolExecutor cố định + hàng đợi có giới hạn.
+ *
+ * Cả hai chế độ từ chối ngay (RejectedExecutionException) khi quá asyncMaxConcurrency + asyncQueueCapacity,
+ * và mang SecurityContext của thread gọi sang thread chạy task.
+ */
+public class AsyncLoadExecutor implements Executor {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncLoadExecutor.class);
+
+    private final ExecutorService delegate;
+    // chỉ dùng ở chế độ virtual thread (pool thường tự giới hạn bằng số thread + queue)
+    @Nullable
+    private final Semaphore running;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private AsyncLoadExecutor(ExecutorService delegate, @Nullable Semaphore running, int maxPending) {
+        this.delegate = delegate;
+        this.running = running;
+        this.maxPending = maxPending;
+    }
+
+    public static AsyncLoadExecutor create(DynamicStoreProperties properties) {
+        int concurrency = Math.max(1, properties.getAsyncMaxConcurrency());
+        int queue = Math.max(0, properties.getAsyncQueueCapacity());
+
+        if (properties.isAsyncVirtualThreads()) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                log.info("Dynamic store async loads use virtual threads (max {} concurrent)", concurrency);
+                return new AsyncLoadExecutor(virtual, new Semaphore(concurrency), concurrency + queue);
+            }
+        }
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency,
+                60, TimeUnit.SECONDS,
+                queue > 0 ? new ArrayBlockingQueue<>(queue) : new java.util.concurrent.SynchronousQueue<>(),
+                namedDaemonThreads(),
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return new AsyncLoadExecutor(pool, null, concurrency + queue);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task);
+    }
+
+    /**
+     * Như execute(...) nhưng trả về Future để cancel(true) ngắt được thread đang chạy.
+     */
+    public Future<?> submit(Runnable task) {
+        Runnable withSecurity = DelegatingSecurityContextRunnable.create(task, null);
+        if (running == null) {
+            return delegate.submit(withSecurity);
+        }
+
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("Too many pending dynamic store async loads: " + maxPending);
+        }
+        // done() chạy cả khi task bị cancel trước lúc kịp chạy -> pending luôn được trả lại
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            try {
+                running.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                withSecurity.run();
+            } finally {
+                running.release();
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                pending.decrementAndGet();
+            }
+        };
+        try {
+            delegate.execute(future);
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        delegate.shutdownNow();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() chỉ có từ Java 21, gọi qua reflection để vẫn build được trên 17
+    @Nullable
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedDaemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "dynamic-store-async-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
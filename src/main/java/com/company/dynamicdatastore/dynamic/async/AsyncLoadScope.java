@@ -0,0 +1,107 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.shared.Registration;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Các load bất đồng bộ gắn với vòng đời của một component (thường là view).
+ * Component detach -> close(): huỷ mọi future còn chạy và bỏ qua kết quả đến muộn.
+ */
+public class AsyncLoadScope implements AutoCloseable {
+
+    private final AsyncDynamicDataManager manager;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private final Registration detachRegistration;
+    @Nullable
+    private final UI ui;
+    private volatile boolean closed;
+
+    AsyncLoadScope(AsyncDynamicDataManager manager, Component owner) {
+        this.manager = manager;
+        // onInit chạy trên thread request nên UI.getCurrent() có sẵn, view lúc này có thể chưa attach
+        UI current = UI.getCurrent();
+        this.ui = current != null ? current : owner.getUI().orElse(null);
+        this.detachRegistration = owner.addDetachListener(e -> close());
+    }
+
+    public <E> CompletableFuture<List<E>> loadList(LoadContext<E> context) {
+        return track(manager.loadList(context));
+    }
+
+    public <E> CompletableFuture<E> load(LoadContext<E> context) {
+        return track(manager.load(context));
+    }
+
+    public CompletableFuture<List<KeyValueEntity>> loadValues(ValueLoadContext context) {
+        return track(manager.loadValues(context));
+    }
+
+    public CompletableFuture<Long> getCount(LoadContext<?> context) {
+        return track(manager.getCount(context));
+    }
+
+    /**
+     * Gắn future bất kỳ vào scope để bị huỷ cùng.
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        if (closed) {
+            future.cancel(true);
+            return future;
+        }
+        pending.add(future);
+        future.whenComplete((r, t) -> pending.remove(future));
+        return future;
+    }
+
+    /**
+     * Đưa kết quả về thread UI (ui.access, cần @Push). Scope đã đóng hoặc future bị huỷ thì bỏ qua.
+     */
+    public <T> void onUi(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> {
+            if (closed || ui == null) return;
+            Throwable cause = unwrap(error);
+            if (cause instanceof CancellationException) return;
+            ui.access(() -> {
+                if (closed) return;
+                if (cause == null) {
+                    onSuccess.accept(result);
+                } else {
+                    onError.accept(cause);
+                }
+            });
+        });
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        for (CompletableFuture<?> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+        detachRegistration.remove();
+    }
+
+    @Nullable
+    private static Throwable unwrap(@Nullable Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+}
@@ -0,0 +1,98 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Gộp các lời gọi giống nhau đang chạy đồng thời: lời gọi đầu tiên với một key thực sự chạy,
+ * các lời gọi cùng key tới trong lúc nó chưa xong chỉ chờ chung kết quả (kể cả lỗi).
+ * Xong là quên ngay, không cache: lời gọi sau đó chạy lại từ đầu.
+ *
+ * Kết quả được chia sẻ nguyên đối tượng giữa các bên chờ, kiểu mutable thì truyền forFollower để
+ * mỗi bên chờ nhận bản sao riêng (bên chạy thật vẫn nhận bản gốc).
+ * Mỗi bên nhận một future riêng, cancel phía mình không huỷ lời gọi chung.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param call chỉ được gọi nếu chưa có lời gọi nào cùng key đang chạy
+     */
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletableFuture<? extends V>> call) {
+        return execute(key, call, UnaryOperator.identity());
+    }
+
+    /**
+     * @param forFollower áp lên kết quả cho từng bên chờ (ví dụ copy row), không áp cho bên chạy thật
+     */
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletableFuture<? extends V>> call,
+                                        UnaryOperator<V> forFollower) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing.thenApply(forFollower);
+        }
+        try {
+            call.get().whenComplete((value, error) -> {
+                // bỏ khỏi map trước khi hoàn thành: ai tới sau thấy kết quả đã xong thì tự gọi lại
+                inFlight.remove(key, mine);
+                if (error != null) {
+                    mine.completeExceptionally(error);
+                } else {
+                    mine.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine.copy();
+    }
+
+    /**
+     * Bản đồng bộ: lời gọi đầu tiên chạy call ngay trên thread hiện tại, các thread khác cùng key
+     * chặn chờ kết quả của nó. Lỗi của call được ném lại nguyên vẹn cho mọi bên.
+     * Có thể trộn với execute(...) trên cùng key.
+     */
+    public V run(K key, Supplier<? extends V> call, UnaryOperator<V> forFollower) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return forFollower.apply(join(existing));
+        }
+        V value;
+        try {
+            value = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Số key đang có lời gọi chạy.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
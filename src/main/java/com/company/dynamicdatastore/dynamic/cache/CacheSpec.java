@@ -0,0 +1,42 @@
+package com.company.dynamicdatastore.dynamic.cache;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình cache cho một entity ảo:
+ * - ttl: dữ liệu cũ hơn ttl sẽ được load lại từ handler gốc
+ * - maxBytes: ảnh chụp ước lượng lớn hơn mức này thì không cache (đi thẳng xuống handler)
+ */
+public final class CacheSpec {
+
+    private final Duration ttl;
+    private final long maxBytes;
+
+    private CacheSpec(Duration ttl, long maxBytes) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+    }
+
+    public static CacheSpec of(Duration ttl, long maxBytes) {
+        return new CacheSpec(ttl, maxBytes);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheSpec{ttl=" + ttl + ", maxBytes=" + maxBytes + "}";
+    }
+}
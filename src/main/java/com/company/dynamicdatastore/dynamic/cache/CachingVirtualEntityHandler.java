@@ -0,0 +1,374 @@
+package com.company.dynamicdatastore.dynamic.cache;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.JpqlQueryCache;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Decorator cache cho một VirtualEntityHandler.
+ *
+ * Lần đầu (hoặc khi hết TTL / bị invalidate) load toàn bộ dữ liệu từ handler gốc
+ * vào một ColumnarSnapshot; các lần load / loadValues / count sau được phục vụ
+ * thẳng từ snapshot (lọc theo VirtualQuery.getFilter(), sort, cắt trang, đếm) mà không chạm backend.
+ *
+ * Những query cache không trả lời được (filter không chính xác vì Condition / JPQL không dịch được,
+ * dữ liệu vượt maxBytes) thì chuyển thẳng xuống handler gốc.
+ *
+ * Ghi (nếu handler gốc là WritableVirtualEntityHandler) được chuyển thẳng xuống handler gốc
+ * rồi invalidate snapshot.
+ *
+ * Tạo qua DynamicStoreRegistry.addHandler(store, entity, handler, CacheSpec).
+ */
+public class CachingVirtualEntityHandler implements WritableVirtualEntityHandler<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingVirtualEntityHandler.class);
+
+    private final String storeName;
+    private final EntityMeta entityMeta;
+    private final VirtualEntityHandler<Object> delegate;
+    private final CacheSpec spec;
+    private final Supplier<MetaClass> metaClassSupplier;
+    private final JpqlQueryCache queryCache;
+    private final VirtualEntityCache owner;
+
+    private static final Set<FilterOperator> ALL_OPERATORS = Collections.unmodifiableSet(EnumSet.allOf(FilterOperator.class));
+
+    private final Object loadLock = new Object();
+    private volatile ColumnarSnapshot snapshot;
+    private volatile long bypassUntilNanos;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    @SuppressWarnings("unchecked")
+    CachingVirtualEntityHandler(String storeName,
+                                EntityMeta entityMeta,
+                                VirtualEntityHandler<?> delegate,
+                                CacheSpec spec,
+                                Supplier<MetaClass> metaClassSupplier,
+                                JpqlQueryCache queryCache,
+                                VirtualEntityCache owner) {
+        this.storeName = storeName;
+        this.entityMeta = entityMeta;
+        this.delegate = (VirtualEntityHandler<Object>) delegate;
+        this.spec = spec;
+        this.metaClassSupplier = metaClassSupplier;
+        this.queryCache = queryCache;
+        this.owner = owner;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getEntityName() {
+        return entityMeta.getName();
+    }
+
+    public VirtualEntityHandler<?> getDelegate() {
+        return delegate;
+    }
+
+    public CacheSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Dung lượng ước lượng của snapshot hiện tại (0 nếu chưa load / đã bị evict).
+     */
+    public long getEstimatedBytes() {
+        ColumnarSnapshot s = snapshot;
+        return s != null ? s.getEstimatedBytes() : 0;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    /**
+     * Bỏ snapshot hiện tại, lần load sau sẽ đọc lại từ handler gốc.
+     */
+    public void invalidate() {
+        synchronized (loadLock) {
+            snapshot = null;
+            bypassUntilNanos = 0;
+        }
+    }
+
+    // VirtualEntityCache gọi khi vượt ngân sách bộ nhớ chung
+    void evict() {
+        snapshot = null;
+    }
+
+    //====================== LoadContext ====================
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx) {
+        VirtualQuery query = queryOf(ctx);
+        // filter không dịch hết: delegate nhận context gốc như handler cũ, không cắt trang lại trên tập rộng hơn
+        return query.isFilterExact() ? loadAll(ctx, query) : delegate.loadAll(ctx);
+    }
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(ctx.getEntityMetaClass()) : null;
+        if (s == null) {
+            List<Object> rows = delegate.loadAll(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta);
+        }
+
+        List<Integer> selected = s.select(predicate(s, query), query);
+        List<Object> out = new ArrayList<>(selected.size());
+        for (int row : selected) {
+            out.add(s.toEntity(row, List.of(), entityMeta.getIdProperty(), ctx.getEntityMetaClass()));
+        }
+        return out;
+    }
+
+    @Override
+    public Object loadOne(LoadContext<Object> ctx, Object id) {
+        ColumnarSnapshot s = snapshot(ctx.getEntityMetaClass());
+        if (s == null) return delegate.loadOne(ctx, id);
+
+        Integer row = s.rowOf(id);
+        return row != null ? s.toEntity(row, List.of(), entityMeta.getIdProperty(), ctx.getEntityMetaClass()) : null;
+    }
+
+    @Override
+    public List<Object> loadMany(LoadContext<Object> ctx, Collection<?> ids) {
+        ColumnarSnapshot s = snapshot(ctx.getEntityMetaClass());
+        if (s == null) return delegate.loadMany(ctx, ids);
+
+        List<Object> out = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            Integer row = s.rowOf(id);
+            if (row != null) {
+                out.add(s.toEntity(row, List.of(), entityMeta.getIdProperty(), ctx.getEntityMetaClass()));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public Stream<Object> stream(LoadContext<Object> ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(ctx.getEntityMetaClass()) : null;
+        if (s == null) {
+            Stream<Object> rows = delegate.stream(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta);
+        }
+
+        MetaClass metaClass = ctx.getEntityMetaClass();
+        List<Integer> selected = s.select(predicate(s, query), query);
+        return selected.stream().map(row -> s.toEntity(row, List.of(), entityMeta.getIdProperty(), metaClass));
+    }
+
+    @Override
+    public long count(LoadContext<Object> ctx) {
+        return count(ctx, queryOf(ctx).withoutPaging().withoutSort());
+    }
+
+    @Override
+    public long count(LoadContext<Object> ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(ctx.getEntityMetaClass()) : null;
+        if (s == null) {
+            if (VirtualRows.canCountInHandler(delegate, query)) {
+                return delegate.count(ctx, VirtualRows.pushDown(delegate, query));
+            }
+            List<Object> rows = delegate.loadAll(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta).size();
+        }
+        return s.count(predicate(s, query));
+    }
+
+    //====================== ValueLoadContext ===============
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        VirtualQuery query = queryOf(ctx);
+        return query.isFilterExact() ? loadAllKeyValue(ctx, query) : delegate.loadAllKeyValue(ctx);
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(null) : null;
+        if (s == null) {
+            List<KeyValueEntity> rows = delegate.loadAllKeyValue(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta);
+        }
+
+        List<Integer> selected = s.select(predicate(s, query), query);
+        List<KeyValueEntity> out = new ArrayList<>(selected.size());
+        for (int row : selected) {
+            out.add(s.toEntity(row, query.getProperties(), entityMeta.getIdProperty(), null));
+        }
+        return out;
+    }
+
+    @Override
+    public Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(null) : null;
+        if (s == null) {
+            Stream<KeyValueEntity> rows = delegate.streamKeyValue(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta);
+        }
+
+        List<Integer> selected = s.select(predicate(s, query), query);
+        return selected.stream().map(row -> s.toEntity(row, query.getProperties(), entityMeta.getIdProperty(), null));
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return countKeyValue(ctx, queryOf(ctx).withoutPaging().withoutSort());
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        ColumnarSnapshot s = query.isFilterExact() ? snapshot(null) : null;
+        if (s == null) {
+            if (VirtualRows.canCountInHandler(delegate, query)) {
+                return delegate.countKeyValue(ctx, VirtualRows.pushDown(delegate, query));
+            }
+            List<KeyValueEntity> rows = delegate.loadAllKeyValue(ctx, VirtualRows.pushDown(delegate, query));
+            return VirtualRows.applyInStore(delegate, query, rows, null, entityMeta).size();
+        }
+        return s.count(predicate(s, query));
+    }
+
+    //====================== write ==========================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void commit(VirtualWriteBatch<Object> batch) {
+        if (!isWritable()) {
+            throw new UnsupportedOperationException("Entity " + entityMeta.getName() + " is read-only");
+        }
+        try {
+            ((WritableVirtualEntityHandler<Object>) delegate).commit(batch);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return delegate instanceof WritableVirtualEntityHandler
+                && ((WritableVirtualEntityHandler<?>) delegate).isWritable();
+    }
+
+    //====================== capabilities ===================
+
+    // snapshot lọc được mọi toán tử -> store đẩy cả filter xuống đây
+    @Override
+    public Set<FilterOperator> supportedFilterOperators() {
+        return ALL_OPERATORS;
+    }
+
+    // query không chính xác luôn đi thẳng xuống delegate
+    @Override
+    public boolean handlesRawConditions() {
+        return delegate.handlesRawConditions();
+    }
+
+    @Override
+    public boolean requiresExactFilter() {
+        return delegate.requiresExactFilter();
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsPaging() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsSorting() {
+        return true;
+    }
+
+    //====================== helper =========================
+
+    // khi handler bị gọi thẳng bằng context (không qua store)
+    private VirtualQuery queryOf(LoadContext<Object> ctx) {
+        LoadContext.Query q = ctx.getQuery();
+        String jpql = q != null ? q.getQueryString() : null;
+        return VirtualQuery.of(ctx, jpql != null && !jpql.isBlank() ? queryCache.get(jpql) : null);
+    }
+
+    private VirtualQuery queryOf(ValueLoadContext ctx) {
+        ValueLoadContext.Query q = ctx.getQuery();
+        String jpql = q != null ? q.getQueryString() : null;
+        return VirtualQuery.of(ctx, jpql != null && !jpql.isBlank() ? queryCache.get(jpql) : null);
+    }
+
+    private static IntPredicate predicate(ColumnarSnapshot s, VirtualQuery query) {
+        return s.predicate(query.getFilter(), query.getParameters());
+    }
+
+    /**
+     * Snapshot còn hạn, load lại nếu cần; null nếu entity này hiện không cache được.
+     */
+    @Nullable
+    private ColumnarSnapshot snapshot(@Nullable MetaClass metaClass) {
+        lastAccessNanos = System.nanoTime();
+        ColumnarSnapshot s = snapshot;
+        if (s != null && !isExpired(s)) return s;
+
+        synchronized (loadLock) {
+            s = snapshot;
+            if (s != null && !isExpired(s)) return s;
+            if (System.nanoTime() < bypassUntilNanos) return null;
+
+            MetaClass mc = metaClass != null ? metaClass : metaClassSupplier.get();
+            if (mc == null) {
+                log.debug("[{}] no MetaClass for {}, cache bypassed", storeName, entityMeta.getName());
+                return null;
+            }
+
+            LoadContext<Object> all = new LoadContext<>(mc);
+            all.setQueryString("select e from " + entityMeta.getName() + " e");
+            List<Object> rows = delegate.loadAll(all, VirtualQuery.ALL);
+            s = ColumnarSnapshot.build(entityMeta, rows);
+
+            if (s.getEstimatedBytes() > spec.getMaxBytes()) {
+                log.info("[{}] {} rows of {} take ~{} bytes > {}, not cached for {}",
+                        storeName, s.size(), entityMeta.getName(), s.getEstimatedBytes(),
+                        spec.getMaxBytes(), spec.getTtl());
+                snapshot = null;
+                bypassUntilNanos = System.nanoTime() + spec.getTtl().toNanos();
+                return null;
+            }
+
+            snapshot = s;
+        }
+        owner.onLoaded(this);
+        return s;
+    }
+
+    private boolean isExpired(ColumnarSnapshot s) {
+        return System.nanoTime() - s.getLoadedAtNanos() > spec.getTtl().toNanos();
+    }
+}
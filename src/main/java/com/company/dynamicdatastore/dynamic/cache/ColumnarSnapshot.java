@@ -0,0 +1,525 @@
+package com.company.dynamicdatastore.dynamic.cache;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Ảnh chụp bất biến toàn bộ dữ liệu của một entity ảo, lưu theo cột:
+ * - số nguyên (Long/Integer/Short/Byte) -> long[]
+ * - số thực (Double/Float) -> double[]
+ * - Boolean -> BitSet
+ * - UUID -> 2 x long[]
+ * - String -> mã từ điển int[] + String[] (giá trị lặp lại chỉ lưu một lần)
+ * - kiểu khác (BigDecimal, ngày giờ...) -> Object[]
+ * null được đánh dấu bằng BitSet riêng cho mỗi cột.
+ *
+ * Lọc / sort / đếm chạy trực tiếp trên mảng cột, chỉ dựng KeyValueEntity cho các row trả về.
+ */
+final class ColumnarSnapshot {
+
+    private final int rowCount;
+    private final Map<String, Column> columns;
+    private final Map<Object, Integer> idIndex;
+    private final long estimatedBytes;
+    private final long loadedAtNanos;
+
+    private ColumnarSnapshot(int rowCount, Map<String, Column> columns, Map<Object, Integer> idIndex) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.idIndex = idIndex;
+        long bytes = 64L + (idIndex != null ? 48L * idIndex.size() : 0);
+        for (Column c : columns.values()) bytes += c.estimatedBytes();
+        this.estimatedBytes = bytes;
+        this.loadedAtNanos = System.nanoTime();
+    }
+
+    static ColumnarSnapshot build(EntityMeta meta, List<?> rows) {
+        int n = rows.size();
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (Map.Entry<String, Class<?>> attr : meta.getAttributes().entrySet()) {
+            Object[] values = new Object[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = VirtualRows.getValue(rows.get(i), attr.getKey());
+            }
+            columns.put(attr.getKey(), Column.of(attr.getValue(), values));
+        }
+
+        Map<Object, Integer> idIndex = null;
+        Column idColumn = columns.get(meta.getIdProperty());
+        if (idColumn != null) {
+            idIndex = new HashMap<>(n * 4 / 3 + 1);
+            for (int i = 0; i < n; i++) {
+                Object id = idColumn.get(i);
+                if (id != null) idIndex.put(id, i);
+            }
+        }
+        return new ColumnarSnapshot(n, columns, idIndex);
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    long getLoadedAtNanos() {
+        return loadedAtNanos;
+    }
+
+    Collection<String> getProperties() {
+        return columns.keySet();
+    }
+
+    @Nullable
+    Integer rowOf(Object id) {
+        return idIndex != null ? idIndex.get(id) : null;
+    }
+
+    //====================== filter / sort ==================
+
+    /**
+     * Dựng predicate trên chỉ số row; tham số được resolve một lần ở đây.
+     */
+    IntPredicate predicate(@Nullable VirtualFilter filter, Map<String, Object> params) {
+        if (filter == null) return row -> true;
+        if (filter instanceof VirtualFilter.And) {
+            List<IntPredicate> parts = new ArrayList<>();
+            for (VirtualFilter child : ((VirtualFilter.And) filter).getChildren()) parts.add(predicate(child, params));
+            IntPredicate[] arr = parts.toArray(new IntPredicate[0]);
+            return row -> {
+                for (IntPredicate p : arr) if (!p.test(row)) return false;
+                return true;
+            };
+        }
+        if (filter instanceof VirtualFilter.Or) {
+            List<IntPredicate> parts = new ArrayList<>();
+            for (VirtualFilter child : ((VirtualFilter.Or) filter).getChildren()) parts.add(predicate(child, params));
+            IntPredicate[] arr = parts.toArray(new IntPredicate[0]);
+            return row -> {
+                for (IntPredicate p : arr) if (p.test(row)) return true;
+                return false;
+            };
+        }
+        if (filter instanceof VirtualFilter.Not) {
+            return predicate(((VirtualFilter.Not) filter).getChild(), params).negate();
+        }
+        VirtualFilter.Comparison cmp = (VirtualFilter.Comparison) filter;
+        Column column = columns.get(cmp.getProperty());
+        Predicate<Object> valuePredicate = FilterSemantics.bind(cmp.getOperator(), cmp.getValues(params));
+        if (column == null) {
+            boolean matchesNull = valuePredicate.test(null);
+            return row -> matchesNull;
+        }
+        return column.predicate(cmp.getOperator(), cmp.getValues(params), valuePredicate);
+    }
+
+    int count(IntPredicate predicate) {
+        int count = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (predicate.test(i)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Chỉ số các row thoả predicate, đã sort + cắt trang theo query.
+     */
+    List<Integer> select(IntPredicate predicate, VirtualQuery query) {
+        List<Integer> matched = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            if (predicate.test(i)) matched.add(i);
+        }
+        if (query.isSorted()) {
+            return VirtualRows.sortAndPage(matched, comparator(query.getSort()), query.getOffset(), query.getLimit());
+        }
+        return VirtualRows.page(matched, query.getOffset(), query.getLimit());
+    }
+
+    private Comparator<Integer> comparator(List<VirtualQuery.SortKey> sort) {
+        Comparator<Integer> result = null;
+        for (VirtualQuery.SortKey key : sort) {
+            Column column = columns.get(key.getProperty());
+            if (column == null) continue;
+            Comparator<Integer> c = column::compare;
+            if (key.isDescending()) c = c.reversed();
+            result = result == null ? c : result.thenComparing(c);
+        }
+        return result != null ? result : (a, b) -> 0;
+    }
+
+    //====================== materialize ====================
+
+    /**
+     * Dựng KeyValueEntity cho một row, chỉ với các property yêu cầu (rỗng = tất cả).
+     */
+    KeyValueEntity toEntity(int row, List<String> properties, String idProperty, @Nullable MetaClass metaClass) {
+        KeyValueEntity e = new KeyValueEntity();
+        Collection<String> props = properties.isEmpty() ? columns.keySet() : properties;
+        for (String p : props) {
+            Column column = columns.get(p);
+            e.setValue(p, column != null ? column.get(row) : null);
+        }
+        if (columns.containsKey(idProperty)) e.setIdName(idProperty);
+        if (metaClass != null) e.setInstanceMetaClass(metaClass);
+        return e;
+    }
+
+    //====================== columns ========================
+
+    abstract static class Column {
+        final BitSet nulls;
+
+        Column(BitSet nulls) {
+            this.nulls = nulls;
+        }
+
+        abstract Object get(int row);
+
+        abstract long estimatedBytes();
+
+        /**
+         * So sánh hai row trên cột này, null đứng đầu.
+         */
+        int compare(int a, int b) {
+            boolean na = nulls.get(a);
+            boolean nb = nulls.get(b);
+            if (na || nb) return na == nb ? 0 : (na ? -1 : 1);
+            return compareNonNull(a, b);
+        }
+
+        int compareNonNull(int a, int b) {
+            return VirtualRows.compareValues(get(a), get(b));
+        }
+
+        /**
+         * Mặc định: lấy giá trị (boxing) rồi áp predicate chung. Cột nào làm nhanh hơn thì override.
+         */
+        IntPredicate predicate(FilterOperator operator, List<Object> operands, Predicate<Object> valuePredicate) {
+            return row -> valuePredicate.test(get(row));
+        }
+
+        static Column of(Class<?> type, Object[] values) {
+            try {
+                if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class
+                        || type == long.class || type == int.class) {
+                    return new LongColumn(type, values);
+                }
+                if (type == Double.class || type == Float.class || type == double.class || type == float.class) {
+                    return new DoubleColumn(type, values);
+                }
+                if (type == Boolean.class || type == boolean.class) {
+                    return new BooleanColumn(values);
+                }
+                if (type == UUID.class) {
+                    return new UuidColumn(values);
+                }
+                if (type == String.class) {
+                    return new DictionaryColumn(values);
+                }
+            } catch (ClassCastException e) {
+                // dữ liệu không đúng kiểu khai báo trong EntityMeta -> lưu dạng Object
+            }
+            return new ObjectColumn(values);
+        }
+
+        static BitSet nullsOf(Object[] values) {
+            BitSet nulls = new BitSet(values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) nulls.set(i);
+            }
+            return nulls;
+        }
+    }
+
+    static final class LongColumn extends Column {
+        private final Class<?> type;
+        private final long[] values;
+
+        LongColumn(Class<?> type, Object[] raw) {
+            super(nullsOf(raw));
+            this.type = type;
+            this.values = new long[raw.length];
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] != null) values[i] = ((Number) raw[i]).longValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            long v = values[row];
+            if (type == Integer.class || type == int.class) return (int) v;
+            if (type == Short.class) return (short) v;
+            if (type == Byte.class) return (byte) v;
+            return v;
+        }
+
+        @Override
+        int compareNonNull(int a, int b) {
+            return Long.compare(values[a], values[b]);
+        }
+
+        @Override
+        IntPredicate predicate(FilterOperator operator, List<Object> operands, Predicate<Object> valuePredicate) {
+            if (operands.isEmpty() || !isIntegral(operands.get(0))) {
+                return super.predicate(operator, operands, valuePredicate);
+            }
+            long v = ((Number) operands.get(0)).longValue();
+            switch (operator) {
+                case EQUAL:
+                    return row -> !nulls.get(row) && values[row] == v;
+                case NOT_EQUAL:
+                    return row -> !nulls.get(row) && values[row] != v;
+                case GREATER:
+                    return row -> !nulls.get(row) && values[row] > v;
+                case GREATER_OR_EQUAL:
+                    return row -> !nulls.get(row) && values[row] >= v;
+                case LESS:
+                    return row -> !nulls.get(row) && values[row] < v;
+                case LESS_OR_EQUAL:
+                    return row -> !nulls.get(row) && values[row] <= v;
+                case BETWEEN:
+                    if (operands.size() < 2 || !isIntegral(operands.get(1))) break;
+                    long to = ((Number) operands.get(1)).longValue();
+                    return row -> !nulls.get(row) && values[row] >= v && values[row] <= to;
+                default:
+                    break;
+            }
+            return super.predicate(operator, operands, valuePredicate);
+        }
+
+        private static boolean isIntegral(Object o) {
+            return o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length + values.length / 8 + 32;
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private final Class<?> type;
+        private final double[] values;
+
+        DoubleColumn(Class<?> type, Object[] raw) {
+            super(nullsOf(raw));
+            this.type = type;
+            this.values = new double[raw.length];
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] != null) values[i] = ((Number) raw[i]).doubleValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            return type == Float.class || type == float.class ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        int compareNonNull(int a, int b) {
+            return Double.compare(values[a], values[b]);
+        }
+
+        @Override
+        IntPredicate predicate(FilterOperator operator, List<Object> operands, Predicate<Object> valuePredicate) {
+            if (operands.isEmpty() || !(operands.get(0) instanceof Double || operands.get(0) instanceof Float)) {
+                return super.predicate(operator, operands, valuePredicate);
+            }
+            double v = ((Number) operands.get(0)).doubleValue();
+            switch (operator) {
+                case GREATER:
+                    return row -> !nulls.get(row) && values[row] > v;
+                case GREATER_OR_EQUAL:
+                    return row -> !nulls.get(row) && values[row] >= v;
+                case LESS:
+                    return row -> !nulls.get(row) && values[row] < v;
+                case LESS_OR_EQUAL:
+                    return row -> !nulls.get(row) && values[row] <= v;
+                default:
+                    return super.predicate(operator, operands, valuePredicate);
+            }
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length + values.length / 8 + 32;
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        private final BitSet values;
+
+        BooleanColumn(Object[] raw) {
+            super(nullsOf(raw));
+            this.values = new BitSet(raw.length);
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] != null && (Boolean) raw[i]) values.set(i);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values.get(row);
+        }
+
+        @Override
+        int compareNonNull(int a, int b) {
+            return Boolean.compare(values.get(a), values.get(b));
+        }
+
+        @Override
+        long estimatedBytes() {
+            return values.size() / 4 + 64;
+        }
+    }
+
+    static final class UuidColumn extends Column {
+        private final long[] msb;
+        private final long[] lsb;
+
+        UuidColumn(Object[] raw) {
+            super(nullsOf(raw));
+            this.msb = new long[raw.length];
+            this.lsb = new long[raw.length];
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] != null) {
+                    UUID u = (UUID) raw[i];
+                    msb[i] = u.getMostSignificantBits();
+                    lsb[i] = u.getLeastSignificantBits();
+                }
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : new UUID(msb[row], lsb[row]);
+        }
+
+        @Override
+        int compareNonNull(int a, int b) {
+            int c = Long.compare(msb[a], msb[b]);
+            return c != 0 ? c : Long.compare(lsb[a], lsb[b]);
+        }
+
+        @Override
+        IntPredicate predicate(FilterOperator operator, List<Object> operands, Predicate<Object> valuePredicate) {
+            if (operator == FilterOperator.EQUAL && !operands.isEmpty() && operands.get(0) instanceof UUID) {
+                UUID u = (UUID) operands.get(0);
+                long hi = u.getMostSignificantBits();
+                long lo = u.getLeastSignificantBits();
+                return row -> !nulls.get(row) && msb[row] == hi && lsb[row] == lo;
+            }
+            return super.predicate(operator, operands, valuePredicate);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 16L * msb.length + msb.length / 8 + 48;
+        }
+    }
+
+    /**
+     * String mã hoá từ điển: mỗi giá trị khác nhau lưu một lần, row chỉ giữ mã int.
+     * Predicate được tính một lần cho mỗi mục từ điển thay vì cho mỗi row.
+     */
+    static final class DictionaryColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+
+        DictionaryColumn(Object[] raw) {
+            super(nullsOf(raw));
+            this.codes = new int[raw.length];
+            Map<String, Integer> dict = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] == null) {
+                    codes[i] = -1;
+                    continue;
+                }
+                String s = (String) raw[i];
+                Integer code = dict.get(s);
+                if (code == null) {
+                    code = entries.size();
+                    dict.put(s, code);
+                    entries.add(s);
+                }
+                codes[i] = code;
+            }
+            this.dictionary = entries.toArray(new String[0]);
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        @Override
+        int compareNonNull(int a, int b) {
+            return codes[a] == codes[b] ? 0 : dictionary[codes[a]].compareTo(dictionary[codes[b]]);
+        }
+
+        @Override
+        IntPredicate predicate(FilterOperator operator, List<Object> operands, Predicate<Object> valuePredicate) {
+            boolean[] matches = new boolean[dictionary.length];
+            for (int i = 0; i < dictionary.length; i++) {
+                matches[i] = valuePredicate.test(dictionary[i]);
+            }
+            boolean matchesNull = valuePredicate.test(null);
+            return row -> {
+                int code = codes[row];
+                return code < 0 ? matchesNull : matches[code];
+            };
+        }
+
+        @Override
+        long estimatedBytes() {
+            long bytes = 4L * codes.length + codes.length / 8 + 48;
+            for (String s : dictionary) bytes += 48 + 2L * s.length();
+            return bytes;
+        }
+    }
+
+    static final class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(Object[] raw) {
+            super(nullsOf(raw));
+            this.values = raw;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        long estimatedBytes() {
+            // ước lượng thô: tham chiếu + ~40 byte cho mỗi object (BigDecimal, LocalDate...)
+            return 48L * values.length + values.length / 8 + 32;
+        }
+    }
+}
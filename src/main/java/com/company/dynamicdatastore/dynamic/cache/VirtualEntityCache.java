@@ -0,0 +1,104 @@
+package com.company.dynamicdatastore.dynamic.cache;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.JpqlQueryCache;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Quản lý tất cả CachingVirtualEntityHandler:
+ * - giữ tổng dung lượng các snapshot dưới dynamic-store.cache-max-bytes,
+ *   vượt thì evict snapshot ít được dùng nhất (LRU)
+ * - API invalidate theo entity / store / toàn bộ
+ */
+@Component("app_VirtualEntityCache")
+public class VirtualEntityCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualEntityCache.class);
+
+    // "storeName/entityName" -> handler có cache
+    private final Map<String, CachingVirtualEntityHandler> handlers = new ConcurrentHashMap<>();
+
+    private final long maxBytes;
+
+    public VirtualEntityCache(DynamicStoreProperties properties) {
+        this.maxBytes = properties.getCacheMaxBytes();
+    }
+
+    /**
+     * Bọc handler bằng cache; registry gọi khi addHandler(..., CacheSpec).
+     */
+    public CachingVirtualEntityHandler wrap(String storeName,
+                                           EntityMeta entityMeta,
+                                           VirtualEntityHandler<?> delegate,
+                                           CacheSpec spec,
+                                           Supplier<MetaClass> metaClassSupplier,
+                                           JpqlQueryCache queryCache) {
+        CachingVirtualEntityHandler handler = new CachingVirtualEntityHandler(
+                storeName, entityMeta, delegate, spec, metaClassSupplier, queryCache, this);
+        CachingVirtualEntityHandler old = handlers.put(key(storeName, entityMeta.getName()), handler);
+        if (old != null) old.evict();
+        return handler;
+    }
+
+    public void invalidate(String storeName, String entityName) {
+        CachingVirtualEntityHandler handler = handlers.get(key(storeName, entityName));
+        if (handler != null) handler.invalidate();
+    }
+
+    public void invalidateStore(String storeName) {
+        handlers.values().stream()
+                .filter(h -> h.getStoreName().equals(storeName))
+                .forEach(CachingVirtualEntityHandler::invalidate);
+    }
+
+    public void invalidateAll() {
+        handlers.values().forEach(CachingVirtualEntityHandler::invalidate);
+    }
+
+    /**
+     * Tổng dung lượng ước lượng của các snapshot đang giữ.
+     */
+    public long getEstimatedBytes() {
+        long total = 0;
+        for (CachingVirtualEntityHandler h : handlers.values()) total += h.getEstimatedBytes();
+        return total;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // handler gọi sau khi load xong một snapshot mới
+    void onLoaded(CachingVirtualEntityHandler loaded) {
+        long total = getEstimatedBytes();
+        if (total <= maxBytes) return;
+
+        List<CachingVirtualEntityHandler> candidates = new ArrayList<>(handlers.values());
+        candidates.remove(loaded);
+        candidates.sort(Comparator.comparingLong(CachingVirtualEntityHandler::getLastAccessNanos));
+        for (CachingVirtualEntityHandler h : candidates) {
+            if (total <= maxBytes) break;
+            long bytes = h.getEstimatedBytes();
+            if (bytes == 0) continue;
+            h.evict();
+            total -= bytes;
+            log.debug("Evicted cached {}/{} (~{} bytes)", h.getStoreName(), h.getEntityName(), bytes);
+        }
+    }
+
+    private static String key(String storeName, String entityName) {
+        return storeName + "/" + entityName;
+    }
+}
@@ -0,0 +1,69 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import io.jmix.core.common.event.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Subscriber theo entity của một store. Publish đọc list không lock (copy-on-write),
+ * subscribe / huỷ hiếm nên trả giá copy ở đó. Listener lỗi thì log và bỏ qua, không chặn listener khác
+ * và không làm hỏng lần ghi đã xong của handler.
+ */
+public class ChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final String storeName;
+    private final Map<String, List<RowChangeListener>> listeners = new ConcurrentHashMap<>();
+
+    public ChangeFeed(String storeName) {
+        this.storeName = storeName;
+    }
+
+    public Subscription subscribe(String entityName, RowChangeListener listener) {
+        List<RowChangeListener> list = listeners.computeIfAbsent(entityName, k -> new CopyOnWriteArrayList<>());
+        list.add(listener);
+        return () -> list.remove(listener);
+    }
+
+    public void publish(String entityName, List<RowChange> changes) {
+        if (changes.isEmpty()) return;
+        List<RowChangeListener> list = listeners.get(entityName);
+        if (list == null || list.isEmpty()) return;
+        List<RowChange> shared = List.copyOf(changes);
+        for (RowChangeListener listener : list) {
+            try {
+                listener.onChanges(shared);
+            } catch (RuntimeException e) {
+                log.warn("[{}] change listener of {} failed", storeName, entityName, e);
+            }
+        }
+    }
+
+    /**
+     * Sink gắn cho handler của entityName.
+     */
+    public RowChangeSink sink(String entityName) {
+        return new RowChangeSink() {
+            @Override
+            public void publish(List<RowChange> changes) {
+                ChangeFeed.this.publish(entityName, changes);
+            }
+
+            @Override
+            public boolean isActive() {
+                return hasSubscribers(entityName);
+            }
+        };
+    }
+
+    public boolean hasSubscribers(String entityName) {
+        List<RowChangeListener> list = listeners.get(entityName);
+        return list != null && !list.isEmpty();
+    }
+}
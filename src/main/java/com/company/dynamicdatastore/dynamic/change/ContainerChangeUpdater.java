@@ -0,0 +1,233 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import com.company.dynamicdatastore.dynamic.DynamicDataStore;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+import io.jmix.core.common.event.Subscription;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.flowui.model.KeyValueCollectionContainer;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Áp thay đổi của một entity ảo vào KeyValueCollectionContainer của một view, không load lại toàn bộ:
+ * - thay đổi tới (thread bất kỳ) được gom theo id trong một khoảng flushInterval, cùng id thì lấy cái sau cùng
+ *   (insert rồi update = một lần upsert, insert rồi delete = một lần xoá)
+ * - hết khoảng đó mới vào thread UI một lần (ui.access, cần @Push) và áp cả lô:
+ *   ít thay đổi thì thêm / thay / xoá từng item, lô lớn (>= bulkThreshold) thì dựng list mới và setItems một lần
+ * - row đưa vào container là bản sao riêng của view
+ *
+ * INSERTED và UPDATED đều áp kiểu upsert theo id, nên bỏ lỡ thứ tự (view mở giữa chừng) vẫn ra đúng.
+ * Row không qua rowFilter (ví dụ không khớp điều kiện view đang lọc) được coi như bị xoá khỏi view.
+ *
+ * Vòng đời giống AsyncLoadScope: tạo trong onInit, owner detach -> close() huỷ subscription.
+ */
+public class ContainerChangeUpdater implements RowChangeListener, AutoCloseable {
+
+    private final DynamicDataStore store;
+    private final String entityName;
+    private final KeyValueCollectionContainer container;
+    @Nullable
+    private final UI ui;
+    private final Subscription subscription;
+    private final Registration detachRegistration;
+
+    private final Object lock = new Object();
+    // id (đã normalize) -> thay đổi mới nhất, chờ flush; giữ thứ tự lần đầu gặp
+    private Map<Object, RowChange> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private volatile long flushIntervalMillis = 250;
+    private volatile int bulkThreshold = 100;
+    @Nullable
+    private volatile Predicate<KeyValueEntity> rowFilter;
+    private volatile boolean closed;
+
+    private ContainerChangeUpdater(Component owner, DynamicDataStore store, String entityName,
+                                   KeyValueCollectionContainer container) {
+        this.store = store;
+        this.entityName = entityName;
+        this.container = container;
+        // onInit chạy trên thread request nên UI.getCurrent() có sẵn, view lúc này có thể chưa attach
+        UI current = UI.getCurrent();
+        this.ui = current != null ? current : owner.getUI().orElse(null);
+        this.subscription = store.subscribe(entityName, this);
+        this.detachRegistration = owner.addDetachListener(e -> close());
+    }
+
+    /**
+     * Nghe thay đổi của entityName trong store và áp vào container cho tới khi owner detach.
+     */
+    public static ContainerChangeUpdater bind(Component owner, DynamicDataStore store, String entityName,
+                                              KeyValueCollectionContainer container) {
+        return new ContainerChangeUpdater(owner, store, entityName, container);
+    }
+
+    /**
+     * Khoảng gom thay đổi trước khi đẩy lên UI (mặc định 250ms): dài hơn = ít round trip hơn, trễ hơn.
+     */
+    public ContainerChangeUpdater withFlushInterval(Duration interval) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("flush interval must not be negative: " + interval);
+        }
+        this.flushIntervalMillis = interval.toMillis();
+        return this;
+    }
+
+    /**
+     * Từ bao nhiêu thay đổi một lô thì thay cả list (một event cho grid) thay vì sửa từng item.
+     */
+    public ContainerChangeUpdater withBulkThreshold(int bulkThreshold) {
+        if (bulkThreshold <= 0) {
+            throw new IllegalArgumentException("bulkThreshold must be positive: " + bulkThreshold);
+        }
+        this.bulkThreshold = bulkThreshold;
+        return this;
+    }
+
+    /**
+     * Chỉ giữ trong container các row thoả điều kiện (thường là điều kiện lọc của view).
+     */
+    public ContainerChangeUpdater withRowFilter(@Nullable Predicate<KeyValueEntity> rowFilter) {
+        this.rowFilter = rowFilter;
+        return this;
+    }
+
+    //====================== nhận thay đổi (thread bên ghi) ======================
+
+    @Override
+    public void onChanges(List<RowChange> changes) {
+        if (closed || ui == null) return;
+        boolean schedule;
+        synchronized (lock) {
+            for (RowChange change : changes) {
+                pending.put(FilterSemantics.normalize(change.getId()), change);
+            }
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (schedule) {
+            Flusher.EXECUTOR.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<Object, RowChange> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (closed || batch.isEmpty()) return;
+        try {
+            ui.access(() -> {
+                if (!closed) apply(batch);
+            });
+        } catch (UIDetachedException e) {
+            close();
+        }
+    }
+
+    //====================== áp vào container (thread UI) ======================
+
+    private void apply(Map<Object, RowChange> batch) {
+        Collection<String> properties = properties();
+        if (batch.size() >= bulkThreshold) {
+            applyBulk(batch, properties);
+            return;
+        }
+        for (RowChange change : batch.values()) {
+            KeyValueEntity current = container.getItemOrNull(change.getId());
+            KeyValueEntity row = toItem(change, properties);
+            if (row == null) {
+                if (current != null) container.getMutableItems().remove(current);
+            } else if (current != null) {
+                container.replaceItem(row);
+            } else {
+                container.getMutableItems().add(row);
+            }
+        }
+    }
+
+    private void applyBulk(Map<Object, RowChange> batch, Collection<String> properties) {
+        Map<Object, KeyValueEntity> byId = new LinkedHashMap<>();
+        for (KeyValueEntity item : container.getItems()) {
+            Object id = item.getId();
+            byId.put(id != null ? FilterSemantics.normalize(id) : item, item);
+        }
+        for (Map.Entry<Object, RowChange> e : batch.entrySet()) {
+            KeyValueEntity row = toItem(e.getValue(), properties);
+            if (row == null) {
+                byId.remove(e.getKey());
+            } else {
+                byId.put(e.getKey(), row);
+            }
+        }
+        container.setItems(new ArrayList<>(byId.values()));
+    }
+
+    // bản sao riêng cho container, null = xoá khỏi view
+    @Nullable
+    private KeyValueEntity toItem(RowChange change, Collection<String> properties) {
+        if (change.isDelete()) return null;
+        KeyValueEntity row = (KeyValueEntity) VirtualRows.copy(change.getRow(), properties);
+        if (container.getIdName() != null) row.setIdName(container.getIdName());
+        row.setInstanceMetaClass(container.getEntityMetaClass());
+        Predicate<KeyValueEntity> filter = rowFilter;
+        return filter == null || filter.test(row) ? row : null;
+    }
+
+    private Collection<String> properties() {
+        EntityMeta meta = store.getEntity(entityName);
+        return meta != null && meta.getAttributes() != null ? meta.getAttributes().keySet() : Collections.emptyList();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        subscription.remove();
+        detachRegistration.remove();
+        synchronized (lock) {
+            pending.clear();
+        }
+    }
+
+    // vài thread daemon dùng chung cho mọi view: chỉ hẹn giờ + ui.access, việc nặng nằm ở session lock của từng UI
+    private static final class Flusher {
+        static final ScheduledExecutorService EXECUTOR = create();
+
+        private static ScheduledExecutorService create() {
+            AtomicInteger n = new AtomicInteger();
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    Math.max(2, Runtime.getRuntime().availableProcessors() / 2), r -> {
+                        Thread t = new Thread(r, "dynamic-store-ui-changes-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
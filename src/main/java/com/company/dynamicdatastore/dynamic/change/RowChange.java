@@ -0,0 +1,70 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Một thay đổi của một bản ghi entity ảo, theo id:
+ * - INSERTED / UPDATED mang row sau khi ghi (toàn bộ property, không phải chỉ phần đổi)
+ * - DELETED chỉ có id
+ *
+ * row dùng chung giữa mọi subscriber -> coi là chỉ đọc, muốn sửa / đưa vào container thì copy.
+ */
+public final class RowChange {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Object id;
+    @Nullable
+    private final KeyValueEntity row;
+
+    private RowChange(Type type, Object id, @Nullable KeyValueEntity row) {
+        this.type = Objects.requireNonNull(type);
+        this.id = Objects.requireNonNull(id, "id");
+        this.row = row;
+    }
+
+    public static RowChange inserted(Object id, KeyValueEntity row) {
+        return new RowChange(Type.INSERTED, id, Objects.requireNonNull(row, "row"));
+    }
+
+    public static RowChange updated(Object id, KeyValueEntity row) {
+        return new RowChange(Type.UPDATED, id, Objects.requireNonNull(row, "row"));
+    }
+
+    public static RowChange deleted(Object id) {
+        return new RowChange(Type.DELETED, id, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * null khi DELETED.
+     */
+    @Nullable
+    public KeyValueEntity getRow() {
+        return row;
+    }
+
+    public boolean isDelete() {
+        return type == Type.DELETED;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + id + ")";
+    }
+}
@@ -0,0 +1,18 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import java.util.List;
+
+/**
+ * Nhận thay đổi của một entity ảo (DynamicDataStore.subscribe(...)).
+ *
+ * Được gọi ngay trên thread của bên ghi (thường đang giữ lock ghi của handler) -> chỉ được
+ * xếp hàng rồi trả về, việc nặng (cập nhật UI...) làm ở thread khác.
+ */
+@FunctionalInterface
+public interface RowChangeListener {
+
+    /**
+     * @param changes các thay đổi của một lần ghi, theo đúng thứ tự ghi
+     */
+    void onChanges(List<RowChange> changes);
+}
@@ -0,0 +1,31 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import java.util.List;
+
+/**
+ * Nơi handler đẩy thay đổi của mình ra, store chuyển tiếp cho các subscriber của entity.
+ * Handler nhận sink qua ObservableVirtualEntityHandler.setChangeSink(...) khi được gắn vào store.
+ */
+@FunctionalInterface
+public interface RowChangeSink {
+
+    RowChangeSink NONE = new RowChangeSink() {
+        @Override
+        public void publish(List<RowChange> changes) {
+        }
+
+        @Override
+        public boolean isActive() {
+            return false;
+        }
+    };
+
+    void publish(List<RowChange> changes);
+
+    /**
+     * false = chưa ai nghe, handler có thể bỏ qua việc dựng RowChange (copy row...).
+     */
+    default boolean isActive() {
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.company.dynamicdatastore.dynamic.federation;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Kết quả của một federated load: các row đã trộn + kết quả từng store (độ trễ, số row, lỗi).
+ * Store lỗi/timeout không làm hỏng cả kết quả, người gọi tự quyết qua getFailures()/requireComplete().
+ */
+public class FederatedResult<T> {
+
+    private final List<T> rows;
+    private final List<StoreOutcome> outcomes;
+    private final Duration elapsed;
+
+    FederatedResult(List<T> rows, List<StoreOutcome> outcomes, Duration elapsed) {
+        this.rows = rows;
+        this.outcomes = List.copyOf(outcomes);
+        this.elapsed = elapsed;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Theo đúng thứ tự store truyền vào.
+     */
+    public List<StoreOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public List<StoreOutcome> getFailures() {
+        return outcomes.stream().filter(o -> o.getError() != null).collect(Collectors.toList());
+    }
+
+    public boolean isComplete() {
+        return outcomes.stream().allMatch(o -> o.getError() == null);
+    }
+
+    /**
+     * Tổng thời gian của cả lần fan-out (≈ store chậm nhất, không phải tổng các store).
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Ném lỗi nếu có store thất bại, ngược lại trả về chính nó.
+     */
+    public FederatedResult<T> requireComplete() {
+        List<StoreOutcome> failures = getFailures();
+        if (!failures.isEmpty()) {
+            IllegalStateException e = new IllegalStateException("Federated load failed for stores "
+                    + failures.stream().map(StoreOutcome::getStoreName).collect(Collectors.toList()));
+            failures.forEach(f -> e.addSuppressed(f.getError()));
+            throw e;
+        }
+        return this;
+    }
+
+    public static class StoreOutcome {
+
+        private final String storeName;
+        private final Duration latency;
+        private final int rowCount;
+        @Nullable
+        private final Throwable error;
+
+        StoreOutcome(String storeName, Duration latency, int rowCount, @Nullable Throwable error) {
+            this.storeName = storeName;
+            this.latency = latency;
+            this.rowCount = rowCount;
+            this.error = error;
+        }
+
+        public String getStoreName() {
+            return storeName;
+        }
+
+        public Duration getLatency() {
+            return latency;
+        }
+
+        /**
+         * Số row store trả về (trước khi trộn và cắt limit toàn cục).
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Nullable
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return storeName + "[" + latency.toMillis() + "ms, " + rowCount + " rows"
+                    + (error != null ? ", " + error : "") + "]";
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.company.dynamicdatastore.dynamic.federation;
+
+import com.company.dynamicdatastore.dynamic.DynamicDataStore;
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.async.AsyncDynamicDataManager;
+import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Load cùng một entity ảo từ nhiều store runtime song song rồi trộn lại
+ * (ví dụ dashboard gộp dữ liệu 20+ tenant).
+ *
+ * - Mỗi store nhận query với offset 0, limit = offset + limit toàn cục (top-N của riêng nó)
+ * - Có sort: k-way merge các danh sách đã sort, không có sort: nối theo thứ tự store
+ * - Cắt offset/limit toàn cục sau khi trộn
+ * - Store lỗi hoặc quá dynamic-store.async-timeout được ghi vào StoreOutcome, không làm hỏng cả lần load
+ * - Mỗi store chạy qua AsyncDynamicDataManager.supply(...): quá timeout thì thread đang load bị interrupt,
+ *   không chạy tiếp chiếm executor sau khi kết quả đã bị bỏ
+ *
+ * Giống DynamicDataStore.loadAllAsync(...): đi thẳng vào store, KHÔNG qua DataManager, nên không có
+ * kiểm tra quyền (constraint, row-level) và không bắn event load. Chỉ dùng cho dữ liệu mà người gọi
+ * đã được phép xem toàn bộ (dashboard nội bộ, job); cần quyền theo user thì load từng store
+ * qua AsyncDynamicDataManager rồi tự trộn.
+ */
+@Component("app_FederatedStoreLoader")
+public class FederatedStoreLoader {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final DynamicStoreRegistry registry;
+    private final AsyncDynamicDataManager asyncDataManager;
+    private final Duration timeout;
+
+    public FederatedStoreLoader(DynamicStoreRegistry registry,
+                                AsyncDynamicDataManager asyncDataManager,
+                                DynamicStoreProperties properties) {
+        this.registry = registry;
+        this.asyncDataManager = asyncDataManager;
+        this.timeout = properties.getAsyncTimeout();
+    }
+
+    public <E> FederatedResult<E> load(Collection<String> storeNames, LoadContext<E> context) {
+        return join(loadAsync(storeNames, context));
+    }
+
+    public <E> CompletableFuture<FederatedResult<E>> loadAsync(Collection<String> storeNames, LoadContext<E> context) {
+        VirtualQuery global = VirtualQuery.of(context);
+        return fanOut(storeNames, global,
+                (store, executor) -> store.loadAllAsync(context, perStore(global), executor));
+    }
+
+    public FederatedResult<KeyValueEntity> loadValues(Collection<String> storeNames, ValueLoadContext context) {
+        return join(loadValuesAsync(storeNames, context));
+    }
+
+    /**
+     * Như loadAsync(...) cho query giá trị; cũng không qua DataManager.
+     */
+    public CompletableFuture<FederatedResult<KeyValueEntity>> loadValuesAsync(Collection<String> storeNames,
+                                                                             ValueLoadContext context) {
+        // sort/paging toàn cục lấy giống cách store làm (context, hoặc order by trong JPQL);
+        // cache JPQL dùng chung nên parse ở đây cũng chỉ là một lần tra cache
+        DynamicDataStore any = storeNames.stream().map(registry::getStore)
+                .filter(Objects::nonNull).findFirst().orElse(null);
+        VirtualQuery global = any != null ? VirtualQuery.of(context, any.parseValueQuery(context)) : VirtualQuery.of(context);
+        return fanOut(storeNames, global,
+                (store, executor) -> store.loadValuesAsync(context, perStore(global), executor));
+    }
+
+    private <T> CompletableFuture<FederatedResult<T>> fanOut(Collection<String> storeNames,
+                                                            VirtualQuery global,
+                                                            BiFunction<DynamicDataStore, Executor, CompletableFuture<List<T>>> load) {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<>(storeNames);
+        List<CompletableFuture<Partial<T>>> partials = new ArrayList<>(names.size());
+        for (String name : names) {
+            partials.add(loadOne(name, load));
+        }
+
+        return CompletableFuture.allOf(partials.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    List<List<T>> lists = new ArrayList<>(names.size());
+                    List<FederatedResult.StoreOutcome> outcomes = new ArrayList<>(names.size());
+                    for (CompletableFuture<Partial<T>> f : partials) {
+                        Partial<T> p = f.join();
+                        outcomes.add(p.outcome);
+                        if (p.rows != null) lists.add(p.rows);
+                    }
+                    List<T> rows = merge(lists, global);
+                    return new FederatedResult<>(rows, outcomes, Duration.ofNanos(System.nanoTime() - start));
+                });
+    }
+
+    private <T> CompletableFuture<Partial<T>> loadOne(String storeName,
+                                                     BiFunction<DynamicDataStore, Executor, CompletableFuture<List<T>>> load) {
+        long start = System.nanoTime();
+        DynamicDataStore store = registry.getStore(storeName);
+        if (store == null) {
+            return CompletableFuture.completedFuture(new Partial<>(null, new FederatedResult.StoreOutcome(
+                    storeName, Duration.ZERO, 0, new IllegalArgumentException("Unknown store " + storeName))));
+        }
+
+        return asyncDataManager.supply(() -> await(load.apply(store, DIRECT)), timeout)
+                .handle((list, error) -> {
+                    Duration latency = Duration.ofNanos(System.nanoTime() - start);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        return new Partial<>(null, new FederatedResult.StoreOutcome(storeName, latency, 0, cause));
+                    }
+                    return new Partial<>(list, new FederatedResult.StoreOutcome(storeName, latency, list.size(), null));
+                });
+    }
+
+    // load của store chạy ngay trên thread của supply(...) để timeout interrupt được nó;
+    // handler có IO async thật thì thread này chỉ chờ, interrupt sẽ cancel future của handler
+    private static <T> List<T> await(CompletableFuture<List<T>> rows) {
+        try {
+            return rows.get();
+        } catch (InterruptedException e) {
+            rows.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Federated load interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static <T> List<T> merge(List<List<T>> lists, VirtualQuery global) {
+        if (global.isSorted()) {
+            return VirtualRows.mergeSorted(lists, VirtualRows.comparator(global.getSort()),
+                    global.getOffset(), global.getLimit());
+        }
+        List<T> all = new ArrayList<>();
+        for (List<T> l : lists) {
+            all.addAll(l);
+        }
+        return VirtualRows.page(all, global.getOffset(), global.getLimit());
+    }
+
+    // mỗi store chỉ cần top (offset + limit) của nó, offset cắt sau khi trộn
+    private static UnaryOperator<VirtualQuery> perStore(VirtualQuery global) {
+        if (!global.hasPaging() || global.getLimit() <= 0) {
+            return q -> q.withoutPaging();
+        }
+        int top = (int) Math.min((long) global.getOffset() + global.getLimit(), Integer.MAX_VALUE);
+        return q -> q.withPaging(0, top);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static final class Partial<T> {
+        final List<T> rows;
+        final FederatedResult.StoreOutcome outcome;
+
+        Partial(List<T> rows, FederatedResult.StoreOutcome outcome) {
+            this.rows = rows;
+            this.outcome = outcome;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker đếm theo số lời gọi:
+ * - CLOSED: ghi kết quả vào cửa sổ slidingWindowSize lời gọi gần nhất, đủ minimumCalls mà tỉ lệ lỗi
+ *   >= failureRateThreshold % thì mở
+ * - OPEN: từ chối mọi lời gọi trong openDuration
+ * - HALF_OPEN: cho halfOpenCalls lời gọi thử; một lời gọi lỗi là mở lại, tất cả thành công thì đóng
+ *
+ * tryAcquire() trả về "vé" (thế hệ trạng thái hiện tại): kết quả của lời gọi bắt đầu trước một lần
+ * chuyển trạng thái bị bỏ qua, lời gọi chậm từ lúc CLOSED không làm hỏng lượt thử của HALF_OPEN.
+ * Các hàm đều ngắn nên dùng synchronized; getState() đọc không lock cho gauge.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // vòng tròn kết quả (true = lỗi) của CLOSED
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreaker(String name, HandlerGuardSpec spec) {
+        this.name = name;
+        this.failureRateThreshold = spec.getFailureRateThreshold();
+        this.minimumCalls = spec.getMinimumCalls();
+        this.openNanos = spec.getOpenDuration().toNanos();
+        this.halfOpenCalls = spec.getHalfOpenCalls();
+        this.window = new boolean[spec.getSlidingWindowSize()];
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return vé để báo kết quả, -1 nếu không được gọi (mạch mở / đã đủ lượt thử)
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) return -1;
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) return -1;
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    public synchronized void onSuccess(long ticket) {
+        if (ticket != generation) return;
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) transition(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure(long ticket) {
+        if (ticket != generation) return;
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+            return;
+        }
+        record(true);
+        if (windowCount >= minimumCalls && windowFailures * 100L >= (long) failureRateThreshold * windowCount) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Vé đã lấy nhưng kết quả không nói gì về backend (bulkhead đầy, lỗi do người gọi): trả lại lượt thử.
+     */
+    public synchronized void release(long ticket) {
+        if (ticket == generation && state == State.HALF_OPEN) trialsStarted--;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowNext]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = failure;
+        if (failure) windowFailures++;
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        generation++;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+            if (previous == State.HALF_OPEN) {
+                log.warn("Circuit of {} reopened: trial call failed, failing fast for {} ms", name, openNanos / 1_000_000);
+            } else {
+                log.warn("Circuit of {} opened: {} of last {} calls failed, failing fast for {} ms",
+                        name, windowFailures, windowCount, openNanos / 1_000_000);
+            }
+        } else if (next == State.CLOSED) {
+            log.info("Circuit of {} closed", name);
+        }
+        if (next != State.HALF_OPEN) {
+            windowNext = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        state = next;
+    }
+}
@@ -0,0 +1,625 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.change.RowChangeSink;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.query.JpqlParseException;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.ObservableVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Decorator giới hạn thiệt hại của một handler chậm / treo lên cả store:
+ * - bulkhead: tối đa maxConcurrentCalls lời gọi cùng lúc, hết chỗ thì từ chối thay vì giữ thread request
+ * - timeout: lời gọi chạy trên thread riêng, quá timeout thì người gọi được trả ngay
+ *   (lời gọi treo vẫn giữ chỗ trong bulkhead tới khi thật sự xong, nên handler treo không ngốn thêm thread)
+ * - circuit breaker: lỗi / timeout nhiều thì mở mạch, từ chối ngay mà không chạm handler cho tới lúc thử lại
+ * - last known good (tuỳ chọn): bị từ chối / lỗi / timeout thì trả kết quả thành công gần nhất của lời gọi
+ *   giống hệt (cùng VirtualQuery, cùng id), không có thì ném HandlerUnavailableException (hoặc lỗi gốc).
+ *   Query có filter không dịch hết (!isFilterExact) không được nhớ: phần điều kiện còn lại chỉ nằm trong
+ *   LoadContext nên hai query khác nhau sẽ trùng key
+ *
+ * Lỗi do người gọi (IllegalArgumentException, UnsupportedOperationException, JpqlParseException)
+ * không tính vào circuit breaker. Stream chỉ được bảo vệ lúc mở (đọc tiếp là việc của người gọi);
+ * commit(...) có bulkhead + circuit breaker nhưng không timeout, không kết quả cũ (ghi bỏ dở thì không biết đã
+ * ghi tới đâu). Trong transaction Spring đang chạy lời gọi ở lại thread hiện tại (handler JDBC tham gia
+ * transaction qua DataSourceUtils), timeout khi đó không áp dụng. Lời gọi có timeout chạy trên
+ * HandlerGuardExecutor và chỉ mang theo SecurityContext (xem HandlerGuardExecutor).
+ *
+ * Tạo qua DynamicStoreRegistry.addHandler(store, entity, handler, HandlerGuardSpec)
+ * hoặc mặc định cho mọi handler khi bật dynamic-store.handler-guard-enabled (mặc định tắt).
+ */
+public class GuardedVirtualEntityHandler implements WritableVirtualEntityHandler<Object>,
+        ObservableVirtualEntityHandler<Object> {
+
+    // kết quả lớn hơn thì không giữ làm last known good (copy mỗi lần thành công quá đắt)
+    private static final int MAX_REMEMBERED_ROWS = 10_000;
+
+    private final String storeName;
+    private final String entityName;
+    // entity có thể được đăng ký sau handler -> lấy lúc cần
+    private final Supplier<EntityMeta> entityMeta;
+    private final VirtualEntityHandler<Object> delegate;
+    private final HandlerGuardSpec spec;
+    private final HandlerGuardExecutor executor;
+    @Nullable
+    private final DynamicStoreMetrics metrics;
+
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final CircuitBreaker breaker;
+    @Nullable
+    private final LastKnownGood lastKnownGood;
+
+    @SuppressWarnings("unchecked")
+    public GuardedVirtualEntityHandler(String storeName, String entityName, Supplier<EntityMeta> entityMeta,
+                                       VirtualEntityHandler<?> delegate, HandlerGuardSpec spec,
+                                       HandlerGuardExecutor executor, @Nullable DynamicStoreMetrics metrics) {
+        this.storeName = storeName;
+        this.entityName = entityName;
+        this.entityMeta = entityMeta;
+        this.delegate = (VirtualEntityHandler<Object>) delegate;
+        this.spec = spec;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.permits = new Semaphore(spec.getMaxConcurrentCalls());
+        this.breaker = new CircuitBreaker(storeName + "/" + entityName, spec);
+        this.lastKnownGood = spec.getLastKnownGoodMaxAge() != null
+                ? new LastKnownGood(spec.getLastKnownGoodMaxAge().toNanos(), spec.getLastKnownGoodEntries())
+                : null;
+        if (metrics != null) metrics.bindGuard(this);
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public VirtualEntityHandler<?> getDelegate() {
+        return delegate;
+    }
+
+    public HandlerGuardSpec getSpec() {
+        return spec;
+    }
+
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * Số lời gọi đang giữ chỗ trong bulkhead (kể cả lời gọi đã quá timeout nhưng chưa xong).
+     */
+    public int getActiveCalls() {
+        return active.get();
+    }
+
+    //====================== LoadContext ====================
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx) {
+        return call("loadAll", null, () -> delegate.loadAll(ctx), null);
+    }
+
+    @Override
+    public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+        return call("loadAll", key("loadAll", query), () -> delegate.loadAll(ctx, query), rowsCopy(query));
+    }
+
+    @Override
+    public Object loadOne(LoadContext<Object> ctx, Object id) {
+        return call("loadOne", key("loadOne", FilterSemantics.normalize(id)), () -> delegate.loadOne(ctx, id),
+                row -> row != null ? VirtualRows.copy(row, properties(VirtualQuery.ALL)) : null);
+    }
+
+    @Override
+    public List<Object> loadMany(LoadContext<Object> ctx, Collection<?> ids) {
+        // copy list id chỉ khi thật sự nhớ kết quả
+        Object key = lastKnownGood != null ? key("loadMany", new ArrayList<>(ids)) : null;
+        return call("loadMany", key, () -> delegate.loadMany(ctx, ids), rowsCopy(VirtualQuery.ALL));
+    }
+
+    @Override
+    public Stream<Object> stream(LoadContext<Object> ctx, VirtualQuery query) {
+        return call("stream", null, () -> delegate.stream(ctx, query), null);
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> loadAllAsync(LoadContext<Object> ctx, VirtualQuery query, Executor executor) {
+        return callAsync("loadAll", key("loadAll", query), () -> delegate.loadAllAsync(ctx, query, executor),
+                rowsCopy(query));
+    }
+
+    @Override
+    public CompletableFuture<Object> loadOneAsync(LoadContext<Object> ctx, Object id, Executor executor) {
+        return callAsync("loadOne", key("loadOne", FilterSemantics.normalize(id)),
+                () -> delegate.loadOneAsync(ctx, id, executor),
+                row -> row != null ? VirtualRows.copy(row, properties(VirtualQuery.ALL)) : null);
+    }
+
+    @Override
+    public long count(LoadContext<Object> ctx) {
+        return call("count", null, () -> delegate.count(ctx), null);
+    }
+
+    @Override
+    public long count(LoadContext<Object> ctx, VirtualQuery query) {
+        return call("count", key("count", query), () -> delegate.count(ctx, query), UnaryOperator.identity());
+    }
+
+    //====================== ValueLoadContext ===============
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        return call("loadAllValues", null, () -> delegate.loadAllKeyValue(ctx), null);
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return call("loadAllValues", key("loadAllValues", query), () -> delegate.loadAllKeyValue(ctx, query),
+                rowsCopy(query));
+    }
+
+    @Override
+    public Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return call("streamValues", null, () -> delegate.streamKeyValue(ctx, query), null);
+    }
+
+    @Override
+    public CompletableFuture<List<KeyValueEntity>> loadAllKeyValueAsync(ValueLoadContext ctx, VirtualQuery query,
+                                                                       Executor executor) {
+        return callAsync("loadAllValues", key("loadAllValues", query),
+                () -> delegate.loadAllKeyValueAsync(ctx, query, executor), rowsCopy(query));
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return call("countValues", null, () -> delegate.countKeyValue(ctx), null);
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return call("countValues", key("countValues", query), () -> delegate.countKeyValue(ctx, query),
+                UnaryOperator.identity());
+    }
+
+    @Override
+    public List<Object[]> aggregate(ValueLoadContext ctx, AggregateQuery query) {
+        return call("aggregate", key("aggregate", query), () -> delegate.aggregate(ctx, query), groups -> {
+            List<Object[]> out = new ArrayList<>(groups.size());
+            for (Object[] group : groups) out.add(group.clone());
+            return out;
+        });
+    }
+
+    //====================== write ==========================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void commit(VirtualWriteBatch<Object> batch) {
+        if (!isWritable()) {
+            throw new UnsupportedOperationException("Entity " + entityName + " is read-only");
+        }
+        long ticket = breaker.tryAcquire();
+        if (ticket < 0) throw unavailable(HandlerUnavailableException.Reason.CIRCUIT_OPEN);
+        if (!acquirePermit(spec.getMaxWait().toNanos())) {
+            breaker.release(ticket);
+            throw unavailable(HandlerUnavailableException.Reason.BULKHEAD_FULL);
+        }
+        try {
+            ((WritableVirtualEntityHandler<Object>) delegate).commit(batch);
+            breaker.onSuccess(ticket);
+        } catch (RuntimeException e) {
+            if (isCallerError(e)) breaker.release(ticket);
+            else breaker.onFailure(ticket);
+            throw e;
+        } finally {
+            releasePermit();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return delegate instanceof WritableVirtualEntityHandler
+                && ((WritableVirtualEntityHandler<?>) delegate).isWritable();
+    }
+
+    @Override
+    public void setChangeSink(RowChangeSink sink) {
+        if (delegate instanceof ObservableVirtualEntityHandler) {
+            ((ObservableVirtualEntityHandler<?>) delegate).setChangeSink(sink);
+        }
+    }
+
+    //====================== capabilities ===================
+
+    @Override
+    public boolean supportsPaging() {
+        return delegate.supportsPaging();
+    }
+
+    @Override
+    public boolean supportsSorting() {
+        return delegate.supportsSorting();
+    }
+
+    @Override
+    public Set<FilterOperator> supportedFilterOperators() {
+        return delegate.supportedFilterOperators();
+    }
+
+    @Override
+    public boolean handlesRawConditions() {
+        return delegate.handlesRawConditions();
+    }
+
+    @Override
+    public boolean requiresExactFilter() {
+        return delegate.requiresExactFilter();
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return delegate.supportsCount();
+    }
+
+    @Override
+    public boolean supportsAggregate(AggregateQuery query) {
+        return delegate.supportsAggregate(query);
+    }
+
+    //====================== lời gọi đồng bộ ================
+
+    /**
+     * @param key  key của last known good (null = không nhớ kết quả của lời gọi này)
+     * @param copy bản sao kết quả để nhớ / trả cho người khác (row còn bị sửa bởi người nhận)
+     */
+    private <T> T call(String operation, @Nullable Object key, Callable<T> call, @Nullable UnaryOperator<T> copy) {
+        long ticket = breaker.tryAcquire();
+        if (ticket < 0) return fallback(operation, key, copy, HandlerUnavailableException.Reason.CIRCUIT_OPEN, null);
+        if (!acquirePermit(spec.getMaxWait().toNanos())) {
+            breaker.release(ticket);
+            return fallback(operation, key, copy, HandlerUnavailableException.Reason.BULKHEAD_FULL, null);
+        }
+
+        T result;
+        if (spec.getTimeout() == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                result = call.call();
+            } catch (RuntimeException e) {
+                return failed(operation, key, copy, ticket, e);
+            } catch (Error e) {
+                breaker.onFailure(ticket);
+                throw e;
+            } catch (Exception e) {
+                // Callable của các hàm handler không ném checked exception
+                throw new IllegalStateException(e);
+            } finally {
+                releasePermit();
+            }
+        } else {
+            FutureTask<T> task = guardedTask(call);
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                task.cancel(false);
+                breaker.release(ticket);
+                throw e;
+            }
+            try {
+                result = task.get(spec.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                task.cancel(true);
+                breaker.onFailure(ticket);
+                return fallback(operation, key, copy, HandlerUnavailableException.Reason.TIMEOUT, null);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) return failed(operation, key, copy, ticket, (RuntimeException) cause);
+                breaker.onFailure(ticket);
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                breaker.release(ticket);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while calling handler of " + entityName, e);
+            }
+        }
+
+        breaker.onSuccess(ticket);
+        remember(key, result, copy);
+        return result;
+    }
+
+    private <T> T failed(String operation, @Nullable Object key, @Nullable UnaryOperator<T> copy,
+                         long ticket, RuntimeException e) {
+        if (isCallerError(e)) {
+            breaker.release(ticket);
+            throw e;
+        }
+        breaker.onFailure(ticket);
+        return fallback(operation, key, copy, null, e);
+    }
+
+    /**
+     * Kết quả cũ nếu có, không thì lỗi gốc (cause) hoặc HandlerUnavailableException(reason).
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T fallback(String operation, @Nullable Object key, @Nullable UnaryOperator<T> copy,
+                           @Nullable HandlerUnavailableException.Reason reason, @Nullable RuntimeException cause) {
+        if (reason != null && metrics != null) metrics.recordRejected(storeName, entityName, reason.name());
+        LastKnownGood.Entry stale = lastKnownGood != null && key != null ? lastKnownGood.get(key) : null;
+        if (stale != null && copy != null) {
+            if (metrics != null) metrics.recordFallback(storeName, entityName, operation);
+            return copy.apply((T) stale.value);
+        }
+        if (cause != null) throw cause;
+        throw unavailable(reason);
+    }
+
+    //====================== lời gọi bất đồng bộ ============
+
+    // không bao giờ chờ permit: đang ở thread gọi async thì không được block
+    private <T> CompletableFuture<T> callAsync(String operation, @Nullable Object key,
+                                               Supplier<CompletableFuture<T>> call, @Nullable UnaryOperator<T> copy) {
+        long ticket = breaker.tryAcquire();
+        if (ticket < 0) {
+            return asyncFallback(operation, key, copy, HandlerUnavailableException.Reason.CIRCUIT_OPEN, null);
+        }
+        if (!acquirePermit(0)) {
+            breaker.release(ticket);
+            return asyncFallback(operation, key, copy, HandlerUnavailableException.Reason.BULKHEAD_FULL, null);
+        }
+
+        CompletableFuture<T> inner;
+        try {
+            inner = call.get();
+        } catch (RuntimeException e) {
+            releasePermit();
+            if (isCallerError(e)) {
+                breaker.release(ticket);
+                return CompletableFuture.failedFuture(e);
+            }
+            breaker.onFailure(ticket);
+            return asyncFallback(operation, key, copy, null, e);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // ai tới trước (kết quả thật hay timeout) quyết định; quá timeout thì cancel future của handler
+        // (không biết được việc thật còn chạy hay không) và trả permit luôn
+        AtomicBoolean decided = new AtomicBoolean();
+        ScheduledFuture<?> timer;
+        try {
+            timer = spec.getTimeout() == null ? null : executor.schedule(() -> {
+                if (!decided.compareAndSet(false, true)) return;
+                breaker.onFailure(ticket);
+                inner.cancel(true);
+                complete(result, operation, key, copy, HandlerUnavailableException.Reason.TIMEOUT, null);
+            }, spec.getTimeout().toNanos());
+        } catch (RejectedExecutionException e) {
+            // executor đã đóng (context đang tắt): bỏ lời gọi
+            inner.cancel(true);
+            breaker.release(ticket);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        inner.whenComplete((value, error) -> {
+            releasePermit();
+            if (timer != null) timer.cancel(false);
+            if (!decided.compareAndSet(false, true)) return;
+            if (error == null) {
+                breaker.onSuccess(ticket);
+                remember(key, value, copy);
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof RuntimeException) || isCallerError((RuntimeException) cause)) {
+                breaker.release(ticket);
+                result.completeExceptionally(cause);
+                return;
+            }
+            breaker.onFailure(ticket);
+            complete(result, operation, key, copy, null, (RuntimeException) cause);
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> asyncFallback(String operation, @Nullable Object key,
+                                                   @Nullable UnaryOperator<T> copy,
+                                                   @Nullable HandlerUnavailableException.Reason reason,
+                                                   @Nullable RuntimeException cause) {
+        CompletableFuture<T> out = new CompletableFuture<>();
+        complete(out, operation, key, copy, reason, cause);
+        return out;
+    }
+
+    private <T> void complete(CompletableFuture<T> result, String operation, @Nullable Object key,
+                              @Nullable UnaryOperator<T> copy, @Nullable HandlerUnavailableException.Reason reason,
+                              @Nullable RuntimeException cause) {
+        try {
+            result.complete(fallback(operation, key, copy, reason, cause));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    //====================== nội bộ =========================
+
+    private boolean acquirePermit(long waitNanos) {
+        boolean acquired;
+        if (waitNanos <= 0) {
+            acquired = permits.tryAcquire();
+        } else {
+            try {
+                acquired = permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        }
+        if (acquired) active.incrementAndGet();
+        return acquired;
+    }
+
+    private void releasePermit() {
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    private HandlerUnavailableException unavailable(HandlerUnavailableException.Reason reason) {
+        String message = switch (reason) {
+            case CIRCUIT_OPEN -> "circuit is open, handler calls are rejected for up to " + spec.getOpenDuration();
+            case BULKHEAD_FULL -> "all " + spec.getMaxConcurrentCalls() + " handler call slots are busy";
+            case TIMEOUT -> "handler call did not finish within " + spec.getTimeout();
+        };
+        return new HandlerUnavailableException(storeName, entityName, reason, message);
+    }
+
+    // lỗi do query / cách gọi, không phải do backend
+    private static boolean isCallerError(RuntimeException e) {
+        return e instanceof IllegalArgumentException
+                || e instanceof UnsupportedOperationException
+                || e instanceof JpqlParseException;
+    }
+
+    @Nullable
+    private Object key(String operation, Object argument) {
+        return lastKnownGood != null ? Arrays.asList(operation, argument) : null;
+    }
+
+    // filter không chính xác: điều kiện còn lại nằm trong LoadContext, không có trong key
+    @Nullable
+    private Object key(String operation, VirtualQuery query) {
+        return query.isFilterExact() ? key(operation, (Object) query) : null;
+    }
+
+    private <T> void remember(@Nullable Object key, T result, @Nullable UnaryOperator<T> copy) {
+        if (key == null || copy == null) return;
+        if (result instanceof Collection && ((Collection<?>) result).size() > MAX_REMEMBERED_ROWS) return;
+        lastKnownGood.put(key, copy.apply(result));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> UnaryOperator<List<T>> rowsCopy(VirtualQuery query) {
+        Collection<String> properties = properties(query);
+        return rows -> {
+            List<T> out = new ArrayList<>(rows.size());
+            for (T row : rows) out.add((T) VirtualRows.copy(row, properties));
+            return out;
+        };
+    }
+
+    private Collection<String> properties(VirtualQuery query) {
+        if (!query.getProperties().isEmpty()) return query.getProperties();
+        EntityMeta meta = entityMeta.get();
+        return meta != null && meta.getAttributes() != null ? meta.getAttributes().keySet() : List.of();
+    }
+
+    /**
+     * Kết quả thành công gần nhất theo key (LRU, giới hạn số key và tuổi).
+     */
+    private static final class LastKnownGood {
+        private final long maxAgeNanos;
+        private final Map<Object, Entry> entries;
+
+        LastKnownGood(long maxAgeNanos, int maxEntries) {
+            this.maxAgeNanos = maxAgeNanos;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized void put(Object key, @Nullable Object value) {
+            entries.put(key, new Entry(value, System.nanoTime()));
+        }
+
+        @Nullable
+        synchronized Entry get(Object key) {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (System.nanoTime() - e.storedAtNanos > maxAgeNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return e;
+        }
+
+        static final class Entry {
+            @Nullable
+            final Object value;
+            final long storedAtNanos;
+
+            Entry(@Nullable Object value, long storedAtNanos) {
+                this.value = value;
+                this.storedAtNanos = storedAtNanos;
+            }
+        }
+    }
+
+    /**
+     * Lời gọi chạy trên thread của HandlerGuardExecutor. Permit được trả ngay khi lời gọi thật sự xong,
+     * trước khi người chờ thấy kết quả (bị cancel trước khi kịp chạy thì trả trong done()).
+     */
+    private <T> FutureTask<T> guardedTask(Callable<T> call) {
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) releasePermit();
+        };
+        return new FutureTask<>(() -> {
+            started.set(true);
+            try {
+                return call.call();
+            } finally {
+                release.run();
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (!started.get()) release.run();
+            }
+        };
+    }
+}
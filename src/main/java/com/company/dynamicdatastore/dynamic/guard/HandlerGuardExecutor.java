@@ -0,0 +1,74 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread chạy lời gọi có timeout của GuardedVirtualEntityHandler + timer cho timeout của lời gọi async,
+ * dùng chung cho mọi handler được bọc. Pool không có hàng đợi và không tự giới hạn: số thread bị chặn
+ * bởi tổng maxConcurrentCalls của các handler (lời gọi chỉ tới đây sau khi đã lấy permit bulkhead).
+ * Đóng cùng Spring context (shutdownNow: lời gọi còn treo bị interrupt).
+ *
+ * Chỉ SecurityContext của thread gọi được mang sang thread chạy handler. KHÔNG mang theo:
+ * - transaction Spring (vì vậy trong transaction GuardedVirtualEntityHandler gọi luôn trên thread hiện tại)
+ * - MDC của logging, LocaleContextHolder / RequestContextHolder
+ * - VaadinSession.getCurrent() / UI.getCurrent()
+ * Handler cần những thứ này thì phải đọc chúng từ LoadContext / tham số, hoặc dùng guard không timeout.
+ */
+@Component("app_HandlerGuardExecutor")
+public class HandlerGuardExecutor {
+
+    private final ExecutorService calls;
+    private final ScheduledExecutorService timer;
+
+    public HandlerGuardExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        this.calls = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "dynamic-store-guard-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "dynamic-store-guard-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduled.setRemoveOnCancelPolicy(true);
+        this.timer = scheduled;
+    }
+
+    /**
+     * Chạy task trên thread riêng, mang theo SecurityContext của thread gọi.
+     *
+     * @throws RejectedExecutionException nếu executor đã đóng
+     */
+    public void execute(Runnable task) {
+        calls.execute(DelegatingSecurityContextRunnable.create(task, null));
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+        return timer.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isShutdown() {
+        return calls.isShutdown();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        calls.shutdownNow();
+    }
+}
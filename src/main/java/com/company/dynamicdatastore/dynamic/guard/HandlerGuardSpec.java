@@ -0,0 +1,159 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình bảo vệ một handler (GuardedVirtualEntityHandler):
+ * - maxConcurrentCalls: bulkhead, số lời gọi xuống handler cùng lúc; hết chỗ thì chờ tối đa maxWait rồi từ chối
+ * - timeout: thời gian tối đa của một lời gọi (null = không giới hạn, gọi luôn trên thread hiện tại)
+ * - circuit breaker: trong slidingWindowSize lời gọi gần nhất (đủ minimumCalls) tỉ lệ lỗi >= failureRateThreshold %
+ *   thì mở mạch openDuration, sau đó cho halfOpenCalls lời gọi thử; thử đều ổn thì đóng lại
+ * - lastKnownGood: khi handler không dùng được, trả kết quả thành công gần nhất của lời gọi giống hệt
+ *   (cũ không quá lastKnownGoodMaxAge, giữ tối đa lastKnownGoodEntries kết quả); null = báo lỗi ngay
+ */
+public final class HandlerGuardSpec {
+
+    private final int maxConcurrentCalls;
+    private final Duration maxWait;
+    @Nullable
+    private final Duration timeout;
+    private final int failureRateThreshold;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    @Nullable
+    private final Duration lastKnownGoodMaxAge;
+    private final int lastKnownGoodEntries;
+
+    private HandlerGuardSpec(int maxConcurrentCalls, Duration maxWait, @Nullable Duration timeout,
+                             int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                             Duration openDuration, int halfOpenCalls,
+                             @Nullable Duration lastKnownGoodMaxAge, int lastKnownGoodEntries) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be positive: " + maxConcurrentCalls);
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative: " + maxWait);
+        }
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("failureRateThreshold must be in 1..100: " + failureRateThreshold);
+        }
+        if (slidingWindowSize <= 0 || minimumCalls <= 0 || minimumCalls > slidingWindowSize) {
+            throw new IllegalArgumentException("Invalid sliding window: size=" + slidingWindowSize
+                    + ", minimumCalls=" + minimumCalls);
+        }
+        if (openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("openDuration must be positive: " + openDuration);
+        }
+        if (halfOpenCalls <= 0) {
+            throw new IllegalArgumentException("halfOpenCalls must be positive: " + halfOpenCalls);
+        }
+        if (lastKnownGoodMaxAge != null && (lastKnownGoodMaxAge.isNegative() || lastKnownGoodMaxAge.isZero()
+                || lastKnownGoodEntries <= 0)) {
+            throw new IllegalArgumentException("Invalid last known good: maxAge=" + lastKnownGoodMaxAge
+                    + ", entries=" + lastKnownGoodEntries);
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.lastKnownGoodMaxAge = lastKnownGoodMaxAge;
+        this.lastKnownGoodEntries = lastKnownGoodEntries;
+    }
+
+    /**
+     * Mặc định: không chờ permit, mở mạch khi >= 50% của 20 lời gọi gần nhất lỗi (tối thiểu 10),
+     * mở 30s, 3 lời gọi thử, không dùng kết quả cũ.
+     *
+     * @param timeout null = không giới hạn thời gian
+     */
+    public static HandlerGuardSpec of(int maxConcurrentCalls, @Nullable Duration timeout) {
+        return new HandlerGuardSpec(maxConcurrentCalls, Duration.ZERO, timeout,
+                50, 20, 10, Duration.ofSeconds(30), 3, null, 0);
+    }
+
+    /**
+     * Bulkhead đầy thì chờ tối đa maxWait (chỉ lời gọi đồng bộ; bản async không bao giờ chờ).
+     */
+    public HandlerGuardSpec withMaxWait(Duration maxWait) {
+        return new HandlerGuardSpec(maxConcurrentCalls, maxWait, timeout, failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls, lastKnownGoodMaxAge, lastKnownGoodEntries);
+    }
+
+    public HandlerGuardSpec withCircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                                               Duration openDuration) {
+        return new HandlerGuardSpec(maxConcurrentCalls, maxWait, timeout, failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls, lastKnownGoodMaxAge, lastKnownGoodEntries);
+    }
+
+    public HandlerGuardSpec withHalfOpenCalls(int halfOpenCalls) {
+        return new HandlerGuardSpec(maxConcurrentCalls, maxWait, timeout, failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls, lastKnownGoodMaxAge, lastKnownGoodEntries);
+    }
+
+    public HandlerGuardSpec withLastKnownGood(Duration maxAge, int maxEntries) {
+        return new HandlerGuardSpec(maxConcurrentCalls, maxWait, timeout, failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls, maxAge, maxEntries);
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    @Nullable
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    @Nullable
+    public Duration getLastKnownGoodMaxAge() {
+        return lastKnownGoodMaxAge;
+    }
+
+    public int getLastKnownGoodEntries() {
+        return lastKnownGoodEntries;
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerGuardSpec{maxConcurrentCalls=" + maxConcurrentCalls + ", maxWait=" + maxWait
+                + ", timeout=" + timeout + ", failureRateThreshold=" + failureRateThreshold
+                + ", slidingWindowSize=" + slidingWindowSize + ", minimumCalls=" + minimumCalls
+                + ", openDuration=" + openDuration + ", halfOpenCalls=" + halfOpenCalls
+                + ", lastKnownGoodMaxAge=" + lastKnownGoodMaxAge + ", lastKnownGoodEntries=" + lastKnownGoodEntries + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+/**
+ * Lời gọi handler bị từ chối ngay hoặc bỏ dở (GuardedVirtualEntityHandler) và không có kết quả cũ để thay.
+ */
+public class HandlerUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        // circuit breaker đang mở
+        CIRCUIT_OPEN,
+        // bulkhead hết chỗ
+        BULKHEAD_FULL,
+        // quá timeout
+        TIMEOUT
+    }
+
+    private final String storeName;
+    private final String entityName;
+    private final Reason reason;
+
+    public HandlerUnavailableException(String storeName, String entityName, Reason reason, String message) {
+        super("[" + storeName + "] " + entityName + ": " + message);
+        this.storeName = storeName;
+        this.entityName = entityName;
+        this.reason = reason;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,177 @@
+package com.company.dynamicdatastore.dynamic.http;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình REST API của một entity ảo cho HttpVirtualEntityHandler:
+ * - baseUrl + các path template: listPath ("/api/orders"), onePath ("/api/orders/{id}"),
+ *   batchPath tuỳ chọn ("/api/orders?ids={ids}", ids nối bằng dấu phẩy), countPath tuỳ chọn ("/api/orders/count")
+ * - itemsField: response list là object bọc mảng (ví dụ {"items": [...]}) thì khai báo tên field; null = mảng ở gốc
+ * - field JSON của từng property, mặc định trùng tên property
+ * - header gửi kèm mọi request (Authorization...), timeout mỗi request
+ * - idBatchSize: số id tối đa mỗi request batch; maxParallelRequests: số request loadOne chạy song song
+ *   khi không có batchPath
+ */
+public final class HttpEndpointSpec {
+
+    private final String baseUrl;
+    private final String listPath;
+    private final String onePath;
+    @Nullable
+    private final String batchPath;
+    @Nullable
+    private final String countPath;
+    @Nullable
+    private final String itemsField;
+    private final Map<String, String> fields;
+    private final Map<String, String> headers;
+    private final Duration timeout;
+    private final int idBatchSize;
+    private final int maxParallelRequests;
+
+    private HttpEndpointSpec(String baseUrl, String listPath, String onePath, @Nullable String batchPath,
+                             @Nullable String countPath, @Nullable String itemsField, Map<String, String> fields,
+                             Map<String, String> headers, Duration timeout, int idBatchSize, int maxParallelRequests) {
+        if (!onePath.contains("{id}")) {
+            throw new IllegalArgumentException("onePath must contain {id}: " + onePath);
+        }
+        if (batchPath != null && !batchPath.contains("{ids}")) {
+            throw new IllegalArgumentException("batchPath must contain {ids}: " + batchPath);
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        if (idBatchSize <= 0 || maxParallelRequests <= 0) {
+            throw new IllegalArgumentException("idBatchSize and maxParallelRequests must be positive");
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.listPath = listPath;
+        this.onePath = onePath;
+        this.batchPath = batchPath;
+        this.countPath = countPath;
+        this.itemsField = itemsField;
+        this.fields = fields;
+        this.headers = headers;
+        this.timeout = timeout;
+        this.idBatchSize = idBatchSize;
+        this.maxParallelRequests = maxParallelRequests;
+    }
+
+    /**
+     * @param listPath ví dụ "/api/orders"
+     * @param onePath  ví dụ "/api/orders/{id}"
+     */
+    public static HttpEndpointSpec of(String baseUrl, String listPath, String onePath) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, null, null, null, Collections.emptyMap(),
+                Collections.emptyMap(), Duration.ofSeconds(30), 100, 8);
+    }
+
+    public HttpEndpointSpec withBatchPath(String batchPath) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withCountPath(String countPath) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withItemsField(String itemsField) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    /**
+     * Property lấy từ field JSON có tên khác.
+     */
+    public HttpEndpointSpec withField(String property, String jsonField) {
+        Map<String, String> next = new LinkedHashMap<>(fields);
+        next.put(property, jsonField);
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField,
+                Collections.unmodifiableMap(next), headers, timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withHeader(String name, String value) {
+        Map<String, String> next = new LinkedHashMap<>(headers);
+        next.put(name, value);
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields,
+                Collections.unmodifiableMap(next), timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withTimeout(Duration timeout) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withIdBatchSize(int idBatchSize) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public HttpEndpointSpec withMaxParallelRequests(int maxParallelRequests) {
+        return new HttpEndpointSpec(baseUrl, listPath, onePath, batchPath, countPath, itemsField, fields, headers,
+                timeout, idBatchSize, maxParallelRequests);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getListPath() {
+        return listPath;
+    }
+
+    public String getOnePath() {
+        return onePath;
+    }
+
+    @Nullable
+    public String getBatchPath() {
+        return batchPath;
+    }
+
+    @Nullable
+    public String getCountPath() {
+        return countPath;
+    }
+
+    @Nullable
+    public String getItemsField() {
+        return itemsField;
+    }
+
+    /**
+     * Field JSON của property; không khai báo riêng thì trùng tên property.
+     */
+    public String fieldOf(String property) {
+        return fields.getOrDefault(property, property);
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    public int getMaxParallelRequests() {
+        return maxParallelRequests;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpEndpointSpec{" + baseUrl + listPath + ", one=" + onePath
+                + (batchPath != null ? ", batch=" + batchPath : "")
+                + (countPath != null ? ", count=" + countPath : "") + "}";
+    }
+}
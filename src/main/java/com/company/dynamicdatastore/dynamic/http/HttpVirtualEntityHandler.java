@@ -0,0 +1,377 @@
+package com.company.dynamicdatastore.dynamic.http;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.async.SingleFlight;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.fasterxml.jackson.core.JsonParser;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Handler chung cho entity ảo lấy từ REST API trả JSON (GET /api/orders, GET /api/orders/{id}...), theo HttpEndpointSpec:
+ * - java.net.http.HttpClient dùng chung (giữ connection pool, HTTP/2 nếu server hỗ trợ), các hàm *Async
+ *   dùng sendAsync nên không chiếm thread trong lúc chờ mạng
+ * - request GET giống hệt nhau đang chạy đồng thời được gộp làm một (SingleFlight), mỗi bên nhận bản sao row riêng
+ * - loadMany: một request cho mỗi lô id nếu có batchPath, không thì loadOne song song (tối đa maxParallelRequests)
+ * - body đọc bằng parser streaming thẳng thành CompactRow; stream(...) parse dần trong lúc đọc response
+ *
+ * Filter / sort / paging do store tự làm trên kết quả (API không có query chung);
+ * API có filter riêng thì kế thừa và override loadAll(ctx, query).
+ * Muốn giảm số lần gọi API thì bọc bằng CachingVirtualEntityHandler.
+ */
+public class HttpVirtualEntityHandler implements VirtualEntityHandler<KeyValueEntity> {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpVirtualEntityHandler.class);
+
+    private final HttpClient client;
+    private final EntityMeta meta;
+    private final HttpEndpointSpec spec;
+    private final JsonRows json;
+    private final SingleFlight<String, List<CompactRow>> flights = new SingleFlight<>();
+
+    public HttpVirtualEntityHandler(EntityMeta meta, HttpEndpointSpec spec) {
+        this(SharedClient.INSTANCE, meta, spec);
+    }
+
+    public HttpVirtualEntityHandler(HttpClient client, EntityMeta meta, HttpEndpointSpec spec) {
+        Map<String, Class<?>> attributes = meta.getAttributes();
+        if (attributes == null || meta.getIdProperty() == null || !attributes.containsKey(meta.getIdProperty())) {
+            throw new IllegalArgumentException("Entity " + meta.getName() + " has no id attribute " + meta.getIdProperty());
+        }
+        this.client = client;
+        this.meta = meta;
+        this.spec = spec;
+        this.json = new JsonRows(RowLayout.of(meta), spec);
+    }
+
+    // client mặc định dùng chung giữa các handler: một connection pool cho cả app
+    private static final class SharedClient {
+        static final HttpClient INSTANCE = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public EntityMeta getEntityMeta() {
+        return meta;
+    }
+
+    public HttpEndpointSpec getEndpointSpec() {
+        return spec;
+    }
+
+    //====================== đồng bộ ======================
+
+    @Override
+    public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx) {
+        return await(list());
+    }
+
+    @Override
+    public KeyValueEntity loadOne(LoadContext<KeyValueEntity> ctx, Object id) {
+        return await(one(id));
+    }
+
+    @Override
+    public List<KeyValueEntity> loadMany(LoadContext<KeyValueEntity> ctx, Collection<?> ids) {
+        Set<Object> distinct = new LinkedHashSet<>(ids.size() * 2);
+        for (Object id : ids) {
+            if (id != null) distinct.add(id);
+        }
+        if (distinct.isEmpty()) return List.of();
+        List<KeyValueEntity> out = new ArrayList<>(distinct.size());
+        if (spec.getBatchPath() != null) {
+            // gửi tất cả các lô cùng lúc rồi mới chờ
+            List<CompletableFuture<List<KeyValueEntity>>> batches = new ArrayList<>();
+            for (List<Object> chunk : chunks(distinct, spec.getIdBatchSize())) {
+                batches.add(fetch(batchUri(chunk), false).thenApply(HttpVirtualEntityHandler::copies));
+            }
+            for (CompletableFuture<List<KeyValueEntity>> batch : batches) {
+                out.addAll(await(batch));
+            }
+            return out;
+        }
+        for (List<Object> chunk : chunks(distinct, spec.getMaxParallelRequests())) {
+            List<CompletableFuture<KeyValueEntity>> calls = new ArrayList<>(chunk.size());
+            for (Object id : chunk) calls.add(one(id));
+            for (CompletableFuture<KeyValueEntity> call : calls) {
+                KeyValueEntity e = await(call);
+                if (e != null) out.add(e);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        return await(list());
+    }
+
+    /**
+     * Đọc dần response list: row được parse khi stream được tiêu thụ, connection giữ tới khi đóng stream.
+     * Không gộp với request khác (mỗi stream một response riêng).
+     */
+    @Override
+    public Stream<KeyValueEntity> stream(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return streamList();
+    }
+
+    @Override
+    public Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return streamList();
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return spec.getCountPath() != null;
+    }
+
+    @Override
+    public long count(LoadContext<KeyValueEntity> ctx) {
+        return count();
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return count();
+    }
+
+    //====================== bất đồng bộ ======================
+
+    @Override
+    public CompletableFuture<List<KeyValueEntity>> loadAllAsync(LoadContext<KeyValueEntity> ctx, VirtualQuery query,
+                                                                Executor executor) {
+        return list();
+    }
+
+    @Override
+    public CompletableFuture<KeyValueEntity> loadOneAsync(LoadContext<KeyValueEntity> ctx, Object id, Executor executor) {
+        return one(id);
+    }
+
+    @Override
+    public CompletableFuture<List<KeyValueEntity>> loadAllKeyValueAsync(ValueLoadContext ctx, VirtualQuery query,
+                                                                       Executor executor) {
+        return list();
+    }
+
+    //====================== request ======================
+
+    private CompletableFuture<List<KeyValueEntity>> list() {
+        return fetch(uri(spec.getListPath()), false).thenApply(HttpVirtualEntityHandler::copies);
+    }
+
+    private CompletableFuture<KeyValueEntity> one(Object id) {
+        if (id == null) return CompletableFuture.completedFuture(null);
+        URI uri = uri(spec.getOnePath().replace("{id}", encode(id)));
+        return fetch(uri, true).thenApply(rows -> rows.isEmpty() ? null : rows.get(0).copy());
+    }
+
+    private long count() {
+        if (spec.getCountPath() == null) {
+            throw new UnsupportedOperationException("count is not supported by " + spec);
+        }
+        URI uri = uri(spec.getCountPath());
+        try {
+            HttpResponse<InputStream> response = client.send(request(uri), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                checkStatus(uri, response.statusCode(), false);
+                return json.readCount(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("GET " + uri + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling GET " + uri, e);
+        }
+    }
+
+    /**
+     * GET uri rồi parse body; request cùng uri đang chạy thì dùng chung kết quả.
+     * Row trong list trả về là dùng chung, người gọi phải copy trước khi đưa ra ngoài.
+     *
+     * @param single response là một bản ghi (404 = không có)
+     */
+    private CompletableFuture<List<CompactRow>> fetch(URI uri, boolean single) {
+        String key = (single ? "one " : "list ") + uri;
+        return flights.execute(key, () -> client.sendAsync(request(uri), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (single && response.statusCode() == 404) return List.of();
+                        checkStatus(uri, response.statusCode(), single);
+                        if (!single) return json.readAll(body);
+                        CompactRow row = json.readOne(body);
+                        return row != null ? List.of(row) : List.of();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("GET " + uri + " failed", e);
+                    }
+                }));
+    }
+
+    private Stream<KeyValueEntity> streamList() {
+        URI uri = uri(spec.getListPath());
+        InputStream body = null;
+        try {
+            HttpResponse<InputStream> response = client.send(request(uri), HttpResponse.BodyHandlers.ofInputStream());
+            body = response.body();
+            checkStatus(uri, response.statusCode(), false);
+            JsonParser parser = json.openArray(body);
+            Cursor cursor = new Cursor(parser, body, uri);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (IOException e) {
+            closeQuietly(body);
+            throw new UncheckedIOException("GET " + uri + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling GET " + uri, e);
+        } catch (RuntimeException e) {
+            closeQuietly(body);
+            throw e;
+        }
+    }
+
+    private final class Cursor extends Spliterators.AbstractSpliterator<KeyValueEntity> {
+        private final JsonParser parser;
+        private final InputStream body;
+        private final URI uri;
+        private boolean closed;
+
+        Cursor(JsonParser parser, InputStream body, URI uri) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.parser = parser;
+            this.body = body;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super KeyValueEntity> action) {
+            if (closed) return false;
+            try {
+                CompactRow row = json.next(parser);
+                if (row == null) return false;
+                action.accept(row);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("GET " + uri + " failed", e);
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                parser.close();
+            } catch (IOException e) {
+                log.debug("Cannot close JSON parser of {}", uri, e);
+            }
+            closeQuietly(body);
+        }
+    }
+
+    private HttpRequest request(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(spec.getTimeout())
+                .header("Accept", "application/json");
+        spec.getHeaders().forEach(builder::header);
+        return builder.build();
+    }
+
+    private void checkStatus(URI uri, int status, boolean single) {
+        if (status / 100 != 2) {
+            throw new IllegalStateException("GET " + uri + " returned HTTP " + status
+                    + " for " + (single ? "one " : "") + meta.getName());
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(spec.getBaseUrl() + path);
+    }
+
+    private URI batchUri(List<Object> ids) {
+        String joined = ids.stream().map(HttpVirtualEntityHandler::encode).collect(Collectors.joining(","));
+        return uri(spec.getBatchPath().replace("{ids}", joined));
+    }
+
+    private static String encode(Object id) {
+        // URLEncoder là cho form: khoảng trắng thành '+', trong path phải là %20
+        return URLEncoder.encode(String.valueOf(id), StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static List<KeyValueEntity> copies(List<CompactRow> rows) {
+        List<KeyValueEntity> out = new ArrayList<>(rows.size());
+        for (CompactRow row : rows) out.add(row.copy());
+        return out;
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values, int size) {
+        List<List<T>> out = new ArrayList<>(values.size() / size + 1);
+        List<T> current = new ArrayList<>(Math.min(size, values.size()));
+        for (T v : values) {
+            current.add(v);
+            if (current.size() == size) {
+                out.add(current);
+                current = new ArrayList<>(size);
+            }
+        }
+        if (!current.isEmpty()) out.add(current);
+        return out;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for HTTP response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void closeQuietly(@Nullable InputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // response bị bỏ dở, không còn gì để làm
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.company.dynamicdatastore.dynamic.http;
+
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Đọc JSON thẳng thành CompactRow bằng parser streaming của Jackson (không dựng cây / Map trung gian):
+ * mỗi field JSON được đổi sang kiểu khai báo trong EntityMeta và ghi vào slot của row,
+ * field không có trong EntityMeta thì bỏ qua (skipChildren).
+ *
+ * Số có thể đến dạng chuỗi ("12.50"), ngày giờ dạng ISO-8601, java.util.Date nhận cả epoch millis.
+ */
+final class JsonRows {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final RowLayout layout;
+    @Nullable
+    private final String itemsField;
+    private final Map<String, FieldReader> readers;
+
+    JsonRows(RowLayout layout, HttpEndpointSpec spec) {
+        this.layout = layout;
+        this.itemsField = spec.getItemsField();
+        Map<String, FieldReader> byField = new HashMap<>();
+        for (int c = 0; c < layout.getColumnCount(); c++) {
+            byField.put(spec.fieldOf(layout.getName(c)), reader(c));
+        }
+        this.readers = Map.copyOf(byField);
+    }
+
+    /**
+     * Toàn bộ phần tử của response dạng list.
+     */
+    List<CompactRow> readAll(InputStream in) throws IOException {
+        try (JsonParser p = openArray(in)) {
+            List<CompactRow> out = new ArrayList<>();
+            for (CompactRow row = next(p); row != null; row = next(p)) {
+                out.add(row);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Response của một bản ghi: object ở gốc (hoặc mảng, lấy phần tử đầu).
+     */
+    @Nullable
+    CompactRow readOne(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT) return readObject(p);
+            if (t == JsonToken.START_ARRAY) return next(p);
+            if (t == null || t == JsonToken.VALUE_NULL) return null;
+            throw new IOException("Expected a JSON object but got " + t);
+        }
+    }
+
+    /**
+     * Response của count: số ở gốc, hoặc số đầu tiên trong object ({"count": 42}).
+     */
+    long readCount(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            for (JsonToken t = p.nextToken(); t != null; t = p.nextToken()) {
+                if (t == JsonToken.VALUE_NUMBER_INT) return p.getLongValue();
+                if (t == JsonToken.VALUE_STRING) return Long.parseLong(p.getText().trim());
+            }
+            throw new IOException("No number in count response");
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid count response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mở parser và đi tới ngay trước phần tử đầu tiên của mảng (mảng ở gốc hoặc trong itemsField).
+     */
+    JsonParser openArray(InputStream in) throws IOException {
+        JsonParser p = FACTORY.createParser(in);
+        try {
+            JsonToken t = p.nextToken();
+            if (itemsField == null) {
+                if (t != JsonToken.START_ARRAY) throw new IOException("Expected a JSON array but got " + t);
+                return p;
+            }
+            if (t != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object with '" + itemsField + "' but got " + t);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                t = p.nextToken();
+                if (itemsField.equals(name)) {
+                    if (t != JsonToken.START_ARRAY) throw new IOException("Field '" + itemsField + "' is not an array");
+                    return p;
+                }
+                p.skipChildren();
+            }
+            throw new IOException("No field '" + itemsField + "' in response");
+        } catch (IOException | RuntimeException e) {
+            p.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Phần tử kế tiếp của mảng đã mở bằng openArray(...), null khi hết mảng.
+     */
+    @Nullable
+    CompactRow next(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == null || t == JsonToken.END_ARRAY) return null;
+        if (t != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object but got " + t);
+        return readObject(p);
+    }
+
+    // token hiện tại là START_OBJECT
+    private CompactRow readObject(JsonParser p) throws IOException {
+        CompactRow row = layout.newRow();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            FieldReader reader = readers.get(p.currentName());
+            JsonToken t = p.nextToken();
+            if (reader == null || t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            try {
+                reader.read(p, t, row);
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new IOException("Invalid value for field '" + p.currentName() + "': " + e.getMessage(), e);
+            }
+        }
+        return row;
+    }
+
+    //====================== đổi kiểu theo cột ======================
+
+    private interface FieldReader {
+        void read(JsonParser p, JsonToken t, CompactRow row) throws IOException;
+    }
+
+    private FieldReader reader(int column) {
+        Class<?> type = layout.getType(column);
+        switch (layout.getKind(column)) {
+            case LONG, INTEGER:
+                return (p, t, row) -> {
+                    if (t == JsonToken.VALUE_NULL) row.setNull(column);
+                    else if (t == JsonToken.VALUE_STRING) row.setLong(column, Long.parseLong(p.getText().trim()));
+                    else row.setLong(column, p.getLongValue());
+                };
+            case DOUBLE:
+                return (p, t, row) -> {
+                    if (t == JsonToken.VALUE_NULL) row.setNull(column);
+                    else if (t == JsonToken.VALUE_STRING) row.setDouble(column, Double.parseDouble(p.getText().trim()));
+                    else row.setDouble(column, p.getDoubleValue());
+                };
+            case BOOLEAN:
+                return (p, t, row) -> {
+                    if (t == JsonToken.VALUE_NULL) row.setNull(column);
+                    else if (t == JsonToken.VALUE_TRUE || t == JsonToken.VALUE_FALSE) row.setBoolean(column, t == JsonToken.VALUE_TRUE);
+                    else row.setBoolean(column, Boolean.parseBoolean(p.getText().trim()));
+                };
+            case DECIMAL:
+                return (p, t, row) -> {
+                    if (t == JsonToken.VALUE_NULL) row.setNull(column);
+                    else if (t == JsonToken.VALUE_STRING) row.setDecimal(column, new BigDecimal(p.getText().trim()));
+                    else row.setDecimal(column, p.getDecimalValue());
+                };
+            case UUID:
+                return (p, t, row) -> {
+                    if (t == JsonToken.VALUE_NULL) row.setNull(column);
+                    else row.setUuid(column, UUID.fromString(p.getText().trim()));
+                };
+            default:
+                break;
+        }
+        return (p, t, row) -> row.set(column, t == JsonToken.VALUE_NULL ? null : objectValue(p, t, type));
+    }
+
+    private static Object objectValue(JsonParser p, JsonToken t, @Nullable Class<?> type) throws IOException {
+        if (type == null || type == String.class || type == Object.class) return p.getText();
+        if (type == LocalDate.class) return LocalDate.parse(p.getText());
+        if (type == LocalDateTime.class) return LocalDateTime.parse(p.getText());
+        if (type == LocalTime.class) return LocalTime.parse(p.getText());
+        if (type == OffsetDateTime.class) return OffsetDateTime.parse(p.getText());
+        if (type == Instant.class) return Instant.parse(p.getText());
+        if (type == Date.class) {
+            if (t == JsonToken.VALUE_NUMBER_INT) return new Date(p.getLongValue());
+            return Date.from(OffsetDateTime.parse(p.getText()).toInstant());
+        }
+        if (type == Float.class) return (float) (t == JsonToken.VALUE_STRING ? Double.parseDouble(p.getText()) : p.getDoubleValue());
+        if (type == Short.class) return (short) (t == JsonToken.VALUE_STRING ? Long.parseLong(p.getText()) : p.getLongValue());
+        if (type.isEnum()) return enumValue(type, p.getText());
+        return p.getText();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+}
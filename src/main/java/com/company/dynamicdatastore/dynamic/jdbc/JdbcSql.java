@@ -0,0 +1,465 @@
+package com.company.dynamicdatastore.dynamic.jdbc;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateFunction;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.springframework.lang.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Một câu SQL đã sinh sẵn cho một "hình dạng" query (filter, sort, cột, có offset/limit không,
+ * số phần tử của từng IN) cùng danh sách binder điền giá trị vào các dấu '?' lúc chạy.
+ *
+ * Giá trị luôn đi qua tham số, không bao giờ ghép vào chuỗi SQL: cùng hình dạng = cùng chuỗi SQL,
+ * nên statement cache của driver / DB (pgjdbc prepareThreshold, HSQLDB compiled statement...) dùng lại được.
+ * Danh sách IN được làm tròn lên luỹ thừa 2 (lặp lại phần tử cuối) để số câu khác nhau không tăng theo số id.
+ *
+ * Ngữ nghĩa giữ giống lọc trong bộ nhớ (FilterSemantics):
+ * - not(...) sinh "case when ... then 1 else 0 end = 0" để điều kiện unknown (so sánh với null) thành false
+ *   trước khi phủ định, như logic hai trị trong bộ nhớ
+ * - null trong danh sách IN / NOT IN bị bỏ qua
+ * - sort: null đứng đầu khi tăng dần, cuối khi giảm dần
+ * - property không có trong bảng coi như luôn null
+ * - contains / startsWith / endsWith: lower(cột) like ..., không phân biệt hoa thường
+ * So sánh chuỗi (=, &lt;, like, order by) theo collation của DB.
+ */
+final class JdbcSql {
+
+    /**
+     * Cú pháp phân trang theo DB.
+     */
+    enum Paging {
+        // SQL:2008, HSQLDB, PostgreSQL, Oracle 12+, SQL Server 2012+, H2...
+        STANDARD,
+        LIMIT_OFFSET;
+
+        static Paging of(@Nullable String databaseProductName) {
+            String name = databaseProductName != null ? databaseProductName.toLowerCase(Locale.ROOT) : "";
+            return name.contains("mysql") || name.contains("mariadb") || name.contains("sqlite")
+                    ? LIMIT_OFFSET : STANDARD;
+        }
+    }
+
+    /**
+     * Thêm giá trị của một (hoặc nhiều, với IN) dấu '?' vào danh sách tham số.
+     */
+    interface Binder {
+        void bind(VirtualQuery query, List<Object> out);
+    }
+
+    private final String sql;
+    private final List<Binder> binders;
+    private final List<String> properties;
+
+    private JdbcSql(String sql, List<Binder> binders, List<String> properties) {
+        this.sql = sql;
+        this.binders = List.copyOf(binders);
+        this.properties = List.copyOf(properties);
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * Property tương ứng từng cột trong select list (theo thứ tự, cột 1 = phần tử 0).
+     */
+    List<String> getProperties() {
+        return properties;
+    }
+
+    List<Object> values(VirtualQuery query) {
+        List<Object> out = new ArrayList<>(binders.size() + 4);
+        for (Binder b : binders) b.bind(query, out);
+        return out;
+    }
+
+    void bind(PreparedStatement ps, VirtualQuery query) throws SQLException {
+        int i = 1;
+        for (Object v : values(query)) {
+            ps.setObject(i++, v);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+
+    //====================== sinh SQL ======================
+
+    /**
+     * Sinh SQL cho một bảng; không giữ trạng thái ngoài cấu hình nên dùng chung giữa các thread.
+     */
+    static final class Compiler {
+
+        private final EntityMeta meta;
+        private final JdbcTableSpec spec;
+        private final Paging paging;
+        private final String idColumn;
+
+        Compiler(EntityMeta meta, JdbcTableSpec spec, Paging paging) {
+            this.meta = meta;
+            this.spec = spec;
+            this.paging = paging;
+            this.idColumn = spec.columnOf(meta.getIdProperty());
+        }
+
+        /**
+         * select [cột] from [bảng] where [filter] order by [sort] [offset / limit].
+         *
+         * @param inSizes kết quả inSizes(filter, params) của cùng filter
+         */
+        JdbcSql select(List<String> properties, @Nullable VirtualFilter filter, List<VirtualQuery.SortKey> sort,
+                       boolean offset, boolean limit, List<Integer> inSizes) {
+            StringBuilder sql = new StringBuilder(128);
+            List<Binder> binders = new ArrayList<>();
+            selectFrom(sql, properties);
+            where(sql, binders, filter, inSizes);
+
+            boolean paged = offset || limit;
+            List<String> orderBy = new ArrayList<>();
+            boolean byId = false;
+            for (VirtualQuery.SortKey key : sort) {
+                if (!isKnown(key.getProperty())) continue;  // luôn null -> không ảnh hưởng thứ tự
+                String column = spec.columnOf(key.getProperty());
+                String direction = key.isDescending() ? " desc" : "";
+                orderBy.add("case when " + column + " is null then 0 else 1 end" + direction);
+                orderBy.add(column + direction);
+                byId |= key.getProperty().equals(meta.getIdProperty());
+            }
+            // phân trang cần thứ tự ổn định giữa các trang
+            if (paged && !byId) orderBy.add(idColumn);
+            if (!orderBy.isEmpty()) sql.append(" order by ").append(String.join(", ", orderBy));
+
+            if (paged) paging(sql, binders, offset, limit);
+            return new JdbcSql(sql.toString(), binders, properties);
+        }
+
+        JdbcSql count(@Nullable VirtualFilter filter, List<Integer> inSizes) {
+            StringBuilder sql = new StringBuilder(64).append("select count(*) from ").append(spec.getTable());
+            List<Binder> binders = new ArrayList<>();
+            where(sql, binders, filter, inSizes);
+            return new JdbcSql(sql.toString(), binders, List.of());
+        }
+
+        /**
+         * select [cột nhóm / hàm gộp theo thứ tự query.getColumns()] from [bảng] where [filter] group by [cột nhóm].
+         * avg ép về double precision để cột số nguyên không bị chia nguyên (HSQLDB, SQL Server).
+         * Mọi property phải có cột (xem isKnown) và filter phải isPushable.
+         */
+        JdbcSql aggregate(AggregateQuery query, @Nullable VirtualFilter filter, List<Integer> inSizes) {
+            StringBuilder sql = new StringBuilder(128).append("select ");
+            List<AggregateQuery.Column> columns = query.getColumns();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) sql.append(", ");
+                AggregateQuery.Column c = columns.get(i);
+                AggregateFunction f = c.getFunction();
+                String column = c.getProperty() != null ? spec.columnOf(c.getProperty()) : null;
+                if (f == null) {
+                    sql.append(column);
+                } else if (column == null) {
+                    sql.append("count(*)");
+                } else if (f == AggregateFunction.AVG) {
+                    sql.append("avg(cast(").append(column).append(" as double precision))");
+                } else {
+                    sql.append(f.name().toLowerCase(Locale.ROOT)).append('(').append(column).append(')');
+                }
+            }
+            sql.append(" from ").append(spec.getTable());
+            List<Binder> binders = new ArrayList<>();
+            where(sql, binders, filter, inSizes);
+            if (!query.getGroupBy().isEmpty()) {
+                sql.append(" group by ");
+                for (int i = 0; i < query.getGroupBy().size(); i++) {
+                    if (i > 0) sql.append(", ");
+                    sql.append(spec.columnOf(query.getGroupBy().get(i)));
+                }
+            }
+            return new JdbcSql(sql.toString(), binders, List.of());
+        }
+
+        /**
+         * select ... where id in (?, ..., ?) với đúng size dấu '?'; giá trị id do người gọi truyền vào.
+         */
+        JdbcSql byIds(List<String> properties, int size) {
+            StringBuilder sql = new StringBuilder(128);
+            selectFrom(sql, properties);
+            sql.append(" where ").append(idColumn);
+            if (size == 1) {
+                sql.append(" = ?");
+            } else {
+                sql.append(" in (");
+                placeholders(sql, size);
+                sql.append(')');
+            }
+            return new JdbcSql(sql.toString(), List.of(), properties);
+        }
+
+        /**
+         * Phần filter dịch được sang SQL; phần còn lại (like / contains trên cột không phải chuỗi)
+         * handler tự lọc sau khi đọc.
+         */
+        boolean isPushable(VirtualFilter filter) {
+            if (filter instanceof VirtualFilter.Comparison) {
+                VirtualFilter.Comparison cmp = (VirtualFilter.Comparison) filter;
+                return !isTextOperator(cmp.getOperator()) || !isKnown(cmp.getProperty())
+                        || meta.getAttributes().get(cmp.getProperty()) == String.class;
+            }
+            if (filter instanceof VirtualFilter.And) {
+                return ((VirtualFilter.And) filter).getChildren().stream().allMatch(this::isPushable);
+            }
+            if (filter instanceof VirtualFilter.Or) {
+                return ((VirtualFilter.Or) filter).getChildren().stream().allMatch(this::isPushable);
+            }
+            if (filter instanceof VirtualFilter.Not) {
+                return isPushable(((VirtualFilter.Not) filter).getChild());
+            }
+            return false;
+        }
+
+        boolean isKnown(String property) {
+            return meta.getAttributes().containsKey(property);
+        }
+
+        private void selectFrom(StringBuilder sql, List<String> properties) {
+            sql.append("select ");
+            for (int i = 0; i < properties.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(spec.columnOf(properties.get(i)));
+            }
+            sql.append(" from ").append(spec.getTable());
+        }
+
+        private void where(StringBuilder sql, List<Binder> binders, @Nullable VirtualFilter filter, List<Integer> inSizes) {
+            if (filter == null) return;
+            sql.append(" where ");
+            condition(sql, binders, filter, inSizes.iterator());
+        }
+
+        private void condition(StringBuilder sql, List<Binder> binders, VirtualFilter filter, Iterator<Integer> inSizes) {
+            if (filter instanceof VirtualFilter.And || filter instanceof VirtualFilter.Or) {
+                boolean and = filter instanceof VirtualFilter.And;
+                List<VirtualFilter> children = and ? ((VirtualFilter.And) filter).getChildren()
+                        : ((VirtualFilter.Or) filter).getChildren();
+                if (children.isEmpty()) {
+                    sql.append(and ? "1 = 1" : "1 = 0");
+                    return;
+                }
+                sql.append('(');
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) sql.append(and ? " and " : " or ");
+                    condition(sql, binders, children.get(i), inSizes);
+                }
+                sql.append(')');
+            } else if (filter instanceof VirtualFilter.Not) {
+                sql.append("(case when ");
+                condition(sql, binders, ((VirtualFilter.Not) filter).getChild(), inSizes);
+                sql.append(" then 1 else 0 end) = 0");
+            } else {
+                comparison(sql, binders, (VirtualFilter.Comparison) filter, inSizes);
+            }
+        }
+
+        private void comparison(StringBuilder sql, List<Binder> binders, VirtualFilter.Comparison cmp,
+                                Iterator<Integer> inSizes) {
+            FilterOperator op = cmp.getOperator();
+            if (!isKnown(cmp.getProperty())) {
+                sql.append(op == FilterOperator.IS_NULL ? "1 = 1" : "1 = 0");
+                return;
+            }
+            String column = spec.columnOf(cmp.getProperty());
+            switch (op) {
+                case EQUAL -> simple(sql, binders, cmp, column + " = ?");
+                case NOT_EQUAL -> simple(sql, binders, cmp, column + " <> ?");
+                case GREATER -> simple(sql, binders, cmp, column + " > ?");
+                case GREATER_OR_EQUAL -> simple(sql, binders, cmp, column + " >= ?");
+                case LESS -> simple(sql, binders, cmp, column + " < ?");
+                case LESS_OR_EQUAL -> simple(sql, binders, cmp, column + " <= ?");
+                case BETWEEN -> {
+                    sql.append(column).append(" between ? and ?");
+                    binders.add((q, out) -> {
+                        List<Object> values = cmp.getValues(q.getParameters());
+                        out.add(toJdbc(values.isEmpty() ? null : values.get(0)));
+                        out.add(toJdbc(values.size() > 1 ? values.get(1) : null));
+                    });
+                }
+                case IN, NOT_IN -> {
+                    int size = inSizes.next();
+                    boolean in = op == FilterOperator.IN;
+                    if (size == 0) {
+                        // in () luôn false, not in () đúng với mọi giá trị khác null
+                        sql.append(in ? "1 = 0" : column + " is not null");
+                        return;
+                    }
+                    sql.append(column).append(in ? " in (" : " not in (");
+                    placeholders(sql, size);
+                    sql.append(')');
+                    binders.add((q, out) -> {
+                        List<Object> values = nonNullValues(cmp, q.getParameters());
+                        for (Object v : values) out.add(toJdbc(v));
+                        Object last = values.isEmpty() ? null : toJdbc(values.get(values.size() - 1));
+                        for (int i = values.size(); i < size; i++) out.add(last);
+                    });
+                }
+                case LIKE, NOT_LIKE -> {
+                    sql.append(column).append(op == FilterOperator.LIKE ? " like ?" : " not like ?").append(" escape '!'");
+                    binders.add((q, out) -> {
+                        Object v = cmp.getValue(q.getParameters());
+                        // pattern giữ nguyên % và _, chỉ thoát ký tự escape
+                        out.add(v != null ? v.toString().replace("!", "!!") : null);
+                    });
+                }
+                case CONTAINS, STARTS_WITH, ENDS_WITH -> {
+                    sql.append("lower(").append(column).append(") like ? escape '!'");
+                    binders.add((q, out) -> {
+                        Object v = cmp.getValue(q.getParameters());
+                        if (v == null) {
+                            out.add(null);
+                            return;
+                        }
+                        String needle = escapeLike(v.toString().toLowerCase(Locale.ROOT));
+                        out.add(switch (op) {
+                            case STARTS_WITH -> needle + "%";
+                            case ENDS_WITH -> "%" + needle;
+                            default -> "%" + needle + "%";
+                        });
+                    });
+                }
+                case IS_NULL -> sql.append(column).append(" is null");
+                case IS_NOT_NULL -> sql.append(column).append(" is not null");
+            }
+        }
+
+        private static void simple(StringBuilder sql, List<Binder> binders, VirtualFilter.Comparison cmp, String text) {
+            sql.append(text);
+            binders.add((q, out) -> out.add(toJdbc(cmp.getValue(q.getParameters()))));
+        }
+
+        private void paging(StringBuilder sql, List<Binder> binders, boolean offset, boolean limit) {
+            if (paging == Paging.LIMIT_OFFSET) {
+                // MySQL không có "offset" đứng một mình
+                sql.append(" limit ?");
+                binders.add((q, out) -> out.add(limit ? (long) q.getLimit() : Long.MAX_VALUE));
+                if (offset) {
+                    sql.append(" offset ?");
+                    binders.add((q, out) -> out.add((long) q.getOffset()));
+                }
+                return;
+            }
+            if (offset) {
+                sql.append(" offset ? rows");
+                binders.add((q, out) -> out.add((long) q.getOffset()));
+            }
+            if (limit) {
+                sql.append(offset ? " fetch next ? rows only" : " fetch first ? rows only");
+                binders.add((q, out) -> out.add((long) q.getLimit()));
+            }
+        }
+
+        /**
+         * Số dấu '?' của từng IN / NOT_IN theo đúng thứ tự duyệt khi sinh SQL (đã làm tròn luỹ thừa 2).
+         * Là một phần của khoá cache: cùng filter nhưng danh sách IN dài khác nhau là câu SQL khác nhau.
+         */
+        List<Integer> inSizes(@Nullable VirtualFilter filter, Map<String, Object> params) {
+            if (filter == null) return List.of();
+            List<Integer> out = new ArrayList<>(2);
+            collectInSizes(filter, params, out);
+            return out;
+        }
+
+        private void collectInSizes(VirtualFilter filter, Map<String, Object> params, List<Integer> out) {
+            if (filter instanceof VirtualFilter.Comparison) {
+                VirtualFilter.Comparison cmp = (VirtualFilter.Comparison) filter;
+                FilterOperator op = cmp.getOperator();
+                if ((op == FilterOperator.IN || op == FilterOperator.NOT_IN) && isKnown(cmp.getProperty())) {
+                    out.add(bucket(nonNullValues(cmp, params).size()));
+                }
+            } else if (filter instanceof VirtualFilter.And) {
+                ((VirtualFilter.And) filter).getChildren().forEach(c -> collectInSizes(c, params, out));
+            } else if (filter instanceof VirtualFilter.Or) {
+                ((VirtualFilter.Or) filter).getChildren().forEach(c -> collectInSizes(c, params, out));
+            } else if (filter instanceof VirtualFilter.Not) {
+                collectInSizes(((VirtualFilter.Not) filter).getChild(), params, out);
+            }
+        }
+    }
+
+    /**
+     * 0, 1, 2, 4, 8... (luỹ thừa 2 nhỏ nhất &gt;= n).
+     */
+    static int bucket(int n) {
+        return n <= 1 ? n : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    static Object toJdbc(@Nullable Object value) {
+        // java.util.Date thuần không phải kiểu JDBC chuẩn
+        if (value instanceof java.util.Date && !(value instanceof java.sql.Date)
+                && !(value instanceof java.sql.Time) && !(value instanceof Timestamp)) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+
+    private static boolean isTextOperator(FilterOperator op) {
+        return switch (op) {
+            case LIKE, NOT_LIKE, CONTAINS, STARTS_WITH, ENDS_WITH -> true;
+            default -> false;
+        };
+    }
+
+    private static List<Object> nonNullValues(VirtualFilter.Comparison cmp, Map<String, Object> params) {
+        List<Object> values = cmp.getValues(params);
+        if (!values.contains(null)) return values;
+        List<Object> out = new ArrayList<>(values.size());
+        for (Object v : values) {
+            if (v != null) out.add(v);
+        }
+        return out;
+    }
+
+    private static String escapeLike(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '!' || c == '%' || c == '_') sb.append('!');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void placeholders(StringBuilder sql, int size) {
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+
+    static <T> List<List<T>> chunks(Collection<T> values, int size) {
+        List<List<T>> out = new ArrayList<>(values.size() / size + 1);
+        List<T> current = new ArrayList<>(Math.min(size, values.size()));
+        for (T v : values) {
+            current.add(v);
+            if (current.size() == size) {
+                out.add(current);
+                current = new ArrayList<>(size);
+            }
+        }
+        if (!current.isEmpty()) out.add(current);
+        return out;
+    }
+}
@@ -0,0 +1,58 @@
+package com.company.dynamicdatastore.dynamic.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache LRU: hình dạng query -> JdbcSql đã sinh.
+ * Query lặp lại (cùng filter / sort / cột, khác tham số) không phải sinh lại SQL,
+ * và luôn ra đúng một chuỗi SQL nên statement cache của driver dùng lại được.
+ */
+class JdbcSqlCache {
+
+    private final int maxSize;
+    private final Map<Object, JdbcSql> cache;
+
+    JdbcSqlCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(Math.min(maxSize, 256), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, JdbcSql> eldest) {
+                return size() > JdbcSqlCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key khoá có equals/hashCode theo giá trị (List của các thành phần)
+     */
+    JdbcSql get(Object key, Supplier<JdbcSql> compile) {
+        JdbcSql sql;
+        synchronized (cache) {
+            sql = cache.get(key);
+        }
+        if (sql != null) return sql;
+
+        sql = compile.get();
+        synchronized (cache) {
+            cache.put(key, sql);
+        }
+        return sql;
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.company.dynamicdatastore.dynamic.jdbc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Cấu hình ánh xạ một entity ảo lên bảng / view cho JdbcVirtualEntityHandler:
+ * - table: tên bảng (có thể kèm schema: "SALES.ORDERS")
+ * - column của từng property, mặc định trùng tên property (DB không phân biệt hoa thường với tên không quote)
+ * - fetchSize: số row driver lấy mỗi lần đi DB khi đọc (stream dùng cursor thật)
+ * - idBatchSize: số id tối đa trong một câu "id in (...)" của loadMany
+ *
+ * Tên bảng / cột được ghép thẳng vào SQL nên chỉ nhận identifier thường (chữ, số, '_').
+ */
+public final class JdbcTableSpec {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+    private static final Pattern TABLE = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+
+    private final String table;
+    private final Map<String, String> columns;
+    private final int fetchSize;
+    private final int idBatchSize;
+
+    private JdbcTableSpec(String table, Map<String, String> columns, int fetchSize, int idBatchSize) {
+        if (table == null || !TABLE.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must not be negative: " + fetchSize);
+        }
+        if (idBatchSize <= 0) {
+            throw new IllegalArgumentException("idBatchSize must be positive: " + idBatchSize);
+        }
+        this.table = table;
+        this.columns = columns;
+        this.fetchSize = fetchSize;
+        this.idBatchSize = idBatchSize;
+    }
+
+    public static JdbcTableSpec of(String table) {
+        return new JdbcTableSpec(table, Collections.emptyMap(), 500, 500);
+    }
+
+    /**
+     * Property lưu ở cột có tên khác.
+     */
+    public JdbcTableSpec withColumn(String property, String column) {
+        if (column == null || !IDENTIFIER.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid column name for " + property + ": " + column);
+        }
+        Map<String, String> next = new HashMap<>(columns);
+        next.put(property, column);
+        return new JdbcTableSpec(table, Collections.unmodifiableMap(next), fetchSize, idBatchSize);
+    }
+
+    /**
+     * 0 = để mặc định của driver.
+     */
+    public JdbcTableSpec withFetchSize(int fetchSize) {
+        return new JdbcTableSpec(table, columns, fetchSize, idBatchSize);
+    }
+
+    public JdbcTableSpec withIdBatchSize(int idBatchSize) {
+        return new JdbcTableSpec(table, columns, fetchSize, idBatchSize);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Cột của property; property không khai báo riêng thì dùng luôn tên property.
+     */
+    public String columnOf(String property) {
+        String column = columns.get(property);
+        if (column != null) return column;
+        if (!IDENTIFIER.matcher(property).matches()) {
+            throw new IllegalArgumentException("Property " + property + " is not a valid column name, map it with withColumn(...)");
+        }
+        return property;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcTableSpec{table=" + table + ", columns=" + columns
+                + ", fetchSize=" + fetchSize + ", idBatchSize=" + idBatchSize + "}";
+    }
+}
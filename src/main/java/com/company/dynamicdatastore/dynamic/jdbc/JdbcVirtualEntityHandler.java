@@ -0,0 +1,603 @@
+package com.company.dynamicdatastore.dynamic.jdbc;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateFunction;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluatorCache;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Handler chung cho entity ảo nằm trong một bảng / view của DataSource (Hikari của app hoặc DB khác):
+ * - filter / sort / paging / count / projection của VirtualQuery được dịch thành SQL (JdbcSql),
+ *   SQL sinh một lần cho mỗi hình dạng query rồi cache, giá trị luôn đi qua tham số
+ * - loadMany: "id in (...)" theo lô JdbcTableSpec.getIdBatchSize()
+ * - đọc bằng fetchSize của JdbcTableSpec; stream(...) giữ cursor mở tới khi stream được đóng
+ * - row trả về là CompactRow theo EntityMeta (cột kiểu số / uuid / boolean đọc thẳng vào slot, không boxing)
+ *
+ * Connection lấy qua DataSourceUtils nên tham gia transaction Spring đang chạy (nếu có).
+ * Chỉ đọc; cần ghi thì kế thừa và cài thêm WritableVirtualEntityHandler.
+ */
+public class JdbcVirtualEntityHandler implements VirtualEntityHandler<KeyValueEntity> {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcVirtualEntityHandler.class);
+
+    private static final Set<FilterOperator> ALL_OPERATORS = Collections.unmodifiableSet(EnumSet.allOf(FilterOperator.class));
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final EntityMeta meta;
+    private final JdbcTableSpec spec;
+    private final RowLayout layout;
+    private final List<String> allProperties;
+    private final Map<String, ColumnReader> readers;
+    private final JdbcSqlCache statements;
+    private final RowEvaluatorCache evaluators = new RowEvaluatorCache(64);
+    // dựng lần đầu dùng tới (cần hỏi DB để biết cú pháp phân trang)
+    private volatile JdbcSql.Compiler compiler;
+
+    public JdbcVirtualEntityHandler(DataSource dataSource, EntityMeta meta, JdbcTableSpec spec) {
+        this(dataSource, meta, spec, 256);
+    }
+
+    /**
+     * @param statementCacheSize số câu SQL đã sinh được giữ lại (LRU)
+     */
+    public JdbcVirtualEntityHandler(DataSource dataSource, EntityMeta meta, JdbcTableSpec spec, int statementCacheSize) {
+        Map<String, Class<?>> attributes = meta.getAttributes();
+        if (attributes == null || meta.getIdProperty() == null || !attributes.containsKey(meta.getIdProperty())) {
+            throw new IllegalArgumentException("Entity " + meta.getName() + " has no id attribute " + meta.getIdProperty());
+        }
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(spec.getFetchSize());
+        this.meta = meta;
+        this.spec = spec;
+        this.layout = RowLayout.of(meta);
+        this.statements = new JdbcSqlCache(statementCacheSize);
+
+        List<String> properties = new ArrayList<>(layout.getColumnCount());
+        Map<String, ColumnReader> byProperty = new HashMap<>();
+        for (int c = 0; c < layout.getColumnCount(); c++) {
+            String property = layout.getName(c);
+            spec.columnOf(property);  // kiểm tra tên cột ngay lúc dựng
+            properties.add(property);
+            byProperty.put(property, reader(c));
+        }
+        this.allProperties = List.copyOf(properties);
+        this.readers = Map.copyOf(byProperty);
+    }
+
+    public EntityMeta getEntityMeta() {
+        return meta;
+    }
+
+    public JdbcTableSpec getTableSpec() {
+        return spec;
+    }
+
+    //====================== đọc ======================
+
+    @Override
+    public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx) {
+        return list(VirtualQuery.ALL, allProperties);
+    }
+
+    @Override
+    public KeyValueEntity loadOne(LoadContext<KeyValueEntity> ctx, Object id) {
+        if (id == null) return null;
+        List<KeyValueEntity> rows = byIds(List.of(id));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public List<KeyValueEntity> loadMany(LoadContext<KeyValueEntity> ctx, Collection<?> ids) {
+        Set<Object> distinct = new LinkedHashSet<>(ids.size() * 2);
+        for (Object id : ids) {
+            if (id != null) distinct.add(id);
+        }
+        if (distinct.isEmpty()) return List.of();
+        List<KeyValueEntity> out = new ArrayList<>(distinct.size());
+        for (List<Object> chunk : JdbcSql.chunks(distinct, spec.getIdBatchSize())) {
+            out.addAll(byIds(chunk));
+        }
+        return out;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        return list(VirtualQuery.ALL, allProperties);
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return list(query, allProperties);
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return list(query, projection(query));
+    }
+
+    @Override
+    public Stream<KeyValueEntity> stream(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return stream(query, allProperties);
+    }
+
+    @Override
+    public Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return stream(query, projection(query));
+    }
+
+    @Override
+    public boolean supportsPaging() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsSorting() {
+        return true;
+    }
+
+    @Override
+    public Set<FilterOperator> supportedFilterOperators() {
+        return ALL_OPERATORS;
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return true;
+    }
+
+    @Override
+    public long count(LoadContext<KeyValueEntity> ctx) {
+        return count(VirtualQuery.ALL);
+    }
+
+    @Override
+    public long count(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return count(query);
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return count(VirtualQuery.ALL);
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return count(query);
+    }
+
+    /**
+     * group by / hàm gộp chạy trong DB khi mọi property có cột, hàm hợp kiểu (sum / avg trên số,
+     * min / max không trên boolean / uuid) và cả filter dịch được sang SQL.
+     */
+    @Override
+    public boolean supportsAggregate(AggregateQuery query) {
+        for (AggregateQuery.Column c : query.getColumns()) {
+            if (c.getProperty() == null) continue;
+            if (!readers.containsKey(c.getProperty())) return false;
+            Class<?> type = meta.getAttributes().get(c.getProperty());
+            AggregateFunction f = c.getFunction();
+            if ((f == AggregateFunction.SUM || f == AggregateFunction.AVG) && !Number.class.isAssignableFrom(type)) {
+                return false;
+            }
+            if ((f == AggregateFunction.MIN || f == AggregateFunction.MAX) && (type == Boolean.class || type == UUID.class)) {
+                return false;
+            }
+        }
+        for (String p : query.getGroupBy()) {
+            if (!readers.containsKey(p)) return false;
+        }
+        return query.getFilter() == null || compiler().isPushable(query.getFilter());
+    }
+
+    @Override
+    public List<Object[]> aggregate(ValueLoadContext ctx, AggregateQuery query) {
+        JdbcSql.Compiler c = compiler();
+        VirtualFilter filter = query.getFilter();
+        List<Integer> inSizes = c.inSizes(filter, query.getParameters());
+        JdbcSql sql = statements.get(Arrays.asList("aggregate", query.getColumns(), query.getGroupBy(), filter, inSizes),
+                () -> c.aggregate(query, filter, inSizes));
+        // binder lấy tham số qua VirtualQuery
+        VirtualQuery bindings = new VirtualQuery(0, 0, List.of(), List.of(), filter, query.getParameters(), true);
+        ValueReader[] columns = new ValueReader[query.getColumns().size()];
+        for (int i = 0; i < columns.length; i++) columns[i] = valueReader(query.getColumns().get(i));
+
+        List<Object[]> out = new ArrayList<>();
+        jdbc.query(sql.getSql(), ps -> sql.bind(ps, bindings), rs -> {
+            CompactRow scratch = layout.newRow();
+            Object[] group = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                group[i] = columns[i].read(rs, i + 1, scratch);
+            }
+            out.add(group);
+        });
+        return out;
+    }
+
+    //====================== thực thi query ======================
+
+    /**
+     * Câu select cho query + phần filter phải tự lọc sau khi đọc (null nếu SQL lo hết).
+     */
+    private static final class Select {
+        final JdbcSql sql;
+        @Nullable
+        final Predicate<Object> residual;
+
+        Select(JdbcSql sql, @Nullable Predicate<Object> residual) {
+            this.sql = sql;
+            this.residual = residual;
+        }
+    }
+
+    private List<KeyValueEntity> list(VirtualQuery query, List<String> properties) {
+        Select select = select(query, properties);
+        if (select.residual != null) {
+            try (Stream<KeyValueEntity> rows = stream(query, select)) {
+                return rows.collect(Collectors.toList());
+            }
+        }
+        List<KeyValueEntity> out = new ArrayList<>(query.getLimit() > 0 ? Math.min(query.getLimit(), 1024) : 16);
+        ColumnReader[] columns = readersOf(select.sql);
+        jdbc.query(select.sql.getSql(), ps -> select.sql.bind(ps, query), rs -> {
+            out.add(read(rs, columns));
+        });
+        return out;
+    }
+
+    private Stream<KeyValueEntity> stream(VirtualQuery query, List<String> properties) {
+        return stream(query, select(query, properties));
+    }
+
+    private Stream<KeyValueEntity> stream(VirtualQuery query, Select select) {
+        Cursor cursor = open(select.sql, query);
+        Stream<KeyValueEntity> rows = StreamSupport.stream(cursor, false).onClose(cursor::close);
+        if (select.residual == null) return rows;
+        return VirtualRows.page(rows.filter(select.residual), query.getOffset(), query.getLimit());
+    }
+
+    private long count(VirtualQuery query) {
+        JdbcSql.Compiler c = compiler();
+        VirtualFilter[] split = split(query.getFilter());
+        if (split[1] != null) {
+            try (Stream<KeyValueEntity> rows = stream(query.withoutPaging().withoutSort(), List.of())) {
+                return rows.count();
+            }
+        }
+        VirtualFilter pushed = split[0];
+        List<Integer> inSizes = c.inSizes(pushed, query.getParameters());
+        JdbcSql sql = statements.get(Arrays.asList("count", pushed, inSizes), () -> c.count(pushed, inSizes));
+        long[] n = {0};
+        jdbc.query(sql.getSql(), ps -> sql.bind(ps, query), rs -> {
+            n[0] = rs.getLong(1);
+        });
+        return n[0];
+    }
+
+    private Select select(VirtualQuery query, List<String> properties) {
+        JdbcSql.Compiler c = compiler();
+        VirtualFilter[] split = split(query.getFilter());
+        VirtualFilter pushed = split[0];
+        VirtualFilter residual = split[1];
+
+        List<String> columns = properties;
+        Predicate<Object> predicate = null;
+        boolean offset = query.getOffset() > 0;
+        boolean limit = query.getLimit() > 0;
+        if (residual != null) {
+            // cột cần để tự lọc phải có trong select list; paging làm sau khi lọc
+            Set<String> needed = new LinkedHashSet<>(properties);
+            for (String p : VirtualFilter.properties(residual)) {
+                if (c.isKnown(p)) needed.add(p);
+            }
+            columns = List.copyOf(needed);
+            predicate = evaluators.get(meta, residual, List.of()).predicate(query.getParameters());
+            offset = false;
+            limit = false;
+        }
+        List<String> selected = columns.isEmpty() ? List.of(meta.getIdProperty()) : columns;
+        List<Integer> inSizes = c.inSizes(pushed, query.getParameters());
+        boolean o = offset;
+        boolean l = limit;
+        JdbcSql sql = statements.get(Arrays.asList("select", selected, pushed, query.getSort(), o, l, inSizes),
+                () -> c.select(selected, pushed, query.getSort(), o, l, inSizes));
+        return new Select(sql, predicate);
+    }
+
+    /**
+     * [phần dịch được sang SQL, phần tự lọc]: như FilterSplit, gốc là AND thì chia theo từng vế.
+     */
+    private VirtualFilter[] split(@Nullable VirtualFilter filter) {
+        if (filter == null) return new VirtualFilter[2];
+        JdbcSql.Compiler c = compiler();
+        if (c.isPushable(filter)) return new VirtualFilter[]{filter, null};
+        if (!(filter instanceof VirtualFilter.And)) return new VirtualFilter[]{null, filter};
+        List<VirtualFilter> pushed = new ArrayList<>();
+        List<VirtualFilter> residual = new ArrayList<>();
+        for (VirtualFilter child : ((VirtualFilter.And) filter).getChildren()) {
+            (c.isPushable(child) ? pushed : residual).add(child);
+        }
+        return new VirtualFilter[]{pushed.isEmpty() ? null : VirtualFilter.and(pushed), VirtualFilter.and(residual)};
+    }
+
+    private List<KeyValueEntity> byIds(List<Object> ids) {
+        int size = Math.min(JdbcSql.bucket(ids.size()), spec.getIdBatchSize());
+        JdbcSql.Compiler c = compiler();
+        JdbcSql sql = statements.get(Arrays.asList("ids", size), () -> c.byIds(allProperties, size));
+        ColumnReader[] columns = readersOf(sql);
+        List<KeyValueEntity> out = new ArrayList<>(ids.size());
+        jdbc.query(sql.getSql(), ps -> {
+            Object last = null;
+            for (int i = 0; i < size; i++) {
+                // lặp lại id cuối cho đủ số '?' của câu đã cache
+                if (i < ids.size()) last = JdbcSql.toJdbc(ids.get(i));
+                ps.setObject(i + 1, last);
+            }
+        }, rs -> {
+            out.add(read(rs, columns));
+        });
+        return out;
+    }
+
+    private List<String> projection(VirtualQuery query) {
+        if (query.getProperties().isEmpty()) return allProperties;
+        List<String> out = new ArrayList<>(query.getProperties().size());
+        for (String p : query.getProperties()) {
+            // property lạ (biểu thức, alias...) không có cột: để null như handler khác
+            if (readers.containsKey(p) && !out.contains(p)) out.add(p);
+        }
+        return out.isEmpty() ? allProperties : out;
+    }
+
+    private JdbcSql.Compiler compiler() {
+        JdbcSql.Compiler c = compiler;
+        if (c == null) {
+            String product = jdbc.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            c = new JdbcSql.Compiler(meta, spec, JdbcSql.Paging.of(product));
+            compiler = c;
+        }
+        return c;
+    }
+
+    private ColumnReader[] readersOf(JdbcSql sql) {
+        List<String> properties = sql.getProperties();
+        ColumnReader[] out = new ColumnReader[properties.size()];
+        for (int i = 0; i < out.length; i++) out[i] = readers.get(properties.get(i));
+        return out;
+    }
+
+    private CompactRow read(ResultSet rs, ColumnReader[] columns) throws SQLException {
+        CompactRow row = layout.newRow();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, row);
+        }
+        return row;
+    }
+
+    //====================== cursor cho stream ======================
+
+    private Cursor open(JdbcSql sql, VirtualQuery query) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        boolean restoreAutoCommit = false;
+        PreparedStatement ps = null;
+        try {
+            // PostgreSQL chỉ dùng cursor (fetchSize) khi connection không autocommit
+            if (spec.getFetchSize() > 0 && con.getAutoCommit() && !DataSourceUtils.isConnectionTransactional(con, dataSource)) {
+                con.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            ps = con.prepareStatement(sql.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (spec.getFetchSize() > 0) ps.setFetchSize(spec.getFetchSize());
+            sql.bind(ps, query);
+            return new Cursor(con, ps, ps.executeQuery(), restoreAutoCommit, readersOf(sql), sql.getSql());
+        } catch (SQLException e) {
+            new Cursor(con, ps, null, restoreAutoCommit, null, sql.getSql()).close();
+            throw translate("stream", sql.getSql(), e);
+        }
+    }
+
+    private final class Cursor extends Spliterators.AbstractSpliterator<KeyValueEntity> {
+        private final Connection con;
+        @Nullable
+        private final PreparedStatement ps;
+        @Nullable
+        private final ResultSet rs;
+        private final boolean restoreAutoCommit;
+        private final ColumnReader[] columns;
+        private final String sql;
+        private boolean closed;
+
+        Cursor(Connection con, @Nullable PreparedStatement ps, @Nullable ResultSet rs, boolean restoreAutoCommit,
+               @Nullable ColumnReader[] columns, String sql) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.con = con;
+            this.ps = ps;
+            this.rs = rs;
+            this.restoreAutoCommit = restoreAutoCommit;
+            this.columns = columns;
+            this.sql = sql;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super KeyValueEntity> action) {
+            if (closed || rs == null) return false;
+            try {
+                if (!rs.next()) return false;
+                action.accept(read(rs, columns));
+                return true;
+            } catch (SQLException e) {
+                throw translate("stream", sql, e);
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                if (rs != null) rs.close();
+                if (ps != null) ps.close();
+                if (restoreAutoCommit) {
+                    // chỉ đọc: rollback để đóng transaction ngầm trước khi trả connection về pool
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.warn("Cannot close JDBC cursor of {}: {}", meta.getName(), e.toString());
+            } finally {
+                DataSourceUtils.releaseConnection(con, dataSource);
+            }
+        }
+    }
+
+    private DataAccessException translate(String task, String sql, SQLException e) {
+        DataAccessException translated = jdbc.getExceptionTranslator().translate(task, sql, e);
+        return translated != null ? translated : new UncategorizedSQLException(task, sql, e);
+    }
+
+    //====================== đọc cột vào slot ======================
+
+    private interface ColumnReader {
+        void read(ResultSet rs, int index, CompactRow row) throws SQLException;
+    }
+
+    private ColumnReader reader(int column) {
+        Class<?> type = layout.getType(column);
+        switch (layout.getKind(column)) {
+            case LONG, INTEGER:
+                return (rs, i, row) -> {
+                    long v = rs.getLong(i);
+                    if (rs.wasNull()) row.setNull(column); else row.setLong(column, v);
+                };
+            case DOUBLE:
+                return (rs, i, row) -> {
+                    double v = rs.getDouble(i);
+                    if (rs.wasNull()) row.setNull(column); else row.setDouble(column, v);
+                };
+            case BOOLEAN:
+                return (rs, i, row) -> {
+                    boolean v = rs.getBoolean(i);
+                    if (rs.wasNull()) row.setNull(column); else row.setBoolean(column, v);
+                };
+            case DECIMAL:
+                return (rs, i, row) -> row.set(column, rs.getBigDecimal(i));
+            case UUID:
+                return (rs, i, row) -> row.set(column, toUuid(rs.getObject(i)));
+            default:
+                break;
+        }
+        if (type == String.class) {
+            return (rs, i, row) -> row.set(column, rs.getString(i));
+        }
+        if (type == LocalDate.class || type == LocalDateTime.class || type == LocalTime.class
+                || type == OffsetDateTime.class) {
+            return (rs, i, row) -> row.set(column, rs.getObject(i, type));
+        }
+        if (type == java.util.Date.class) {
+            return (rs, i, row) -> {
+                Timestamp ts = rs.getTimestamp(i);
+                row.set(column, ts != null ? new java.util.Date(ts.getTime()) : null);
+            };
+        }
+        return (rs, i, row) -> {
+            Object v = rs.getObject(i);
+            if (v != null && type != null && !type.isInstance(v)) v = rs.getObject(i, type);
+            row.set(column, v);
+        };
+    }
+
+    // một cột kết quả gộp: cột nhóm / min / max đọc như cột thường (qua slot tạm), count / sum / avg theo kiểu JPQL
+    private interface ValueReader {
+        @Nullable
+        Object read(ResultSet rs, int index, CompactRow scratch) throws SQLException;
+    }
+
+    private ValueReader valueReader(AggregateQuery.Column c) {
+        AggregateFunction f = c.getFunction();
+        if (f == null || f == AggregateFunction.MIN || f == AggregateFunction.MAX) {
+            ColumnReader reader = readers.get(c.getProperty());
+            int column = layout.column(c.getProperty());
+            return (rs, i, row) -> {
+                reader.read(rs, i, row);
+                return row.get(column);
+            };
+        }
+        Class<?> type = c.getProperty() != null ? meta.getAttributes().get(c.getProperty()) : null;
+        Class<?> resultType = f.resultType(type);
+        if (resultType == Long.class) {
+            return (rs, i, row) -> {
+                long v = rs.getLong(i);
+                return rs.wasNull() ? null : v;
+            };
+        }
+        if (resultType == Double.class) {
+            return (rs, i, row) -> {
+                double v = rs.getDouble(i);
+                return rs.wasNull() ? null : v;
+            };
+        }
+        if (resultType == BigDecimal.class) {
+            return (rs, i, row) -> rs.getBigDecimal(i);
+        }
+        return (rs, i, row) -> rs.getObject(i);
+    }
+
+    @Nullable
+    private static UUID toUuid(@Nullable Object v) {
+        if (v == null || v instanceof UUID) return (UUID) v;
+        if (v instanceof byte[] && ((byte[]) v).length == 16) {
+            ByteBuffer bytes = ByteBuffer.wrap((byte[]) v);
+            return new UUID(bytes.getLong(), bytes.getLong());
+        }
+        return UUID.fromString(v.toString());
+    }
+}
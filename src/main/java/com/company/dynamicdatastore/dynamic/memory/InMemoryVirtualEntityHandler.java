@@ -0,0 +1,459 @@
+package com.company.dynamicdatastore.dynamic.memory;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.aggregate.Aggregator;
+import com.company.dynamicdatastore.dynamic.change.RowChange;
+import com.company.dynamicdatastore.dynamic.change.RowChangeSink;
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluator;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluatorCache;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.ObservableVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Handler giữ toàn bộ dữ liệu của một entity ảo trong bộ nhớ, theo EntityMeta:
+ * - row lưu dạng CompactRow bất biến (ghi = thay row mới), id -> row trong hash map: loadOne O(1)
+ * - index phụ khai báo bằng IndexSpec (hash cho =/in, sorted cho khoảng), cập nhật dần theo từng lần ghi
+ * - nhận toàn bộ filter/sort/paging/count từ store: index chọn ứng viên, RowEvaluator kiểm lại từng row,
+ *   nên filter khoảng trên cột có sorted index tốn O(log n + k) thay vì quét hết
+ * - query gộp (group by / sum...) tính thẳng trên row đang giữ, không copy row nào
+ *
+ * Dùng trực tiếp hoặc kế thừa (nạp dữ liệu trong constructor / @PostConstruct bằng putAll(...)).
+ * Ghi (commit / put / remove) tuần tự dưới một lock, đọc không lock. Row trả ra là bản sao
+ * nên UI sửa entity không làm lệch index. Mỗi lần ghi báo INSERTED / UPDATED / DELETED theo id
+ * cho subscriber của store (khi có người nghe), trong lock nên đúng thứ tự ghi.
+ */
+public class InMemoryVirtualEntityHandler implements WritableVirtualEntityHandler<KeyValueEntity>,
+        ObservableVirtualEntityHandler<KeyValueEntity> {
+
+    private static final Set<FilterOperator> ALL_OPERATORS = Collections.unmodifiableSet(EnumSet.allOf(FilterOperator.class));
+
+    private final EntityMeta meta;
+    private final RowLayout layout;
+    private final String idProperty;
+    // id (đã FilterSemantics.normalize) -> row
+    private final Map<Object, CompactRow> rows = new ConcurrentHashMap<>();
+    private final Map<String, PropertyIndex> indexes;
+    private final RowEvaluatorCache evaluators = new RowEvaluatorCache(64);
+    private final Object writeLock = new Object();
+    private volatile RowChangeSink changeSink = RowChangeSink.NONE;
+
+    public InMemoryVirtualEntityHandler(EntityMeta meta, IndexSpec... indexes) {
+        this(meta, Arrays.asList(indexes));
+    }
+
+    public InMemoryVirtualEntityHandler(EntityMeta meta, Collection<IndexSpec> indexes) {
+        Map<String, Class<?>> attributes = meta.getAttributes();
+        if (attributes == null || meta.getIdProperty() == null || !attributes.containsKey(meta.getIdProperty())) {
+            throw new IllegalArgumentException("Entity " + meta.getName() + " has no id attribute " + meta.getIdProperty());
+        }
+        this.meta = meta;
+        this.layout = RowLayout.of(meta);
+        this.idProperty = meta.getIdProperty();
+
+        Map<String, PropertyIndex> byProperty = new LinkedHashMap<>();
+        for (IndexSpec spec : indexes) {
+            Class<?> type = attributes.get(spec.getProperty());
+            if (type == null) {
+                throw new IllegalArgumentException("Entity " + meta.getName() + " has no attribute " + spec.getProperty());
+            }
+            if (spec.getProperty().equals(idProperty)) continue;  // id đã có hash map chính
+            // sorted trả lời được cả = và in, khai báo cả hai thì giữ sorted
+            PropertyIndex existing = byProperty.get(spec.getProperty());
+            if (existing == null || spec.getType() == IndexSpec.Type.SORTED) {
+                byProperty.put(spec.getProperty(), PropertyIndex.of(spec, type));
+            }
+        }
+        this.indexes = Map.copyOf(byProperty);
+    }
+
+    public EntityMeta getEntityMeta() {
+        return meta;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public void setChangeSink(RowChangeSink sink) {
+        this.changeSink = sink != null ? sink : RowChangeSink.NONE;
+    }
+
+    //====================== ghi ======================
+
+    @Override
+    public void commit(VirtualWriteBatch<KeyValueEntity> batch) {
+        // kiểm tra + chuyển đổi cả lô trước, lỗi thì chưa có gì bị ghi
+        List<CompactRow> saved = new ArrayList<>(batch.getSaved().size());
+        for (KeyValueEntity e : batch.getSaved()) saved.add(toRow(e));
+        List<Object> removed = new ArrayList<>(batch.getRemoved().size());
+        for (KeyValueEntity e : batch.getRemoved()) removed.add(requireId(e.getValue(idProperty)));
+
+        synchronized (writeLock) {
+            List<RowChange> changes = changeList();
+            for (CompactRow row : saved) upsert(row, changes);
+            for (Object id : removed) delete(id, changes);
+            publish(changes);
+        }
+    }
+
+    /**
+     * Thêm hoặc thay (theo id) một bản ghi, ngoài transaction của store (nạp dữ liệu ban đầu, đồng bộ...).
+     */
+    public void put(KeyValueEntity entity) {
+        CompactRow row = toRow(entity);
+        synchronized (writeLock) {
+            List<RowChange> changes = changeList();
+            upsert(row, changes);
+            publish(changes);
+        }
+    }
+
+    public void putAll(Collection<? extends KeyValueEntity> entities) {
+        List<CompactRow> converted = new ArrayList<>(entities.size());
+        for (KeyValueEntity e : entities) converted.add(toRow(e));
+        synchronized (writeLock) {
+            List<RowChange> changes = changeList();
+            for (CompactRow row : converted) upsert(row, changes);
+            publish(changes);
+        }
+    }
+
+    public boolean remove(Object id) {
+        synchronized (writeLock) {
+            List<RowChange> changes = changeList();
+            boolean removed = delete(requireId(id), changes);
+            publish(changes);
+            return removed;
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            List<RowChange> changes = changeList();
+            if (changes != null) {
+                for (CompactRow row : rows.values()) changes.add(RowChange.deleted(row.get(0)));
+            }
+            rows.clear();
+            indexes.values().forEach(PropertyIndex::clear);
+            publish(changes);
+        }
+    }
+
+    // gọi trong writeLock; changes = null khi không ai nghe
+    private void upsert(CompactRow row, @Nullable List<RowChange> changes) {
+        Object id = FilterSemantics.normalize(row.get(0));
+        CompactRow old = rows.put(id, row);
+        if (changes != null) {
+            Object rowId = row.get(0);
+            changes.add(old == null ? RowChange.inserted(rowId, row.copy()) : RowChange.updated(rowId, row.copy()));
+        }
+        for (PropertyIndex index : indexes.values()) {
+            int column = layout.column(index.property);
+            Object newValue = row.get(column);
+            if (old == null) {
+                index.add(id, newValue);
+            } else {
+                index.update(id, old.get(column), newValue);
+            }
+        }
+    }
+
+    // gọi trong writeLock
+    private boolean delete(Object id, @Nullable List<RowChange> changes) {
+        CompactRow old = rows.remove(id);
+        if (old == null) return false;
+        if (changes != null) changes.add(RowChange.deleted(old.get(0)));
+        for (PropertyIndex index : indexes.values()) {
+            index.remove(id, old.get(layout.column(index.property)));
+        }
+        return true;
+    }
+
+    @Nullable
+    private List<RowChange> changeList() {
+        return changeSink.isActive() ? new ArrayList<>() : null;
+    }
+
+    // gọi trong writeLock: subscriber nhận thay đổi đúng thứ tự ghi
+    private void publish(@Nullable List<RowChange> changes) {
+        if (changes != null && !changes.isEmpty()) changeSink.publish(changes);
+    }
+
+    private CompactRow toRow(KeyValueEntity entity) {
+        CompactRow row = layout.newRow();
+        for (Map.Entry<String, Class<?>> attr : meta.getAttributes().entrySet()) {
+            Object value = entity.getValue(attr.getKey());
+            if (value != null && !fits(attr.getValue(), value)) {
+                throw new IllegalArgumentException("Attribute " + meta.getName() + "." + attr.getKey()
+                        + " expects " + attr.getValue().getSimpleName() + " but got " + value.getClass().getSimpleName());
+            }
+            row.set(attr.getKey(), value);
+        }
+        requireId(row.get(0));
+        return row;
+    }
+
+    private Object requireId(@Nullable Object id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Entity " + meta.getName() + " row without id (" + idProperty + ")");
+        }
+        return FilterSemantics.normalize(id);
+    }
+
+    // kiểu khai báo trong EntityMeta, cho phép số nhỏ hơn (Integer vào cột Long...) như CompactRow
+    private static boolean fits(Class<?> type, Object value) {
+        if (type.isInstance(value)) return true;
+        if (type == Long.class) return value instanceof Integer || value instanceof Short || value instanceof Byte;
+        if (type == Integer.class) return value instanceof Short || value instanceof Byte;
+        if (type == Double.class) return value instanceof Float;
+        return false;
+    }
+
+    //====================== đọc ======================
+
+    @Override
+    public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx) {
+        return copies(rows.values());
+    }
+
+    @Override
+    public KeyValueEntity loadOne(LoadContext<KeyValueEntity> ctx, Object id) {
+        CompactRow row = id != null ? rows.get(FilterSemantics.normalize(id)) : null;
+        return row != null ? row.copy() : null;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadMany(LoadContext<KeyValueEntity> ctx, Collection<?> ids) {
+        List<KeyValueEntity> out = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            CompactRow row = id != null ? rows.get(FilterSemantics.normalize(id)) : null;
+            if (row != null) out.add(row.copy());
+        }
+        return out;
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+        return copies(rows.values());
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return copies(select(query));
+    }
+
+    @Override
+    public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return copies(select(query));
+    }
+
+    @Override
+    public boolean supportsPaging() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsSorting() {
+        return true;
+    }
+
+    @Override
+    public Set<FilterOperator> supportedFilterOperators() {
+        return ALL_OPERATORS;
+    }
+
+    @Override
+    public boolean supportsCount() {
+        return true;
+    }
+
+    @Override
+    public long count(LoadContext<KeyValueEntity> ctx) {
+        return rows.size();
+    }
+
+    @Override
+    public long count(LoadContext<KeyValueEntity> ctx, VirtualQuery query) {
+        return count(query);
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx) {
+        return rows.size();
+    }
+
+    @Override
+    public long countKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return count(query);
+    }
+
+    @Override
+    public boolean supportsAggregate(AggregateQuery query) {
+        return true;
+    }
+
+    @Override
+    public List<Object[]> aggregate(ValueLoadContext ctx, AggregateQuery query) {
+        Aggregator aggregator = new Aggregator(meta, query);
+        Predicate<Object> predicate = query.getFilter() != null
+                ? evaluators.get(meta, query.getFilter(), List.of()).predicate(query.getParameters()) : null;
+        Collection<Object> candidates = query.getFilter() != null
+                ? candidates(query.getFilter(), query.getParameters()) : null;
+        for (CompactRow row : candidates != null ? rowsOf(candidates) : rows.values()) {
+            if (predicate == null || predicate.test(row)) aggregator.add(row);
+        }
+        return aggregator.result();
+    }
+
+    //====================== thực thi query ======================
+
+    private long count(VirtualQuery query) {
+        if (!query.hasFilter()) return rows.size();
+        Predicate<Object> predicate = evaluators.get(meta, query.getFilter(), List.of()).predicate(query.getParameters());
+        Collection<Object> candidates = candidates(query.getFilter(), query.getParameters());
+        long n = 0;
+        for (CompactRow row : candidates != null ? rowsOf(candidates) : rows.values()) {
+            if (predicate.test(row)) n++;
+        }
+        return n;
+    }
+
+    private List<CompactRow> select(VirtualQuery query) {
+        RowEvaluator evaluator = evaluators.get(meta, query.getFilter(), query.getSort());
+        Predicate<Object> predicate = evaluator.predicate(query.getParameters());
+        Collection<Object> candidates = query.hasFilter() ? candidates(query.getFilter(), query.getParameters()) : null;
+
+        // không index nào thu hẹp được filter, nhưng sort theo cột có sorted index: đọc theo thứ tự, dừng khi đủ trang
+        if (candidates == null && query.getLimit() > 0 && query.getSort().size() == 1) {
+            VirtualQuery.SortKey key = query.getSort().get(0);
+            PropertyIndex index = indexes.get(key.getProperty());
+            if (index instanceof PropertyIndex.Sorted && index.looseIds.isEmpty()) {
+                return orderedScan((PropertyIndex.Sorted) index, key.isDescending(), predicate,
+                        query.getOffset(), query.getLimit());
+            }
+        }
+
+        List<CompactRow> matched = new ArrayList<>();
+        for (CompactRow row : candidates != null ? rowsOf(candidates) : rows.values()) {
+            if (predicate.test(row)) matched.add(row);
+        }
+        if (query.isSorted()) {
+            return VirtualRows.sortAndPage(matched, evaluator.comparator(), query.getOffset(), query.getLimit());
+        }
+        return VirtualRows.page(matched, query.getOffset(), query.getLimit());
+    }
+
+    private List<CompactRow> orderedScan(PropertyIndex.Sorted index, boolean descending, Predicate<Object> predicate,
+                                         int offset, int limit) {
+        List<CompactRow> out = new ArrayList<>(limit);
+        int skipped = 0;
+        Iterator<Object> ids = index.orderedIds(descending);
+        while (ids.hasNext() && out.size() < limit) {
+            CompactRow row = rows.get(ids.next());
+            if (row == null || !predicate.test(row)) continue;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                out.add(row);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Id ứng viên theo index cho filter, null nếu phải quét toàn bộ.
+     * - so sánh trên id / cột có index: tra index
+     * - AND: lấy vế có ít ứng viên nhất (các vế còn lại do predicate kiểm)
+     * - OR: hợp các vế, chỉ khi vế nào cũng tra được index
+     */
+    @Nullable
+    private Collection<Object> candidates(VirtualFilter filter, Map<String, Object> params) {
+        if (filter instanceof VirtualFilter.And) {
+            Collection<Object> best = null;
+            for (VirtualFilter child : ((VirtualFilter.And) filter).getChildren()) {
+                Collection<Object> c = candidates(child, params);
+                if (c != null && (best == null || c.size() < best.size())) best = c;
+            }
+            return best;
+        }
+        if (filter instanceof VirtualFilter.Or) {
+            Set<Object> union = new LinkedHashSet<>();
+            for (VirtualFilter child : ((VirtualFilter.Or) filter).getChildren()) {
+                Collection<Object> c = candidates(child, params);
+                if (c == null) return null;
+                union.addAll(c);
+            }
+            return union;
+        }
+        if (!(filter instanceof VirtualFilter.Comparison)) return null;
+
+        VirtualFilter.Comparison cmp = (VirtualFilter.Comparison) filter;
+        List<Object> values = cmp.getValues(params);
+        if (cmp.getProperty().equals(idProperty)) {
+            return idLookup(cmp.getOperator(), values);
+        }
+        PropertyIndex index = indexes.get(cmp.getProperty());
+        return index != null ? index.lookup(cmp.getOperator(), values) : null;
+    }
+
+    @Nullable
+    private Collection<Object> idLookup(FilterOperator operator, List<Object> values) {
+        if (operator != FilterOperator.EQUAL && operator != FilterOperator.IN) return null;
+        Class<?> type = meta.getAttributes().get(idProperty);
+        Set<Object> out = new LinkedHashSet<>();
+        for (Object v : values) {
+            // id khác kiểu (số với chuỗi...) thì để filter so sánh như thường
+            if (v == null || !(type.isInstance(v) || (v instanceof Number && Number.class.isAssignableFrom(type)))) {
+                return null;
+            }
+            if (v instanceof Double || v instanceof Float || v instanceof BigDecimal) return null;
+            Object id = FilterSemantics.normalize(v);
+            if (rows.containsKey(id)) out.add(id);
+        }
+        return out;
+    }
+
+    private List<CompactRow> rowsOf(Collection<Object> ids) {
+        List<CompactRow> out = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            CompactRow row = rows.get(id);
+            if (row != null) out.add(row);
+        }
+        return out;
+    }
+
+    private static List<KeyValueEntity> copies(Collection<CompactRow> source) {
+        List<KeyValueEntity> out = new ArrayList<>(source.size());
+        for (CompactRow row : source) out.add(row.copy());
+        return out;
+    }
+}
@@ -0,0 +1,59 @@
+package com.company.dynamicdatastore.dynamic.memory;
+
+import java.util.Objects;
+
+/**
+ * Khai báo một index phụ cho InMemoryVirtualEntityHandler:
+ * - hash: tra bằng (=, in) trong O(1)
+ * - sorted: skip-list, trả lời thêm được (&gt;, &gt;=, &lt;, &lt;=, between) trong O(log n + k)
+ *   và cho phép đọc theo thứ tự khi sort theo đúng property đó
+ */
+public final class IndexSpec {
+
+    public enum Type { HASH, SORTED }
+
+    private final String property;
+    private final Type type;
+
+    private IndexSpec(String property, Type type) {
+        if (property == null || property.isBlank() || property.indexOf('.') >= 0) {
+            throw new IllegalArgumentException("Index property must be a plain attribute name: " + property);
+        }
+        this.property = property;
+        this.type = type;
+    }
+
+    public static IndexSpec hash(String property) {
+        return new IndexSpec(property, Type.HASH);
+    }
+
+    public static IndexSpec sorted(String property) {
+        return new IndexSpec(property, Type.SORTED);
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IndexSpec)) return false;
+        IndexSpec that = (IndexSpec) o;
+        return property.equals(that.property) && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(property, type);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexSpec{" + property + ", " + type + "}";
+    }
+}
@@ -0,0 +1,249 @@
+package com.company.dynamicdatastore.dynamic.memory;
+
+import com.company.dynamicdatastore.dynamic.query.FilterSemantics;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index phụ trên một property: key (giá trị đã chuẩn hoá, xem key(...)) -> tập id.
+ * Ghi chỉ từ một thread (handler giữ lock ghi), đọc đồng thời không lock.
+ *
+ * Index chỉ dùng để chọn ứng viên (luôn là tập cha của kết quả đúng): row lấy ra vẫn được
+ * kiểm lại bằng filter đầy đủ, nên đọc trúng lúc đang ghi dở cũng không ra kết quả sai.
+ */
+abstract class PropertyIndex {
+
+    final String property;
+    final Class<?> type;
+    // id của các row có giá trị null (không nằm trong map)
+    final Set<Object> nullIds = ConcurrentHashMap.newKeySet();
+    // id của các row có số NaN / vô cực: không so được với key khác, luôn là ứng viên
+    final Set<Object> looseIds = ConcurrentHashMap.newKeySet();
+
+    PropertyIndex(String property, Class<?> type) {
+        this.property = property;
+        this.type = type;
+    }
+
+    static PropertyIndex of(IndexSpec spec, Class<?> type) {
+        return spec.getType() == IndexSpec.Type.SORTED
+                ? new Sorted(spec.getProperty(), type)
+                : new Hash(spec.getProperty(), type);
+    }
+
+    void add(Object id, @Nullable Object value) {
+        if (value == null) {
+            nullIds.add(id);
+        } else if (!finite(value)) {
+            looseIds.add(id);
+        } else {
+            map().computeIfAbsent(key(value), k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    void remove(Object id, @Nullable Object value) {
+        if (value == null) {
+            nullIds.remove(id);
+            return;
+        }
+        if (!finite(value)) {
+            looseIds.remove(id);
+            return;
+        }
+        Object key = key(value);
+        Set<Object> ids = map().get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) map().remove(key, ids);
+        }
+    }
+
+    void update(Object id, @Nullable Object oldValue, @Nullable Object newValue) {
+        if (oldValue == null ? newValue == null : newValue != null
+                && finite(oldValue) && finite(newValue) && key(oldValue).equals(key(newValue))) {
+            return;
+        }
+        remove(id, oldValue);
+        add(id, newValue);
+    }
+
+    void clear() {
+        map().clear();
+        nullIds.clear();
+        looseIds.clear();
+    }
+
+    /**
+     * Id ứng viên cho "property operator values", null nếu index này không trả lời được
+     * (toán tử không hỗ trợ, hoặc tham số khác kiểu cột: ngữ nghĩa so sánh khi đó để filter lo).
+     */
+    @Nullable
+    Collection<Object> lookup(FilterOperator operator, List<Object> values) {
+        if (values.isEmpty()) return null;
+        for (Object v : values) {
+            if (!compatible(v)) return null;
+        }
+        Collection<Object> out;
+        switch (operator) {
+            case EQUAL -> {
+                Set<Object> ids = map().get(key(values.get(0)));
+                out = ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+            }
+            case IN -> {
+                Set<Object> union = new LinkedHashSet<>();
+                for (Object v : values) {
+                    Set<Object> ids = map().get(key(v));
+                    if (ids != null) union.addAll(ids);
+                }
+                out = union;
+            }
+            default -> {
+                out = range(operator, values);
+                if (out == null) return null;
+            }
+        }
+        if (!looseIds.isEmpty()) {
+            Set<Object> withLoose = new LinkedHashSet<>(out);
+            withLoose.addAll(looseIds);
+            return withLoose;
+        }
+        return out;
+    }
+
+    @Nullable
+    Collection<Object> range(FilterOperator operator, List<Object> values) {
+        return null;
+    }
+
+    abstract Map<Object, Set<Object>> map();
+
+    /**
+     * Key của một giá trị: số được đưa về một dạng chung (Long hoặc BigDecimal bỏ số 0 thừa)
+     * để 1, 1L, 1.0, 1.00 rơi vào cùng bucket, giống cách FilterSemantics so sánh số khác kiểu.
+     */
+    static Object key(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return FilterSemantics.normalize(BigDecimal.valueOf(((Number) value).doubleValue()));
+        }
+        return FilterSemantics.normalize(value);
+    }
+
+    private static boolean finite(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return Double.isFinite(((Number) value).doubleValue());
+        }
+        return true;
+    }
+
+    // tham số cùng "họ" với kiểu cột: số với số, còn lại phải đúng kiểu
+    private boolean compatible(@Nullable Object value) {
+        if (value == null || !finite(value)) return false;
+        if (Number.class.isAssignableFrom(type)) return value instanceof Number;
+        return type.isInstance(value);
+    }
+
+    static final class Hash extends PropertyIndex {
+        private final Map<Object, Set<Object>> map = new ConcurrentHashMap<>();
+
+        Hash(String property, Class<?> type) {
+            super(property, type);
+        }
+
+        @Override
+        Map<Object, Set<Object>> map() {
+            return map;
+        }
+    }
+
+    static final class Sorted extends PropertyIndex {
+        // FilterSemantics.compare: 1, 1L, 1.00 là cùng một key như khi lọc trong bộ nhớ
+        private final ConcurrentSkipListMap<Object, Set<Object>> map =
+                new ConcurrentSkipListMap<>(FilterSemantics::compare);
+
+        Sorted(String property, Class<?> type) {
+            super(property, type);
+        }
+
+        @Override
+        Map<Object, Set<Object>> map() {
+            return map;
+        }
+
+        @Override
+        @Nullable
+        Collection<Object> range(FilterOperator operator, List<Object> values) {
+            Object a = values.get(0);
+            NavigableMap<Object, Set<Object>> sub;
+            switch (operator) {
+                case GREATER -> sub = map.tailMap(a, false);
+                case GREATER_OR_EQUAL -> sub = map.tailMap(a, true);
+                case LESS -> sub = map.headMap(a, false);
+                case LESS_OR_EQUAL -> sub = map.headMap(a, true);
+                case BETWEEN -> {
+                    if (values.size() < 2) return null;
+                    Object b = values.get(1);
+                    if (FilterSemantics.compare(a, b) > 0) return Collections.emptyList();
+                    sub = map.subMap(a, true, b, true);
+                }
+                default -> {
+                    return null;
+                }
+            }
+            List<Object> out = new ArrayList<>();
+            for (Set<Object> ids : sub.values()) out.addAll(ids);
+            return out;
+        }
+
+        /**
+         * Id theo thứ tự giá trị, null đứng đầu khi tăng dần (cùng thứ tự với VirtualRows.comparator).
+         * Chỉ dùng được khi không có row NaN / vô cực (looseIds rỗng).
+         */
+        Iterator<Object> orderedIds(boolean descending) {
+            Iterator<Set<Object>> keys = (descending ? map.descendingMap() : map).values().iterator();
+            Iterator<Object> values = new Iterator<>() {
+                Iterator<Object> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && keys.hasNext()) current = keys.next().iterator();
+                    return current.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    hasNext();
+                    return current.next();
+                }
+            };
+            Iterator<Object> nulls = nullIds.iterator();
+            return descending ? concat(values, nulls) : concat(nulls, values);
+        }
+
+        private static Iterator<Object> concat(Iterator<Object> first, Iterator<Object> second) {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return first.hasNext() || second.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    return first.hasNext() ? first.next() : second.next();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.company.dynamicdatastore.dynamic.metrics;
+
+import com.company.dynamicdatastore.dynamic.guard.CircuitBreaker;
+import com.company.dynamicdatastore.dynamic.guard.GuardedVirtualEntityHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Đo các lời gọi DynamicDataStore -> handler, tag theo store, entity, operation:
+ *
+ * - dynamic.store.calls (timer, tag outcome=success|error): độ trễ
+ * - dynamic.store.errors (counter, tag exception): số lỗi
+ * - dynamic.store.rows (summary): số row trả về
+ * - dynamic.store.bytes (summary): số byte heap ước lượng của kết quả
+ * - dynamic.store.coalesced (counter): số load được gộp vào load giống hệt đang chạy
+ * - dynamic.store.circuit.state (gauge, tag store, entity): 0 = closed, 1 = half-open, 2 = open
+ * - dynamic.store.bulkhead.active (gauge): số lời gọi đang giữ chỗ trong bulkhead của handler
+ * - dynamic.store.rejected (counter, tag reason=CIRCUIT_OPEN|BULKHEAD_FULL|TIMEOUT): lời gọi bị từ chối / bỏ dở
+ * - dynamic.store.fallback (counter): lời gọi được trả bằng kết quả cũ (last known good)
+ *
+ * Xem qua Actuator: /actuator/metrics/dynamic.store.calls?tag=store:storeA
+ */
+@Component("app_DynamicStoreMetrics")
+public class DynamicStoreMetrics {
+
+    public static final String CALLS = "dynamic.store.calls";
+    public static final String ERRORS = "dynamic.store.errors";
+    public static final String ROWS = "dynamic.store.rows";
+    public static final String BYTES = "dynamic.store.bytes";
+    public static final String COALESCED = "dynamic.store.coalesced";
+    public static final String CIRCUIT_STATE = "dynamic.store.circuit.state";
+    public static final String BULKHEAD_ACTIVE = "dynamic.store.bulkhead.active";
+    public static final String REJECTED = "dynamic.store.rejected";
+    public static final String FALLBACK = "dynamic.store.fallback";
+
+    private final MeterRegistry meterRegistry;
+
+    // cache meter theo (store, entity, operation) để hot path không phải dựng Meter.Id mỗi lần
+    private final Map<Key, Meters> meters = new ConcurrentHashMap<>();
+
+    // (store, entity) -> handler có guard hiện hành; gauge đọc qua map nên thay handler không phải đăng ký lại
+    private final Map<Key, GuardedVirtualEntityHandler> guards = new ConcurrentHashMap<>();
+
+    public DynamicStoreMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * Đo một lời gọi trả về danh sách row.
+     *
+     * @param properties các property của entity, dùng để ước lượng byte (rỗng = chỉ tính overhead)
+     */
+    public <T> List<T> recordList(String storeName, @Nullable String entityName, String operation,
+                                  Collection<String> properties, Supplier<List<T>> call) {
+        Meters m = meters(storeName, entityName, operation);
+        long start = System.nanoTime();
+        List<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            failed(m, storeName, entityName, operation, start, e);
+            throw e;
+        }
+        m.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        m.rows.record(result.size());
+        m.bytes.record(RowSizeEstimator.estimate(result, properties));
+        return result;
+    }
+
+    /**
+     * Đo một lời gọi trả về một row (có thể null).
+     */
+    public <T> T recordOne(String storeName, @Nullable String entityName, String operation, Supplier<T> call) {
+        Meters m = meters(storeName, entityName, operation);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            failed(m, storeName, entityName, operation, start, e);
+            throw e;
+        }
+        m.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        m.rows.record(result != null ? 1 : 0);
+        return result;
+    }
+
+    /**
+     * Đo một lời gọi đếm (không ghi rows/bytes).
+     */
+    public long recordCount(String storeName, @Nullable String entityName, String operation, LongSupplier call) {
+        Meters m = meters(storeName, entityName, operation);
+        long start = System.nanoTime();
+        long result;
+        try {
+            result = call.getAsLong();
+        } catch (RuntimeException e) {
+            failed(m, storeName, entityName, operation, start, e);
+            throw e;
+        }
+        m.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * Đếm một lời gọi không xuống handler mà dùng chung kết quả của lời gọi giống hệt đang chạy.
+     */
+    public void recordCoalesced(String storeName, @Nullable String entityName, String operation) {
+        Counter.builder(COALESCED)
+                .description("DynamicDataStore loads served by an identical in-flight load")
+                .tag("store", storeName)
+                .tag("entity", entityTag(entityName))
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Gauge trạng thái circuit breaker / bulkhead của handler; handler mới cùng entity thay handler cũ.
+     */
+    public void bindGuard(GuardedVirtualEntityHandler guard) {
+        Key key = new Key(guard.getStoreName(), entityTag(guard.getEntityName()), "guard");
+        if (guards.put(key, guard) != null) return;
+        Gauge.builder(CIRCUIT_STATE, guards, g -> stateValue(g.get(key)))
+                .description("Circuit breaker state of a dynamic store handler: 0 closed, 1 half-open, 2 open")
+                .tag("store", key.store)
+                .tag("entity", key.entity)
+                .register(meterRegistry);
+        Gauge.builder(BULKHEAD_ACTIVE, guards, g -> {
+                    GuardedVirtualEntityHandler h = g.get(key);
+                    return h != null ? h.getActiveCalls() : 0;
+                })
+                .description("Calls holding a bulkhead slot of a dynamic store handler")
+                .tag("store", key.store)
+                .tag("entity", key.entity)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đếm một lời gọi handler bị từ chối ngay / bỏ dở (reason của HandlerUnavailableException).
+     */
+    public void recordRejected(String storeName, @Nullable String entityName, String reason) {
+        Counter.builder(REJECTED)
+                .description("Dynamic store handler calls rejected by circuit breaker, bulkhead or timeout")
+                .tag("store", storeName)
+                .tag("entity", entityTag(entityName))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Đếm một lời gọi được trả bằng kết quả thành công gần nhất thay cho handler.
+     */
+    public void recordFallback(String storeName, @Nullable String entityName, String operation) {
+        Counter.builder(FALLBACK)
+                .description("Dynamic store handler calls served from the last known good result")
+                .tag("store", storeName)
+                .tag("entity", entityTag(entityName))
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static double stateValue(@Nullable GuardedVirtualEntityHandler guard) {
+        if (guard == null) return 0;
+        CircuitBreaker.State state = guard.getState();
+        return state == CircuitBreaker.State.OPEN ? 2 : state == CircuitBreaker.State.HALF_OPEN ? 1 : 0;
+    }
+
+    private void failed(Meters m, String storeName, @Nullable String entityName, String operation,
+                        long start, RuntimeException e) {
+        m.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        Counter.builder(ERRORS)
+                .tag("store", storeName)
+                .tag("entity", entityTag(entityName))
+                .tag("operation", operation)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Meters meters(String storeName, @Nullable String entityName, String operation) {
+        return meters.computeIfAbsent(new Key(storeName, entityTag(entityName), operation), this::createMeters);
+    }
+
+    private Meters createMeters(Key key) {
+        Timer success = Timer.builder(CALLS)
+                .description("Latency of DynamicDataStore handler calls")
+                .tag("store", key.store).tag("entity", key.entity).tag("operation", key.operation)
+                .tag("outcome", "success")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer error = Timer.builder(CALLS)
+                .description("Latency of DynamicDataStore handler calls")
+                .tag("store", key.store).tag("entity", key.entity).tag("operation", key.operation)
+                .tag("outcome", "error")
+                .register(meterRegistry);
+        DistributionSummary rows = DistributionSummary.builder(ROWS)
+                .description("Rows returned by DynamicDataStore handler calls")
+                .tag("store", key.store).tag("entity", key.entity).tag("operation", key.operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        DistributionSummary bytes = DistributionSummary.builder(BYTES)
+                .description("Estimated heap bytes of rows returned by DynamicDataStore handler calls")
+                .baseUnit("bytes")
+                .tag("store", key.store).tag("entity", key.entity).tag("operation", key.operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return new Meters(success, error, rows, bytes);
+    }
+
+    private static String entityTag(@Nullable String entityName) {
+        return entityName != null ? entityName : "unknown";
+    }
+
+    private static final class Meters {
+        final Timer success;
+        final Timer error;
+        final DistributionSummary rows;
+        final DistributionSummary bytes;
+
+        Meters(Timer success, Timer error, DistributionSummary rows, DistributionSummary bytes) {
+            this.success = success;
+            this.error = error;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Key {
+        final String store;
+        final String entity;
+        final String operation;
+
+        Key(String store, String entity, String operation) {
+            this.store = store;
+            this.entity = entity;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return store.equals(k.store) && entity.equals(k.entity) && operation.equals(k.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(store, entity, operation);
+        }
+    }
+}
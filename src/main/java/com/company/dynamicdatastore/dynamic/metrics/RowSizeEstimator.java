@@ -0,0 +1,58 @@
+package com.company.dynamicdatastore.dynamic.metrics;
+
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ước lượng thô số byte heap của một danh sách row (KeyValueEntity + HashMap + giá trị boxed).
+ * Chỉ lấy mẫu vài row rải đều rồi nhân lên, để chi phí đo không phụ thuộc kích thước kết quả.
+ */
+public final class RowSizeEstimator {
+
+    private static final int SAMPLE = 8;
+    private static final long ROW_OVERHEAD = 96;   // entity + map rỗng
+    private static final long ENTRY_OVERHEAD = 48; // HashMap.Node + slot trong bảng
+
+    private RowSizeEstimator() {
+    }
+
+    public static long estimate(List<?> rows, Collection<String> properties) {
+        int n = rows.size();
+        if (n == 0) return 0;
+        if (properties.isEmpty()) return n * ROW_OVERHEAD;
+
+        int samples = Math.min(SAMPLE, n);
+        long sampled = 0;
+        for (int i = 0; i < samples; i++) {
+            Object row = rows.get((int) ((long) i * n / samples));
+            sampled += estimateRow(row, properties);
+        }
+        return sampled * n / samples;
+    }
+
+    private static long estimateRow(Object row, Collection<String> properties) {
+        if (row instanceof CompactRow) {
+            return ((CompactRow) row).estimatedBytes();
+        }
+        long bytes = ROW_OVERHEAD;
+        for (String p : properties) {
+            Object v = VirtualRows.getValue(row, p);
+            if (v == null) continue;
+            bytes += ENTRY_OVERHEAD + valueSize(v);
+        }
+        return bytes;
+    }
+
+    private static long valueSize(Object v) {
+        if (v instanceof String) return 40 + 2L * ((String) v).length();
+        if (v instanceof BigDecimal) return 64;
+        if (v instanceof UUID) return 32;
+        if (v instanceof Number || v instanceof Boolean) return 16;
+        return 32;
+    }
+}
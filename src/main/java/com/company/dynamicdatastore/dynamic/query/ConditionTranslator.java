@@ -0,0 +1,185 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import io.jmix.core.querycondition.Condition;
+import io.jmix.core.querycondition.LogicalCondition;
+import io.jmix.core.querycondition.PropertyCondition;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dịch cây Condition của Jmix (PropertyCondition, LogicalCondition and/or) sang VirtualFilter.
+ *
+ * - Giá trị lấy từ PropertyCondition.getParameterValue(), không có thì tham chiếu tham số của query
+ * - Giống Jmix: điều kiện không có giá trị (null, collection rỗng) bị bỏ qua
+ * - Phần không dịch được (JpqlCondition, operation lạ): trong AND thì bỏ riêng vế đó,
+ *   còn trong OR / NOT thì bỏ cả nhánh; khi đó Translation.isExact() = false
+ *   (filter trả về chỉ rộng hơn, không bao giờ hẹp hơn điều kiện gốc)
+ */
+public final class ConditionTranslator {
+
+    private ConditionTranslator() {
+    }
+
+    public static Translation translate(@Nullable Condition condition, @Nullable Map<String, Object> params) {
+        if (condition == null) return new Translation(null, true);
+        Translator t = new Translator(params != null ? params : Map.of());
+        VirtualFilter filter = t.translate(condition);
+        return new Translation(filter, t.exact);
+    }
+
+    public static final class Translation {
+        @Nullable
+        private final VirtualFilter filter;
+        private final boolean exact;
+
+        Translation(@Nullable VirtualFilter filter, boolean exact) {
+            this.filter = filter;
+            this.exact = exact;
+        }
+
+        /**
+         * null = không lọc gì.
+         */
+        @Nullable
+        public VirtualFilter getFilter() {
+            return filter;
+        }
+
+        /**
+         * false nếu có phần Condition không dịch được (filter rộng hơn điều kiện gốc).
+         */
+        public boolean isExact() {
+            return exact;
+        }
+    }
+
+    private static final class Translator {
+        private final Map<String, Object> params;
+        private boolean exact = true;
+
+        Translator(Map<String, Object> params) {
+            this.params = params;
+        }
+
+        // null = vế này không lọc gì (bỏ qua được, hoặc không dịch được)
+        @Nullable
+        VirtualFilter translate(Condition condition) {
+            if (condition instanceof LogicalCondition) {
+                return logical((LogicalCondition) condition);
+            }
+            if (condition instanceof PropertyCondition) {
+                return property((PropertyCondition) condition);
+            }
+            // JpqlCondition và các loại khác
+            exact = false;
+            return null;
+        }
+
+        @Nullable
+        private VirtualFilter logical(LogicalCondition condition) {
+            boolean or = condition.getType() == LogicalCondition.Type.OR;
+            List<VirtualFilter> children = new ArrayList<>();
+            for (Condition child : condition.getConditions()) {
+                boolean exactBefore = exact;
+                exact = true;
+                VirtualFilter f = translate(child);
+                boolean childExact = exact;
+                exact = exactBefore && childExact;
+                if (f == null) {
+                    // vế bị bỏ qua (tham số rỗng) thì Jmix cũng gỡ khỏi cây -> bỏ qua luôn;
+                    // vế không dịch được trong OR = không lọc được cả nhánh
+                    if (or && !childExact) return null;
+                    continue;
+                }
+                children.add(f);
+            }
+            if (children.isEmpty()) return null;
+            return or ? VirtualFilter.or(children) : VirtualFilter.and(children);
+        }
+
+        @Nullable
+        private VirtualFilter property(PropertyCondition condition) {
+            String property = condition.getProperty();
+            VirtualFilter.Operand operand = operand(condition);
+            Object value = operand != null ? operand.resolve(params) : null;
+
+            // các operation theo PropertyCondition.Operation
+            String operation = condition.getOperation();
+            if ("is_set".equals(operation)) {
+                if (!(value instanceof Boolean)) return null;
+                return VirtualFilter.compare(property,
+                        (Boolean) value ? FilterOperator.IS_NOT_NULL : FilterOperator.IS_NULL);
+            }
+            if (isEmpty(value)) return null;
+
+            switch (operation) {
+                case "=":
+                    return VirtualFilter.compare(property, FilterOperator.EQUAL, operand);
+                case "<>":
+                    return VirtualFilter.compare(property, FilterOperator.NOT_EQUAL, operand);
+                case ">":
+                    return VirtualFilter.compare(property, FilterOperator.GREATER, operand);
+                case ">=":
+                    return VirtualFilter.compare(property, FilterOperator.GREATER_OR_EQUAL, operand);
+                case "<":
+                    return VirtualFilter.compare(property, FilterOperator.LESS, operand);
+                case "<=":
+                    return VirtualFilter.compare(property, FilterOperator.LESS_OR_EQUAL, operand);
+                case "contains":
+                    return VirtualFilter.compare(property, FilterOperator.CONTAINS, operand);
+                case "not_contains":
+                    return VirtualFilter.not(VirtualFilter.compare(property, FilterOperator.CONTAINS, operand));
+                case "starts_with":
+                    return VirtualFilter.compare(property, FilterOperator.STARTS_WITH, operand);
+                case "ends_with":
+                    return VirtualFilter.compare(property, FilterOperator.ENDS_WITH, operand);
+                case "in_list":
+                    return VirtualFilter.compare(property, FilterOperator.IN, operand);
+                case "not_in_list":
+                    return VirtualFilter.compare(property, FilterOperator.NOT_IN, operand);
+                case "like":
+                    return VirtualFilter.compare(property, FilterOperator.LIKE, operand);
+                case "not_like":
+                    return VirtualFilter.compare(property, FilterOperator.NOT_LIKE, operand);
+                case "between":
+                    return between(property, value);
+                default:
+                    exact = false;
+                    return null;
+            }
+        }
+
+        @Nullable
+        private VirtualFilter between(String property, Object value) {
+            Object[] bounds = value instanceof Collection ? ((Collection<?>) value).toArray()
+                    : value instanceof Object[] ? (Object[]) value : null;
+            if (bounds == null || bounds.length != 2 || bounds[0] == null || bounds[1] == null) {
+                exact = false;
+                return null;
+            }
+            return VirtualFilter.compare(property, FilterOperator.BETWEEN,
+                    VirtualFilter.Operand.literal(bounds[0]), VirtualFilter.Operand.literal(bounds[1]));
+        }
+
+        @Nullable
+        private VirtualFilter.Operand operand(PropertyCondition condition) {
+            Object value = condition.getParameterValue();
+            if (value != null) return VirtualFilter.Operand.literal(value);
+            String name = condition.getParameterName();
+            return name != null ? VirtualFilter.Operand.parameter(name) : null;
+        }
+
+        private static boolean isEmpty(@Nullable Object value) {
+            if (value == null) return true;
+            if (value instanceof Collection) return ((Collection<?>) value).isEmpty();
+            if (value instanceof String) return ((String) value).isEmpty();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Ngữ nghĩa của từng FilterOperator khi phải lọc trong bộ nhớ.
+ *
+ * bind(...) làm trước các việc tốn kém (compile pattern LIKE, dựng HashSet cho IN...)
+ * một lần cho mỗi query, sau đó predicate trả về được gọi cho từng row.
+ * So sánh với null theo kiểu SQL: "= null", "&gt; null"... luôn false.
+ */
+public final class FilterSemantics {
+
+    private FilterSemantics() {
+    }
+
+    /**
+     * @param operator toán tử
+     * @param operands giá trị đã resolve tham số (IN đã trải phẳng collection)
+     * @return predicate trên giá trị property của một row
+     */
+    public static Predicate<Object> bind(FilterOperator operator, List<Object> operands) {
+        Object first = operands.isEmpty() ? null : operands.get(0);
+        switch (operator) {
+            case IS_NULL:
+                return v -> v == null;
+            case IS_NOT_NULL:
+                return v -> v != null;
+            case EQUAL:
+                return first == null ? v -> false : v -> v != null && compare(v, first) == 0;
+            case NOT_EQUAL:
+                return first == null ? v -> false : v -> v != null && compare(v, first) != 0;
+            case GREATER:
+                return first == null ? v -> false : v -> v != null && compare(v, first) > 0;
+            case GREATER_OR_EQUAL:
+                return first == null ? v -> false : v -> v != null && compare(v, first) >= 0;
+            case LESS:
+                return first == null ? v -> false : v -> v != null && compare(v, first) < 0;
+            case LESS_OR_EQUAL:
+                return first == null ? v -> false : v -> v != null && compare(v, first) <= 0;
+            case BETWEEN: {
+                Object to = operands.size() > 1 ? operands.get(1) : null;
+                if (first == null || to == null) return v -> false;
+                return v -> v != null && compare(v, first) >= 0 && compare(v, to) <= 0;
+            }
+            case IN: {
+                Set<Object> set = normalizedSet(operands);
+                return v -> v != null && set.contains(normalize(v));
+            }
+            case NOT_IN: {
+                Set<Object> set = normalizedSet(operands);
+                return v -> v != null && !set.contains(normalize(v));
+            }
+            case LIKE: {
+                if (first == null) return v -> false;
+                Pattern pattern = likePattern(first.toString());
+                return v -> v != null && pattern.matcher(v.toString()).matches();
+            }
+            case NOT_LIKE: {
+                if (first == null) return v -> false;
+                Pattern pattern = likePattern(first.toString());
+                return v -> v != null && !pattern.matcher(v.toString()).matches();
+            }
+            case CONTAINS: {
+                if (first == null) return v -> false;
+                String needle = first.toString().toLowerCase(Locale.ROOT);
+                return v -> v != null && v.toString().toLowerCase(Locale.ROOT).contains(needle);
+            }
+            case STARTS_WITH: {
+                if (first == null) return v -> false;
+                String needle = first.toString().toLowerCase(Locale.ROOT);
+                return v -> v != null && v.toString().toLowerCase(Locale.ROOT).startsWith(needle);
+            }
+            case ENDS_WITH: {
+                if (first == null) return v -> false;
+                String needle = first.toString().toLowerCase(Locale.ROOT);
+                return v -> v != null && v.toString().toLowerCase(Locale.ROOT).endsWith(needle);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operator " + operator);
+        }
+    }
+
+    /**
+     * So sánh hai giá trị khác null; số khác kiểu (Long vs Integer vs BigDecimal) so theo giá trị.
+     */
+    public static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            // NaN / vô cực không đổi được sang BigDecimal
+            if (!finite((Number) a) || !finite((Number) b)) {
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            }
+            return toBigDecimal((Number) a).compareTo(toBigDecimal((Number) b));
+        }
+        return VirtualRows.compareValues(a, b);
+    }
+
+    /**
+     * Chuẩn hoá giá trị để dùng làm key trong HashSet (1, 1L, 1.0 BigDecimal là một).
+     */
+    public static Object normalize(Object v) {
+        if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            return ((Number) v).longValue();
+        }
+        if (v instanceof Float) {
+            return ((Float) v).doubleValue();
+        }
+        if (v instanceof BigDecimal) {
+            BigDecimal bd = ((BigDecimal) v).stripTrailingZeros();
+            if (bd.scale() <= 0 && bd.precision() - bd.scale() <= 18) return bd.longValueExact();
+            return bd;
+        }
+        return v;
+    }
+
+    /**
+     * Pattern LIKE của SQL ('%' và '_') -> regex.
+     */
+    public static Pattern likePattern(String like) {
+        StringBuilder sb = new StringBuilder(like.length() + 8);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    sb.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                sb.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) sb.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(sb.toString(), Pattern.DOTALL);
+    }
+
+    private static Set<Object> normalizedSet(List<Object> values) {
+        Set<Object> set = new HashSet<>(values.size() * 2);
+        for (Object v : values) {
+            if (v != null) set.add(normalize(v));
+        }
+        return set;
+    }
+
+    private static boolean finite(Number n) {
+        return !(n instanceof Double || n instanceof Float) || Double.isFinite(n.doubleValue());
+    }
+
+    private static BigDecimal toBigDecimal(Number n) {
+        if (n instanceof BigDecimal) return (BigDecimal) n;
+        if (n instanceof Double || n instanceof Float) return BigDecimal.valueOf(n.doubleValue());
+        return BigDecimal.valueOf(n.longValue());
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+/**
+ * Câu JPQL nằm ngoài tập cú pháp JpqlParser hỗ trợ.
+ */
+public class JpqlParseException extends RuntimeException {
+
+    public JpqlParseException(String message) {
+        super(message);
+    }
+
+    public JpqlParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,477 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateFunction;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser JPQL tối giản cho tập query mà DynamicDataStore dùng:
+ *
+ * <pre>
+ * select [distinct] e.a, e.b [as x] | e
+ * from Entity [as] e
+ * [where &lt;điều kiện&gt;]
+ * [order by e.a [asc|desc], ...]
+ *
+ * select e.a, count(e) [as n], sum|avg|min|max(e.b) [as x], ...
+ * from Entity [as] e
+ * [where &lt;điều kiện&gt;]
+ * [group by e.a, ...]
+ * [order by e.a | x [asc|desc], ...]
+ * </pre>
+ *
+ * Query gộp: property thường trong select list phải nằm trong group by; không hỗ trợ having,
+ * count(distinct ...) và select distinct.
+ *
+ * Điều kiện hỗ trợ: and / or / not / ngoặc, so sánh (=, &lt;&gt;, !=, &lt;, &lt;=, &gt;, &gt;=),
+ * [not] in, [not] like, [not] between, is [not] null. Vế phải là :param hoặc literal.
+ *
+ * Không dùng trực tiếp trên hot path, hãy đi qua JpqlQueryCache.
+ */
+public final class JpqlParser {
+
+    private final List<Token> tokens;
+    private int pos;
+    private String alias;
+
+    private JpqlParser(String jpql) {
+        this.tokens = tokenize(jpql);
+    }
+
+    /**
+     * Parse đầy đủ, ném JpqlParseException nếu gặp cú pháp không hỗ trợ.
+     */
+    public static ParsedJpql parse(String jpql) {
+        return new JpqlParser(jpql).parseQuery();
+    }
+
+    /**
+     * Parse đầy đủ nếu được; nếu không thì chỉ lấy tên entity sau "from"
+     * (ParsedJpql.isComplete() = false).
+     */
+    public static ParsedJpql parseLenient(String jpql) {
+        try {
+            return parse(jpql);
+        } catch (JpqlParseException e) {
+            return ParsedJpql.incomplete(extractEntityName(jpql));
+        }
+    }
+
+    @Nullable
+    static String extractEntityName(String jpql) {
+        List<Token> tokens;
+        try {
+            tokens = tokenize(jpql);
+        } catch (JpqlParseException e) {
+            return null;
+        }
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if (tokens.get(i).isKeyword("from") && tokens.get(i + 1).type == TokenType.IDENT) {
+                return tokens.get(i + 1).text;
+            }
+        }
+        return null;
+    }
+
+    //====================== query ==========================
+
+    private ParsedJpql parseQuery() {
+        expectKeyword("select");
+        boolean distinct = acceptKeyword("distinct");
+
+        List<String[]> rawSelect = new ArrayList<>();
+        List<AggregateFunction> functions = new ArrayList<>();
+        do {
+            String path = expect(TokenType.IDENT).text;
+            AggregateFunction function = peekSymbol("(") ? AggregateFunction.of(path) : null;
+            if (function != null) {
+                pos++;
+                if (peek().isKeyword("distinct")) {
+                    throw new JpqlParseException("Unsupported distinct in " + path + "(...)");
+                }
+                path = expect(TokenType.IDENT).text;
+                expectSymbol(")");
+            }
+            functions.add(function);
+            String itemAlias = null;
+            if (acceptKeyword("as")) {
+                itemAlias = expect(TokenType.IDENT).text;
+            } else if (peek().type == TokenType.IDENT && !peek().isKeyword("from")) {
+                itemAlias = next().text;
+            }
+            rawSelect.add(new String[]{path, itemAlias});
+        } while (acceptSymbol(","));
+
+        expectKeyword("from");
+        String entityName = expect(TokenType.IDENT).text;
+        acceptKeyword("as");
+        alias = expect(TokenType.IDENT).text;
+        if (isReserved(alias)) {
+            throw new JpqlParseException("Missing alias for entity " + entityName);
+        }
+
+        List<ParsedJpql.SelectItem> selectItems = new ArrayList<>(rawSelect.size());
+        for (int i = 0; i < rawSelect.size(); i++) {
+            String[] item = rawSelect.get(i);
+            AggregateFunction function = functions.get(i);
+            // count(e) đếm bản ghi, các hàm khác cần một property
+            String path = function == null || function == AggregateFunction.COUNT
+                    ? stripAlias(item[0]) : requireProperty(item[0]);
+            selectItems.add(new ParsedJpql.SelectItem(path, item[1], function));
+        }
+
+        VirtualFilter where = null;
+        if (acceptKeyword("where")) {
+            where = parseOr();
+        }
+
+        List<String> groupBy = new ArrayList<>();
+        if (acceptKeyword("group")) {
+            expectKeyword("by");
+            do {
+                groupBy.add(requireProperty(expect(TokenType.IDENT).text));
+            } while (acceptSymbol(","));
+        }
+        boolean aggregate = !groupBy.isEmpty() || functions.stream().anyMatch(f -> f != null);
+        if (aggregate) {
+            checkAggregate(distinct, selectItems, groupBy);
+        }
+
+        List<VirtualQuery.SortKey> orderBy = new ArrayList<>();
+        if (acceptKeyword("order")) {
+            expectKeyword("by");
+            do {
+                String text = expect(TokenType.IDENT).text;
+                String path = aggregate && isItemAlias(selectItems, text) ? text : requireProperty(text);
+                boolean desc = false;
+                if (acceptKeyword("desc")) {
+                    desc = true;
+                } else {
+                    acceptKeyword("asc");
+                }
+                orderBy.add(new VirtualQuery.SortKey(path, desc));
+            } while (acceptSymbol(","));
+        }
+
+        if (peek().type != TokenType.EOF) {
+            throw new JpqlParseException("Unsupported clause near '" + peek().text + "'");
+        }
+        return new ParsedJpql(entityName, alias, distinct, selectItems, where, groupBy, orderBy, true);
+    }
+
+    private static void checkAggregate(boolean distinct, List<ParsedJpql.SelectItem> selectItems, List<String> groupBy) {
+        if (distinct) {
+            throw new JpqlParseException("Unsupported 'distinct' in aggregate query");
+        }
+        for (ParsedJpql.SelectItem item : selectItems) {
+            if (item.isEntity()) {
+                throw new JpqlParseException("Cannot select the entity itself in aggregate query");
+            }
+            if (!item.isAggregate() && !groupBy.contains(item.getPath())) {
+                throw new JpqlParseException("Property '" + item.getPath() + "' must appear in group by");
+            }
+        }
+    }
+
+    private static boolean isItemAlias(List<ParsedJpql.SelectItem> selectItems, String text) {
+        if (text.indexOf('.') >= 0) return false;
+        for (ParsedJpql.SelectItem item : selectItems) {
+            if (text.equals(item.getAlias())) return true;
+        }
+        return false;
+    }
+
+    //====================== where ==========================
+
+    private VirtualFilter parseOr() {
+        List<VirtualFilter> parts = new ArrayList<>();
+        parts.add(parseAnd());
+        while (acceptKeyword("or")) {
+            parts.add(parseAnd());
+        }
+        return VirtualFilter.or(parts);
+    }
+
+    private VirtualFilter parseAnd() {
+        List<VirtualFilter> parts = new ArrayList<>();
+        parts.add(parseNot());
+        while (acceptKeyword("and")) {
+            parts.add(parseNot());
+        }
+        return VirtualFilter.and(parts);
+    }
+
+    private VirtualFilter parseNot() {
+        if (acceptKeyword("not")) {
+            return VirtualFilter.not(parseNot());
+        }
+        if (acceptSymbol("(")) {
+            VirtualFilter inner = parseOr();
+            expectSymbol(")");
+            return inner;
+        }
+        return parsePredicate();
+    }
+
+    private VirtualFilter parsePredicate() {
+        String property = requireProperty(expect(TokenType.IDENT).text);
+
+        if (acceptKeyword("is")) {
+            boolean not = acceptKeyword("not");
+            expectKeyword("null");
+            return VirtualFilter.compare(property, not ? FilterOperator.IS_NOT_NULL : FilterOperator.IS_NULL);
+        }
+
+        boolean not = acceptKeyword("not");
+        if (acceptKeyword("in")) {
+            FilterOperator op = not ? FilterOperator.NOT_IN : FilterOperator.IN;
+            if (peek().type == TokenType.PARAM) {
+                return VirtualFilter.compare(property, op, parseOperand());
+            }
+            expectSymbol("(");
+            List<Operand> values = new ArrayList<>();
+            do {
+                values.add(parseOperand());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return new VirtualFilter.Comparison(property, op, values);
+        }
+        if (acceptKeyword("like")) {
+            return VirtualFilter.compare(property, not ? FilterOperator.NOT_LIKE : FilterOperator.LIKE, parseOperand());
+        }
+        if (acceptKeyword("between")) {
+            Operand from = parseOperand();
+            expectKeyword("and");
+            Operand to = parseOperand();
+            VirtualFilter between = VirtualFilter.compare(property, FilterOperator.BETWEEN, from, to);
+            return not ? VirtualFilter.not(between) : between;
+        }
+        if (not) {
+            throw new JpqlParseException("Unexpected 'not' after " + property);
+        }
+
+        Token op = expect(TokenType.SYMBOL);
+        FilterOperator operator = switch (op.text) {
+            case "=" -> FilterOperator.EQUAL;
+            case "<>", "!=" -> FilterOperator.NOT_EQUAL;
+            case "<" -> FilterOperator.LESS;
+            case "<=" -> FilterOperator.LESS_OR_EQUAL;
+            case ">" -> FilterOperator.GREATER;
+            case ">=" -> FilterOperator.GREATER_OR_EQUAL;
+            default -> throw new JpqlParseException("Unsupported operator '" + op.text + "'");
+        };
+        return VirtualFilter.compare(property, operator, parseOperand());
+    }
+
+    private Operand parseOperand() {
+        Token t = next();
+        switch (t.type) {
+            case PARAM:
+                return Operand.parameter(t.text);
+            case STRING:
+                return Operand.literal(t.text);
+            case NUMBER:
+                return Operand.literal(parseNumber(t.text));
+            case IDENT:
+                if (t.isKeyword("true")) return Operand.literal(Boolean.TRUE);
+                if (t.isKeyword("false")) return Operand.literal(Boolean.FALSE);
+                if (t.isKeyword("null")) return Operand.literal(null);
+                break;
+            default:
+                break;
+        }
+        throw new JpqlParseException("Unsupported operand '" + t.text + "'");
+    }
+
+    private static Object parseNumber(String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException ignored) {
+                // quá lớn cho long -> BigDecimal
+            }
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            // tokenizer gom cả "1e", "1.2.3" thành NUMBER -> báo lỗi cú pháp, không để NFE lọt ra ngoài
+            throw new JpqlParseException("Invalid number literal '" + text + "'", e);
+        }
+    }
+
+    //====================== path ===========================
+
+    @Nullable
+    private String stripAlias(String path) {
+        if (path.equals(alias)) return null;
+        if (path.startsWith(alias + ".")) return path.substring(alias.length() + 1);
+        throw new JpqlParseException("Path '" + path + "' does not start with alias '" + alias + "'");
+    }
+
+    private String requireProperty(String path) {
+        String property = stripAlias(path);
+        if (property == null) {
+            throw new JpqlParseException("Expected a property of '" + alias + "'");
+        }
+        return property;
+    }
+
+    //====================== tokens =========================
+
+    private Token peek() {
+        return tokens.get(pos);
+    }
+
+    private Token next() {
+        Token t = tokens.get(pos);
+        if (t.type != TokenType.EOF) pos++;
+        return t;
+    }
+
+    private Token expect(TokenType type) {
+        Token t = next();
+        if (t.type != type) {
+            throw new JpqlParseException("Expected " + type + " but found '" + t.text + "'");
+        }
+        return t;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peek().isKeyword(keyword)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw new JpqlParseException("Expected '" + keyword + "' but found '" + peek().text + "'");
+        }
+    }
+
+    private boolean peekSymbol(String symbol) {
+        Token t = peek();
+        return t.type == TokenType.SYMBOL && t.text.equals(symbol);
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        Token t = peek();
+        if (t.type == TokenType.SYMBOL && t.text.equals(symbol)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw new JpqlParseException("Expected '" + symbol + "' but found '" + peek().text + "'");
+        }
+    }
+
+    private static boolean isReserved(String word) {
+        switch (word.toLowerCase(Locale.ROOT)) {
+            case "where":
+            case "order":
+            case "group":
+            case "having":
+            case "join":
+            case "left":
+            case "inner":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private enum TokenType {IDENT, STRING, NUMBER, PARAM, SYMBOL, EOF}
+
+    private static final class Token {
+        final TokenType type;
+        final String text;
+
+        Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.IDENT && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static List<Token> tokenize(String s) {
+        List<Token> out = new ArrayList<>();
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && (Character.isJavaIdentifierPart(s.charAt(i)) || s.charAt(i) == '.')) i++;
+                out.add(new Token(TokenType.IDENT, s.substring(start, i)));
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < n && Character.isDigit(s.charAt(i + 1)))) {
+                int start = i++;
+                while (i < n) {
+                    char d = s.charAt(i);
+                    boolean exponentSign = (d == '-' || d == '+')
+                            && (s.charAt(i - 1) == 'e' || s.charAt(i - 1) == 'E');
+                    if (!Character.isDigit(d) && d != '.' && d != 'e' && d != 'E' && !exponentSign) break;
+                    i++;
+                }
+                out.add(new Token(TokenType.NUMBER, s.substring(start, i)));
+            } else if (c == ':') {
+                int start = ++i;
+                while (i < n && Character.isJavaIdentifierPart(s.charAt(i))) i++;
+                if (start == i) throw new JpqlParseException("Empty parameter name at " + start);
+                out.add(new Token(TokenType.PARAM, s.substring(start, i)));
+            } else if (c == '\'') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= n) throw new JpqlParseException("Unterminated string literal");
+                    char ch = s.charAt(i++);
+                    if (ch == '\'') {
+                        if (i < n && s.charAt(i) == '\'') {
+                            sb.append('\'');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+                out.add(new Token(TokenType.STRING, sb.toString()));
+            } else if (c == '<' || c == '>' || c == '!') {
+                if (i + 1 < n && (s.charAt(i + 1) == '=' || (c == '<' && s.charAt(i + 1) == '>'))) {
+                    out.add(new Token(TokenType.SYMBOL, s.substring(i, i + 2)));
+                    i += 2;
+                } else if (c != '!') {
+                    out.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+                    i++;
+                } else {
+                    throw new JpqlParseException("Unexpected '!' at " + i);
+                }
+            } else if (c == '=' || c == '(' || c == ')' || c == ',' || c == '*') {
+                out.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+                i++;
+            } else {
+                throw new JpqlParseException("Unexpected character '" + c + "' at " + i);
+            }
+        }
+        out.add(new Token(TokenType.EOF, "<end>"));
+        return out;
+    }
+}
@@ -0,0 +1,106 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache có giới hạn: chuỗi JPQL -> ParsedJpql.
+ * Mỗi câu query chỉ parse một lần, các lần loadValues/count sau chỉ tốn một lần tra map.
+ *
+ * Tra cứu không khoá (ConcurrentHashMap), nên nhiều thread cùng loadValues không xếp hàng sau một lock.
+ * Đổi lại LRU chỉ là gần đúng:
+ * - đồng hồ chỉ nhích khi thêm câu mới, lần dùng lại chỉ ghi mốc hiện tại vào entry
+ * - vượt maxSize thì lấy mẫu SAMPLE_SIZE entry từ vị trí ngẫu nhiên và bỏ entry dùng lâu nhất trong mẫu
+ * - khi nhiều thread cùng thêm, size có thể vượt maxSize một chút trong chốc lát
+ */
+public class JpqlQueryCache {
+
+    private static final int SAMPLE_SIZE = 8;
+
+    private final int maxSize;
+    private final Map<String, Entry> cache;
+    private final AtomicLong clock = new AtomicLong();
+
+    public JpqlQueryCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>(Math.min(maxSize, 256));
+    }
+
+    public ParsedJpql get(String jpql) {
+        Entry entry = cache.get(jpql);
+        if (entry != null) {
+            entry.touch(clock.get());
+            return entry.parsed;
+        }
+
+        // parse ngoài map; hai thread cùng parse một câu thì cũng chỉ tốn thêm một lần, bản vào trước thắng
+        Entry parsed = new Entry(JpqlParser.parseLenient(jpql), clock.getAndIncrement());
+        Entry existing = cache.putIfAbsent(jpql, parsed);
+        if (existing != null) {
+            existing.touch(clock.get());
+            return existing.parsed;
+        }
+        while (cache.size() > maxSize) {
+            if (!evictOne(jpql)) break;
+        }
+        return parsed.parsed;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    // bỏ entry cũ nhất trong một mẫu nhỏ, không đụng câu vừa thêm
+    private boolean evictOne(String added) {
+        int size = cache.size();
+        int skip = size > SAMPLE_SIZE ? ThreadLocalRandom.current().nextInt(size - SAMPLE_SIZE + 1) : 0;
+        String victim = null;
+        Entry oldest = null;
+        int sampled = 0;
+        Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+        while (it.hasNext() && sampled < SAMPLE_SIZE) {
+            Map.Entry<String, Entry> e = it.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (e.getKey().equals(added)) continue;
+            sampled++;
+            if (oldest == null || e.getValue().lastUsed < oldest.lastUsed) {
+                victim = e.getKey();
+                oldest = e.getValue();
+            }
+        }
+        // thread khác đã bỏ bớt -> coi như xong lượt này
+        return victim != null && (cache.remove(victim, oldest) || cache.size() > maxSize);
+    }
+
+    private static final class Entry {
+        final ParsedJpql parsed;
+        volatile long lastUsed;
+
+        Entry(ParsedJpql parsed, long lastUsed) {
+            this.parsed = parsed;
+            this.lastUsed = lastUsed;
+        }
+
+        // câu nóng được đọc liên tục giữa hai lần thêm thì không ghi lại cùng một giá trị
+        void touch(long now) {
+            if (lastUsed < now) lastUsed = now;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateFunction;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Kết quả parse (bất biến) của một câu JPQL đơn giản:
+ * select ... from Entity alias [where ...] [group by ...] [order by ...].
+ *
+ * Đường dẫn property (select, where, order by) đã bỏ prefix alias,
+ * ví dụ "e.customer.name" -> "customer.name".
+ *
+ * Nếu câu query nằm ngoài tập JPQL mà parser hỗ trợ, isComplete() = false
+ * và chỉ có entityName là đáng tin.
+ */
+public final class ParsedJpql {
+
+    private final String entityName;
+    private final String alias;
+    private final boolean distinct;
+    private final List<SelectItem> selectItems;
+    private final VirtualFilter where;
+    private final List<String> groupBy;
+    private final List<VirtualQuery.SortKey> orderBy;
+    private final boolean complete;
+    private final boolean aggregate;
+
+    ParsedJpql(String entityName,
+               String alias,
+               boolean distinct,
+               List<SelectItem> selectItems,
+               @Nullable VirtualFilter where,
+               List<String> groupBy,
+               List<VirtualQuery.SortKey> orderBy,
+               boolean complete) {
+        this.entityName = entityName;
+        this.alias = alias;
+        this.distinct = distinct;
+        this.selectItems = List.copyOf(selectItems);
+        this.where = where;
+        this.groupBy = List.copyOf(groupBy);
+        this.orderBy = List.copyOf(orderBy);
+        this.complete = complete;
+        this.aggregate = !this.groupBy.isEmpty() || this.selectItems.stream().anyMatch(SelectItem::isAggregate);
+    }
+
+    /**
+     * Tương đương "select e from entityName e": không lọc, không sort.
+     */
+    public static ParsedJpql all(String entityName) {
+        return new ParsedJpql(entityName, "e", false, List.of(new SelectItem(null, null)), null, List.of(), List.of(),
+                true);
+    }
+
+    static ParsedJpql incomplete(@Nullable String entityName) {
+        return new ParsedJpql(entityName, null, false, List.of(), null, List.of(), List.of(), false);
+    }
+
+    @Nullable
+    public String getEntityName() {
+        return entityName;
+    }
+
+    @Nullable
+    public String getAlias() {
+        return alias;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    public List<SelectItem> getSelectItems() {
+        return selectItems;
+    }
+
+    /**
+     * Các property được select (bỏ qua item chọn cả entity "select e"), với hàm gộp là property bên trong
+     * ("sum(e.amount)" -> amount, "count(e)" không có property). Rỗng = cần tất cả property.
+     */
+    public List<String> getSelectedProperties() {
+        if (selectItems.stream().anyMatch(SelectItem::isEntity)) return List.of();
+        return selectItems.stream().map(SelectItem::getPath).filter(Objects::nonNull).distinct().toList();
+    }
+
+    @Nullable
+    public VirtualFilter getWhere() {
+        return where;
+    }
+
+    /**
+     * Property trong "group by", rỗng nếu không có.
+     */
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Sort key của "order by". Với query gộp, property có thể là alias của một item trong select list
+     * ("select sum(e.amount) as total ... order by total desc").
+     */
+    public List<VirtualQuery.SortKey> getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * Query có hàm gộp hoặc group by: mỗi row kết quả là một nhóm, không phải một bản ghi.
+     */
+    public boolean isAggregate() {
+        return aggregate;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedJpql{entity=" + entityName + ", alias=" + alias + ", select=" + selectItems
+                + ", where=" + where + (groupBy.isEmpty() ? "" : ", groupBy=" + groupBy) + ", orderBy=" + orderBy + ", complete=" + complete + "}";
+    }
+
+    /**
+     * Một phần tử của select list: "e.name", "e" (cả entity) hoặc hàm gộp "sum(e.amount)", "count(e)".
+     */
+    public static final class SelectItem {
+        private final String path;
+        private final String alias;
+        private final AggregateFunction function;
+
+        SelectItem(@Nullable String path, @Nullable String alias) {
+            this(path, alias, null);
+        }
+
+        SelectItem(@Nullable String path, @Nullable String alias, @Nullable AggregateFunction function) {
+            this.path = path;
+            this.alias = alias;
+            this.function = function;
+        }
+
+        /**
+         * null khi chọn cả entity hoặc count(e).
+         */
+        @Nullable
+        public String getPath() {
+            return path;
+        }
+
+        @Nullable
+        public String getAlias() {
+            return alias;
+        }
+
+        /**
+         * Hàm gộp bao quanh path, null nếu item là property / entity thường.
+         */
+        @Nullable
+        public AggregateFunction getFunction() {
+            return function;
+        }
+
+        public boolean isEntity() {
+            return path == null && function == null;
+        }
+
+        public boolean isAggregate() {
+            return function != null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SelectItem)) return false;
+            SelectItem that = (SelectItem) o;
+            return Objects.equals(path, that.path) && Objects.equals(alias, that.alias) && function == that.function;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, alias, function);
+        }
+
+        @Override
+        public String toString() {
+            String s = path != null ? path : function != null ? "*" : "<entity>";
+            if (function != null) s = function.name().toLowerCase(Locale.ROOT) + "(" + s + ")";
+            return alias != null ? s + " as " + alias : s;
+        }
+    }
+}
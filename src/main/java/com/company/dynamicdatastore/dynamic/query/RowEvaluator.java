@@ -0,0 +1,526 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.DoublePredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Filter + sort đã biên dịch cho một "hình dạng" query (entity, cây filter, sort key),
+ * để store tự lọc / sort phần handler không làm được mà không tra map và so sánh kiểu động cho từng row.
+ *
+ * - mỗi property được gắn sẵn vào cột của RowLayout dựng từ EntityMeta: CompactRow cùng layout
+ *   được đọc thẳng slot long[] / Object[], không boxing
+ * - phép so sánh chọn theo kiểu attribute (Long/Integer, Double, Boolean, BigDecimal, UUID, String);
+ *   kiểu khác, hoặc giá trị / tham số không đúng kiểu, thì dùng FilterSemantics như cũ nên kết quả không đổi
+ * - tham số chỉ có lúc chạy: predicate(params) bind giá trị vào cây đã dựng, cả cây được dùng lại
+ *   giữa các query cùng hình dạng (RowEvaluatorCache)
+ *
+ * Row không phải CompactRow (KeyValueEntity thường, entity Jmix) vẫn đúng, chỉ không có phần đọc slot.
+ */
+public final class RowEvaluator {
+
+    private static final Predicate<Object> ALL = row -> true;
+
+    @Nullable
+    private final Node filter;
+    private final Comparator<Object> comparator;
+    private final boolean sorted;
+
+    private RowEvaluator(@Nullable Node filter, Comparator<Object> comparator, boolean sorted) {
+        this.filter = filter;
+        this.comparator = comparator;
+        this.sorted = sorted;
+    }
+
+    /**
+     * @param meta   kiểu của các attribute; null thì chỉ dùng so sánh tổng quát
+     * @param filter phần filter store phải tự lọc (null = không lọc)
+     * @param sort   sort key store phải tự sort (rỗng = không sort)
+     */
+    public static RowEvaluator compile(@Nullable EntityMeta meta,
+                                       @Nullable VirtualFilter filter,
+                                       List<VirtualQuery.SortKey> sort) {
+        RowLayout layout = meta != null && meta.getAttributes() != null ? RowLayout.of(meta) : null;
+        Node node = filter != null ? compileNode(filter, layout) : null;
+
+        Comparator<Object> result = null;
+        for (VirtualQuery.SortKey key : sort) {
+            Comparator<Object> c = sortComparator(new Column(key.getProperty(), layout));
+            if (key.isDescending()) c = c.reversed();
+            result = result == null ? c : result.thenComparing(c);
+        }
+        return new RowEvaluator(node, result != null ? result : (a, b) -> 0, result != null);
+    }
+
+    public boolean hasFilter() {
+        return filter != null;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Predicate trên row với tham số của query. Không có filter thì luôn true.
+     */
+    public Predicate<Object> predicate(@Nullable Map<String, Object> params) {
+        if (filter == null) return ALL;
+        return filter.bind(params != null ? params : Map.of());
+    }
+
+    /**
+     * Comparator theo sort key, cùng thứ tự với VirtualRows.comparator(...) (null đứng đầu khi ASC).
+     */
+    public Comparator<Object> comparator() {
+        return comparator;
+    }
+
+    //====================== filter ======================
+
+    private interface Node {
+        Predicate<Object> bind(Map<String, Object> params);
+    }
+
+    private static Node compileNode(VirtualFilter filter, @Nullable RowLayout layout) {
+        if (filter instanceof VirtualFilter.And) {
+            Node[] parts = compileAll(((VirtualFilter.And) filter).getChildren(), layout);
+            return params -> {
+                Predicate<Object>[] bound = bindAll(parts, params);
+                return row -> {
+                    for (Predicate<Object> p : bound) {
+                        if (!p.test(row)) return false;
+                    }
+                    return true;
+                };
+            };
+        }
+        if (filter instanceof VirtualFilter.Or) {
+            Node[] parts = compileAll(((VirtualFilter.Or) filter).getChildren(), layout);
+            return params -> {
+                Predicate<Object>[] bound = bindAll(parts, params);
+                return row -> {
+                    for (Predicate<Object> p : bound) {
+                        if (p.test(row)) return true;
+                    }
+                    return false;
+                };
+            };
+        }
+        if (filter instanceof VirtualFilter.Not) {
+            Node child = compileNode(((VirtualFilter.Not) filter).getChild(), layout);
+            return params -> child.bind(params).negate();
+        }
+
+        VirtualFilter.Comparison cmp = (VirtualFilter.Comparison) filter;
+        Column column = new Column(cmp.getProperty(), layout);
+        return params -> bindComparison(column, cmp.getOperator(), cmp.getValues(params));
+    }
+
+    private static Node[] compileAll(List<VirtualFilter> children, @Nullable RowLayout layout) {
+        Node[] out = new Node[children.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = compileNode(children.get(i), layout);
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Object>[] bindAll(Node[] nodes, Map<String, Object> params) {
+        Predicate<Object>[] out = new Predicate[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            out[i] = nodes[i].bind(params);
+        }
+        return out;
+    }
+
+    private static Predicate<Object> bindComparison(Column column, FilterOperator operator, List<Object> values) {
+        Predicate<Object> generic = FilterSemantics.bind(operator, values);
+        int c = column.index;
+
+        if (operator == FilterOperator.IS_NULL || operator == FilterOperator.IS_NOT_NULL) {
+            boolean wantNull = operator == FilterOperator.IS_NULL;
+            if (c < 0) return row -> generic.test(column.value(row));
+            return row -> {
+                CompactRow r = column.compact(row);
+                if (r != null) return r.isNull(c) == wantNull;
+                return generic.test(VirtualRows.getValue(row, column.property));
+            };
+        }
+
+        Predicate<Object> typed = switch (column.kind) {
+            case LONG, INTEGER -> longComparison(column, operator, values, generic);
+            case BOOLEAN -> booleanComparison(column, operator, values, generic);
+            case DOUBLE -> doubleComparison(column, operator, values, generic);
+            case DECIMAL -> decimalComparison(column, operator, values, generic);
+            case UUID -> uuidComparison(column, operator, values, generic);
+            case OBJECT -> column.type == String.class ? stringComparison(column, operator, values, generic) : null;
+        };
+        if (typed != null) return typed;
+        return row -> generic.test(column.value(row));
+    }
+
+    // cột số nguyên: tham số cũng phải là số nguyên (1.5 BigDecimal... để FilterSemantics lo)
+    @Nullable
+    private static Predicate<Object> longComparison(Column column, FilterOperator operator, List<Object> values,
+                                                    Predicate<Object> generic) {
+        long[] ops = new long[values.size()];
+        for (int i = 0; i < ops.length; i++) {
+            Object v = values.get(i);
+            if (!(v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte)) return null;
+            ops[i] = ((Number) v).longValue();
+        }
+        LongPredicate test = longTest(operator, ops);
+        if (test == null) return null;
+
+        int c = column.index;
+        return row -> {
+            CompactRow r = column.compact(row);
+            if (r != null) return !r.isNull(c) && test.test(r.getLong(c));
+            Object v = VirtualRows.getValue(row, column.property);
+            return v instanceof Long || v instanceof Integer ? test.test(((Number) v).longValue()) : generic.test(v);
+        };
+    }
+
+    @Nullable
+    private static Predicate<Object> booleanComparison(Column column, FilterOperator operator, List<Object> values,
+                                                       Predicate<Object> generic) {
+        long[] ops = new long[values.size()];
+        for (int i = 0; i < ops.length; i++) {
+            Object v = values.get(i);
+            if (!(v instanceof Boolean)) return null;
+            ops[i] = (Boolean) v ? 1 : 0;
+        }
+        LongPredicate test = longTest(operator, ops);
+        if (test == null) return null;
+
+        int c = column.index;
+        return row -> {
+            CompactRow r = column.compact(row);
+            if (r != null) return !r.isNull(c) && test.test(r.getLong(c));
+            Object v = VirtualRows.getValue(row, column.property);
+            return v instanceof Boolean ? test.test((Boolean) v ? 1 : 0) : generic.test(v);
+        };
+    }
+
+    @Nullable
+    private static LongPredicate longTest(FilterOperator operator, long[] ops) {
+        if (ops.length == 0) return null;
+        long a = ops[0];
+        switch (operator) {
+            case EQUAL:
+                return v -> v == a;
+            case NOT_EQUAL:
+                return v -> v != a;
+            case GREATER:
+                return v -> v > a;
+            case GREATER_OR_EQUAL:
+                return v -> v >= a;
+            case LESS:
+                return v -> v < a;
+            case LESS_OR_EQUAL:
+                return v -> v <= a;
+            case BETWEEN: {
+                if (ops.length < 2) return null;
+                long b = ops[1];
+                return v -> v >= a && v <= b;
+            }
+            case IN: {
+                long[] sorted = sortedCopy(ops);
+                return v -> Arrays.binarySearch(sorted, v) >= 0;
+            }
+            case NOT_IN: {
+                long[] sorted = sortedCopy(ops);
+                return v -> Arrays.binarySearch(sorted, v) < 0;
+            }
+            default:
+                return null;
+        }
+    }
+
+    // Double.compare giống Double.compareTo mà FilterSemantics dùng (NaN, -0.0)
+    @Nullable
+    private static Predicate<Object> doubleComparison(Column column, FilterOperator operator, List<Object> values,
+                                                      Predicate<Object> generic) {
+        double[] ops = new double[values.size()];
+        for (int i = 0; i < ops.length; i++) {
+            Object v = values.get(i);
+            if (!(v instanceof Double)) return null;
+            ops[i] = (Double) v;
+        }
+        if (ops.length == 0) return null;
+        double a = ops[0];
+        DoublePredicate test;
+        switch (operator) {
+            case EQUAL -> test = v -> Double.compare(v, a) == 0;
+            case NOT_EQUAL -> test = v -> Double.compare(v, a) != 0;
+            case GREATER -> test = v -> Double.compare(v, a) > 0;
+            case GREATER_OR_EQUAL -> test = v -> Double.compare(v, a) >= 0;
+            case LESS -> test = v -> Double.compare(v, a) < 0;
+            case LESS_OR_EQUAL -> test = v -> Double.compare(v, a) <= 0;
+            case BETWEEN -> {
+                if (ops.length < 2) return null;
+                double b = ops[1];
+                test = v -> Double.compare(v, a) >= 0 && Double.compare(v, b) <= 0;
+            }
+            case IN, NOT_IN -> {
+                double[] sorted = ops.clone();
+                Arrays.sort(sorted);
+                boolean in = operator == FilterOperator.IN;
+                test = v -> (Arrays.binarySearch(sorted, v) >= 0) == in;
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        int c = column.index;
+        return row -> {
+            CompactRow r = column.compact(row);
+            if (r != null) return !r.isNull(c) && test.test(r.getDouble(c));
+            Object v = VirtualRows.getValue(row, column.property);
+            return v instanceof Double ? test.test((Double) v) : generic.test(v);
+        };
+    }
+
+    // BigDecimal: cùng scale và unscaled vừa long thì so sánh hai số long, không dựng BigDecimal
+    @Nullable
+    private static Predicate<Object> decimalComparison(Column column, FilterOperator operator, List<Object> values,
+                                                       Predicate<Object> generic) {
+        if (operator == FilterOperator.IN || operator == FilterOperator.NOT_IN) return null;
+        List<Bound> bounds = new ArrayList<>(values.size());
+        for (Object v : values) {
+            if (v instanceof BigDecimal) {
+                bounds.add(new Bound((BigDecimal) v));
+            } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                bounds.add(new Bound(BigDecimal.valueOf(((Number) v).longValue())));
+            } else {
+                return null;
+            }
+        }
+        if (bounds.isEmpty()) return null;
+        Bound a = bounds.get(0);
+        Bound b = bounds.size() > 1 ? bounds.get(1) : null;
+        IntTest test;
+        switch (operator) {
+            case EQUAL -> test = cmp -> cmp == 0;
+            case NOT_EQUAL -> test = cmp -> cmp != 0;
+            case GREATER -> test = cmp -> cmp > 0;
+            case GREATER_OR_EQUAL -> test = cmp -> cmp >= 0;
+            case LESS -> test = cmp -> cmp < 0;
+            case LESS_OR_EQUAL -> test = cmp -> cmp <= 0;
+            case BETWEEN -> {
+                if (b == null) return null;
+                int c = column.index;
+                return row -> {
+                    CompactRow r = column.compact(row);
+                    if (r != null) return !r.isNull(c) && a.compare(r, c) >= 0 && b.compare(r, c) <= 0;
+                    Object v = VirtualRows.getValue(row, column.property);
+                    if (!(v instanceof BigDecimal)) return generic.test(v);
+                    BigDecimal d = (BigDecimal) v;
+                    return d.compareTo(a.value) >= 0 && d.compareTo(b.value) <= 0;
+                };
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        int c = column.index;
+        return row -> {
+            CompactRow r = column.compact(row);
+            if (r != null) return !r.isNull(c) && test.test(a.compare(r, c));
+            Object v = VirtualRows.getValue(row, column.property);
+            return v instanceof BigDecimal ? test.test(((BigDecimal) v).compareTo(a.value)) : generic.test(v);
+        };
+    }
+
+    private interface IntTest {
+        boolean test(int cmp);
+    }
+
+    // một giá trị BigDecimal của tham số, tách sẵn unscaled/scale
+    private static final class Bound {
+        final BigDecimal value;
+        final boolean inline;
+        final long unscaled;
+        final int scale;
+
+        Bound(BigDecimal value) {
+            this.value = value;
+            this.inline = value.precision() <= 18;
+            this.unscaled = inline ? value.unscaledValue().longValue() : 0;
+            this.scale = value.scale();
+        }
+
+        // so sánh giá trị của row với tham số (row khác null)
+        int compare(CompactRow r, int column) {
+            if (inline && r.isInlineDecimal(column) && r.getScale(column) == scale) {
+                return Long.compare(r.getUnscaled(column), unscaled);
+            }
+            return ((BigDecimal) r.get(column)).compareTo(value);
+        }
+    }
+
+    @Nullable
+    private static Predicate<Object> uuidComparison(Column column, FilterOperator operator, List<Object> values,
+                                                    Predicate<Object> generic) {
+        if (operator != FilterOperator.EQUAL && operator != FilterOperator.NOT_EQUAL) return null;
+        if (values.isEmpty() || !(values.get(0) instanceof UUID)) return null;
+        UUID a = (UUID) values.get(0);
+        long msb = a.getMostSignificantBits();
+        long lsb = a.getLeastSignificantBits();
+        boolean equal = operator == FilterOperator.EQUAL;
+
+        int c = column.index;
+        return row -> {
+            CompactRow r = column.compact(row);
+            if (r != null) {
+                return !r.isNull(c) && (r.getUuidMostBits(c) == msb && r.getUuidLeastBits(c) == lsb) == equal;
+            }
+            Object v = VirtualRows.getValue(row, column.property);
+            return v instanceof UUID ? a.equals(v) == equal : generic.test(v);
+        };
+    }
+
+    @Nullable
+    private static Predicate<Object> stringComparison(Column column, FilterOperator operator, List<Object> values,
+                                                      Predicate<Object> generic) {
+        for (Object v : values) {
+            if (!(v instanceof String)) return null;
+        }
+        if (values.isEmpty()) return null;
+        String a = (String) values.get(0);
+        Predicate<String> test;
+        switch (operator) {
+            case EQUAL -> test = a::equals;
+            case NOT_EQUAL -> test = v -> !a.equals(v);
+            case GREATER -> test = v -> v.compareTo(a) > 0;
+            case GREATER_OR_EQUAL -> test = v -> v.compareTo(a) >= 0;
+            case LESS -> test = v -> v.compareTo(a) < 0;
+            case LESS_OR_EQUAL -> test = v -> v.compareTo(a) <= 0;
+            case BETWEEN -> {
+                if (values.size() < 2) return null;
+                String b = (String) values.get(1);
+                test = v -> v.compareTo(a) >= 0 && v.compareTo(b) <= 0;
+            }
+            case IN, NOT_IN -> {
+                Set<Object> set = new HashSet<>(values);
+                boolean in = operator == FilterOperator.IN;
+                test = v -> set.contains(v) == in;
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        return row -> {
+            Object v = column.value(row);
+            return v instanceof String ? test.test((String) v) : generic.test(v);
+        };
+    }
+
+    private static long[] sortedCopy(long[] values) {
+        long[] out = values.clone();
+        Arrays.sort(out);
+        return out;
+    }
+
+    //====================== sort ======================
+
+    // ASC, null đứng đầu; hai CompactRow cùng layout thì so sánh trên slot
+    private static Comparator<Object> sortComparator(Column column) {
+        Comparator<Object> generic = (a, b) -> VirtualRows.compareValues(column.value(a), column.value(b));
+        int c = column.index;
+        SlotComparator slots = switch (column.kind) {
+            case LONG, INTEGER, BOOLEAN -> (a, b) -> Long.compare(a.getLong(c), b.getLong(c));
+            case DOUBLE -> (a, b) -> Double.compare(a.getDouble(c), b.getDouble(c));
+            case DECIMAL -> (a, b) -> {
+                if (a.isInlineDecimal(c) && b.isInlineDecimal(c) && a.getScale(c) == b.getScale(c)) {
+                    return Long.compare(a.getUnscaled(c), b.getUnscaled(c));
+                }
+                return ((BigDecimal) a.get(c)).compareTo((BigDecimal) b.get(c));
+            };
+            // UUID.compareTo khác nhau giữa các bản JDK -> dựng UUID rồi so như VirtualRows
+            case UUID, OBJECT -> null;
+        };
+        if (slots == null) return generic;
+
+        return (a, b) -> {
+            CompactRow ra = column.compact(a);
+            CompactRow rb = ra != null ? column.compact(b) : null;
+            if (rb == null) return generic.compare(a, b);
+            boolean nullA = ra.isNull(c);
+            boolean nullB = rb.isNull(c);
+            if (nullA || nullB) return nullA == nullB ? 0 : nullA ? -1 : 1;
+            return slots.compare(ra, rb);
+        };
+    }
+
+    private interface SlotComparator {
+        int compare(CompactRow a, CompactRow b);
+    }
+
+    //====================== column ======================
+
+    /**
+     * Một property gắn với cột của layout. index = -1 khi không có layout, property lồng (a.b)
+     * hoặc không phải attribute của entity.
+     */
+    private static final class Column {
+        final String property;
+        @Nullable
+        final RowLayout layout;
+        final int index;
+        final RowLayout.Kind kind;
+        @Nullable
+        final Class<?> type;
+        // handler thường tự dựng RowLayout.of(meta) riêng: khác instance nhưng cùng cấu trúc -> nhớ lại
+        @Nullable
+        private volatile RowLayout compatible;
+
+        Column(String property, @Nullable RowLayout layout) {
+            this.property = property;
+            this.layout = layout;
+            this.index = layout != null && property.indexOf('.') < 0 ? layout.column(property) : -1;
+            this.kind = index >= 0 ? layout.getKind(index) : RowLayout.Kind.OBJECT;
+            this.type = index >= 0 ? layout.getType(index) : null;
+        }
+
+        // row đọc được bằng slot của cột này, null nếu phải đọc qua getValue
+        @Nullable
+        CompactRow compact(Object row) {
+            if (index < 0 || !(row instanceof CompactRow)) return null;
+            CompactRow r = (CompactRow) row;
+            RowLayout l = r.getLayout();
+            if (l != layout && l != compatible) {
+                if (!layout.sameShape(l)) return null;
+                compatible = l;
+            }
+            return r.overrides(property) ? null : r;
+        }
+
+        @Nullable
+        Object value(Object row) {
+            CompactRow r = compact(row);
+            return r != null ? r.get(index) : VirtualRows.getValue(row, property);
+        }
+    }
+}
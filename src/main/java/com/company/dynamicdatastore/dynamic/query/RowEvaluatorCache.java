@@ -0,0 +1,108 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache LRU có giới hạn: hình dạng query (entity + kiểu attribute, filter, sort) -> RowEvaluator.
+ * Tham số không nằm trong key nên cùng một màn hình lọc với giá trị khác nhau dùng chung một bản biên dịch.
+ * Entity nằm trong key theo identity của EntityMeta và của map attribute (không copy map mỗi lần tra):
+ * sửa field runtime = EntityMeta mới hoặc setAttributes(map mới) -> key đổi theo, bản cũ tự rơi khỏi LRU.
+ * Sửa thẳng vào map attribute đang dùng thì cache không nhận ra.
+ */
+public class RowEvaluatorCache {
+
+    private final int maxSize;
+    private final Map<Key, RowEvaluator> cache;
+
+    public RowEvaluatorCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(Math.min(maxSize, 256), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RowEvaluator> eldest) {
+                return size() > RowEvaluatorCache.this.maxSize;
+            }
+        };
+    }
+
+    public RowEvaluator get(@Nullable EntityMeta meta,
+                            @Nullable VirtualFilter filter,
+                            List<VirtualQuery.SortKey> sort) {
+        Key key = new Key(meta, filter, sort);
+        RowEvaluator evaluator;
+        synchronized (cache) {
+            evaluator = cache.get(key);
+        }
+        if (evaluator != null) return evaluator;
+
+        // compile ngoài lock, giống JpqlQueryCache
+        evaluator = RowEvaluator.compile(meta, filter, sort);
+        synchronized (cache) {
+            cache.put(key, evaluator);
+        }
+        return evaluator;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static final class Key {
+        private final EntityMeta meta;
+        private final String entityName;
+        private final Map<String, Class<?>> attributes;
+        private final VirtualFilter filter;
+        private final List<VirtualQuery.SortKey> sort;
+        private final int hash;
+
+        Key(@Nullable EntityMeta meta, @Nullable VirtualFilter filter, List<VirtualQuery.SortKey> sort) {
+            this.meta = meta;
+            this.entityName = meta != null ? meta.getName() : null;
+            this.attributes = meta != null ? meta.getAttributes() : null;
+            this.filter = filter;
+            this.sort = List.copyOf(sort);
+            this.hash = Objects.hash(System.identityHashCode(meta), entityName, System.identityHashCode(attributes),
+                    filter, this.sort);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return hash == that.hash
+                    && meta == that.meta
+                    && attributes == that.attributes
+                    && Objects.equals(entityName, that.entityName)
+                    && Objects.equals(filter, that.filter)
+                    && sort.equals(that.sort);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,7 +1,22 @@
 package com.company.dynamicdatastore.dynamic.registry;
 
 import com.company.dynamicdatastore.dynamic.DynamicDataStore;
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
 import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.MetaClassVersion;
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import com.company.dynamicdatastore.dynamic.StoreSchema;
+import com.company.dynamicdatastore.dynamic.cache.CacheSpec;
+import com.company.dynamicdatastore.dynamic.cache.CachingVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.cache.VirtualEntityCache;
+import com.company.dynamicdatastore.dynamic.change.RowChangeSink;
+import com.company.dynamicdatastore.dynamic.guard.GuardedVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.guard.HandlerGuardExecutor;
+import com.company.dynamicdatastore.dynamic.guard.HandlerGuardSpec;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import com.company.dynamicdatastore.dynamic.query.JpqlQueryCache;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluatorCache;
+import com.company.dynamicdatastore.dynamic.virtual.ObservableVirtualEntityHandler;
 import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
 import io.jmix.core.EntityStates;
 import io.jmix.core.KeyValueMapper;
@@ -9,15 +24,23 @@ import io.jmix.core.Metadata;
 import io.jmix.core.MetadataTools;
 import io.jmix.core.metamodel.model.MetaClass;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Registry runtime:
  * - Quản lý các DynamicDataStore (storeA, storeB, ...)
- * - Quản lý MetaClass runtime cho entity ảo
+ * - Quản lý MetaClass runtime cho entity ảo (nằm trong StoreSchema của từng store,
+ *   cùng snapshot với EntityMeta và handler)
  *
  * Quan trọng:
  *   Khi tạo store mới, ta "new DynamicDataStore(name)"
@@ -31,23 +54,48 @@ public class DynamicStoreRegistry {
     // storeName -> DynamicDataStore instance
     private final Map<String, DynamicDataStore> stores = new ConcurrentHashMap<>();
 
-    // storeName -> (entityName -> MetaClass)
-    private final Map<String, Map<String, MetaClass>> metaClassesByStore = new ConcurrentHashMap<>();
-
     // lazy providers từ Spring
     private final ObjectProvider<KeyValueMapper> keyValueMapperProvider;
     private final ObjectProvider<Metadata> metadataProvider;
     private final ObjectProvider<MetadataTools> metadataToolsProvider;
     private final ObjectProvider<EntityStates> entityStatesProvider;
+    private final ObjectProvider<DynamicStoreMetrics> metricsProvider;
+
+    private final DynamicStoreProperties properties;
+
+    // cache JPQL đã parse, dùng chung cho mọi store
+    private final JpqlQueryCache queryCache;
+
+    // filter/sort trong bộ nhớ đã biên dịch, dùng chung cho mọi store
+    private final RowEvaluatorCache rowEvaluators;
+
+    private final VirtualEntityCache entityCache;
+
+    // bulkhead / timeout / circuit breaker cho handler đăng ký không kèm HandlerGuardSpec; null = không bọc
+    @Nullable
+    private final HandlerGuardSpec defaultGuard;
+
+    private final HandlerGuardExecutor guardExecutor;
 
     public DynamicStoreRegistry(ObjectProvider<KeyValueMapper> keyValueMapperProvider,
                                 ObjectProvider<Metadata> metadataProvider,
                                 ObjectProvider<MetadataTools> metadataToolsProvider,
-                                ObjectProvider<EntityStates> entityStatesProvider) {
+                                ObjectProvider<EntityStates> entityStatesProvider,
+                                ObjectProvider<DynamicStoreMetrics> metricsProvider,
+                                DynamicStoreProperties properties,
+                                VirtualEntityCache entityCache,
+                                HandlerGuardExecutor guardExecutor) {
         this.keyValueMapperProvider = keyValueMapperProvider;
         this.metadataProvider = metadataProvider;
         this.metadataToolsProvider = metadataToolsProvider;
         this.entityStatesProvider = entityStatesProvider;
+        this.metricsProvider = metricsProvider;
+        this.properties = properties;
+        this.queryCache = new JpqlQueryCache(properties.getJpqlCacheSize());
+        this.rowEvaluators = new RowEvaluatorCache(properties.getEvaluatorCacheSize());
+        this.entityCache = entityCache;
+        this.defaultGuard = defaultGuard(properties);
+        this.guardExecutor = guardExecutor;
     }
 
     /**
@@ -64,6 +112,12 @@ public class DynamicStoreRegistry {
             ds.setMetadataTools(metadataToolsProvider.getObject());
             ds.setEntityStates(entityStatesProvider.getObject());
 
+            ds.setIdBatchSize(properties.getIdBatchSize());
+            ds.setQueryCache(queryCache);
+            ds.setRowEvaluatorCache(rowEvaluators);
+            ds.setMetrics(metricsProvider.getIfAvailable());
+            ds.setCoalesceLoads(properties.isCoalesceLoads());
+
             return ds;
         });
     }
@@ -79,20 +133,204 @@ public class DynamicStoreRegistry {
     public void addHandler(String storeName,
                            String entityName,
                            VirtualEntityHandler<?> handler) {
-        registerStore(storeName).registerHandler(entityName, handler);
+        registerStore(storeName).registerHandler(entityName, guard(storeName, entityName, null, handler, defaultGuard));
+    }
+
+    /**
+     * Giống addHandler(...) nhưng bọc handler bằng bulkhead + timeout + circuit breaker riêng
+     * (thay cho cấu hình mặc định dynamic-store.handler-*).
+     */
+    public void addHandler(String storeName,
+                           String entityName,
+                           VirtualEntityHandler<?> handler,
+                           HandlerGuardSpec guardSpec) {
+        registerStore(storeName).registerHandler(entityName, guard(storeName, entityName, null, handler, guardSpec));
+    }
+
+    /**
+     * Giống addHandler(...) nhưng bọc handler bằng cache dạng cột (TTL + giới hạn dung lượng).
+     * Entity phải được addEntity(...) trước để cache biết danh sách field và kiểu.
+     */
+    public void addHandler(String storeName,
+                           String entityName,
+                           VirtualEntityHandler<?> handler,
+                           CacheSpec cacheSpec) {
+        addHandler(storeName, entityName, handler, defaultGuard, cacheSpec);
+    }
+
+    /**
+     * Cache bên ngoài, guard bên trong: chỉ lần load snapshot (và query cache không trả lời được)
+     * mới xuống handler và chịu bulkhead / timeout / circuit breaker.
+     */
+    public void addHandler(String storeName,
+                           String entityName,
+                           VirtualEntityHandler<?> handler,
+                           @Nullable HandlerGuardSpec guardSpec,
+                           CacheSpec cacheSpec) {
+        DynamicDataStore store = registerStore(storeName);
+        EntityMeta meta = store.getEntity(entityName);
+        if (meta == null) {
+            throw new IllegalStateException("Entity " + entityName + " is not registered in store " + storeName);
+        }
+        CachingVirtualEntityHandler cached = entityCache.wrap(storeName, meta,
+                guard(storeName, entityName, meta, handler, guardSpec), cacheSpec,
+                () -> getMetaClass(storeName, entityName), queryCache);
+        if (handler instanceof ObservableVirtualEntityHandler) {
+            // handler gốc báo thay đổi -> bỏ snapshot cache trước rồi mới báo cho subscriber,
+            // để ai load lại khi nhận event không đọc phải dữ liệu cũ
+            RowChangeSink sink = store.changeSink(entityName);
+            ((ObservableVirtualEntityHandler<?>) handler).setChangeSink(changes -> {
+                entityCache.invalidate(storeName, entityName);
+                sink.publish(changes);
+            });
+        }
+        store.registerHandler(entityName, cached);
+    }
+
+    private VirtualEntityHandler<?> guard(String storeName, String entityName, @Nullable EntityMeta meta,
+                                          VirtualEntityHandler<?> handler, @Nullable HandlerGuardSpec spec) {
+        if (spec == null || handler instanceof GuardedVirtualEntityHandler) return handler;
+        DynamicDataStore store = registerStore(storeName);
+        return new GuardedVirtualEntityHandler(storeName, entityName,
+                () -> meta != null ? meta : store.getEntity(entityName), handler, spec, guardExecutor,
+                metricsProvider.getIfAvailable());
     }
 
+    @Nullable
+    private static HandlerGuardSpec defaultGuard(DynamicStoreProperties properties) {
+        if (!properties.isHandlerGuardEnabled()) return null;
+        Duration timeout = properties.getHandlerTimeout();
+        HandlerGuardSpec spec = HandlerGuardSpec.of(properties.getHandlerMaxConcurrency(),
+                timeout != null && !timeout.isZero() ? timeout : null);
+        spec = spec.withCircuitBreaker(properties.getHandlerFailureRateThreshold(), spec.getSlidingWindowSize(),
+                spec.getMinimumCalls(), properties.getHandlerOpenDuration());
+        Duration lastKnownGood = properties.getHandlerLastKnownGoodTtl();
+        if (lastKnownGood != null && !lastKnownGood.isZero()) {
+            spec = spec.withLastKnownGood(lastKnownGood, properties.getHandlerLastKnownGoodEntries());
+        }
+        return spec;
+    }
+
+    /**
+     * Thay nhiều thứ của store trong một lần publish (ví dụ entity + handler + MetaClass),
+     * reader không bao giờ thấy handler mà thiếu MetaClass hay ngược lại.
+     */
+    public StoreSchema updateSchema(String storeName, UnaryOperator<StoreSchema> change) {
+        return registerStore(storeName).updateSchema(change);
+    }
+
+    /**
+     * Đăng ký thẳng một MetaClass (không rõ schema): luôn thay bản cũ và tăng version.
+     */
     public void registerMetaClass(String storeName,
                                   String entityName,
                                   MetaClass metaClass) {
-        metaClassesByStore
-                .computeIfAbsent(storeName, s -> new ConcurrentHashMap<>())
-                .put(entityName, metaClass);
+        registerStore(storeName).updateSchema(s ->
+                s.withMetaClass(entityName, new MetaClassVersion(metaClass, null, nextVersion(currentOf(s, entityName)))));
+        entityCache.invalidate(storeName, entityName);
+    }
+
+    /**
+     * Trả về MetaClass hiện hành nếu định nghĩa field giống hệt lần build trước,
+     * ngược lại gọi builder tạo bản mới và publish vào snapshot của store (CAS, không khoá).
+     * Nhờ vậy mở view nhiều lần không tạo lại MetaClass và identity của nó ổn định.
+     */
+    public MetaClass getOrBuildMetaClass(String storeName,
+                                         String entityName,
+                                         List<RuntimeFieldDef> fields,
+                                         Function<List<RuntimeFieldDef>, MetaClass> builder) {
+        DynamicDataStore store = registerStore(storeName);
+        MetaClass built = null;
+        while (true) {
+            StoreSchema current = store.getSchema();
+            MetaClassVersion existing = currentOf(current, entityName);
+            if (existing != null && existing.matches(fields)) {
+                return existing.getMetaClass();
+            }
+            // chỉ build một lần kể cả khi CAS phải thử lại
+            if (built == null) {
+                built = builder.apply(fields);
+            }
+            StoreSchema next = current.withMetaClass(entityName,
+                    new MetaClassVersion(built, fields, nextVersion(existing)));
+            if (store.compareAndSetSchema(current, next)) {
+                // schema đổi -> dữ liệu cache theo schema cũ không còn dùng được
+                entityCache.invalidate(storeName, entityName);
+                return built;
+            }
+        }
+    }
+
+    /**
+     * Đăng ký nhiều entity của một store trong một lần publish snapshot (nạp schema lúc khởi động):
+     * không CAS lặp lại cho từng entity, reader thấy cả lô cùng lúc.
+     * MetaClass trùng field với bản đang có thì giữ bản cũ (identity không đổi).
+     */
+    public void registerEntities(String storeName, Collection<EntityRegistration> registrations) {
+        if (registrations.isEmpty()) return;
+        DynamicDataStore store = registerStore(storeName);
+        // bọc trước khi updateSchema: hàm change có thể bị gọi lại khi CAS thua
+        Map<String, VirtualEntityHandler<?>> handlers = new HashMap<>();
+        for (EntityRegistration r : registrations) {
+            if (r.getHandler() == null) continue;
+            String entityName = r.getMeta().getName();
+            VirtualEntityHandler<?> handler = guard(storeName, entityName, r.getMeta(), r.getHandler(), defaultGuard);
+            handlers.put(entityName, handler);
+            store.connectChanges(entityName, handler);
+        }
+        store.updateSchema(s -> {
+            // copy map một lần cho cả lô, không phải mỗi entity
+            StoreSchema.Builder next = s.toBuilder();
+            for (EntityRegistration r : registrations) {
+                String entityName = r.getMeta().getName();
+                next.withEntity(r.getMeta());
+                VirtualEntityHandler<?> handler = handlers.get(entityName);
+                if (handler != null) {
+                    next.withHandler(entityName, handler);
+                }
+                StoreSchema.EntityBinding b = next.binding(entityName);
+                MetaClassVersion existing = b != null ? b.getMetaClass() : null;
+                if (existing == null || !existing.matches(r.getFields())) {
+                    next.withMetaClass(entityName,
+                            new MetaClassVersion(r.getMetaClass(), r.getFields(), nextVersion(existing)));
+                }
+            }
+            return next.build();
+        });
+        for (EntityRegistration r : registrations) {
+            entityCache.invalidate(storeName, r.getMeta().getName());
+        }
+    }
+
+    /**
+     * Gỡ entity (EntityMeta, handler, MetaClass) khỏi store.
+     */
+    public void removeEntity(String storeName, String entityName) {
+        DynamicDataStore store = stores.get(storeName);
+        if (store == null) return;
+        store.updateSchema(s -> s.without(entityName));
+        entityCache.invalidate(storeName, entityName);
     }
 
     public MetaClass getMetaClass(String storeName, String entityName) {
-        Map<String, MetaClass> byEntity = metaClassesByStore.get(storeName);
-        return byEntity != null ? byEntity.get(entityName) : null;
+        MetaClassVersion entry = getMetaClassVersion(storeName, entityName);
+        return entry != null ? entry.getMetaClass() : null;
+    }
+
+    @Nullable
+    public MetaClassVersion getMetaClassVersion(String storeName, String entityName) {
+        DynamicDataStore store = stores.get(storeName);
+        return store != null ? currentOf(store.getSchema(), entityName) : null;
+    }
+
+    @Nullable
+    private static MetaClassVersion currentOf(StoreSchema schema, String entityName) {
+        StoreSchema.EntityBinding b = schema.binding(entityName);
+        return b != null ? b.getMetaClass() : null;
+    }
+
+    private static long nextVersion(MetaClassVersion current) {
+        return current != null ? current.getVersion() + 1 : 1;
     }
 
     /**
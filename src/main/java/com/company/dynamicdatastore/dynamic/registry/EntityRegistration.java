@@ -0,0 +1,49 @@
+package com.company.dynamicdatastore.dynamic.registry;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Mọi thứ cần để đăng ký một entity ảo trong một lần (DynamicStoreRegistry.registerEntities):
+ * EntityMeta, field đã dùng build MetaClass, MetaClass và handler (có thể chưa có).
+ */
+public final class EntityRegistration {
+
+    private final EntityMeta meta;
+    private final List<RuntimeFieldDef> fields;
+    private final MetaClass metaClass;
+    @Nullable
+    private final VirtualEntityHandler<?> handler;
+
+    public EntityRegistration(EntityMeta meta,
+                              List<RuntimeFieldDef> fields,
+                              MetaClass metaClass,
+                              @Nullable VirtualEntityHandler<?> handler) {
+        this.meta = meta;
+        this.fields = List.copyOf(fields);
+        this.metaClass = metaClass;
+        this.handler = handler;
+    }
+
+    public EntityMeta getMeta() {
+        return meta;
+    }
+
+    public List<RuntimeFieldDef> getFields() {
+        return fields;
+    }
+
+    public MetaClass getMetaClass() {
+        return metaClass;
+    }
+
+    @Nullable
+    public VirtualEntityHandler<?> getHandler() {
+        return handler;
+    }
+}
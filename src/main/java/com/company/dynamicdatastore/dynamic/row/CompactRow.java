@@ -0,0 +1,298 @@
+package com.company.dynamicdatastore.dynamic.row;
+
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * KeyValueEntity gọn: giá trị nằm trong long[] / Object[] theo RowLayout thay vì HashMap + giá trị boxed.
+ * Vẫn là KeyValueEntity nên UI, KeyValueMapper, EntityValues... dùng như bình thường.
+ *
+ * - set(...) / setLong(...)...: ghi im lặng, dành cho handler khi dựng row
+ * - setValue(...): hợp đồng entity (bắn property change cho UI), giá trị sau đó vẫn về slot
+ * - property không có trong layout hoặc sai kiểu: giữ trong map của KeyValueEntity như cũ
+ */
+public class CompactRow extends KeyValueEntity {
+
+    // map dùng chung khi row chưa có property ngoài layout (không tốn HashMap cho mỗi row)
+    private static final Map<String, Object> NO_EXTRAS = Collections.emptyMap();
+
+    private final RowLayout layout;
+    @Nullable
+    private final long[] longs;
+    @Nullable
+    private final Object[] objects;
+    // bit = 1 nghĩa là cột primitive đang null
+    private long nulls;
+
+    CompactRow(RowLayout layout) {
+        this.layout = layout;
+        this.longs = layout.longCount() > 0 ? new long[layout.longCount()] : null;
+        this.objects = layout.objectCount() > 0 ? new Object[layout.objectCount()] : null;
+        this.nulls = layout.allNullMask();
+        this.properties = NO_EXTRAS;
+        setIdName(layout.getIdProperty());
+    }
+
+    public RowLayout getLayout() {
+        return layout;
+    }
+
+    //====================== entity contract ======================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(String name) {
+        if (properties != NO_EXTRAS && properties.containsKey(name)) {
+            return (T) properties.get(name);
+        }
+        int column = layout.column(name);
+        return column >= 0 ? (T) get(column) : null;
+    }
+
+    @Override
+    public void setValue(String name, @Nullable Object value, boolean checkEquals) {
+        int column = layout.column(name);
+        if (column < 0 || !accepts(column, value)) {
+            extras();
+            super.setValue(name, value, checkEquals);
+            return;
+        }
+        // để KeyValueEntity so sánh + bắn event như thường (listener đọc lại thấy giá trị mới trong map),
+        // sau đó chuyển giá trị về slot
+        extras();
+        super.setValue(name, value, checkEquals);
+        if (properties.containsKey(name)) {
+            set(column, properties.remove(name));
+        }
+        releaseExtrasIfEmpty();
+    }
+
+    //====================== truy cập theo cột ======================
+
+    /**
+     * Ghi im lặng theo tên (không bắn event). Property ngoài layout / sai kiểu thì vào map.
+     */
+    public void set(String name, @Nullable Object value) {
+        int column = layout.column(name);
+        if (column < 0 || !accepts(column, value)) {
+            extras().put(name, value);
+            return;
+        }
+        // trước đó từng rơi vào map (sai kiểu) -> bỏ bản cũ
+        if (properties != NO_EXTRAS && properties.remove(name) != null) {
+            releaseExtrasIfEmpty();
+        }
+        set(column, value);
+    }
+
+    public void set(int column, @Nullable Object value) {
+        if (value == null) {
+            setNull(column);
+            return;
+        }
+        switch (layout.getKind(column)) {
+            case LONG, INTEGER -> setLong(column, ((Number) value).longValue());
+            case DOUBLE -> setDouble(column, ((Number) value).doubleValue());
+            case BOOLEAN -> setBoolean(column, (Boolean) value);
+            case UUID -> setUuid(column, (UUID) value);
+            case DECIMAL -> setDecimal(column, (BigDecimal) value);
+            case OBJECT -> objects[layout.objectIndex(column)] = value;
+        }
+    }
+
+    @Nullable
+    public Object get(int column) {
+        RowLayout.Kind kind = layout.getKind(column);
+        if (kind == RowLayout.Kind.OBJECT) {
+            return objects[layout.objectIndex(column)];
+        }
+        if (isNull(column)) return null;
+        int i = layout.longIndex(column);
+        return switch (kind) {
+            case LONG -> longs[i];
+            case INTEGER -> (int) longs[i];
+            case DOUBLE -> Double.longBitsToDouble(longs[i]);
+            case BOOLEAN -> longs[i] != 0;
+            case UUID -> new UUID(longs[i], longs[i + 1]);
+            case DECIMAL -> {
+                Object big = objects[layout.objectIndex(column)];
+                yield big != null ? big : BigDecimal.valueOf(longs[i], (int) longs[i + 1]);
+            }
+            case OBJECT -> throw new IllegalStateException();
+        };
+    }
+
+    public boolean isNull(int column) {
+        int bit = layout.nullBit(column);
+        if (bit < 0) return objects[layout.objectIndex(column)] == null;
+        return (nulls & (1L << bit)) != 0;
+    }
+
+    public void setNull(int column) {
+        int bit = layout.nullBit(column);
+        if (bit >= 0) nulls |= 1L << bit;
+        int o = layout.objectIndex(column);
+        if (o >= 0) objects[o] = null;
+    }
+
+    /** Giá trị primitive của cột LONG/INTEGER/BOOLEAN (0 nếu null, kiểm tra isNull trước). */
+    public long getLong(int column) {
+        return longs[layout.longIndex(column)];
+    }
+
+    /** Giá trị của cột DOUBLE (0 nếu null). */
+    public double getDouble(int column) {
+        return Double.longBitsToDouble(longs[layout.longIndex(column)]);
+    }
+
+    /** Nửa cao của cột UUID (kiểm tra isNull trước). */
+    public long getUuidMostBits(int column) {
+        return longs[layout.longIndex(column)];
+    }
+
+    /** Nửa thấp của cột UUID (kiểm tra isNull trước). */
+    public long getUuidLeastBits(int column) {
+        return longs[layout.longIndex(column) + 1];
+    }
+
+    /** Cột DECIMAL đang nằm trong 2 ô long (unscaled + scale), không phải BigDecimal object. */
+    public boolean isInlineDecimal(int column) {
+        return objects[layout.objectIndex(column)] == null;
+    }
+
+    /** Unscaled value của cột DECIMAL inline. */
+    public long getUnscaled(int column) {
+        return longs[layout.longIndex(column)];
+    }
+
+    /** Scale của cột DECIMAL inline. */
+    public int getScale(int column) {
+        return (int) longs[layout.longIndex(column) + 1];
+    }
+
+    /**
+     * Property đang nằm trong map (ngoài layout hoặc sai kiểu), khi đó slot của cột không còn đúng.
+     */
+    public boolean overrides(String name) {
+        return properties != NO_EXTRAS && properties.containsKey(name);
+    }
+
+    public void setLong(int column, long value) {
+        longs[layout.longIndex(column)] = value;
+        markNotNull(column);
+    }
+
+    public void setDouble(int column, double value) {
+        longs[layout.longIndex(column)] = Double.doubleToRawLongBits(value);
+        markNotNull(column);
+    }
+
+    public void setBoolean(int column, boolean value) {
+        longs[layout.longIndex(column)] = value ? 1 : 0;
+        markNotNull(column);
+    }
+
+    public void setUuid(int column, UUID value) {
+        int i = layout.longIndex(column);
+        longs[i] = value.getMostSignificantBits();
+        longs[i + 1] = value.getLeastSignificantBits();
+        markNotNull(column);
+    }
+
+    public void setDecimal(int column, BigDecimal value) {
+        int i = layout.longIndex(column);
+        int o = layout.objectIndex(column);
+        // unscaled vừa long -> 2 ô long, không thì giữ object
+        if (value.precision() <= 18) {
+            longs[i] = value.unscaledValue().longValue();
+            longs[i + 1] = value.scale();
+            objects[o] = null;
+        } else {
+            objects[o] = value;
+        }
+        markNotNull(column);
+    }
+
+    /**
+     * Bản sao độc lập (slot + property ngoài layout), không kèm listener.
+     */
+    public CompactRow copy() {
+        CompactRow out = new CompactRow(layout);
+        if (longs != null) System.arraycopy(longs, 0, out.longs, 0, longs.length);
+        if (objects != null) System.arraycopy(objects, 0, out.objects, 0, objects.length);
+        out.nulls = nulls;
+        if (properties != NO_EXTRAS) out.properties = new HashMap<>(properties);
+        out.setInstanceMetaClass(getInstanceMetaClass());
+        return out;
+    }
+
+    /**
+     * Số byte heap ước lượng của row (header + mảng + giá trị trong Object[]), dùng cho metrics/cache.
+     */
+    public long estimatedBytes() {
+        long bytes = 48;
+        if (longs != null) bytes += 16 + 8L * longs.length;
+        if (objects != null) {
+            bytes += 16 + 4L * objects.length;
+            for (Object o : objects) {
+                if (o instanceof String) bytes += 40 + ((String) o).length();
+                else if (o != null) bytes += 32;
+            }
+        }
+        if (properties != NO_EXTRAS) bytes += 48 + 48L * properties.size();
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int c = 0; c < layout.getColumnCount(); c++) {
+            if (properties.containsKey(layout.getName(c))) continue;
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(layout.getName(c)).append('=').append(get(c));
+        }
+        if (properties != NO_EXTRAS) {
+            properties.forEach((k, v) -> {
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(k).append('=').append(v);
+            });
+        }
+        return sb.append('}').toString();
+    }
+
+    private void markNotNull(int column) {
+        nulls &= ~(1L << layout.nullBit(column));
+    }
+
+    private Map<String, Object> extras() {
+        if (properties == NO_EXTRAS) {
+            properties = new HashMap<>(4);
+        }
+        return properties;
+    }
+
+    private void releaseExtrasIfEmpty() {
+        if (properties != NO_EXTRAS && properties.isEmpty()) {
+            properties = NO_EXTRAS;
+        }
+    }
+
+    private boolean accepts(int column, @Nullable Object value) {
+        if (value == null) return true;
+        return switch (layout.getKind(column)) {
+            case LONG -> value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+            case INTEGER -> value instanceof Integer || value instanceof Short || value instanceof Byte;
+            case DOUBLE -> value instanceof Double || value instanceof Float;
+            case BOOLEAN -> value instanceof Boolean;
+            case UUID -> value instanceof UUID;
+            case DECIMAL -> value instanceof BigDecimal;
+            case OBJECT -> true;
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.company.dynamicdatastore.dynamic.row;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bố cục slot của CompactRow cho một entity ảo, dựng một lần từ EntityMeta rồi dùng chung cho mọi row.
+ *
+ * Mỗi field được xếp vào:
+ * - long[] của row: Long/Integer/Boolean (1 ô), Double (raw bits, 1 ô), UUID (2 ô),
+ *   BigDecimal có unscaled vừa long (2 ô: unscaled + scale)
+ * - Object[] của row: các kiểu còn lại (String, Date...), và BigDecimal quá lớn
+ *
+ * Null của các cột primitive nằm trong một bitmask long, nên tối đa 64 cột primitive,
+ * cột thứ 65 trở đi tự chuyển sang Object[].
+ * Thứ tự: id trước, sau đó theo tên (EntityMeta.getAttributes() thường là Map.of, không có thứ tự).
+ */
+public final class RowLayout {
+
+    public enum Kind { LONG, INTEGER, DOUBLE, BOOLEAN, UUID, DECIMAL, OBJECT }
+
+    private static final int MAX_PRIMITIVE_COLUMNS = 64;
+
+    private final String entityName;
+    private final String idProperty;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final Class<?>[] types;
+    // vị trí trong long[] (-1 nếu không có)
+    private final int[] longIndex;
+    // vị trí trong Object[] (-1 nếu không có)
+    private final int[] objectIndex;
+    // bit trong mask null (-1 với cột OBJECT)
+    private final int[] nullBit;
+    private final int longCount;
+    private final int objectCount;
+    private final long allNullMask;
+    private final Map<String, Integer> columnByName;
+
+    private RowLayout(String entityName, String idProperty, List<String> orderedNames, Map<String, Class<?>> attributes) {
+        this.entityName = entityName;
+        this.idProperty = idProperty;
+        int n = orderedNames.size();
+        this.names = new String[n];
+        this.kinds = new Kind[n];
+        this.types = new Class<?>[n];
+        this.longIndex = new int[n];
+        this.objectIndex = new int[n];
+        this.nullBit = new int[n];
+        this.columnByName = new HashMap<>(n * 2);
+
+        int longs = 0;
+        int objects = 0;
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            // intern để so sánh tên với MetaProperty.getName() thường trúng ngay ở phép ==
+            String name = orderedNames.get(i).intern();
+            Class<?> type = attributes.get(name);
+            Kind kind = kindOf(type);
+            if (kind != Kind.OBJECT && bits == MAX_PRIMITIVE_COLUMNS) {
+                kind = Kind.OBJECT;
+            }
+            names[i] = name;
+            kinds[i] = kind;
+            types[i] = type;
+            longIndex[i] = -1;
+            objectIndex[i] = -1;
+            nullBit[i] = -1;
+            switch (kind) {
+                case LONG, INTEGER, DOUBLE, BOOLEAN -> longIndex[i] = longs++;
+                case UUID -> {
+                    longIndex[i] = longs;
+                    longs += 2;
+                }
+                case DECIMAL -> {
+                    longIndex[i] = longs;
+                    longs += 2;
+                    // BigDecimal không vừa long thì giữ nguyên object
+                    objectIndex[i] = objects++;
+                }
+                case OBJECT -> objectIndex[i] = objects++;
+            }
+            if (kind != Kind.OBJECT) {
+                nullBit[i] = bits++;
+            }
+            columnByName.put(name, i);
+        }
+        this.longCount = longs;
+        this.objectCount = objects;
+        this.allNullMask = bits == 64 ? -1L : (1L << bits) - 1;
+    }
+
+    public static RowLayout of(EntityMeta meta) {
+        Map<String, Class<?>> attributes = meta.getAttributes() != null ? meta.getAttributes() : Collections.emptyMap();
+        String idProperty = meta.getIdProperty();
+        List<String> ordered = new ArrayList<>(attributes.keySet());
+        Collections.sort(ordered);
+        if (idProperty != null && ordered.remove(idProperty)) {
+            ordered.add(0, idProperty);
+        }
+        return new RowLayout(meta.getName(), idProperty, ordered, attributes);
+    }
+
+    /**
+     * Row rỗng (mọi field null) theo layout này.
+     */
+    public CompactRow newRow() {
+        return new CompactRow(this);
+    }
+
+    /**
+     * Tiện cho handler: newRow() rồi set lần lượt các cặp (tên, giá trị).
+     */
+    public CompactRow row(Object... keyValues) {
+        CompactRow row = new CompactRow(this);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.set(keyValues[i].toString(), keyValues[i + 1]);
+        }
+        return row;
+    }
+
+    /**
+     * Chỉ số cột của property, -1 nếu layout không có.
+     */
+    public int column(String property) {
+        Integer c = columnByName.get(property);
+        return c != null ? c : -1;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getName(int column) {
+        return names[column];
+    }
+
+    public Kind getKind(int column) {
+        return kinds[column];
+    }
+
+    public Class<?> getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Cùng tên cột và cùng kiểu slot theo đúng thứ tự: row của layout kia đọc được bằng chỉ số cột của layout này.
+     */
+    public boolean sameShape(RowLayout other) {
+        return this == other || (Arrays.equals(names, other.names) && Arrays.equals(kinds, other.kinds));
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public String getIdProperty() {
+        return idProperty;
+    }
+
+    int longIndex(int column) {
+        return longIndex[column];
+    }
+
+    int objectIndex(int column) {
+        return objectIndex[column];
+    }
+
+    int nullBit(int column) {
+        return nullBit[column];
+    }
+
+    int longCount() {
+        return longCount;
+    }
+
+    int objectCount() {
+        return objectCount;
+    }
+
+    long allNullMask() {
+        return allNullMask;
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == null) return Kind.OBJECT;
+        if (type == Long.class || type == long.class) return Kind.LONG;
+        if (type == Integer.class || type == int.class) return Kind.INTEGER;
+        if (type == Double.class || type == double.class) return Kind.DOUBLE;
+        if (type == Boolean.class || type == boolean.class) return Kind.BOOLEAN;
+        if (type == UUID.class) return Kind.UUID;
+        if (type == BigDecimal.class) return Kind.DECIMAL;
+        return Kind.OBJECT;
+    }
+}
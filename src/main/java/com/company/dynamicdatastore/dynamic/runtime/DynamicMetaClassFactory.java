@@ -27,9 +27,24 @@ public class DynamicMetaClassFactory {
         this.dynamicStoreRegistry = dynamicStoreRegistry;
     }
 
+    /**
+     * Lấy MetaClass cho entity ảo: định nghĩa field không đổi thì dùng lại bản đã build,
+     * đổi thì build bản mới và registry thay vào với version mới.
+     */
     public MetaClass buildAndRegisterMetaClass(String entityName,
                                                List<RuntimeFieldDef> fields,
                                                String storeName) {
+        return dynamicStoreRegistry.getOrBuildMetaClass(storeName, entityName, fields,
+                defs -> buildMetaClass(entityName, defs, storeName));
+    }
+
+    /**
+     * Chỉ build MetaClass, không đăng ký (nạp schema hàng loạt build song song rồi
+     * DynamicStoreRegistry.registerEntities(...) publish một lần).
+     */
+    public MetaClass buildMetaClass(String entityName,
+                                    List<RuntimeFieldDef> fields,
+                                    String storeName) {
 
         // 1. Tạo KeyValueMetaClass động nhưng với tên entityName của mình
         DynamicMetaClass metaClass = new DynamicMetaClass();
@@ -42,8 +57,6 @@ public class DynamicMetaClassFactory {
         for (RuntimeFieldDef f : fields) {
             configurer.addProperty(f.getName(), f.getJavaType());
         }
-
-        dynamicStoreRegistry.registerMetaClass(storeName, entityName, metaClass);
         return metaClass;
     }
 }
\ No newline at end of file
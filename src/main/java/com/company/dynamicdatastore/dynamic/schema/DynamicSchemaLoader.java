@@ -0,0 +1,154 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.registry.EntityRegistration;
+import com.company.dynamicdatastore.dynamic.runtime.DynamicMetaClassFactory;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Nạp lại các entity ảo đã lưu (DynamicSchemaRepository) vào DynamicStoreRegistry khi app khởi động,
+ * và là chỗ để định nghĩa / xoá entity ảo một cách bền vững lúc runtime.
+ *
+ * Lúc khởi động: 2 câu select lấy toàn bộ schema, build MetaClass + handler song song,
+ * rồi mỗi store chỉ publish snapshot một lần (registerEntities).
+ */
+@Component("app_DynamicSchemaLoader")
+public class DynamicSchemaLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamicSchemaLoader.class);
+
+    private final DynamicSchemaRepository repository;
+    private final DynamicStoreRegistry registry;
+    private final DynamicMetaClassFactory metaClassFactory;
+    private final DynamicStoreProperties properties;
+    private final Map<String, VirtualEntityHandlerFactory> handlerFactories = new HashMap<>();
+
+    public DynamicSchemaLoader(DynamicSchemaRepository repository,
+                               DynamicStoreRegistry registry,
+                               DynamicMetaClassFactory metaClassFactory,
+                               DynamicStoreProperties properties,
+                               List<VirtualEntityHandlerFactory> handlerFactories) {
+        this.repository = repository;
+        this.registry = registry;
+        this.metaClassFactory = metaClassFactory;
+        this.properties = properties;
+        for (VirtualEntityHandlerFactory f : handlerFactories) {
+            this.handlerFactories.put(f.getType(), f);
+        }
+    }
+
+    @EventListener
+    public void onApplicationStarted(ApplicationStartedEvent event) {
+        if (properties.isSchemaLoadOnStartup()) {
+            loadAll();
+        }
+    }
+
+    /**
+     * Nạp toàn bộ định nghĩa trong DB vào registry.
+     *
+     * @return số entity đã đăng ký
+     */
+    public int loadAll() {
+        long start = System.nanoTime();
+        List<EntityDefinition> definitions = repository.loadAll();
+        if (definitions.isEmpty()) return 0;
+
+        int parallelism = properties.getSchemaLoadParallelism() > 0
+                ? properties.getSchemaLoadParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        parallelism = Math.min(parallelism, definitions.size());
+
+        Map<String, List<EntityRegistration>> byStore = new LinkedHashMap<>();
+        if (parallelism <= 1) {
+            for (EntityDefinition d : definitions) {
+                byStore.computeIfAbsent(d.getStoreName(), k -> new ArrayList<>()).add(prepare(d));
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+            try {
+                List<Future<EntityRegistration>> futures = new ArrayList<>(definitions.size());
+                for (EntityDefinition d : definitions) {
+                    futures.add(pool.submit(() -> prepare(d)));
+                }
+                for (int i = 0; i < definitions.size(); i++) {
+                    byStore.computeIfAbsent(definitions.get(i).getStoreName(), k -> new ArrayList<>())
+                            .add(futures.get(i).get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading runtime entity schema", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot load runtime entity schema", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        byStore.forEach(registry::registerEntities);
+        log.info("Loaded {} runtime entities in {} stores in {} ms",
+                definitions.size(), byStore.size(), (System.nanoTime() - start) / 1_000_000);
+        return definitions.size();
+    }
+
+    /**
+     * Lưu định nghĩa rồi đăng ký ngay vào registry (thay bản cũ nếu đã có).
+     */
+    public void define(EntityDefinition definition) {
+        repository.save(definition);
+        registry.registerEntities(definition.getStoreName(), List.of(prepare(definition)));
+    }
+
+    /**
+     * Xoá định nghĩa khỏi DB và gỡ entity khỏi store.
+     */
+    public boolean remove(String storeName, String entityName) {
+        boolean deleted = repository.delete(storeName, entityName);
+        registry.removeEntity(storeName, entityName);
+        return deleted;
+    }
+
+    private EntityRegistration prepare(EntityDefinition definition) {
+        EntityMeta meta = definition.toEntityMeta();
+        MetaClass metaClass = metaClassFactory.buildMetaClass(
+                definition.getEntityName(), definition.getFields(), definition.getStoreName());
+        return new EntityRegistration(meta, definition.getFields(), metaClass, createHandler(definition, meta));
+    }
+
+    @Nullable
+    private VirtualEntityHandler<?> createHandler(EntityDefinition definition, EntityMeta meta) {
+        String type = definition.getHandlerType();
+        if (type == null) return null;
+        VirtualEntityHandlerFactory factory = handlerFactories.get(type);
+        if (factory == null) {
+            log.warn("No handler factory '{}' for runtime entity {}", type, definition);
+            return null;
+        }
+        try {
+            return factory.create(definition, meta);
+        } catch (RuntimeException e) {
+            // entity vẫn được đăng ký, chỉ thiếu handler (load sẽ báo lỗi rõ ràng thay vì app không lên)
+            log.warn("Cannot create '{}' handler for runtime entity {}", type, definition, e);
+            return null;
+        }
+    }
+}
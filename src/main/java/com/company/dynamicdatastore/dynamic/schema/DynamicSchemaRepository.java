@@ -0,0 +1,117 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lưu định nghĩa entity ảo (EntityDefinition) trong datasource chính, bảng DYNAMIC_STORE_ENTITY
+ * + DYNAMIC_STORE_ATTRIBUTE (Liquibase). Dùng JDBC thẳng, không qua JPA: lúc khởi động chỉ cần
+ * 2 câu select cho toàn bộ schema, bất kể bao nhiêu entity.
+ */
+@Component("app_DynamicSchemaRepository")
+public class DynamicSchemaRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamicSchemaRepository.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    public DynamicSchemaRepository(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Toàn bộ định nghĩa, field theo đúng thứ tự đã lưu. Entity có field không load được class
+     * (class đã bị xoá / đổi tên) thì bỏ qua và ghi log.
+     */
+    public List<EntityDefinition> loadAll() {
+        Map<Object, List<String[]>> attributesByEntity = new HashMap<>();
+        jdbc.query("select ENTITY_ID, NAME, JAVA_TYPE from DYNAMIC_STORE_ATTRIBUTE order by ENTITY_ID, POSITION_",
+                rs -> {
+                    attributesByEntity.computeIfAbsent(rs.getObject(1), k -> new ArrayList<>())
+                            .add(new String[]{rs.getString(2), rs.getString(3)});
+                });
+
+        List<EntityDefinition> out = new ArrayList<>();
+        jdbc.query("select ID, STORE_NAME, ENTITY_NAME, ID_PROPERTY, HANDLER_TYPE from DYNAMIC_STORE_ENTITY"
+                        + " order by STORE_NAME, ENTITY_NAME",
+                rs -> {
+                    String storeName = rs.getString(2);
+                    String entityName = rs.getString(3);
+                    try {
+                        List<RuntimeFieldDef> fields = new ArrayList<>();
+                        for (String[] attr : attributesByEntity.getOrDefault(rs.getObject(1), List.of())) {
+                            fields.add(new RuntimeFieldDef(attr[0], ClassUtils.forName(attr[1], getClass().getClassLoader())));
+                        }
+                        out.add(new EntityDefinition(storeName, entityName, rs.getString(4), fields, rs.getString(5)));
+                    } catch (ClassNotFoundException | LinkageError | IllegalArgumentException e) {
+                        log.warn("Skip runtime entity {}/{}: {}", storeName, entityName, e.toString());
+                    }
+                });
+        return out;
+    }
+
+    /**
+     * Thêm mới hoặc thay định nghĩa (theo store + tên entity) trong một transaction.
+     */
+    public void save(EntityDefinition definition) {
+        tx.executeWithoutResult(status -> {
+            List<Object> ids = jdbc.queryForList(
+                    "select ID from DYNAMIC_STORE_ENTITY where STORE_NAME = ? and ENTITY_NAME = ?",
+                    Object.class, definition.getStoreName(), definition.getEntityName());
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            Object entityId;
+            if (ids.isEmpty()) {
+                entityId = UUID.randomUUID();
+                jdbc.update("insert into DYNAMIC_STORE_ENTITY (ID, STORE_NAME, ENTITY_NAME, ID_PROPERTY, HANDLER_TYPE,"
+                                + " VERSION, UPDATE_TS) values (?, ?, ?, ?, ?, 1, ?)",
+                        entityId, definition.getStoreName(), definition.getEntityName(),
+                        definition.getIdProperty(), definition.getHandlerType(), now);
+            } else {
+                entityId = ids.get(0);
+                jdbc.update("update DYNAMIC_STORE_ENTITY set ID_PROPERTY = ?, HANDLER_TYPE = ?, VERSION = VERSION + 1,"
+                                + " UPDATE_TS = ? where ID = ?",
+                        definition.getIdProperty(), definition.getHandlerType(), now, entityId);
+                jdbc.update("delete from DYNAMIC_STORE_ATTRIBUTE where ENTITY_ID = ?", entityId);
+            }
+
+            List<Object[]> rows = new ArrayList<>(definition.getFields().size());
+            int position = 0;
+            for (RuntimeFieldDef f : definition.getFields()) {
+                rows.add(new Object[]{UUID.randomUUID(), entityId, f.getName(), f.getJavaType().getName(), position++});
+            }
+            jdbc.batchUpdate("insert into DYNAMIC_STORE_ATTRIBUTE (ID, ENTITY_ID, NAME, JAVA_TYPE, POSITION_)"
+                    + " values (?, ?, ?, ?, ?)", rows);
+        });
+    }
+
+    /**
+     * @return false nếu không có định nghĩa nào để xoá
+     */
+    public boolean delete(String storeName, String entityName) {
+        Integer deleted = tx.execute(status -> {
+            // ON DELETE CASCADE lo phần attribute, xoá tay cho DB không bật FK cascade
+            jdbc.update("delete from DYNAMIC_STORE_ATTRIBUTE where ENTITY_ID in"
+                    + " (select ID from DYNAMIC_STORE_ENTITY where STORE_NAME = ? and ENTITY_NAME = ?)",
+                    storeName, entityName);
+            return jdbc.update("delete from DYNAMIC_STORE_ENTITY where STORE_NAME = ? and ENTITY_NAME = ?",
+                    storeName, entityName);
+        });
+        return deleted != null && deleted > 0;
+    }
+}
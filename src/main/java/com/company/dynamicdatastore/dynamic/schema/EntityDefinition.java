@@ -0,0 +1,98 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Định nghĩa (bất biến) của một entity ảo được lưu trong DB:
+ * store, tên entity, id property, danh sách field theo thứ tự và loại handler.
+ *
+ * handlerType = getType() của VirtualEntityHandlerFactory sẽ dựng lại handler khi app khởi động
+ * (handler là code nên không lưu được); null = chỉ đăng ký entity + MetaClass, handler gắn sau bằng code.
+ */
+public final class EntityDefinition {
+
+    private final String storeName;
+    private final String entityName;
+    private final String idProperty;
+    private final List<RuntimeFieldDef> fields;
+    @Nullable
+    private final String handlerType;
+
+    public EntityDefinition(String storeName,
+                            String entityName,
+                            String idProperty,
+                            List<RuntimeFieldDef> fields,
+                            @Nullable String handlerType) {
+        this.storeName = Objects.requireNonNull(storeName);
+        this.entityName = Objects.requireNonNull(entityName);
+        this.idProperty = Objects.requireNonNull(idProperty);
+        this.fields = List.copyOf(fields);
+        this.handlerType = handlerType;
+        if (this.fields.stream().noneMatch(f -> f.getName().equals(idProperty))) {
+            throw new IllegalArgumentException("Entity " + entityName + " has no field for id property " + idProperty);
+        }
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public String getIdProperty() {
+        return idProperty;
+    }
+
+    public List<RuntimeFieldDef> getFields() {
+        return fields;
+    }
+
+    @Nullable
+    public String getHandlerType() {
+        return handlerType;
+    }
+
+    /**
+     * EntityMeta tương ứng (attributes giữ thứ tự field).
+     */
+    public EntityMeta toEntityMeta() {
+        Map<String, Class<?>> attributes = new LinkedHashMap<>();
+        for (RuntimeFieldDef f : fields) {
+            attributes.put(f.getName(), f.getJavaType());
+        }
+        EntityMeta meta = new EntityMeta();
+        meta.setName(entityName);
+        meta.setAttributes(attributes);
+        meta.setIdProperty(idProperty);
+        return meta;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntityDefinition)) return false;
+        EntityDefinition that = (EntityDefinition) o;
+        return storeName.equals(that.storeName) && entityName.equals(that.entityName)
+                && idProperty.equals(that.idProperty) && fields.equals(that.fields)
+                && Objects.equals(handlerType, that.handlerType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(storeName, entityName, idProperty, fields, handlerType);
+    }
+
+    @Override
+    public String toString() {
+        return storeName + "/" + entityName + fields + (handlerType != null ? " handler=" + handlerType : "");
+    }
+}
@@ -0,0 +1,26 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.memory.InMemoryVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * handlerType = "memory": entity ảo giữ dữ liệu trong RAM (InMemoryVirtualEntityHandler, chưa có index phụ).
+ * Dữ liệu không được lưu lại, khởi động lại thì rỗng.
+ */
+@Component("app_InMemoryHandlerFactory")
+public class InMemoryHandlerFactory implements VirtualEntityHandlerFactory {
+
+    public static final String TYPE = "memory";
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public VirtualEntityHandler<?> create(EntityDefinition definition, EntityMeta meta) {
+        return new InMemoryVirtualEntityHandler(meta);
+    }
+}
@@ -0,0 +1,42 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.jdbc.JdbcTableSpec;
+import com.company.dynamicdatastore.dynamic.jdbc.JdbcVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * handlerType = "jdbc": entity ảo đọc từ bảng cùng tên entity trong datasource chính,
+ * mỗi property là một cột cùng tên (JdbcVirtualEntityHandler).
+ * Bảng tên khác / cột tên khác thì tự dựng JdbcVirtualEntityHandler với JdbcTableSpec riêng.
+ */
+@Component("app_JdbcHandlerFactory")
+public class JdbcHandlerFactory implements VirtualEntityHandlerFactory {
+
+    public static final String TYPE = "jdbc";
+
+    private final DataSource dataSource;
+    private final DynamicStoreProperties properties;
+
+    public JdbcHandlerFactory(DataSource dataSource, DynamicStoreProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public VirtualEntityHandler<?> create(EntityDefinition definition, EntityMeta meta) {
+        JdbcTableSpec spec = JdbcTableSpec.of(definition.getEntityName())
+                .withFetchSize(properties.getJdbcFetchSize())
+                .withIdBatchSize(properties.getIdBatchSize());
+        return new JdbcVirtualEntityHandler(dataSource, meta, spec);
+    }
+}
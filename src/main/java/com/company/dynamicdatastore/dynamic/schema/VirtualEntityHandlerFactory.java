@@ -0,0 +1,17 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+
+/**
+ * Dựng handler cho entity ảo được nạp từ DB (DynamicSchemaLoader).
+ * Mỗi bean khai báo một loại (getType()), khớp với EntityDefinition.getHandlerType().
+ *
+ * create(...) có thể được gọi song song từ nhiều thread lúc khởi động.
+ */
+public interface VirtualEntityHandlerFactory {
+
+    String getType();
+
+    VirtualEntityHandler<?> create(EntityDefinition definition, EntityMeta meta);
+}
@@ -0,0 +1,23 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+/**
+ * Các toán tử so sánh có thể xuất hiện trong VirtualFilter.
+ */
+public enum FilterOperator {
+    EQUAL,
+    NOT_EQUAL,
+    GREATER,
+    GREATER_OR_EQUAL,
+    LESS,
+    LESS_OR_EQUAL,
+    IN,
+    NOT_IN,
+    BETWEEN,
+    LIKE,
+    NOT_LIKE,
+    CONTAINS,
+    STARTS_WITH,
+    ENDS_WITH,
+    IS_NULL,
+    IS_NOT_NULL
+}
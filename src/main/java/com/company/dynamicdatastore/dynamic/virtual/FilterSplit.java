@@ -0,0 +1,71 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chia filter thành phần đẩy xuống handler (chỉ dùng toán tử handler khai báo)
+ * và phần store phải tự lọc (residual). Ở gốc là AND thì chia theo từng vế,
+ * còn lại đẩy cả cây hoặc giữ cả cây.
+ */
+public final class FilterSplit {
+
+    private static final FilterSplit NONE = new FilterSplit(null, null);
+
+    @Nullable
+    private final VirtualFilter pushed;
+    @Nullable
+    private final VirtualFilter residual;
+
+    private FilterSplit(@Nullable VirtualFilter pushed, @Nullable VirtualFilter residual) {
+        this.pushed = pushed;
+        this.residual = residual;
+    }
+
+    public static FilterSplit of(@Nullable VirtualFilter filter, Set<FilterOperator> supported) {
+        if (filter == null) return NONE;
+        if (supported.isEmpty()) return new FilterSplit(null, filter);
+        if (isSupported(filter, supported)) return new FilterSplit(filter, null);
+        if (!(filter instanceof VirtualFilter.And)) return new FilterSplit(null, filter);
+
+        List<VirtualFilter> pushed = new ArrayList<>();
+        List<VirtualFilter> residual = new ArrayList<>();
+        for (VirtualFilter child : ((VirtualFilter.And) filter).getChildren()) {
+            (isSupported(child, supported) ? pushed : residual).add(child);
+        }
+        return new FilterSplit(pushed.isEmpty() ? null : VirtualFilter.and(pushed),
+                residual.isEmpty() ? null : VirtualFilter.and(residual));
+    }
+
+    /**
+     * Handler khai báo toán tử nào thì phải xử lý được and/or/not trên các toán tử đó.
+     */
+    public static boolean isSupported(VirtualFilter filter, Set<FilterOperator> supported) {
+        if (filter instanceof VirtualFilter.Comparison) {
+            return supported.contains(((VirtualFilter.Comparison) filter).getOperator());
+        }
+        if (filter instanceof VirtualFilter.And) {
+            return ((VirtualFilter.And) filter).getChildren().stream().allMatch(c -> isSupported(c, supported));
+        }
+        if (filter instanceof VirtualFilter.Or) {
+            return ((VirtualFilter.Or) filter).getChildren().stream().allMatch(c -> isSupported(c, supported));
+        }
+        if (filter instanceof VirtualFilter.Not) {
+            return isSupported(((VirtualFilter.Not) filter).getChild(), supported);
+        }
+        return false;
+    }
+
+    @Nullable
+    public VirtualFilter getPushed() {
+        return pushed;
+    }
+
+    @Nullable
+    public VirtualFilter getResidual() {
+        return residual;
+    }
+}
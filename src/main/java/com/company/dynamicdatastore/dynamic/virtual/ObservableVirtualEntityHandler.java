@@ -0,0 +1,15 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import com.company.dynamicdatastore.dynamic.change.RowChangeSink;
+
+/**
+ * Handler tự biết dữ liệu của mình thay đổi (ghi qua commit / put, CDC của DB, webhook...)
+ * và đẩy thay đổi theo id ra sink, để UI cập nhật từng dòng thay vì load lại toàn bộ.
+ *
+ * DynamicDataStore gọi setChangeSink(...) khi handler được gắn vào entity; handler gắn vào
+ * nhiều entity / store thì chỉ nhận sink của lần gắn cuối.
+ */
+public interface ObservableVirtualEntityHandler<E> extends VirtualEntityHandler<E> {
+
+    void setChangeSink(RowChangeSink sink);
+}
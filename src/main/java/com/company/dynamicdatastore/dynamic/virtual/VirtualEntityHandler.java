@@ -1,10 +1,17 @@
 package com.company.dynamicdatastore.dynamic.virtual;
 
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
 import io.jmix.core.LoadContext;
 import io.jmix.core.ValueLoadContext;
 import io.jmix.core.entity.KeyValueEntity;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 public interface VirtualEntityHandler<E> {
 
@@ -23,10 +30,196 @@ public interface VirtualEntityHandler<E> {
      */
     E loadOne(LoadContext<E> ctx, Object id);
 
+    /**
+     * Load nhiều bản ghi theo danh sách id trong một lần gọi.
+     * Ví dụ: GET /api/orders?ids=1,2,3
+     *
+     * Mặc định gọi loadOne(...) cho từng id; handler nào có API batch thì nên override.
+     * Id không tồn tại thì bỏ qua, không cần giữ thứ tự.
+     */
+    default List<E> loadMany(LoadContext<E> ctx, Collection<?> ids) {
+        List<E> out = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            E one = loadOne(ctx, id);
+            if (one != null) out.add(one);
+        }
+        return out;
+    }
+
     /**
      * Dùng cho dataManager.loadValues(...) / ValueLoadContext
      * Trả về dạng KeyValueEntity (giống bảng động, không cần class thật).
      * Ví dụ: SELECT e.id, e.name FROM VirtualOrder e
      */
     List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx);
+
+    /**
+     * Giống loadAll(ctx) nhưng kèm VirtualQuery đã chuẩn hoá (offset, limit, sort, properties).
+     * Handler nào đẩy được paging/sort xuống backend thì override hàm này
+     * và khai báo supportsPaging()/supportsSorting().
+     *
+     * Mặc định gọi loadAll(ctx) với context có paging / sort khớp query (VirtualRows.legacyContext):
+     * handler cũ tự cắt trang theo context không bị store cắt trang lần nữa.
+     */
+    default List<E> loadAll(LoadContext<E> ctx, VirtualQuery query) {
+        return loadAll(VirtualRows.legacyContext(ctx, query));
+    }
+
+    /**
+     * Giống loadAllKeyValue(ctx) nhưng kèm VirtualQuery đã chuẩn hoá.
+     * query.getProperties() là các property trong select list
+     * (ví dụ "select e.id, e.name from VirtualOrder e" -> [id, name]):
+     * handler chỉ cần lấy và set đúng các property này vào KeyValueEntity.
+     */
+    default List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return loadAllKeyValue(VirtualRows.legacyContext(ctx, query));
+    }
+
+    /**
+     * Đọc dữ liệu dạng stream cho export / batch job với hàng triệu bản ghi.
+     * Handler có cursor thật (JDBC ResultSet, HTTP streaming...) nên override để
+     * trả về stream lazy và giải phóng tài nguyên trong onClose().
+     *
+     * Mặc định: adapter từ loadAll(ctx, query), tức là vẫn materialize cả list.
+     * Người gọi luôn phải đóng stream (try-with-resources).
+     */
+    default Stream<E> stream(LoadContext<E> ctx, VirtualQuery query) {
+        return loadAll(ctx, query).stream();
+    }
+
+    /**
+     * Phiên bản stream của loadAllKeyValue(ctx, query).
+     */
+    default Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return loadAllKeyValue(ctx, query).stream();
+    }
+
+    /**
+     * Phiên bản bất đồng bộ của loadAll(ctx, query).
+     * Mặc định chạy bản đồng bộ trên executor; handler có client async thật
+     * (HttpClient.sendAsync, driver reactive...) nên override để không chiếm thread khi chờ IO.
+     */
+    default CompletableFuture<List<E>> loadAllAsync(LoadContext<E> ctx, VirtualQuery query, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> loadAll(ctx, query), executor);
+    }
+
+    /**
+     * Phiên bản bất đồng bộ của loadOne(ctx, id).
+     */
+    default CompletableFuture<E> loadOneAsync(LoadContext<E> ctx, Object id, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> loadOne(ctx, id), executor);
+    }
+
+    /**
+     * Phiên bản bất đồng bộ của loadAllKeyValue(ctx, query).
+     */
+    default CompletableFuture<List<KeyValueEntity>> loadAllKeyValueAsync(ValueLoadContext ctx, VirtualQuery query,
+                                                                        Executor executor) {
+        return CompletableFuture.supplyAsync(() -> loadAllKeyValue(ctx, query), executor);
+    }
+
+    /**
+     * Handler có tự áp dụng offset/limit của VirtualQuery không.
+     * Nếu false, DataStore sẽ tự cắt trang trên kết quả trả về.
+     */
+    default boolean supportsPaging() {
+        return false;
+    }
+
+    /**
+     * Handler có tự sort theo VirtualQuery.getSort() không.
+     * Nếu false, DataStore sẽ tự sort (top-K khi có limit).
+     */
+    default boolean supportsSorting() {
+        return false;
+    }
+
+    /**
+     * Các toán tử lọc handler tự áp dụng được ở nguồn (SQL where, query param của REST...).
+     * Phần filter dùng toán tử ngoài tập này store sẽ tự lọc sau khi nhận kết quả,
+     * và khi đó store cũng không đẩy paging / count xuống handler nữa.
+     * Khai báo toán tử nào thì phải xử lý được and/or/not trên các toán tử đó (query.getFilter()).
+     *
+     * Mặc định: rỗng, handler không cần biết gì về filter.
+     */
+    default Set<FilterOperator> supportedFilterOperators() {
+        return Set.of();
+    }
+
+    /**
+     * Handler có tự đọc Condition / JPQL gốc trong context và lọc đúng phần store không dịch được
+     * sang VirtualFilter không (query.isFilterExact() = false: JpqlCondition, Condition lạ, JPQL parser không hiểu).
+     * Nếu false, DataStore không lọc / sort / cắt trang / đếm thay handler trên tập row rộng hơn mà gọi
+     * loadAll(ctx) / loadAllKeyValue(ctx) với context gốc, trả nguyên kết quả của handler
+     * (trừ khi requiresExactFilter() = true).
+     */
+    default boolean handlesRawConditions() {
+        return false;
+    }
+
+    /**
+     * Handler muốn DataStore từ chối (UnsupportedOperationException) query có filter không dịch hết
+     * thay vì gọi hàm cũ với context gốc, ví dụ handler bỏ qua Condition của context và sẽ trả thừa row.
+     * Không có ý nghĩa khi handlesRawConditions() = true.
+     */
+    default boolean requiresExactFilter() {
+        return false;
+    }
+
+    /**
+     * Handler có tự đếm được số bản ghi không (ví dụ: GET /api/orders/count).
+     * Nếu false, DataStore sẽ fallback về loadAll(...).size().
+     */
+    default boolean supportsCount() {
+        return false;
+    }
+
+    /**
+     * Đếm số bản ghi cho DataManager.getCount(LoadContext).
+     * Chỉ được gọi khi supportsCount() == true.
+     */
+    default long count(LoadContext<E> ctx) {
+        throw new UnsupportedOperationException("count is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Giống count(ctx) nhưng kèm VirtualQuery (filter đã đẩy xuống, không paging/sort).
+     * Chỉ được gọi khi supportsCount() == true và store không còn filter phải tự lọc.
+     * Mặc định gọi count(ctx) với context đã bỏ paging / sort.
+     */
+    default long count(LoadContext<E> ctx, VirtualQuery query) {
+        return count(VirtualRows.legacyContext(ctx, query));
+    }
+
+    /**
+     * Đếm số bản ghi cho DataManager.getCount(ValueLoadContext).
+     * Chỉ được gọi khi supportsCount() == true.
+     */
+    default long countKeyValue(ValueLoadContext ctx) {
+        throw new UnsupportedOperationException("countKeyValue is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Giống countKeyValue(ctx) nhưng kèm VirtualQuery, cùng điều kiện gọi như count(ctx, query).
+     */
+    default long countKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+        return countKeyValue(VirtualRows.legacyContext(ctx, query));
+    }
+
+    /**
+     * Handler có tự tính được query gộp này không (ví dụ SQL group by, API thống kê của backend).
+     * Nếu false, DataStore tự gộp trong một lượt duyệt streamKeyValue(...).
+     */
+    default boolean supportsAggregate(AggregateQuery query) {
+        return false;
+    }
+
+    /**
+     * Tính query gộp cho DataManager.loadValues(...): mỗi nhóm một Object[] theo thứ tự query.getColumns(),
+     * không cần sort / paging. Chỉ được gọi khi supportsAggregate(query) == true và store không còn
+     * filter phải tự lọc.
+     */
+    default List<Object[]> aggregate(ValueLoadContext ctx, AggregateQuery query) {
+        throw new UnsupportedOperationException("aggregate is not supported by " + getClass().getName());
+    }
 }
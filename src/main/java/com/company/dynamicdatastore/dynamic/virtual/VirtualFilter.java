@@ -0,0 +1,267 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Cây điều kiện lọc trung lập (không phụ thuộc JPQL hay Condition của Jmix)
+ * để đưa xuống handler.
+ *
+ * Giá trị so sánh là Operand: hoặc literal, hoặc tham chiếu tới tham số (:name)
+ * được resolve bằng map parameters lúc chạy.
+ */
+public abstract class VirtualFilter {
+
+    VirtualFilter() {
+    }
+
+    public static VirtualFilter and(List<VirtualFilter> children) {
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    public static VirtualFilter or(List<VirtualFilter> children) {
+        return children.size() == 1 ? children.get(0) : new Or(children);
+    }
+
+    public static VirtualFilter not(VirtualFilter child) {
+        return new Not(child);
+    }
+
+    public static Comparison compare(String property, FilterOperator operator, Operand... operands) {
+        return new Comparison(property, operator, List.of(operands));
+    }
+
+    public static final class And extends VirtualFilter {
+        private final List<VirtualFilter> children;
+
+        public And(List<VirtualFilter> children) {
+            this.children = List.copyOf(children);
+        }
+
+        public List<VirtualFilter> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof And && children.equals(((And) o).children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 + children.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(Object::toString).collect(Collectors.joining(" and ", "(", ")"));
+        }
+    }
+
+    public static final class Or extends VirtualFilter {
+        private final List<VirtualFilter> children;
+
+        public Or(List<VirtualFilter> children) {
+            this.children = List.copyOf(children);
+        }
+
+        public List<VirtualFilter> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Or && children.equals(((Or) o).children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 37 + children.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(Object::toString).collect(Collectors.joining(" or ", "(", ")"));
+        }
+    }
+
+    public static final class Not extends VirtualFilter {
+        private final VirtualFilter child;
+
+        public Not(VirtualFilter child) {
+            this.child = Objects.requireNonNull(child);
+        }
+
+        public VirtualFilter getChild() {
+            return child;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Not && child.equals(((Not) o).child);
+        }
+
+        @Override
+        public int hashCode() {
+            return 41 + child.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "not " + child;
+        }
+    }
+
+    /**
+     * property [operator] operands.
+     * Số operand: 0 với IS_NULL/IS_NOT_NULL, 2 với BETWEEN,
+     * IN/NOT_IN có thể là nhiều literal hoặc một tham số kiểu Collection, còn lại là 1.
+     */
+    public static final class Comparison extends VirtualFilter {
+        private final String property;
+        private final FilterOperator operator;
+        private final List<Operand> operands;
+
+        public Comparison(String property, FilterOperator operator, List<Operand> operands) {
+            this.property = Objects.requireNonNull(property);
+            this.operator = Objects.requireNonNull(operator);
+            this.operands = List.copyOf(operands);
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public FilterOperator getOperator() {
+            return operator;
+        }
+
+        public List<Operand> getOperands() {
+            return operands;
+        }
+
+        /**
+         * Giá trị của operand đầu tiên (đã resolve tham số).
+         */
+        public Object getValue(Map<String, Object> params) {
+            return operands.isEmpty() ? null : operands.get(0).resolve(params);
+        }
+
+        /**
+         * Tất cả giá trị (dùng cho IN / BETWEEN); tham số kiểu Collection được trải phẳng.
+         */
+        public List<Object> getValues(Map<String, Object> params) {
+            List<Object> values = new ArrayList<>(operands.size());
+            for (Operand operand : operands) {
+                Object v = operand.resolve(params);
+                if (v instanceof Collection && (operator == FilterOperator.IN || operator == FilterOperator.NOT_IN)) {
+                    values.addAll((Collection<?>) v);
+                } else {
+                    values.add(v);
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Comparison)) return false;
+            Comparison that = (Comparison) o;
+            return property.equals(that.property) && operator == that.operator && operands.equals(that.operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, operator, operands);
+        }
+
+        @Override
+        public String toString() {
+            return property + " " + operator + (operands.isEmpty() ? "" : " " + operands);
+        }
+    }
+
+    /**
+     * Một vế giá trị: literal hoặc tham số có tên.
+     */
+    public static final class Operand {
+        private final String parameter;
+        private final Object literal;
+
+        private Operand(String parameter, Object literal) {
+            this.parameter = parameter;
+            this.literal = literal;
+        }
+
+        public static Operand parameter(String name) {
+            return new Operand(Objects.requireNonNull(name), null);
+        }
+
+        public static Operand literal(Object value) {
+            return new Operand(null, value);
+        }
+
+        public boolean isParameter() {
+            return parameter != null;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        public Object getLiteral() {
+            return literal;
+        }
+
+        public Object resolve(Map<String, Object> params) {
+            if (parameter == null) return literal;
+            return params != null ? params.get(parameter) : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Operand)) return false;
+            Operand that = (Operand) o;
+            return Objects.equals(parameter, that.parameter) && Objects.equals(literal, that.literal);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parameter, literal);
+        }
+
+        @Override
+        public String toString() {
+            return parameter != null ? ":" + parameter : String.valueOf(literal);
+        }
+    }
+
+    /**
+     * Tên tất cả property được tham chiếu trong cây.
+     */
+    public static List<String> properties(VirtualFilter filter) {
+        if (filter == null) return Collections.emptyList();
+        List<String> out = new ArrayList<>();
+        collectProperties(filter, out);
+        return out;
+    }
+
+    private static void collectProperties(VirtualFilter filter, List<String> out) {
+        if (filter instanceof Comparison) {
+            out.add(((Comparison) filter).getProperty());
+        } else if (filter instanceof And) {
+            ((And) filter).getChildren().forEach(c -> collectProperties(c, out));
+        } else if (filter instanceof Or) {
+            ((Or) filter).getChildren().forEach(c -> collectProperties(c, out));
+        } else if (filter instanceof Not) {
+            collectProperties(((Not) filter).getChild(), out);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import com.company.dynamicdatastore.dynamic.query.ConditionTranslator;
+import com.company.dynamicdatastore.dynamic.query.ParsedJpql;
+import io.jmix.core.LoadContext;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mô tả query đã "chuẩn hoá" mà DataStore đưa xuống handler:
+ * offset, limit, danh sách sort, danh sách property cần lấy,
+ * filter (where của JPQL AND Condition của Jmix) cùng tham số của nó.
+ *
+ * Được dựng từ LoadContext / ValueLoadContext để handler không phải
+ * tự đào vào context của Jmix.
+ * limit = 0 nghĩa là không giới hạn (giống maxResults của Jmix).
+ */
+public final class VirtualQuery {
+
+    public static final VirtualQuery ALL = new VirtualQuery(0, 0, List.of(), List.of());
+
+    private final int offset;
+    private final int limit;
+    private final List<SortKey> sort;
+    private final List<String> properties;
+    @Nullable
+    private final VirtualFilter filter;
+    private final Map<String, Object> parameters;
+    private final boolean filterExact;
+
+    public VirtualQuery(int offset, int limit, List<SortKey> sort, List<String> properties) {
+        this(offset, limit, sort, properties, null, Map.of(), true);
+    }
+
+    public VirtualQuery(int offset, int limit, List<SortKey> sort, List<String> properties,
+                        @Nullable VirtualFilter filter, Map<String, Object> parameters, boolean filterExact) {
+        this.offset = Math.max(offset, 0);
+        this.limit = Math.max(limit, 0);
+        this.sort = List.copyOf(sort);
+        this.properties = List.copyOf(properties);
+        this.filter = filter;
+        // tham số có thể mang giá trị null -> không dùng Map.copyOf
+        this.parameters = parameters.isEmpty() ? Map.of() : Collections.unmodifiableMap(new HashMap<>(parameters));
+        this.filterExact = filterExact;
+    }
+
+    public static VirtualQuery of(LoadContext<?> ctx) {
+        return of(ctx, null);
+    }
+
+    /**
+     * Dựng query cho load entity từ context và JPQL đã parse (nếu có):
+     * filter = where của JPQL AND Condition của context; sort lấy từ context, nếu không có thì từ "order by".
+     */
+    public static VirtualQuery of(LoadContext<?> ctx, @Nullable ParsedJpql parsed) {
+        LoadContext.Query q = ctx.getQuery();
+        if (q == null) return ALL;
+        Map<String, Object> params = q.getParameters() != null ? q.getParameters() : Map.of();
+        ConditionTranslator.Translation condition = ConditionTranslator.translate(q.getCondition(), params);
+        boolean complete = parsed != null && parsed.isComplete();
+        VirtualFilter where = complete ? parsed.getWhere() : null;
+        List<SortKey> sort = toSortKeys(q.getSort());
+        if (sort.isEmpty() && complete) sort = parsed.getOrderBy();
+        boolean exact = condition.isExact() && (parsed == null || complete);
+        return new VirtualQuery(q.getFirstResult(), q.getMaxResults(), sort, List.of(),
+                both(where, condition.getFilter()), params, exact);
+    }
+
+    public static VirtualQuery of(ValueLoadContext ctx) {
+        return of(ctx, null);
+    }
+
+    /**
+     * Dựng query cho loadValues từ context và JPQL đã parse:
+     * properties = các property thật trong select list (ví dụ "select e.id, e.name" -> [id, name])
+     * để handler chỉ lấy đúng các cột cần thiết; sort lấy từ context, nếu không có thì từ "order by".
+     */
+    public static VirtualQuery of(ValueLoadContext ctx, @Nullable ParsedJpql parsed) {
+        List<String> props = List.of();
+        List<SortKey> orderBy = List.of();
+        VirtualFilter where = null;
+        if (parsed != null && parsed.isComplete()) {
+            props = parsed.getSelectedProperties();
+            orderBy = parsed.getOrderBy();
+            where = parsed.getWhere();
+        } else if (ctx.getProperties() != null) {
+            props = ctx.getProperties();
+        }
+        boolean parsedExact = parsed == null || parsed.isComplete();
+
+        ValueLoadContext.Query q = ctx.getQuery();
+        if (q == null) return new VirtualQuery(0, 0, orderBy, props, where, Map.of(), parsedExact);
+        List<SortKey> sort = toSortKeys(q.getSort());
+        Map<String, Object> params = q.getParameters() != null ? q.getParameters() : Map.of();
+        ConditionTranslator.Translation condition = ConditionTranslator.translate(q.getCondition(), params);
+        return new VirtualQuery(q.getFirstResult(), q.getMaxResults(), sort.isEmpty() ? orderBy : sort, props,
+                both(where, condition.getFilter()), params, parsedExact && condition.isExact());
+    }
+
+    @Nullable
+    private static VirtualFilter both(@Nullable VirtualFilter a, @Nullable VirtualFilter b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return VirtualFilter.and(List.of(a, b));
+    }
+
+    private static List<SortKey> toSortKeys(Sort sort) {
+        if (sort == null || sort.getOrders() == null || sort.getOrders().isEmpty()) {
+            return List.of();
+        }
+        List<SortKey> keys = new ArrayList<>(sort.getOrders().size());
+        for (Sort.Order order : sort.getOrders()) {
+            keys.add(new SortKey(order.getProperty(), order.getDirection() == Sort.Direction.DESC));
+        }
+        return keys;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public List<SortKey> getSort() {
+        return sort;
+    }
+
+    /**
+     * Các property cần lấy (projection). Rỗng = lấy tất cả property.
+     * Handler có thể chỉ đọc / cấp phát đúng các cột này.
+     */
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Điều kiện lọc handler cần áp dụng; null = không lọc.
+     * Chỉ gồm các toán tử trong handler.supportedFilterOperators(), phần còn lại store tự lọc.
+     */
+    @Nullable
+    public VirtualFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Tham số của query để resolve VirtualFilter.Operand.parameter(...).
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * false nếu một phần Condition / JPQL không dịch được sang filter:
+     * filter khi đó rộng hơn điều kiện gốc, handler muốn chính xác thì phải tự đọc context.
+     */
+    public boolean isFilterExact() {
+        return filterExact;
+    }
+
+    public boolean hasFilter() {
+        return filter != null;
+    }
+
+    public boolean hasPaging() {
+        return offset > 0 || limit > 0;
+    }
+
+    public boolean isSorted() {
+        return !sort.isEmpty();
+    }
+
+    public VirtualQuery withoutPaging() {
+        return hasPaging() ? new VirtualQuery(0, 0, sort, properties, filter, parameters, filterExact) : this;
+    }
+
+    public VirtualQuery withPaging(int offset, int limit) {
+        return offset == this.offset && limit == this.limit ? this
+                : new VirtualQuery(offset, limit, sort, properties, filter, parameters, filterExact);
+    }
+
+    public VirtualQuery withoutSort() {
+        return isSorted() ? new VirtualQuery(offset, limit, Collections.emptyList(), properties, filter, parameters, filterExact)
+                : this;
+    }
+
+    public VirtualQuery withSort(List<SortKey> sort) {
+        return new VirtualQuery(offset, limit, sort, properties, filter, parameters, filterExact);
+    }
+
+    public VirtualQuery withFilter(@Nullable VirtualFilter filter) {
+        return Objects.equals(filter, this.filter) ? this
+                : new VirtualQuery(offset, limit, sort, properties, filter, parameters, filterExact);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VirtualQuery)) return false;
+        VirtualQuery that = (VirtualQuery) o;
+        return offset == that.offset
+                && limit == that.limit
+                && filterExact == that.filterExact
+                && sort.equals(that.sort)
+                && properties.equals(that.properties)
+                && Objects.equals(filter, that.filter)
+                && parameters.equals(that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, limit, sort, properties, filter, parameters, filterExact);
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualQuery{offset=" + offset + ", limit=" + limit
+                + ", sort=" + sort + ", properties=" + properties
+                + (filter != null ? ", filter=" + filter : "") + "}";
+    }
+
+    public static final class SortKey {
+        private final String property;
+        private final boolean descending;
+
+        public SortKey(String property, boolean descending) {
+            this.property = property;
+            this.descending = descending;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SortKey)) return false;
+            SortKey that = (SortKey) o;
+            return descending == that.descending && property.equals(that.property);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, descending);
+        }
+
+        @Override
+        public String toString() {
+            return property + (descending ? " desc" : " asc");
+        }
+    }
+}
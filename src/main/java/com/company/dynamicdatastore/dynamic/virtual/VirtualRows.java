@@ -0,0 +1,362 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluator;
+import com.company.dynamicdatastore.dynamic.query.RowEvaluatorCache;
+import com.company.dynamicdatastore.dynamic.row.CompactRow;
+import io.jmix.core.LoadContext;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.EntityValues;
+import io.jmix.core.entity.KeyValueEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Các hàm tiện ích để DataStore tự lọc / sort / phân trang khi handler không làm được.
+ */
+public final class VirtualRows {
+
+    private VirtualRows() {
+    }
+
+    /**
+     * Context cho các hàm cũ không nhận VirtualQuery (loadAll(ctx), count(ctx)...): offset / limit / sort của
+     * context được chỉnh cho khớp với phần đã đẩy xuống trong query. Nếu không, handler cũ tự cắt trang theo
+     * context trong khi store cũng cắt trang (supportsPaging() = false) -> trang 2 trở đi rỗng, count chỉ đếm
+     * một trang. Context đã khớp thì trả về chính nó, không copy.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> LoadContext<E> legacyContext(LoadContext<E> ctx, VirtualQuery query) {
+        LoadContext.Query q = ctx.getQuery();
+        if (q == null || matches(q.getFirstResult(), q.getMaxResults(), q.getSort(), query)) return ctx;
+        LoadContext.Query adjusted = q.copy();
+        adjusted.setFirstResult(query.getOffset());
+        adjusted.setMaxResults(query.getLimit());
+        if (!query.isSorted()) adjusted.setSort(Sort.UNSORTED);
+        LoadContext<E> copy = (LoadContext<E>) ctx.copy();
+        copy.setQuery(adjusted);
+        return copy;
+    }
+
+    /**
+     * Như legacyContext(LoadContext, VirtualQuery) cho ValueLoadContext.
+     */
+    public static ValueLoadContext legacyContext(ValueLoadContext ctx, VirtualQuery query) {
+        ValueLoadContext.Query q = ctx.getQuery();
+        if (q == null || matches(q.getFirstResult(), q.getMaxResults(), q.getSort(), query)) return ctx;
+        ValueLoadContext.Query adjusted = new ValueLoadContext.Query(q.getQueryString());
+        if (q.getParameters() != null) adjusted.setParameters(q.getParameters());
+        adjusted.setCondition(q.getCondition());
+        if (query.isSorted()) adjusted.setSort(q.getSort());
+        adjusted.setFirstResult(query.getOffset());
+        adjusted.setMaxResults(query.getLimit());
+        ValueLoadContext copy = ValueLoadContext.create().setQuery(adjusted);
+        copy.setStoreName(ctx.getStoreName());
+        copy.setProperties(ctx.getProperties());
+        copy.setIdName(ctx.getIdName());
+        copy.setJoinTransaction(ctx.isJoinTransaction());
+        ctx.getHints().forEach(copy::setHint);
+        return copy;
+    }
+
+    private static boolean matches(int firstResult, int maxResults, @Nullable Sort sort, VirtualQuery query) {
+        boolean unsorted = sort == null || sort.getOrders() == null || sort.getOrders().isEmpty();
+        return firstResult == query.getOffset() && maxResults == query.getLimit() && (query.isSorted() || unsorted);
+    }
+
+    /**
+     * Đọc giá trị property của một row (KeyValueEntity hoặc entity Jmix bất kỳ).
+     */
+    public static Object getValue(Object row, String property) {
+        if (row == null) return null;
+        if (row instanceof KeyValueEntity && property.indexOf('.') < 0) {
+            return ((KeyValueEntity) row).getValue(property);
+        }
+        return EntityValues.getValueEx(row, property);
+    }
+
+    /**
+     * Comparator theo danh sách sort key. null luôn đứng đầu khi ASC.
+     */
+    public static Comparator<Object> comparator(List<VirtualQuery.SortKey> sort) {
+        Comparator<Object> result = null;
+        for (VirtualQuery.SortKey key : sort) {
+            String property = key.getProperty();
+            Comparator<Object> c = (a, b) -> compareValues(getValue(a, property), getValue(b, property));
+            if (key.isDescending()) c = c.reversed();
+            result = result == null ? c : result.thenComparing(c);
+        }
+        return result != null ? result : (a, b) -> 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compareValues(Object a, Object b) {
+        if (a == b) return 0;
+        if (a == null) return -1;
+        if (b == null) return 1;
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable) a).compareTo(b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    /**
+     * Cắt trang [offset, offset + limit). limit = 0 nghĩa là lấy hết phần còn lại.
+     */
+    public static <T> List<T> page(List<T> rows, int offset, int limit) {
+        if (offset <= 0 && (limit <= 0 || limit >= rows.size())) return rows;
+        if (offset >= rows.size()) return Collections.emptyList();
+        int end = limit > 0 ? (int) Math.min((long) offset + limit, rows.size()) : rows.size();
+        return new ArrayList<>(rows.subList(offset, end));
+    }
+
+    /**
+     * Sort rồi cắt trang. Khi có limit thì chỉ giữ offset + limit phần tử nhỏ nhất
+     * trong một heap có giới hạn (top-K), không sort cả danh sách.
+     */
+    public static <T> List<T> sortAndPage(List<T> rows, Comparator<? super T> comparator, int offset, int limit) {
+        long k = limit > 0 ? (long) offset + limit : Long.MAX_VALUE;
+        if (k >= rows.size()) {
+            List<T> sorted = new ArrayList<>(rows);
+            sorted.sort(comparator);
+            return page(sorted, offset, limit);
+        }
+        return sortAndPage(rows.iterator(), comparator, offset, limit);
+    }
+
+    /**
+     * Giống sortAndPage(List...) nhưng đọc từ iterator: bộ nhớ chỉ O(offset + limit)
+     * khi có limit. Không có limit thì buộc phải gom hết để sort.
+     */
+    public static <T> List<T> sortAndPage(Iterator<T> rows, Comparator<? super T> comparator, int offset, int limit) {
+        if (limit <= 0) {
+            List<T> all = new ArrayList<>();
+            rows.forEachRemaining(all::add);
+            all.sort(comparator);
+            return page(all, offset, 0);
+        }
+
+        int size = (int) Math.min((long) offset + limit, Integer.MAX_VALUE - 8);
+        Comparator<? super T> reversed = Collections.reverseOrder(comparator);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(size, 1024), reversed);
+        while (rows.hasNext()) {
+            T row = rows.next();
+            if (heap.size() < size) {
+                heap.add(row);
+            } else if (comparator.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+
+        List<T> top = new ArrayList<>(heap);
+        top.sort(comparator);
+        return page(top, offset, limit);
+    }
+
+    /**
+     * Trộn k danh sách đã sort sẵn theo comparator (k-way merge bằng heap),
+     * bỏ offset phần tử đầu và dừng khi đủ limit (0 = lấy hết). O(n log k), không sort lại.
+     */
+    public static <T> List<T> mergeSorted(List<List<T>> sortedLists, Comparator<? super T> comparator,
+                                          int offset, int limit) {
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> comparator.compare(a.current, b.current));
+        long total = 0;
+        for (List<T> list : sortedLists) {
+            total += list.size();
+            Iterator<T> it = list.iterator();
+            if (it.hasNext()) heap.add(new Cursor<>(it));
+        }
+        long wanted = limit > 0 ? Math.min(total, (long) offset + limit) : total;
+        List<T> out = new ArrayList<>((int) Math.max(0, Math.min(wanted - offset, Integer.MAX_VALUE - 8)));
+        long taken = 0;
+        while (taken < wanted && !heap.isEmpty()) {
+            Cursor<T> c = heap.poll();
+            if (taken >= offset) out.add(c.current);
+            taken++;
+            if (c.advance()) heap.add(c);
+        }
+        return out;
+    }
+
+    private static final class Cursor<T> {
+        final Iterator<T> it;
+        T current;
+
+        Cursor(Iterator<T> it) {
+            this.it = it;
+            this.current = it.next();
+        }
+
+        boolean advance() {
+            if (!it.hasNext()) return false;
+            current = it.next();
+            return true;
+        }
+    }
+
+    /**
+     * Phiên bản stream của page(...): không gom dữ liệu.
+     */
+    public static <T> Stream<T> page(Stream<T> rows, int offset, int limit) {
+        Stream<T> out = offset > 0 ? rows.skip(offset) : rows;
+        return limit > 0 ? out.limit(limit) : out;
+    }
+
+    /**
+     * Phần query được đẩy xuống handler, theo supportedFilterOperators()/supportsSorting()/supportsPaging().
+     * - filter: chỉ phần dùng toán tử handler hỗ trợ (FilterSplit)
+     * - còn filter store phải tự lọc, hoặc store phải tự sort -> handler không được cắt trang (sẽ sai trang)
+     */
+    public static VirtualQuery pushDown(VirtualEntityHandler<?> handler, VirtualQuery query) {
+        FilterSplit split = FilterSplit.of(query.getFilter(), handler.supportedFilterOperators());
+        VirtualQuery pushed = query.withFilter(split.getPushed());
+        if (query.isSorted() && !handler.supportsSorting()) {
+            return pushed.withoutSort().withoutPaging();
+        }
+        if (!handler.supportsPaging() || split.getResidual() != null) {
+            return pushed.withoutPaging();
+        }
+        return pushed;
+    }
+
+    /**
+     * Phần filter/sort/paging handler không làm được thì làm nốt trên kết quả trả về
+     * (dùng cùng với pushDown(...)). Filter/sort được biên dịch mỗi lần gọi, không biết kiểu attribute;
+     * store dùng bản có RowEvaluatorCache + EntityMeta.
+     */
+    public static <T> List<T> applyInStore(VirtualEntityHandler<?> handler, VirtualQuery query, List<T> rows) {
+        return applyInStore(handler, query, rows, null, null);
+    }
+
+    /**
+     * Như applyInStore(handler, query, rows) nhưng filter/sort được biên dịch theo kiểu attribute của entity
+     * (đọc slot của CompactRow, so sánh theo kiểu) và cache theo hình dạng query.
+     */
+    public static <T> List<T> applyInStore(VirtualEntityHandler<?> handler, VirtualQuery query, List<T> rows,
+                                           @Nullable RowEvaluatorCache evaluators, @Nullable EntityMeta meta) {
+        VirtualFilter residual = residual(handler, query);
+        boolean sortInStore = query.isSorted() && !handler.supportsSorting();
+        if (residual == null && !sortInStore) {
+            if (query.hasPaging() && !handler.supportsPaging()) {
+                return page(rows, query.getOffset(), query.getLimit());
+            }
+            return rows;
+        }
+
+        RowEvaluator evaluator = evaluator(evaluators, meta, residual, sortInStore ? query.getSort() : List.of());
+        if (residual != null) {
+            rows = filter(rows, evaluator.predicate(query.getParameters()));
+        }
+        if (sortInStore) {
+            return sortAndPage(rows, evaluator.comparator(), query.getOffset(), query.getLimit());
+        }
+        if (query.hasPaging()) {
+            return page(rows, query.getOffset(), query.getLimit());
+        }
+        return rows;
+    }
+
+    public static <T> Stream<T> applyInStore(VirtualEntityHandler<?> handler, VirtualQuery query, Stream<T> rows) {
+        return applyInStore(handler, query, rows, null, null);
+    }
+
+    public static <T> Stream<T> applyInStore(VirtualEntityHandler<?> handler, VirtualQuery query, Stream<T> rows,
+                                             @Nullable RowEvaluatorCache evaluators, @Nullable EntityMeta meta) {
+        VirtualFilter residual = residual(handler, query);
+        boolean sortInStore = query.isSorted() && !handler.supportsSorting();
+        if (residual == null && !sortInStore) {
+            if (query.hasPaging() && !handler.supportsPaging()) {
+                return page(rows, query.getOffset(), query.getLimit());
+            }
+            return rows;
+        }
+
+        RowEvaluator evaluator = evaluator(evaluators, meta, residual, sortInStore ? query.getSort() : List.of());
+        Stream<T> filtered = residual != null ? rows.filter(evaluator.predicate(query.getParameters())) : rows;
+        if (sortInStore) {
+            List<T> page;
+            try (filtered) {
+                page = sortAndPage(filtered.iterator(), evaluator.comparator(),
+                        query.getOffset(), query.getLimit());
+            }
+            return page.stream();
+        }
+        if (query.hasPaging()) {
+            return page(filtered, query.getOffset(), query.getLimit());
+        }
+        return filtered;
+    }
+
+    /**
+     * Bản sao độc lập của row để đưa cho một bên dùng riêng (session khác, container UI...):
+     * CompactRow copy nguyên slot, KeyValueEntity thường copy các property liệt kê.
+     * Kiểu khác (entity Jmix thật) không copy được, trả về chính nó.
+     */
+    public static Object copy(Object row, Collection<String> properties) {
+        if (row instanceof CompactRow) return ((CompactRow) row).copy();
+        if (!(row instanceof KeyValueEntity)) return row;
+        KeyValueEntity source = (KeyValueEntity) row;
+        KeyValueEntity copy = new KeyValueEntity();
+        copy.setIdName(source.getIdName());
+        copy.setInstanceMetaClass(source.getInstanceMetaClass());
+        for (String property : properties) {
+            Object value = source.getValue(property);
+            if (value != null) copy.setValue(property, value);
+        }
+        return copy;
+    }
+
+    /**
+     * Có được giao việc đếm cho handler.count(...) không: handler tự đếm và không còn filter store phải tự lọc.
+     */
+    public static boolean canCountInHandler(VirtualEntityHandler<?> handler, VirtualQuery query) {
+        return handler.supportsCount() && residual(handler, query) == null;
+    }
+
+    /**
+     * Có được giao query gộp cho handler.aggregate(...) không: handler tự gộp được và không còn filter
+     * store phải tự lọc (query mang cùng filter với aggregate).
+     */
+    public static boolean canAggregateInHandler(VirtualEntityHandler<?> handler, VirtualQuery query,
+                                                AggregateQuery aggregate) {
+        return handler.supportsAggregate(aggregate) && residual(handler, query) == null;
+    }
+
+    /**
+     * Phần filter store phải tự lọc (null nếu handler lo hết).
+     */
+    @Nullable
+    public static VirtualFilter residual(VirtualEntityHandler<?> handler, VirtualQuery query) {
+        if (!query.hasFilter()) return null;
+        return FilterSplit.of(query.getFilter(), handler.supportedFilterOperators()).getResidual();
+    }
+
+    private static RowEvaluator evaluator(@Nullable RowEvaluatorCache evaluators, @Nullable EntityMeta meta,
+                                          @Nullable VirtualFilter filter, List<VirtualQuery.SortKey> sort) {
+        return evaluators != null ? evaluators.get(meta, filter, sort) : RowEvaluator.compile(meta, filter, sort);
+    }
+
+    private static <T> List<T> filter(List<T> rows, Predicate<Object> predicate) {
+        List<T> out = new ArrayList<>();
+        for (T row : rows) {
+            if (predicate.test(row)) out.add(row);
+        }
+        return out;
+    }
+}
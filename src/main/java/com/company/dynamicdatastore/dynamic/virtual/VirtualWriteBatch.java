@@ -0,0 +1,49 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import java.util.List;
+
+/**
+ * Toàn bộ thay đổi của một entity ảo trong một transaction,
+ * được giao cho WritableVirtualEntityHandler trong một lần commit.
+ */
+public final class VirtualWriteBatch<E> {
+
+    private final String storeName;
+    private final String entityName;
+    private final List<E> saved;
+    private final List<E> removed;
+
+    public VirtualWriteBatch(String storeName, String entityName, List<E> saved, List<E> removed) {
+        this.storeName = storeName;
+        this.entityName = entityName;
+        this.saved = List.copyOf(saved);
+        this.removed = List.copyOf(removed);
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    /**
+     * Bản ghi thêm mới hoặc sửa (handler tự upsert theo id).
+     */
+    public List<E> getSaved() {
+        return saved;
+    }
+
+    public List<E> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return saved.isEmpty() && removed.isEmpty();
+    }
+
+    public int size() {
+        return saved.size() + removed.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+/**
+ * Handler có hỗ trợ ghi. DataManager.save(...) / remove(...) vào store runtime
+ * không gọi handler theo từng bản ghi: DynamicDataStore gom thay đổi của cả
+ * transaction theo entity và gọi commit(...) một lần cho mỗi entity khi transaction commit.
+ * Ví dụ: POST /api/orders/batch
+ */
+public interface WritableVirtualEntityHandler<E> extends VirtualEntityHandler<E> {
+
+    /**
+     * Ghi cả lô xuống backend. Ném exception nếu lỗi: lô của entity đầu tiên lỗi thì transaction rollback,
+     * còn các entity đã commit trước đó trong cùng transaction không được hoàn tác -> PartialCommitException.
+     */
+    void commit(VirtualWriteBatch<E> batch);
+
+    /**
+     * Decorator (cache...) bọc handler chỉ đọc thì trả về false.
+     */
+    default boolean isWritable() {
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package com.company.dynamicdatastore.view.dynamicdatastore;
 import com.company.dynamicdatastore.dynamic.EntityMeta;
 import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
 import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
 import com.company.dynamicdatastore.dynamic.runtime.DynamicMetaClassFactory;
 import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
 import com.company.dynamicdatastore.entity.User;
@@ -60,8 +61,8 @@ public class DynamicDataStore extends StandardView {
 
     @Subscribe
     public void onInit(InitEvent event) {
-        setupRuntimeEntity();
-        loadRowsFromDynamicStore();
+        MetaClass meta = setupRuntimeEntity();
+        loadRowsFromDynamicStore(meta);
     }
 
     /**
@@ -71,19 +72,16 @@ public class DynamicDataStore extends StandardView {
      * - Đăng ký handler cho VirtualOrder
      * - Build MetaClass runtime cho VirtualOrder và lưu vào registry
      */
-    private void setupRuntimeEntity() {
-        // B1. Đảm bảo store runtime tồn tại
-        registry.registerStore("storeA");
-
-        // B2. Đăng ký metadata logic của entity ảo (thông tin field kiểu Java)
-        EntityMeta virtualOrderMeta = new EntityMeta();
-        virtualOrderMeta.setName("VirtualOrder");
-        virtualOrderMeta.setAttributes(Map.of(
+    private MetaClass setupRuntimeEntity() {
+        // B1 + B2. Đảm bảo store runtime tồn tại và đăng ký metadata logic của entity ảo (thông tin field kiểu Java)
+        EntityMeta virtualOrderMeta = registerEntityIfChanged("storeA", "VirtualOrder", Map.of(
                 "id", UUID.class,
                 "name", String.class,
                 "amount", BigDecimal.class
         ));
-        registry.addEntity("storeA", virtualOrderMeta);
+
+        // layout slot dựng 1 lần, row tạo ra là CompactRow (long[]/Object[] thay cho HashMap)
+        RowLayout orderLayout = RowLayout.of(virtualOrderMeta);
 
         // B3. Tạo handler runtime cho VirtualOrder
         VirtualEntityHandler<KeyValueEntity> orderHandler = new VirtualEntityHandler<>() {
@@ -132,13 +130,7 @@ public class DynamicDataStore extends StandardView {
             }
 
             private KeyValueEntity kv(Object... args) {
-                KeyValueEntity e = new KeyValueEntity();
-                for (int i = 0; i < args.length; i += 2) {
-                    String key = args[i].toString();
-                    Object value = args[i + 1];
-                    e.setValue(key, value);
-                }
-                return e;
+                return orderLayout.row(args);
             }
         };
 
@@ -149,6 +141,7 @@ public class DynamicDataStore extends StandardView {
 
         // B4. Tạo MetaClass runtime cho VirtualOrder và đăng ký vào registry
         // --> cái này giúp UI biết entity ảo có field gì (id, name, amount)
+        // (registry trả lại MetaClass cũ nếu field không đổi, mở lại view không build lại)
          MetaClass meta = dynamicMetaClassFactory.buildAndRegisterMetaClass(
                 "VirtualOrder",
                 List.of(
@@ -174,20 +167,30 @@ public class DynamicDataStore extends StandardView {
                     .setHeader(propName.toUpperCase());
         });
 
+        return meta;
     }
 
+    /**
+     * Field không đổi thì dùng lại EntityMeta đã đăng ký: cache RowEvaluator khoá theo identity của EntityMeta,
+     * tạo EntityMeta mới mỗi lần mở view thì lần nào cũng phải biên dịch lại filter/sort.
+     */
+    private EntityMeta registerEntityIfChanged(String storeName, String entityName, Map<String, Class<?>> attributes) {
+        EntityMeta registered = registry.registerStore(storeName).getEntity(entityName);
+        if (registered != null
+                && attributes.equals(registered.getAttributes())
+                && "id".equals(registered.getIdProperty())) {
+            return registered;
+        }
+
+        EntityMeta meta = new EntityMeta();
+        meta.setName(entityName);
+        meta.setAttributes(attributes);
+        registry.addEntity(storeName, meta);
+        return meta;
+    }
 
-    private void loadRowsFromDynamicStore() {
+    private void loadRowsFromDynamicStore(MetaClass meta) {
 
-        MetaClass meta = dynamicMetaClassFactory.buildAndRegisterMetaClass(
-                "VirtualOrder",
-                List.of(
-                        new RuntimeFieldDef("id", UUID.class),
-                        new RuntimeFieldDef("name", String.class),
-                        new RuntimeFieldDef("amount", BigDecimal.class)
-                ),
-                "storeA"
-        );
         // 2. Tạo LoadContext dựa trên MetaClass đó
         LoadContext<Object> ctx = new LoadContext<>(meta);
         ctx.setId("id");
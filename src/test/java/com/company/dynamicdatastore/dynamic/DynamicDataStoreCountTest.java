@@ -0,0 +1,119 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Count của DynamicDataStore: handler tự đếm được thì gọi count, không thì load rồi đếm.
+ */
+public class DynamicDataStoreCountTest {
+
+    @Test
+    void countIsPushedDownWhenHandlerSupportsIt() {
+        CountingHandler handler = new CountingHandler(true);
+        DynamicDataStore store = store(handler);
+
+        assertThat(store.countAll(entityContext())).isEqualTo(CountingHandler.BACKEND_COUNT);
+        assertThat(store.countAllValues(valueContext())).isEqualTo(CountingHandler.BACKEND_COUNT);
+        assertThat(handler.counts).isEqualTo(2);
+        assertThat(handler.loads).isEqualTo(0);
+    }
+
+    @Test
+    void countFallsBackToLoadingRows() {
+        CountingHandler handler = new CountingHandler(false);
+        DynamicDataStore store = store(handler);
+
+        assertThat(store.countAll(entityContext())).isEqualTo(3L);
+        assertThat(store.countAllValues(valueContext())).isEqualTo(3L);
+        assertThat(handler.counts).isEqualTo(0);
+        assertThat(handler.loads).isEqualTo(2);
+    }
+
+    private static DynamicDataStore store(CountingHandler handler) {
+        DynamicDataStore store = new DynamicDataStore("countStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName("CountRow");
+        meta.setAttributes(Map.of("id", Integer.class));
+        store.registerEntity(meta);
+        store.registerHandler("CountRow", handler);
+        return store;
+    }
+
+    private static LoadContext<Object> entityContext() {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName("CountRow");
+        LoadContext<Object> ctx = new LoadContext<>(metaClass);
+        ctx.setQueryString("select e from CountRow e");
+        return ctx;
+    }
+
+    private static ValueLoadContext valueContext() {
+        return ValueLoadContext.create().setQuery(new ValueLoadContext.Query("select e.id from CountRow e"));
+    }
+
+    // 3 row trong bộ nhớ, count() trả số "của backend" khác đi để phân biệt đường nào đã chạy
+    private static final class CountingHandler implements VirtualEntityHandler<Object> {
+        static final long BACKEND_COUNT = 42L;
+
+        final boolean countable;
+        int loads;
+        int counts;
+
+        CountingHandler(boolean countable) {
+            this.countable = countable;
+        }
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return new ArrayList<>(rows());
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            return rows();
+        }
+
+        @Override
+        public boolean supportsCount() {
+            return countable;
+        }
+
+        @Override
+        public long count(LoadContext<Object> ctx) {
+            counts++;
+            return BACKEND_COUNT;
+        }
+
+        @Override
+        public long countKeyValue(ValueLoadContext ctx) {
+            counts++;
+            return BACKEND_COUNT;
+        }
+
+        private List<KeyValueEntity> rows() {
+            loads++;
+            List<KeyValueEntity> out = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("id", i);
+                out.add(row);
+            }
+            return out;
+        }
+    }
+}
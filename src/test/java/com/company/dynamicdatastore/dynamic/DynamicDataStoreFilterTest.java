@@ -0,0 +1,173 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.core.querycondition.Condition;
+import io.jmix.core.querycondition.JpqlCondition;
+import io.jmix.core.querycondition.LogicalCondition;
+import io.jmix.core.querycondition.PropertyCondition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Filter store tự lọc: dịch được thì lọc đúng, không dịch được thì handler nhận context gốc như trước,
+ * báo lỗi chỉ khi handler yêu cầu filter chính xác.
+ */
+public class DynamicDataStoreFilterTest {
+
+    private static final String QUERY = "select e.id, e.status from FilterRow e";
+
+    @Test
+    void translatedConditionIsAppliedByStore() {
+        DynamicDataStore store = store(new RowsHandler(false, false));
+
+        List<KeyValueEntity> rows = store.streamValues(context(PropertyCondition.equal("status", "NEW")))
+                .collect(Collectors.toList());
+
+        assertThat(ids(rows)).isEqualTo(List.of(1, 3));
+        assertThat(store.countAllValues(context(PropertyCondition.equal("status", "NEW")))).isEqualTo(2L);
+    }
+
+    @Test
+    void untranslatableConditionPassesRawContext() throws Exception {
+        RowsHandler handler = new RowsHandler(false, false);
+        DynamicDataStore store = store(handler);
+        Condition condition = LogicalCondition.and(
+                PropertyCondition.equal("status", "NEW"), JpqlCondition.create("e.id > 2", null));
+        ValueLoadContext ctx = context(condition);
+        ctx.getQuery().setMaxResults(1);
+
+        // handler này bỏ qua Condition -> nhận nguyên kết quả của nó, store không lọc / cắt trang thêm
+        assertThat(store.streamValues(ctx).collect(Collectors.toList())).hasSize(4);
+        assertThat(handler.lastContext).isSameAs(ctx);
+        assertThat(store.countAllValues(ctx)).isEqualTo(4L);
+        assertThat(store.loadValuesAsync(ctx, Runnable::run).get()).hasSize(4);
+        assertThat(handler.lastContext).isSameAs(ctx);
+    }
+
+    @Test
+    void rawJpqlQueryStillLoads() {
+        RowsHandler handler = new RowsHandler(false, false);
+        DynamicDataStore store = store(handler);
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName("FilterRow");
+        LoadContext<Object> ctx = new LoadContext<>(metaClass);
+        // upper(...) nằm ngoài tập JPQL parser hiểu; handler tự đọc JPQL và tự cắt trang như trước
+        ctx.setQueryString("select e from FilterRow e where upper(e.status) = 'NEW'")
+                .setFirstResult(1).setMaxResults(1);
+
+        List<Object> rows = store.loadAll(ctx);
+
+        assertThat(rows.stream().map(r -> ((KeyValueEntity) r).getValue("id")).collect(Collectors.toList()))
+                .isEqualTo(List.of(3));
+        assertThat(store.countAll(ctx)).isEqualTo(1L);
+    }
+
+    @Test
+    void handlerRequiringExactFilterRejectsUntranslatableCondition() {
+        DynamicDataStore store = store(new RowsHandler(false, true));
+        Condition condition = LogicalCondition.and(
+                PropertyCondition.equal("status", "NEW"), JpqlCondition.create("e.id > 2", null));
+
+        assertThatThrownBy(() -> store.streamValues(context(condition)))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> store.countAllValues(context(condition)))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> store.loadValuesAsync(context(condition), Runnable::run).get())
+                .isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void handlerReadingRawConditionsIsTrusted() {
+        DynamicDataStore store = store(new RowsHandler(true, true));
+
+        List<KeyValueEntity> rows = store.streamValues(context(JpqlCondition.create("e.id > 2", null)))
+                .collect(Collectors.toList());
+
+        assertThat(rows).hasSize(4);
+    }
+
+    private static DynamicDataStore store(RowsHandler handler) {
+        DynamicDataStore store = new DynamicDataStore("filterStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName("FilterRow");
+        meta.setAttributes(Map.of("id", Integer.class, "status", String.class));
+        store.registerEntity(meta);
+        store.registerHandler("FilterRow", handler);
+        return store;
+    }
+
+    private static ValueLoadContext context(Condition condition) {
+        return ValueLoadContext.create().setQuery(new ValueLoadContext.Query(QUERY).setCondition(condition));
+    }
+
+    private static List<Object> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> r.getValue("id")).collect(Collectors.toList());
+    }
+
+    private static final class RowsHandler implements VirtualEntityHandler<Object> {
+        private final boolean raw;
+        private final boolean strict;
+        ValueLoadContext lastContext;
+
+        RowsHandler(boolean raw, boolean strict) {
+            this.raw = raw;
+            this.strict = strict;
+        }
+
+        @Override
+        public boolean handlesRawConditions() {
+            return raw;
+        }
+
+        @Override
+        public boolean requiresExactFilter() {
+            return strict;
+        }
+
+        // handler kiểu cũ: tự hiểu đúng một câu JPQL và tự cắt trang theo context
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            List<Object> rows = new ArrayList<>(rows());
+            LoadContext.Query q = ctx.getQuery();
+            if (q != null && q.getQueryString() != null && q.getQueryString().contains("upper(e.status) = 'NEW'")) {
+                rows.removeIf(r -> !"NEW".equals(((KeyValueEntity) r).getValue("status")));
+            }
+            return q != null ? VirtualRows.page(rows, q.getFirstResult(), q.getMaxResults()) : rows;
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            lastContext = ctx;
+            return rows();
+        }
+
+        private List<KeyValueEntity> rows() {
+            List<KeyValueEntity> out = new ArrayList<>();
+            String[] statuses = {"NEW", "OLD", "NEW", "OLD"};
+            for (int i = 0; i < statuses.length; i++) {
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("id", i + 1);
+                row.setValue("status", statuses[i]);
+                out.add(row);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Load theo danh sách id: chia lô theo idBatchSize, mỗi lô một lần loadMany; mặc định loadMany gọi loadOne.
+ */
+public class DynamicDataStoreLoadManyTest {
+
+    @Test
+    void idsAreLoadedInBatches() {
+        BatchHandler handler = new BatchHandler();
+        DynamicDataStore store = store(handler);
+        store.setIdBatchSize(3);
+
+        List<Object> rows = store.loadAll(context(List.of(1, 2, 3, 4, 5, 6, 7)));
+
+        assertThat(handler.batches).isEqualTo(List.of(List.of(1, 2, 3), List.of(4, 5, 6), List.of(7)));
+        assertThat(ids(rows)).isEqualTo(List.of(1, 2, 3, 4, 5, 6, 7));
+        assertThat(handler.singleLoads).isEqualTo(0);
+    }
+
+    @Test
+    void defaultLoadManySkipsMissingIds() {
+        LegacyHandler handler = new LegacyHandler();
+        DynamicDataStore store = store(handler);
+
+        List<Object> rows = store.loadAll(context(List.of(1, 99, 2)));
+
+        assertThat(ids(rows)).isEqualTo(List.of(1, 2));
+        assertThat(handler.singleLoads).isEqualTo(3);
+    }
+
+    @Test
+    void batchSizeMustBePositive() {
+        DynamicDataStore store = store(new BatchHandler());
+
+        assertThatThrownBy(() -> store.setIdBatchSize(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static DynamicDataStore store(VirtualEntityHandler<Object> handler) {
+        DynamicDataStore store = new DynamicDataStore("idStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName("IdRow");
+        meta.setAttributes(Map.of("id", Integer.class));
+        store.registerEntity(meta);
+        store.registerHandler("IdRow", handler);
+        return store;
+    }
+
+    private static LoadContext<Object> context(List<Integer> ids) {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName("IdRow");
+        LoadContext<Object> ctx = new LoadContext<>(metaClass);
+        ctx.setIds(ids);
+        return ctx;
+    }
+
+    private static List<Object> ids(List<Object> rows) {
+        return rows.stream().map(r -> ((KeyValueEntity) r).getValue("id")).collect(Collectors.toList());
+    }
+
+    private static KeyValueEntity row(Object id) {
+        KeyValueEntity row = new KeyValueEntity();
+        row.setValue("id", id);
+        return row;
+    }
+
+    private static class LegacyHandler implements VirtualEntityHandler<Object> {
+        int singleLoads;
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return List.of();
+        }
+
+        // chỉ id 1..10 tồn tại
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            singleLoads++;
+            return (Integer) id <= 10 ? row(id) : null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            return List.of();
+        }
+    }
+
+    private static final class BatchHandler extends LegacyHandler {
+        final List<List<Object>> batches = new ArrayList<>();
+
+        @Override
+        public List<Object> loadMany(LoadContext<Object> ctx, Collection<?> ids) {
+            batches.add(new ArrayList<>(ids));
+            return ids.stream().map(DynamicDataStoreLoadManyTest::row).collect(Collectors.toList());
+        }
+    }
+}
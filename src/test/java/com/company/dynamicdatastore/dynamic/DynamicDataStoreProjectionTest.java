@@ -0,0 +1,97 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * loadValues: select list đi xuống handler thành VirtualQuery.getProperties(), "order by" thành sort.
+ */
+public class DynamicDataStoreProjectionTest {
+
+    private static final String QUERY = "select e.id, e.name from ProjRow e order by e.name desc";
+
+    @Test
+    void selectListReachesHandler() {
+        ProjectingHandler handler = new ProjectingHandler();
+        DynamicDataStore store = store(handler);
+
+        List<Object> rows = store.loadAllValues(ValueLoadContext.create().setQuery(new ValueLoadContext.Query(QUERY)));
+
+        assertThat(handler.lastQuery.getProperties()).isEqualTo(List.of("id", "name"));
+        // handler không tự sort -> sort không được đẩy xuống, store sort theo order by
+        assertThat(handler.lastQuery.getSort()).isEmpty();
+        assertThat(rows.stream().map(r -> ((KeyValueEntity) r).getValue("name")).collect(Collectors.toList()))
+                .isEqualTo(List.of("c", "b", "a"));
+    }
+
+    @Test
+    void streamValuesGetsSameProjection() {
+        ProjectingHandler handler = new ProjectingHandler();
+        DynamicDataStore store = store(handler);
+
+        try (Stream<KeyValueEntity> rows = store.streamValues(
+                ValueLoadContext.create().setQuery(new ValueLoadContext.Query(QUERY)))) {
+            assertThat(rows.count()).isEqualTo(3L);
+        }
+
+        assertThat(handler.lastQuery.getProperties()).isEqualTo(List.of("id", "name"));
+    }
+
+    private static DynamicDataStore store(ProjectingHandler handler) {
+        DynamicDataStore store = new DynamicDataStore("projStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName("ProjRow");
+        meta.setAttributes(Map.of("id", Integer.class, "name", String.class, "payload", String.class));
+        store.registerEntity(meta);
+        store.registerHandler("ProjRow", handler);
+        return store;
+    }
+
+    // chỉ set các property được yêu cầu, như handler thật đọc đúng các cột cần
+    private static final class ProjectingHandler implements VirtualEntityHandler<Object> {
+        VirtualQuery lastQuery;
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return List.of();
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            throw new AssertionError("projection overload expected");
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+            lastQuery = query;
+            List<KeyValueEntity> out = new ArrayList<>();
+            String[] names = {"b", "a", "c"};
+            for (int i = 0; i < names.length; i++) {
+                KeyValueEntity row = new KeyValueEntity();
+                Map<String, Object> values = Map.of("id", i + 1, "name", names[i], "payload", "large");
+                for (String property : query.getProperties()) {
+                    row.setValue(property, values.get(property));
+                }
+                out.add(row);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import io.jmix.core.LoadContext;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stream của DynamicDataStore: cắt trang lazy, sort phía store chỉ giữ top-K, đóng stream thì handler nhả cursor.
+ */
+public class DynamicDataStoreStreamTest {
+
+    private static final int ROWS = 1000;
+
+    @Test
+    void pagingIsLazyAndCloseReachesHandler() {
+        CursorHandler handler = new CursorHandler();
+        DynamicDataStore store = store(handler);
+        LoadContext<Object> ctx = context();
+        ctx.getQuery().setFirstResult(2).setMaxResults(3);
+
+        List<Object> ids;
+        try (Stream<Object> rows = store.stream(ctx)) {
+            ids = rows.map(r -> ((KeyValueEntity) r).getValue("id")).collect(Collectors.toList());
+            assertThat(handler.closed).isFalse();
+        }
+
+        assertThat(ids).isEqualTo(List.of(3, 4, 5));
+        assertThat(handler.produced).isLessThanOrEqualTo(5);
+        assertThat(handler.closed).isTrue();
+    }
+
+    @Test
+    void storeSortReleasesCursorAfterTopK() {
+        CursorHandler handler = new CursorHandler();
+        DynamicDataStore store = store(handler);
+        LoadContext<Object> ctx = context();
+        ctx.getQuery().setMaxResults(2).setSort(Sort.by(Sort.Direction.DESC, "id"));
+
+        try (Stream<Object> rows = store.stream(ctx)) {
+            // đã phải đọc hết để sort -> cursor đóng ngay, không chờ người gọi
+            assertThat(handler.closed).isTrue();
+            assertThat(rows.map(r -> ((KeyValueEntity) r).getValue("id")).collect(Collectors.toList()))
+                    .isEqualTo(List.of(ROWS, ROWS - 1));
+        }
+        assertThat(handler.produced).isEqualTo(ROWS);
+    }
+
+    @Test
+    void valueStreamCloseReachesHandler() {
+        CursorHandler handler = new CursorHandler();
+        DynamicDataStore store = store(handler);
+        ValueLoadContext ctx = ValueLoadContext.create()
+                .setQuery(new ValueLoadContext.Query("select e.id from StreamRow e").setMaxResults(10));
+
+        try (Stream<KeyValueEntity> rows = store.streamValues(ctx)) {
+            assertThat(rows.count()).isEqualTo(10L);
+        }
+
+        assertThat(handler.produced).isLessThanOrEqualTo(10);
+        assertThat(handler.closed).isTrue();
+    }
+
+    private static DynamicDataStore store(CursorHandler handler) {
+        DynamicDataStore store = new DynamicDataStore("streamStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName("StreamRow");
+        meta.setAttributes(Map.of("id", Integer.class));
+        store.registerEntity(meta);
+        store.registerHandler("StreamRow", handler);
+        return store;
+    }
+
+    private static LoadContext<Object> context() {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName("StreamRow");
+        LoadContext<Object> ctx = new LoadContext<>(metaClass);
+        ctx.setQueryString("select e from StreamRow e");
+        return ctx;
+    }
+
+    // giả lập cursor: sinh row khi được đọc, ghi nhận đã đóng
+    private static final class CursorHandler implements VirtualEntityHandler<Object> {
+        volatile int produced;
+        volatile boolean closed;
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            throw new AssertionError("stream path must not materialize");
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            throw new AssertionError("stream path must not materialize");
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Stream<Object> stream(LoadContext<Object> ctx, VirtualQuery query) {
+            return (Stream) cursor();
+        }
+
+        @Override
+        public Stream<KeyValueEntity> streamKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+            return cursor();
+        }
+
+        private Stream<KeyValueEntity> cursor() {
+            return Stream.iterate(1, i -> i + 1).limit(ROWS).map(i -> {
+                produced++;
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("id", i);
+                return row;
+            }).onClose(() -> closed = true);
+        }
+    }
+}
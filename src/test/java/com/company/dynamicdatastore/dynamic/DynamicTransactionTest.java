@@ -0,0 +1,205 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.SaveContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Ghi theo lô của DynamicDataStore: buffer tới commit, gộp theo id, transaction lồng nhau, commit không nguyên tử.
+ */
+public class DynamicTransactionTest {
+
+    private DynamicDataStore store;
+    private RecordingHandler orders;
+    private RecordingHandler customers;
+
+    @BeforeEach
+    void setUp() {
+        store = new DynamicDataStore("txStore", null);
+        orders = register("TxOrder");
+        customers = register("TxCustomer");
+    }
+
+    @Test
+    void changesAreWrittenOncePerEntityAtCommit() {
+        Object tx = store.beginSaveTransaction(false);
+        KeyValueEntity first = row("TxOrder", 1, "draft");
+        store.saveAll(new SaveContext().saving(first, row("TxOrder", 2, "new"), row("TxCustomer", 7, "Ann")));
+        // cùng id -> bản sau thay bản trước, remove thắng save trước đó
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "final")));
+        store.deleteAll(new SaveContext().removing(row("TxOrder", 2, "new")));
+        assertThat(orders.batches).isEmpty();
+
+        store.commitTransaction(tx);
+        store.rollbackTransaction(tx);
+
+        assertThat(orders.batches).hasSize(1);
+        VirtualWriteBatch<Object> batch = orders.batches.get(0);
+        assertThat(names(batch.getSaved())).isEqualTo(List.of("final"));
+        assertThat(names(batch.getRemoved())).isEqualTo(List.of("new"));
+        assertThat(customers.batches).hasSize(1);
+        assertThat(statusOf(tx)).isEqualTo(DynamicTransaction.Status.COMMITTED);
+    }
+
+    @Test
+    void nestedScopeCommitsWithOutermost() {
+        Object outer = store.beginSaveTransaction(false);
+        Object inner = store.beginSaveTransaction(true);
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a")));
+        store.commitTransaction(inner);
+        store.rollbackTransaction(inner);
+        assertThat(orders.batches).isEmpty();
+
+        store.commitTransaction(outer);
+        assertThat(orders.batches).hasSize(1);
+    }
+
+    @Test
+    void failedNestedScopeMakesOuterRollbackOnly() {
+        Object outer = store.beginSaveTransaction(false);
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a")));
+        Object inner = store.beginSaveTransaction(true);
+        store.rollbackTransaction(inner);
+
+        assertThatThrownBy(() -> store.commitTransaction(outer)).isInstanceOf(IllegalStateException.class);
+        store.rollbackTransaction(outer);
+        assertThat(orders.batches).isEmpty();
+        assertThat(statusOf(outer)).isEqualTo(DynamicTransaction.Status.ROLLED_BACK);
+    }
+
+    @Test
+    void bufferedBatchKeepsHandlerResolvedAtSave() {
+        Object tx = store.beginSaveTransaction(false);
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a")));
+        RecordingHandler replacement = new RecordingHandler();
+        store.registerHandler("TxOrder", replacement);
+
+        // lô đã có handler -> save thêm với handler mới là lỗi, không trộn hai handler trong một lô
+        assertThatThrownBy(() -> store.saveAll(new SaveContext().saving(row("TxOrder", 2, "b"))))
+                .isInstanceOf(IllegalStateException.class);
+        store.commitTransaction(tx);
+
+        assertThat(orders.batches).hasSize(1);
+        assertThat(replacement.batches).isEmpty();
+    }
+
+    @Test
+    void readOnlyEntityIsRejectedAtSave() {
+        store.registerHandler("TxOrder", new RecordingHandler(false));
+        Object tx = store.beginSaveTransaction(false);
+
+        assertThatThrownBy(() -> store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a"))))
+                .isInstanceOf(UnsupportedOperationException.class);
+        store.rollbackTransaction(tx);
+    }
+
+    @Test
+    void failureAfterEarlierEntityCommittedIsReportedAsPartial() {
+        customers.failure = new IllegalStateException("backend down");
+        Object tx = store.beginSaveTransaction(false);
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a"), row("TxCustomer", 7, "Ann")));
+
+        assertThatThrownBy(() -> store.commitTransaction(tx))
+                .isInstanceOf(PartialCommitException.class)
+                .extracting(e -> ((PartialCommitException) e).getCommittedEntities())
+                .isEqualTo(List.of("TxOrder"));
+        store.rollbackTransaction(tx);
+
+        assertThat(orders.batches).hasSize(1);
+        assertThat(statusOf(tx)).isEqualTo(DynamicTransaction.Status.PARTIALLY_COMMITTED);
+    }
+
+    @Test
+    void failureOfFirstEntityRollsBack() {
+        orders.failure = new IllegalStateException("backend down");
+        Object tx = store.beginSaveTransaction(false);
+        store.saveAll(new SaveContext().saving(row("TxOrder", 1, "a"), row("TxCustomer", 7, "Ann")));
+
+        assertThatThrownBy(() -> store.commitTransaction(tx)).isSameAs(orders.failure);
+        store.rollbackTransaction(tx);
+
+        assertThat(customers.batches).isEmpty();
+        assertThat(statusOf(tx)).isEqualTo(DynamicTransaction.Status.ROLLED_BACK);
+    }
+
+    private RecordingHandler register(String entityName) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName(entityName);
+        meta.setAttributes(Map.of("id", Integer.class, "name", String.class));
+        store.registerEntity(meta);
+        RecordingHandler handler = new RecordingHandler();
+        store.registerHandler(entityName, handler);
+        return handler;
+    }
+
+    private static KeyValueEntity row(String entityName, int id, String name) {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName(entityName);
+        KeyValueEntity row = new KeyValueEntity();
+        row.setInstanceMetaClass(metaClass);
+        row.setValue("id", id);
+        row.setValue("name", name);
+        return row;
+    }
+
+    private static List<String> names(List<Object> rows) {
+        return rows.stream().map(r -> (String) ((KeyValueEntity) r).getValue("name")).collect(Collectors.toList());
+    }
+
+    private static DynamicTransaction.Status statusOf(Object scope) {
+        return ((DynamicTransaction.Scope) scope).getTransaction().getStatus();
+    }
+
+    private static final class RecordingHandler implements WritableVirtualEntityHandler<Object> {
+        final List<VirtualWriteBatch<Object>> batches = new ArrayList<>();
+        final boolean writable;
+        RuntimeException failure;
+
+        RecordingHandler() {
+            this(true);
+        }
+
+        RecordingHandler(boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        public void commit(VirtualWriteBatch<Object> batch) {
+            if (failure != null) throw failure;
+            batches.add(batch);
+        }
+
+        @Override
+        public boolean isWritable() {
+            return writable;
+        }
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return List.of();
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.company.dynamicdatastore.dynamic;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Publish snapshot schema: snapshot cũ không đổi, builder chỉ hiện ra sau build(), cả lô lên cùng một version.
+ */
+public class StoreSchemaTest {
+
+    @Test
+    void publishedSnapshotIsNeverModified() {
+        StoreSchema first = StoreSchema.EMPTY.withEntity(meta("Order"));
+        StoreSchema second = first.withHandler("Order", new NoopHandler());
+
+        assertThat(first.binding("Order").getHandler()).isNull();
+        assertThat(second.binding("Order").getHandler()).isNotNull();
+        assertThat(second.binding("Order").getMeta()).isSameAs(first.binding("Order").getMeta());
+        assertThat(second.without("Order").binding("Order")).isNull();
+        assertThat(second.binding("Order")).isNotNull();
+    }
+
+    @Test
+    void builderChangesAreInvisibleUntilBuild() {
+        StoreSchema current = StoreSchema.EMPTY.withEntity(meta("Order"));
+        StoreSchema.Builder builder = current.toBuilder()
+                .withEntity(meta("Invoice"))
+                .withHandler("Invoice", new NoopHandler())
+                .without("Order");
+
+        assertThat(builder.binding("Invoice").getHandler()).isNotNull();
+        assertThat(current.binding("Invoice")).isNull();
+        assertThat(current.binding("Order")).isNotNull();
+
+        StoreSchema next = builder.build();
+        assertThat(next.binding("Invoice").getMeta().getName()).isEqualTo("Invoice");
+        assertThat(next.binding("Order")).isNull();
+        // map của snapshot đã build không được sửa tiếp qua builder
+        assertThatThrownBy(() -> builder.withEntity(meta("Order"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void batchIsPublishedAsOneVersion() {
+        DynamicDataStore store = new DynamicDataStore("schemaStore", null);
+        StoreSchema before = store.getSchema();
+
+        StoreSchema after = store.updateSchema(s -> s.toBuilder()
+                .withEntity(meta("Order"))
+                .withHandler("Order", new NoopHandler())
+                .withEntity(meta("Invoice"))
+                .build());
+
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(store.getSchema()).isSameAs(after);
+        assertThat(after.getBindings()).hasSize(2);
+        assertThat(before.getBindings()).isEmpty();
+        assertThat(store.getEntity("Invoice")).isSameAs(after.binding("Invoice").getMeta());
+    }
+
+    private static EntityMeta meta(String name) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName(name);
+        meta.setAttributes(Map.of("id", Integer.class));
+        return meta;
+    }
+
+    private static final class NoopHandler implements VirtualEntityHandler<Object> {
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return List.of();
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Accumulator: kết quả và kiểu kết quả của từng hàm gộp, trừ ngược cho aggregate duy trì theo change event.
+ */
+public class AccumulatorTest {
+
+    @Test
+    void countRowsCountsNullsCountValuesDoesNot() {
+        Accumulator rows = Accumulator.create(AggregateFunction.COUNT, true, null, RowLayout.Kind.OBJECT);
+        Accumulator values = Accumulator.create(AggregateFunction.COUNT, false, String.class, RowLayout.Kind.OBJECT);
+        for (Object v : new Object[]{"a", null, "b"}) {
+            rows.add(v);
+            values.add(v);
+        }
+
+        assertThat(rows.result()).isEqualTo(3L);
+        assertThat(values.result()).isEqualTo(2L);
+
+        values.remove("a");
+        assertThat(values.result()).isEqualTo(1L);
+    }
+
+    @Test
+    void integralSumIsLongAndNullWhenEmpty() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, Integer.class, RowLayout.Kind.INTEGER);
+        assertThat(sum.result()).isNull();
+
+        sum.add(3);
+        sum.add(null);
+        sum.add(4);
+        assertThat(sum.result()).isEqualTo(7L);
+
+        assertThat(sum.remove(3)).isTrue();
+        assertThat(sum.result()).isEqualTo(4L);
+        sum.remove(4);
+        assertThat(sum.result()).isNull();
+    }
+
+    @Test
+    void integralSumWidensInsteadOfOverflowing() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, Long.class, RowLayout.Kind.LONG);
+        sum.add(Long.MAX_VALUE);
+        sum.add(1L);
+        assertThat(sum.result()).isEqualTo(new BigDecimal("9223372036854775808"));
+
+        // trừ ngược về lại vừa long -> Long như bình thường
+        sum.remove(1L);
+        assertThat(sum.result()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void doubleSumAndAvg() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, Double.class, RowLayout.Kind.DOUBLE);
+        Accumulator avg = Accumulator.create(AggregateFunction.AVG, false, Integer.class, RowLayout.Kind.INTEGER);
+        for (int v : new int[]{1, 2, 6}) {
+            sum.add((double) v);
+            avg.add(v);
+        }
+
+        assertThat(sum.result()).isEqualTo(9.0);
+        assertThat(avg.result()).isEqualTo(3.0);
+
+        avg.remove(6);
+        assertThat(avg.result()).isEqualTo(1.5);
+    }
+
+    @Test
+    void decimalSumStaysUnscaledUntilScaleChanges() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, BigDecimal.class, RowLayout.Kind.DECIMAL);
+        sum.add(new BigDecimal("1.10"));
+        sum.add(new BigDecimal("2.20"));
+        assertThat(sum.result()).isEqualTo(new BigDecimal("3.30"));
+
+        // khác scale -> chuyển sang BigDecimal, không mất phần lẻ
+        sum.add(new BigDecimal("0.005"));
+        assertThat(sum.result()).isEqualTo(new BigDecimal("3.305"));
+
+        sum.remove(new BigDecimal("1.10"));
+        assertThat(sum.result()).isEqualTo(new BigDecimal("2.205"));
+    }
+
+    @Test
+    void decimalSumSpillsOnUnscaledOverflow() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, BigDecimal.class, RowLayout.Kind.DECIMAL);
+        BigDecimal large = new BigDecimal("900000000000000000");
+        sum.add(large);
+        sum.add(large);
+        sum.add(large);
+
+        assertThat(sum.result()).isEqualTo(new BigDecimal("2700000000000000000"));
+    }
+
+    @Test
+    void unknownTypeSumFollowsValues() {
+        Accumulator longs = Accumulator.create(AggregateFunction.SUM, false, null, RowLayout.Kind.OBJECT);
+        longs.add(2L);
+        longs.add(3L);
+        assertThat(longs.result()).isEqualTo(5L);
+
+        Accumulator decimals = Accumulator.create(AggregateFunction.SUM, false, null, RowLayout.Kind.OBJECT);
+        decimals.add(new BigDecimal("1.5"));
+        decimals.add(new BigDecimal("2.5"));
+        assertThat(decimals.result()).isEqualTo(new BigDecimal("4.0"));
+    }
+
+    @Test
+    void unknownTypeSumWidensOnMixedValues() {
+        Accumulator sum = Accumulator.create(AggregateFunction.SUM, false, null, RowLayout.Kind.OBJECT);
+        sum.add(1);
+        sum.add(2L);
+        assertThat(sum.result()).isEqualTo(3L);
+
+        // Integer rồi Double: không được cắt phần lẻ
+        sum.add(0.5);
+        assertThat(sum.result()).isEqualTo(3.5);
+
+        sum.add(new BigDecimal("0.25"));
+        assertThat(sum.result()).isEqualTo(new BigDecimal("3.75"));
+
+        sum.remove(2L);
+        assertThat(sum.result()).isEqualTo(new BigDecimal("1.75"));
+
+        Accumulator large = Accumulator.create(AggregateFunction.SUM, false, null, RowLayout.Kind.OBJECT);
+        large.add(Long.MAX_VALUE);
+        large.add(Long.MAX_VALUE);
+        assertThat(large.result()).isEqualTo(new BigDecimal("18446744073709551614"));
+    }
+
+    @Test
+    void minMaxKeepAttributeTypeAndReportLostExtreme() {
+        Accumulator max = Accumulator.create(AggregateFunction.MAX, false, Integer.class, RowLayout.Kind.INTEGER);
+        Accumulator min = Accumulator.create(AggregateFunction.MIN, false, String.class, RowLayout.Kind.OBJECT);
+        for (int v : new int[]{4, 9, 1}) {
+            max.add(v);
+            min.add("v" + v);
+        }
+
+        assertThat(max.result()).isEqualTo(9);
+        assertThat(min.result()).isEqualTo("v1");
+
+        // bỏ giá trị không phải cực trị: trừ được
+        assertThat(max.remove(4)).isTrue();
+        assertThat(min.remove("v9")).isTrue();
+        // bỏ cực trị: phải tính lại nhóm
+        assertThat(max.remove(9)).isFalse();
+        assertThat(min.remove("v1")).isFalse();
+    }
+
+    @Test
+    void doubleExtreme() {
+        Accumulator min = Accumulator.create(AggregateFunction.MIN, false, Double.class, RowLayout.Kind.DOUBLE);
+        min.add(2.5);
+        min.add(-1.0);
+        min.add(null);
+
+        assertThat(min.result()).isEqualTo(-1.0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Aggregator: group by (key đã normalize), nhiều hàm gộp một lượt, đọc slot của CompactRow.
+ */
+public class AggregatorTest {
+
+    private static final AggregateQuery BY_REGION = new AggregateQuery(List.of(
+            AggregateQuery.Column.group("region", null),
+            AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n"),
+            AggregateQuery.Column.measure(AggregateFunction.SUM, "amount", "total"),
+            AggregateQuery.Column.measure(AggregateFunction.MAX, "amount", "top")),
+            List.of("region"), null, Map.of());
+
+    @Test
+    void groupsRowsByKey() {
+        Aggregator aggregator = new Aggregator(meta(), BY_REGION);
+        aggregator.add(row(1, "N", 10));
+        aggregator.add(row(2, "S", 5));
+        aggregator.add(row(3, "N", 7));
+
+        assertThat(aggregator.groupCount()).isEqualTo(2);
+        assertThat(sorted(aggregator.result())).isEqualTo(List.of(
+                List.of("N", 2L, 17L, 10),
+                List.of("S", 1L, 5L, 5)));
+    }
+
+    @Test
+    void compactRowsGiveSameResult() {
+        RowLayout layout = RowLayout.of(meta());
+        Aggregator aggregator = new Aggregator(meta(), BY_REGION);
+        aggregator.add(layout.row("id", 1, "region", "N", "amount", 10));
+        aggregator.add(layout.row("id", 2, "region", "S", "amount", 5));
+        aggregator.add(layout.row("id", 3, "region", "N", "amount", 7));
+
+        assertThat(sorted(aggregator.result())).isEqualTo(List.of(
+                List.of("N", 2L, 17L, 10),
+                List.of("S", 1L, 5L, 5)));
+    }
+
+    @Test
+    void numericGroupKeysAreNormalized() {
+        AggregateQuery query = new AggregateQuery(List.of(
+                AggregateQuery.Column.group("code", null),
+                AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n")),
+                List.of("code"), null, Map.of());
+        Aggregator aggregator = new Aggregator(null, query);
+        aggregator.add(value("code", 1));
+        aggregator.add(value("code", 1L));
+        aggregator.add(value("code", new BigDecimal("1.00")));
+
+        List<Object[]> result = aggregator.result();
+        assertThat(result).hasSize(1);
+        // giá trị nhóm là giá trị gặp đầu tiên
+        assertThat(result.get(0)[0]).isEqualTo(1);
+        assertThat(result.get(0)[1]).isEqualTo(3L);
+    }
+
+    @Test
+    void noGroupByAlwaysGivesOneRow() {
+        AggregateQuery query = new AggregateQuery(List.of(
+                AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n"),
+                AggregateQuery.Column.measure(AggregateFunction.SUM, "amount", "total")),
+                List.of(), null, Map.of());
+        Aggregator aggregator = new Aggregator(meta(), query);
+
+        assertThat(aggregator.result()).hasSize(1);
+        assertThat(aggregator.result().get(0)).containsExactly(0L, null);
+    }
+
+    @Test
+    void selectedPropertyMustBeGrouped() {
+        AggregateQuery query = new AggregateQuery(List.of(
+                AggregateQuery.Column.group("region", null),
+                AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n")),
+                List.of(), null, Map.of());
+
+        assertThatThrownBy(() -> new Aggregator(meta(), query)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<List<Object>> sorted(List<Object[]> rows) {
+        return rows.stream()
+                .sorted(Comparator.comparing(r -> (String) r[0]))
+                .map(List::of)
+                .collect(Collectors.toList());
+    }
+
+    static EntityMeta meta() {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("Sale");
+        meta.setAttributes(Map.of("id", Integer.class, "region", String.class, "amount", Integer.class));
+        return meta;
+    }
+
+    static KeyValueEntity row(int id, String region, int amount) {
+        KeyValueEntity row = new KeyValueEntity();
+        row.setValue("id", id);
+        row.setValue("region", region);
+        row.setValue("amount", amount);
+        return row;
+    }
+
+    private static KeyValueEntity value(String property, Object value) {
+        KeyValueEntity row = new KeyValueEntity();
+        row.setValue(property, value);
+        return row;
+    }
+}
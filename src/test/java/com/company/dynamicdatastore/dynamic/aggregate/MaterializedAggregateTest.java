@@ -0,0 +1,169 @@
+package com.company.dynamicdatastore.dynamic.aggregate;
+
+import com.company.dynamicdatastore.dynamic.change.RowChange;
+import com.company.dynamicdatastore.dynamic.change.RowChangeListener;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.company.dynamicdatastore.dynamic.aggregate.AggregatorTest.meta;
+import static com.company.dynamicdatastore.dynamic.aggregate.AggregatorTest.row;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MaterializedAggregate: cập nhật từng phần theo RowChange, tính lại nhóm min / max khi mất cực trị,
+ * refresh() giữ thay đổi tới trong lúc quét.
+ */
+public class MaterializedAggregateTest {
+
+    private static final AggregateQuery BY_REGION = new AggregateQuery(List.of(
+            AggregateQuery.Column.group("region", null),
+            AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n"),
+            AggregateQuery.Column.measure(AggregateFunction.SUM, "amount", "total"),
+            AggregateQuery.Column.measure(AggregateFunction.MAX, "amount", "top")),
+            List.of("region"), null, Map.of());
+
+    private final List<KeyValueEntity> source = new ArrayList<>(List.of(
+            row(1, "N", 10), row(2, "S", 5), row(3, "N", 7)));
+    private final AtomicInteger scans = new AtomicInteger();
+    private final AtomicBoolean unsubscribed = new AtomicBoolean();
+    private final List<MaterializedAggregate> closed = new ArrayList<>();
+    private RowChangeListener listener;
+
+    @Test
+    void refreshScansOnce() {
+        MaterializedAggregate aggregate = aggregate(r -> true);
+        aggregate.refresh();
+
+        assertThat(rows(aggregate)).isEqualTo(List.of(
+                List.of("N", 2L, 17L, 10),
+                List.of("S", 1L, 5L, 5)));
+        assertThat(aggregate.size()).isEqualTo(3);
+        rows(aggregate);
+        assertThat(scans.get()).isEqualTo(1);
+    }
+
+    @Test
+    void insertUpdateDeleteAreAppliedWithoutScanning() {
+        MaterializedAggregate aggregate = aggregate(r -> true);
+        aggregate.refresh();
+
+        listener.onChanges(List.of(
+                RowChange.inserted(4, row(4, "S", 8)),
+                RowChange.updated(1, row(1, "S", 2)),
+                RowChange.deleted(2)));
+
+        assertThat(rows(aggregate)).isEqualTo(List.of(
+                List.of("N", 1L, 7L, 7),
+                List.of("S", 2L, 10L, 8)));
+        assertThat(scans.get()).isEqualTo(1);
+    }
+
+    @Test
+    void rowLeavingWhereIsRemoved() {
+        MaterializedAggregate aggregate = aggregate(r -> (Integer) ((KeyValueEntity) r).getValue("amount") > 6);
+        aggregate.refresh();
+        assertThat(aggregate.size()).isEqualTo(2);
+
+        listener.onChanges(List.of(RowChange.updated(1, row(1, "N", 3))));
+
+        assertThat(rows(aggregate)).isEqualTo(List.of(List.of("N", 1L, 7L, 7)));
+    }
+
+    @Test
+    void lostMaxRecomputesGroupFromKeptContributions() {
+        MaterializedAggregate aggregate = aggregate(r -> true);
+        aggregate.refresh();
+
+        // bỏ cực trị của nhóm N -> tính lại trên phần đóng góp còn giữ, không quét lại
+        listener.onChanges(List.of(RowChange.deleted(1)));
+        assertThat(rows(aggregate)).contains(List.of("N", 1L, 7L, 7));
+
+        listener.onChanges(List.of(RowChange.inserted(5, row(5, "N", 1))));
+        listener.onChanges(List.of(RowChange.deleted(5)));
+        assertThat(rows(aggregate)).contains(List.of("N", 1L, 7L, 7));
+        assertThat(scans.get()).isEqualTo(1);
+    }
+
+    @Test
+    void changesArrivingMidScanWinOverScannedRows() {
+        List<KeyValueEntity> scanned = new ArrayList<>(source);
+        MaterializedAggregate aggregate = new MaterializedAggregate("Sale", meta(), BY_REGION, r -> true,
+                () -> scanned.stream().peek(r -> {
+                    // handler ghi trong lúc đang quét: row 3 đổi, row 2 bị xoá
+                    if (Integer.valueOf(1).equals(r.getValue("id"))) {
+                        listener.onChanges(List.of(RowChange.updated(3, row(3, "S", 20)), RowChange.deleted(2)));
+                    }
+                }),
+                l -> {
+                    listener = l;
+                    return () -> { };
+                },
+                a -> { });
+
+        aggregate.refresh();
+
+        assertThat(rows(aggregate)).isEqualTo(List.of(
+                List.of("N", 1L, 10L, 10),
+                List.of("S", 1L, 20L, 20)));
+    }
+
+    @Test
+    void refreshReplacesStateWithNewScan() {
+        MaterializedAggregate aggregate = aggregate(r -> true);
+        aggregate.refresh();
+        listener.onChanges(List.of(RowChange.inserted(4, row(4, "S", 8))));
+
+        // nguồn đổi mà không có change event (ví dụ ghi thẳng vào backend) -> refresh() quét lại từ đầu
+        source.clear();
+        source.add(row(7, "W", 3));
+        aggregate.refresh();
+
+        assertThat(rows(aggregate)).isEqualTo(List.of(List.of("W", 1L, 3L, 3)));
+        assertThat(aggregate.size()).isEqualTo(1);
+        assertThat(scans.get()).isEqualTo(2);
+    }
+
+    @Test
+    void closeUnsubscribesAndIgnoresLaterChanges() {
+        MaterializedAggregate aggregate = aggregate(r -> true);
+        aggregate.refresh();
+
+        aggregate.close();
+        listener.onChanges(List.of(RowChange.inserted(9, row(9, "N", 100))));
+
+        assertThat(unsubscribed.get()).isTrue();
+        assertThat(closed).containsExactly(aggregate);
+        assertThat(aggregate.isClosed()).isTrue();
+        assertThat(aggregate.size()).isEqualTo(0);
+    }
+
+    private MaterializedAggregate aggregate(Predicate<Object> filter) {
+        return new MaterializedAggregate("Sale", meta(), BY_REGION, filter,
+                () -> {
+                    scans.incrementAndGet();
+                    return Stream.<Object>of(source.toArray()).filter(filter);
+                },
+                l -> {
+                    listener = l;
+                    return () -> unsubscribed.set(true);
+                },
+                closed::add);
+    }
+
+    private static List<List<Object>> rows(MaterializedAggregate aggregate) {
+        return aggregate.rows().stream()
+                .sorted(Comparator.comparing(r -> (String) r[0]))
+                .map(List::of)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,134 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.html.Div;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AsyncDynamicDataManager.supply(...): timeout / cancel ngắt thread đang chạy, executor đầy thì lỗi ngay,
+ * AsyncLoadScope huỷ load còn chạy khi component detach.
+ */
+public class AsyncDynamicDataManagerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    // supply(...) không đụng tới DataManager
+    private final AsyncDynamicDataManager manager = new AsyncDynamicDataManager(null, properties());
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        manager.shutdown();
+    }
+
+    @Test
+    void resultIsDelivered() throws Exception {
+        assertThat(manager.supply(() -> 42, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS)).isEqualTo(42);
+    }
+
+    @Test
+    void timeoutFailsFutureAndInterruptsCall() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Object> future = manager.supply(() -> blockUntilInterrupted(interrupted),
+                Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelInterruptsCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Object> future = manager.supply(() -> {
+            started.countDown();
+            return blockUntilInterrupted(interrupted);
+        }, Duration.ofSeconds(30));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        future.cancel(true);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void fullExecutorFailsFutureImmediately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        manager.supply(() -> {
+            started.countDown();
+            return awaitRelease();
+        }, Duration.ofSeconds(30));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Object> rejected = manager.supply(() -> "never", Duration.ofSeconds(30));
+
+        assertThat(rejected.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void detachClosesScopeAndCancelsPendingLoads() throws Exception {
+        Component owner = new Div();
+        AsyncLoadScope scope = manager.scope(owner);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Object> future = scope.track(manager.supply(() -> {
+            started.countDown();
+            return blockUntilInterrupted(interrupted);
+        }, Duration.ofSeconds(30)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ComponentUtil.fireEvent(owner, new DetachEvent(owner));
+
+        assertThat(scope.isClosed()).isTrue();
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        // load thêm sau khi đóng thì bị huỷ luôn
+        assertThat(scope.track(new CompletableFuture<>()).isCancelled()).isTrue();
+    }
+
+    private Object awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private Object blockUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return null;
+    }
+
+    // 1 thread, không hàng đợi: load thứ hai khi load đầu còn chạy bị từ chối
+    private static DynamicStoreProperties properties() {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        properties.setAsyncMaxConcurrency(1);
+        properties.setAsyncQueueCapacity(0);
+        properties.setAsyncVirtualThreads(false);
+        return properties;
+    }
+}
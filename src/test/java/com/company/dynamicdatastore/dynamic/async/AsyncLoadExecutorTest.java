@@ -0,0 +1,101 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AsyncLoadExecutor: từ chối khi quá maxConcurrency + queueCapacity, cancel(true) ngắt task đang chạy.
+ */
+public class AsyncLoadExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsyncLoadExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) executor.shutdown();
+    }
+
+    @Test
+    void poolRejectsWhenQueueIsFull() throws Exception {
+        executor = AsyncLoadExecutor.create(properties(false));
+        assertFullAfterTwo();
+    }
+
+    @Test
+    void virtualThreadModeRejectsAtSameLimit() throws Exception {
+        // Java 17 không có virtual thread -> tự lùi về pool, giới hạn vẫn như nhau
+        executor = AsyncLoadExecutor.create(properties(true));
+        assertFullAfterTwo();
+    }
+
+    @Test
+    void cancelInterruptsRunningTask() throws Exception {
+        executor = AsyncLoadExecutor.create(properties(false));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Future<?> future = executor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        future.cancel(true);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void slotIsFreedAfterTaskCompletes() throws Exception {
+        executor = AsyncLoadExecutor.create(properties(false));
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            executor.submit(done::countDown).get(5, TimeUnit.SECONDS);
+        }
+        assertThat(done.getCount()).isEqualTo(0L);
+    }
+
+    // 1 task chạy + 1 task xếp hàng, task thứ ba bị từ chối ngay
+    private void assertFullAfterTwo() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            awaitRelease();
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.submit(this::awaitRelease);
+
+        assertThatThrownBy(() -> executor.submit(() -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DynamicStoreProperties properties(boolean virtualThreads) {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        properties.setAsyncMaxConcurrency(1);
+        properties.setAsyncQueueCapacity(1);
+        properties.setAsyncVirtualThreads(virtualThreads);
+        return properties;
+    }
+}
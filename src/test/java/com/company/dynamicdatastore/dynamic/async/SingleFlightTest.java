@@ -0,0 +1,186 @@
+package com.company.dynamicdatastore.dynamic.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * SingleFlight: một lời gọi thật cho mỗi key đang chạy, bên chờ nhận bản sao riêng, lỗi đi tới mọi bên.
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight<String, List<String>> flight = new SingleFlight<>();
+
+    @Test
+    void followersShareOneCallAndGetOwnCopy() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<List<String>> source = new CompletableFuture<>();
+
+        CompletableFuture<List<String>> leader = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return source;
+        }, ArrayList::new);
+        CompletableFuture<List<String>> follower = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of("other"));
+        }, ArrayList::new);
+        List<String> result = new ArrayList<>(List.of("a", "b"));
+        source.complete(result);
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(leader.get()).isSameAs(result);
+        assertThat(follower.get()).isEqualTo(result);
+        assertThat(follower.get()).isNotSameAs(result);
+        assertThat(flight.size()).isEqualTo(0);
+    }
+
+    @Test
+    void finishedCallIsNotCached() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        flight.execute("k", () -> CompletableFuture.completedFuture(List.of(String.valueOf(calls.incrementAndGet())))).get();
+        List<String> second = flight.execute("k",
+                () -> CompletableFuture.completedFuture(List.of(String.valueOf(calls.incrementAndGet())))).get();
+
+        assertThat(second).isEqualTo(List.of("2"));
+    }
+
+    @Test
+    void failureReachesEveryCaller() {
+        CompletableFuture<List<String>> source = new CompletableFuture<>();
+        CompletableFuture<List<String>> leader = flight.execute("k", () -> source);
+        CompletableFuture<List<String>> follower = flight.execute("k", () -> source, ArrayList::new);
+        IllegalStateException error = new IllegalStateException("backend down");
+
+        source.completeExceptionally(error);
+
+        assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class).hasCauseReference(error);
+        assertThatThrownBy(follower::get).isInstanceOf(ExecutionException.class).hasCauseReference(error);
+        assertThat(flight.size()).isEqualTo(0);
+    }
+
+    @Test
+    void callThrowingSynchronouslyFailsFutureAndFreesKey() throws Exception {
+        CompletableFuture<List<String>> failed = flight.execute("k", () -> {
+            throw new IllegalArgumentException("bad query");
+        });
+
+        assertThatThrownBy(failed::get).isInstanceOf(ExecutionException.class);
+        assertThat(flight.execute("k", () -> CompletableFuture.completedFuture(List.of("ok"))).get())
+                .isEqualTo(List.of("ok"));
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotCancelSharedCall() throws Exception {
+        CompletableFuture<List<String>> source = new CompletableFuture<>();
+        CompletableFuture<List<String>> leader = flight.execute("k", () -> source);
+        CompletableFuture<List<String>> follower = flight.execute("k", () -> source, ArrayList::new);
+
+        leader.cancel(true);
+        source.complete(List.of("a"));
+
+        assertThat(source.isCancelled()).isFalse();
+        assertThat(follower.get()).isEqualTo(List.of("a"));
+    }
+
+    @Test
+    void blockingRunSharesResultWithWaitingThread() throws Exception {
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<String> result = new ArrayList<>(List.of("x"));
+        AtomicReference<List<String>> leaderResult = new AtomicReference<>();
+        AtomicReference<List<String>> followerResult = new AtomicReference<>();
+
+        Thread leader = new Thread(() -> leaderResult.set(flight.run("k", () -> {
+            calls.incrementAndGet();
+            inCall.countDown();
+            await(release);
+            return result;
+        }, ArrayList::new)));
+        leader.start();
+        assertThat(inCall.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread follower = new Thread(() -> followerResult.set(flight.run("k", () -> {
+            calls.incrementAndGet();
+            return List.of("other");
+        }, ArrayList::new)));
+        follower.start();
+        awaitBlocked(follower);
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(leaderResult.get()).isSameAs(result);
+        assertThat(followerResult.get()).isEqualTo(result);
+        assertThat(followerResult.get()).isNotSameAs(result);
+    }
+
+    @Test
+    void blockingRunRethrowsLeaderErrorToFollower() throws Exception {
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException error = new IllegalStateException("backend down");
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        AtomicReference<Throwable> followerError = new AtomicReference<>();
+
+        Thread leader = new Thread(() -> {
+            try {
+                flight.run("k", () -> {
+                    inCall.countDown();
+                    await(release);
+                    throw error;
+                }, ArrayList::new);
+            } catch (RuntimeException e) {
+                leaderError.set(e);
+            }
+        });
+        leader.start();
+        assertThat(inCall.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread follower = new Thread(() -> {
+            try {
+                flight.run("k", List::of, ArrayList::new);
+            } catch (RuntimeException e) {
+                followerError.set(e);
+            }
+        });
+        follower.start();
+        awaitBlocked(follower);
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertThat(leaderError.get()).isSameAs(error);
+        assertThat(followerError.get()).isSameAs(error);
+        assertThat(flight.size()).isEqualTo(0);
+    }
+
+    // follower đã vào chờ kết quả của leader (park trong join)
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.company.dynamicdatastore.dynamic.cache;
+
+import com.company.dynamicdatastore.dynamic.DynamicMetaClass;
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.query.JpqlQueryCache;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualWriteBatch;
+import com.company.dynamicdatastore.dynamic.virtual.WritableVirtualEntityHandler;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache dạng cột: query lặp lại không chạm backend, invalidate / commit / TTL thì load lại,
+ * filter không chính xác hoặc dữ liệu quá maxBytes thì đi thẳng xuống handler gốc, ngân sách chung evict LRU.
+ */
+public class CachingVirtualEntityHandlerTest {
+
+    private static final VirtualFilter NEW_STATUS =
+            VirtualFilter.compare("status", FilterOperator.EQUAL, VirtualFilter.Operand.literal("NEW"));
+
+    private final JpqlQueryCache queryCache = new JpqlQueryCache(16);
+
+    @Test
+    void repeatedQueriesAreServedFromSnapshot() {
+        RowsHandler delegate = new RowsHandler();
+        CachingVirtualEntityHandler handler = cache(1L << 20).wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("Item"), queryCache);
+
+        VirtualQuery query = new VirtualQuery(0, 0, List.of(new VirtualQuery.SortKey("qty", true)), List.of(),
+                NEW_STATUS, Map.of(), true);
+        List<KeyValueEntity> first = handler.loadAllKeyValue(ctx(), query);
+        List<KeyValueEntity> second = handler.loadAllKeyValue(ctx(), query.withPaging(1, 1));
+        long count = handler.countKeyValue(ctx(), query.withoutPaging());
+
+        assertThat(ids(first)).isEqualTo(List.of(5, 3, 1));
+        assertThat(ids(second)).isEqualTo(List.of(3));
+        assertThat(count).isEqualTo(3L);
+        assertThat(delegate.loads.get()).isEqualTo(1);
+        assertThat(handler.getEstimatedBytes()).isPositive();
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        RowsHandler delegate = new RowsHandler();
+        VirtualEntityCache cache = cache(1L << 20);
+        CachingVirtualEntityHandler handler = cache.wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("Item"), queryCache);
+
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        handler.invalidate();
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        cache.invalidate("s", "Item");
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        cache.invalidateStore("other");
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+
+        assertThat(delegate.loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void commitIsForwardedAndInvalidates() {
+        RowsHandler delegate = new RowsHandler();
+        CachingVirtualEntityHandler handler = cache(1L << 20).wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("Item"), queryCache);
+
+        assertThat(handler.loadAllKeyValue(ctx(), VirtualQuery.ALL)).hasSize(5);
+        delegate.size = 6;
+        handler.commit(new VirtualWriteBatch<>("s", "Item", List.of(), List.of()));
+
+        assertThat(delegate.commits.get()).isEqualTo(1);
+        assertThat(handler.loadAllKeyValue(ctx(), VirtualQuery.ALL)).hasSize(6);
+        assertThat(delegate.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredSnapshotIsReloaded() throws InterruptedException {
+        RowsHandler delegate = new RowsHandler();
+        CachingVirtualEntityHandler handler = cache(1L << 20).wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMillis(20), 1L << 20), () -> metaClass("Item"), queryCache);
+
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        Thread.sleep(50);
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+
+        assertThat(delegate.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void inexactFilterGoesToDelegate() {
+        RowsHandler delegate = new RowsHandler();
+        CachingVirtualEntityHandler handler = cache(1L << 20).wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("Item"), queryCache);
+
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        VirtualQuery inexact = new VirtualQuery(0, 0, List.of(), List.of(), NEW_STATUS, Map.of(), false);
+        handler.loadAllKeyValue(ctx(), inexact);
+
+        assertThat(delegate.loads.get()).isEqualTo(1);
+        assertThat(delegate.keyValueLoads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void snapshotOverSpecLimitIsNotCached() {
+        RowsHandler delegate = new RowsHandler();
+        CachingVirtualEntityHandler handler = cache(1L << 20).wrap("s", meta("Item"), delegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1), () -> metaClass("Item"), queryCache);
+
+        List<KeyValueEntity> rows = handler.loadAllKeyValue(ctx(),
+                new VirtualQuery(0, 0, List.of(), List.of(), NEW_STATUS, Map.of(), true));
+        handler.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+
+        // build thử một lần, sau đó bỏ qua cache cho tới hết TTL
+        assertThat(ids(rows)).containsExactlyInAnyOrder(1, 3, 5);
+        assertThat(delegate.loads.get()).isEqualTo(1);
+        assertThat(delegate.keyValueLoads.get()).isEqualTo(2);
+        assertThat(handler.getEstimatedBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    void sharedBudgetEvictsLeastRecentlyUsedSnapshot() throws InterruptedException {
+        VirtualEntityCache probe = cache(1L << 20);
+        CachingVirtualEntityHandler measured = probe.wrap("s", meta("Item"), new RowsHandler(),
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("Item"), queryCache);
+        measured.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        long oneSnapshot = measured.getEstimatedBytes();
+
+        VirtualEntityCache cache = cache(oneSnapshot + oneSnapshot / 2);
+        RowsHandler firstDelegate = new RowsHandler();
+        CachingVirtualEntityHandler first = cache.wrap("s", meta("A"), firstDelegate,
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("A"), queryCache);
+        CachingVirtualEntityHandler second = cache.wrap("s", meta("B"), new RowsHandler(),
+                CacheSpec.of(Duration.ofMinutes(5), 1L << 20), () -> metaClass("B"), queryCache);
+
+        first.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        Thread.sleep(2);
+        second.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+
+        assertThat(first.getEstimatedBytes()).isEqualTo(0L);
+        assertThat(second.getEstimatedBytes()).isEqualTo(oneSnapshot);
+        assertThat(cache.getEstimatedBytes()).isLessThanOrEqualTo(cache.getMaxBytes());
+
+        first.loadAllKeyValue(ctx(), VirtualQuery.ALL);
+        assertThat(firstDelegate.loads.get()).isEqualTo(2);
+    }
+
+    private static VirtualEntityCache cache(long maxBytes) {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        properties.setCacheMaxBytes(maxBytes);
+        return new VirtualEntityCache(properties);
+    }
+
+    private static ValueLoadContext ctx() {
+        return ValueLoadContext.create().setQuery(new ValueLoadContext.Query("select e.id, e.status, e.qty from Item e"));
+    }
+
+    private static EntityMeta meta(String name) {
+        Map<String, Class<?>> attributes = new LinkedHashMap<>();
+        attributes.put("id", Integer.class);
+        attributes.put("status", String.class);
+        attributes.put("qty", Long.class);
+        EntityMeta meta = new EntityMeta();
+        meta.setName(name);
+        meta.setIdProperty("id");
+        meta.setAttributes(attributes);
+        return meta;
+    }
+
+    private static DynamicMetaClass metaClass(String name) {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName(name);
+        return metaClass;
+    }
+
+    private static List<Object> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> r.getValue("id")).collect(Collectors.toList());
+    }
+
+    // id 1..size, status NEW ở id lẻ, qty = id * 10; đếm số lần backend bị gọi
+    private static final class RowsHandler implements WritableVirtualEntityHandler<Object> {
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger keyValueLoads = new AtomicInteger();
+        final AtomicInteger commits = new AtomicInteger();
+        volatile int size = 5;
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            loads.incrementAndGet();
+            return new ArrayList<>(rows());
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            keyValueLoads.incrementAndGet();
+            return rows();
+        }
+
+        @Override
+        public void commit(VirtualWriteBatch<Object> batch) {
+            commits.incrementAndGet();
+        }
+
+        private List<KeyValueEntity> rows() {
+            List<KeyValueEntity> out = new ArrayList<>();
+            for (int i = 1; i <= size; i++) {
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("id", i);
+                row.setValue("status", i % 2 == 1 ? "NEW" : "OLD");
+                row.setValue("qty", i * 10L);
+                out.add(row);
+            }
+            return out;
+        }
+    }
+}
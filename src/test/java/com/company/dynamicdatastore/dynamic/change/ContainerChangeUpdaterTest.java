@@ -0,0 +1,159 @@
+package com.company.dynamicdatastore.dynamic.change;
+
+import com.company.dynamicdatastore.dynamic.DynamicDataStore;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.server.Command;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.flowui.model.KeyValueCollectionContainer;
+import io.jmix.flowui.model.impl.KeyValueCollectionContainerImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ContainerChangeUpdater: gom thay đổi theo id trong một flush, áp một lần trên UI, lô lớn thay cả list.
+ */
+public class ContainerChangeUpdaterTest {
+
+    private static final String ENTITY = "LiveOrder";
+
+    private DynamicDataStore store;
+    private DirectUI ui;
+    private KeyValueCollectionContainer container;
+    private ContainerChangeUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        store = new DynamicDataStore("liveStore", null);
+        EntityMeta meta = new EntityMeta();
+        meta.setName(ENTITY);
+        meta.setAttributes(Map.of("id", String.class, "name", String.class));
+        store.registerEntity(meta);
+
+        ui = new DirectUI();
+        UI.setCurrent(ui);
+        container = new KeyValueCollectionContainerImpl();
+        container.setIdName("id");
+        updater = ContainerChangeUpdater.bind(new Div(), store, ENTITY, container)
+                .withFlushInterval(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        updater.close();
+        UI.setCurrent(null);
+    }
+
+    @Test
+    void changesOfOneFlushAreCoalescedById() throws Exception {
+        store.publishChanges(ENTITY, List.of(
+                RowChange.inserted("a", row("a", "draft")),
+                RowChange.inserted("b", row("b", "tmp"))));
+        store.publishChanges(ENTITY, List.of(
+                RowChange.updated("a", row("a", "final")),
+                RowChange.deleted("b")));
+
+        ui.awaitAccess();
+
+        assertThat(names()).isEqualTo(List.of("a=final"));
+        assertThat(ui.accessCount).isEqualTo(1);
+    }
+
+    @Test
+    void containerGetsItsOwnCopy() throws Exception {
+        KeyValueEntity source = row("a", "one");
+        store.publishChanges(ENTITY, List.of(RowChange.inserted("a", source)));
+        ui.awaitAccess();
+
+        source.setValue("name", "changed by writer");
+
+        assertThat(names()).isEqualTo(List.of("a=one"));
+    }
+
+    @Test
+    void largeBatchReplacesListOnce() throws Exception {
+        container.setItems(List.of(row("a", "old"), row("b", "old")));
+        updater.withBulkThreshold(2);
+
+        store.publishChanges(ENTITY, List.of(
+                RowChange.updated("b", row("b", "new")),
+                RowChange.deleted("a"),
+                RowChange.inserted("c", row("c", "new"))));
+        ui.awaitAccess();
+
+        assertThat(names()).isEqualTo(List.of("b=new", "c=new"));
+    }
+
+    @Test
+    void rowsFailingFilterLeaveView() throws Exception {
+        container.setItems(List.of(row("a", "keep"), row("b", "keep")));
+        updater.withRowFilter(r -> "keep".equals(r.getValue("name")));
+
+        store.publishChanges(ENTITY, List.of(
+                RowChange.updated("a", row("a", "drop")),
+                RowChange.inserted("c", row("c", "drop"))));
+        ui.awaitAccess();
+
+        assertThat(names()).isEqualTo(List.of("b=keep"));
+    }
+
+    @Test
+    void closedUpdaterIgnoresChanges() throws Exception {
+        updater.close();
+
+        store.publishChanges(ENTITY, List.of(RowChange.inserted("a", row("a", "one"))));
+
+        assertThat(ui.permits.tryAcquire(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(container.getItems()).isEmpty();
+        assertThat(updater.isClosed()).isTrue();
+    }
+
+    private List<String> names() {
+        return container.getItems().stream()
+                .map(r -> r.getValue("id") + "=" + r.getValue("name"))
+                .collect(Collectors.toList());
+    }
+
+    private static KeyValueEntity row(String id, String name) {
+        KeyValueEntity row = new KeyValueEntity();
+        row.setIdName("id");
+        row.setValue("id", id);
+        row.setValue("name", name);
+        return row;
+    }
+
+    /**
+     * UI không có session: chạy lệnh ngay trên thread flush và đếm số lần vào UI.
+     */
+    private static final class DirectUI extends UI {
+        final Semaphore permits = new Semaphore(0);
+        volatile int accessCount;
+
+        @Override
+        public Future<Void> access(Command command) {
+            synchronized (this) {
+                accessCount++;
+                command.execute();
+            }
+            permits.release();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        void awaitAccess() throws InterruptedException {
+            assertThat(permits.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.company.dynamicdatastore.dynamic.federation;
+
+import com.company.dynamicdatastore.dynamic.DynamicMetaClass;
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.async.AsyncDynamicDataManager;
+import com.company.dynamicdatastore.dynamic.cache.VirtualEntityCache;
+import com.company.dynamicdatastore.dynamic.guard.HandlerGuardExecutor;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import com.company.dynamicdatastore.dynamic.registry.DynamicStoreRegistry;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualRows;
+import io.jmix.core.EntityStates;
+import io.jmix.core.KeyValueMapper;
+import io.jmix.core.LoadContext;
+import io.jmix.core.Metadata;
+import io.jmix.core.MetadataTools;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FederatedStoreLoader: k-way merge theo sort, cắt offset/limit toàn cục sau khi trộn,
+ * store lỗi / quá timeout / không tồn tại chỉ thành StoreOutcome lỗi, store quá timeout bị interrupt.
+ */
+public class FederatedStoreLoaderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final DynamicStoreProperties properties = properties();
+    private final DynamicStoreRegistry registry = registry(properties);
+    private final AsyncDynamicDataManager asyncDataManager = new AsyncDynamicDataManager(null, properties);
+    private final FederatedStoreLoader loader = new FederatedStoreLoader(registry, asyncDataManager, properties);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        asyncDataManager.shutdown();
+    }
+
+    @Test
+    void sortedStoresAreMergedInGlobalOrder() {
+        store("s1", new SaleHandler(5, 1, 9));
+        store("s2", new SaleHandler(7, 3));
+        store("s3", new SaleHandler(8, 2, 6));
+        LoadContext<Object> ctx = context();
+        ctx.getQuery().setSort(Sort.by(Sort.Direction.DESC, "amount"));
+
+        FederatedResult<Object> result = loader.load(List.of("s1", "s2", "s3"), ctx);
+
+        assertThat(amounts(result.getRows())).isEqualTo(List.of(9, 8, 7, 6, 5, 3, 2, 1));
+        assertThat(result.isComplete()).isTrue();
+    }
+
+    @Test
+    void globalOffsetAndLimitAreCutAfterMerge() {
+        SaleHandler h1 = new SaleHandler(5, 1, 9);
+        SaleHandler h2 = new SaleHandler(7, 3);
+        store("s1", h1);
+        store("s2", h2);
+        LoadContext<Object> ctx = context();
+        ctx.getQuery().setSort(Sort.by(Sort.Direction.ASC, "amount")).setFirstResult(1).setMaxResults(3);
+
+        FederatedResult<Object> result = loader.load(List.of("s1", "s2"), ctx);
+
+        assertThat(amounts(result.getRows())).isEqualTo(List.of(3, 5, 7));
+        // mỗi store chỉ trả top (offset + limit) của nó, bắt đầu từ 0
+        for (SaleHandler h : List.of(h1, h2)) {
+            assertThat(h.lastQuery.getOffset()).isEqualTo(0);
+            assertThat(h.lastQuery.getLimit()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void unsortedStoresAreConcatenatedInStoreOrder() {
+        store("s1", new SaleHandler(5, 1));
+        store("s2", new SaleHandler(7));
+
+        FederatedResult<Object> result = loader.load(List.of("s2", "s1"), context());
+
+        assertThat(amounts(result.getRows())).isEqualTo(List.of(7, 5, 1));
+    }
+
+    @Test
+    void failedAndUnknownStoresAreReportedNotThrown() {
+        store("s1", new SaleHandler(5, 1));
+        store("broken", new SaleHandler() {
+            @Override
+            public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+                throw new IllegalStateException("backend down");
+            }
+        });
+
+        FederatedResult<Object> result = loader.load(List.of("s1", "broken", "missing"), context());
+
+        assertThat(amounts(result.getRows())).isEqualTo(List.of(5, 1));
+        assertThat(result.isComplete()).isFalse();
+        Map<String, Throwable> errors = result.getFailures().stream()
+                .collect(Collectors.toMap(FederatedResult.StoreOutcome::getStoreName,
+                        FederatedResult.StoreOutcome::getError));
+        assertThat(errors.keySet()).containsExactlyInAnyOrder("broken", "missing");
+        assertThat(errors.get("broken")).isInstanceOf(IllegalStateException.class);
+        assertThat(errors.get("missing")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(result.getOutcomes().get(0).getRowCount()).isEqualTo(2);
+    }
+
+    @Test
+    void slowStoreTimesOutWithoutBlockingOthers() {
+        store("s1", new SaleHandler(5, 1));
+        store("slow", new SaleHandler(9) {
+            @Override
+            public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+                awaitRelease();
+                return super.loadAll(ctx, query);
+            }
+        });
+
+        FederatedResult<Object> result = loader.load(List.of("s1", "slow"), context());
+
+        assertThat(amounts(result.getRows())).isEqualTo(List.of(5, 1));
+        assertThat(result.getFailures()).hasSize(1);
+        assertThat(result.getFailures().get(0).getStoreName()).isEqualTo("slow");
+        assertThat(result.getFailures().get(0).getError()).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void timedOutStoreThreadIsInterrupted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        store("slow", new SaleHandler(9) {
+            @Override
+            public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return super.loadAll(ctx, query);
+            }
+        });
+
+        FederatedResult<Object> result = loader.load(List.of("slow"), context());
+
+        assertThat(result.getFailures().get(0).getError()).isInstanceOf(TimeoutException.class);
+        // timeout huỷ luôn task đang chạy, không để nó giữ thread tới khi backend trả lời
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void valueQueriesUseOrderByFromJpql() {
+        store("s1", new SaleHandler(5, 1, 9));
+        store("s2", new SaleHandler(7, 3));
+        ValueLoadContext ctx = ValueLoadContext.create()
+                .setQuery(new ValueLoadContext.Query("select e.amount from Sale e order by e.amount desc")
+                        .setMaxResults(2));
+        ctx.setProperties(List.of("amount"));
+
+        FederatedResult<KeyValueEntity> result = loader.loadValues(List.of("s1", "s2"), ctx);
+
+        assertThat(amounts(new ArrayList<>(result.getRows()))).isEqualTo(List.of(9, 7));
+    }
+
+    private void store(String storeName, SaleHandler handler) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("Sale");
+        meta.setAttributes(Map.of("amount", Integer.class));
+        registry.addEntity(storeName, meta);
+        registry.addHandler(storeName, "Sale", handler);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LoadContext<Object> context() {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName("Sale");
+        LoadContext<Object> ctx = new LoadContext<>(metaClass);
+        ctx.setQueryString("select e from Sale e");
+        return ctx;
+    }
+
+    private static List<Object> amounts(List<?> rows) {
+        return rows.stream().map(r -> ((KeyValueEntity) r).getValue("amount")).collect(Collectors.toList());
+    }
+
+    private static DynamicStoreProperties properties() {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        properties.setAsyncVirtualThreads(false);
+        properties.setAsyncTimeout(Duration.ofMillis(200));
+        return properties;
+    }
+
+    private static DynamicStoreRegistry registry(DynamicStoreProperties properties) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("keyValueMapper", new KeyValueMapper());
+        beans.addBean("metadata", Proxy.newProxyInstance(Metadata.class.getClassLoader(),
+                new Class<?>[]{Metadata.class}, (proxy, method, args) -> null));
+        beans.addBean("metadataTools", new MetadataTools());
+        beans.addBean("entityStates", new EntityStates());
+        return new DynamicStoreRegistry(
+                beans.getBeanProvider(KeyValueMapper.class),
+                beans.getBeanProvider(Metadata.class),
+                beans.getBeanProvider(MetadataTools.class),
+                beans.getBeanProvider(EntityStates.class),
+                beans.getBeanProvider(DynamicStoreMetrics.class),
+                properties,
+                new VirtualEntityCache(properties),
+                new HandlerGuardExecutor());
+    }
+
+    // tự sort + cắt trang như backend thật, ghi lại query nhận được
+    private static class SaleHandler implements VirtualEntityHandler<Object> {
+        private final List<KeyValueEntity> rows = new ArrayList<>();
+        volatile VirtualQuery lastQuery;
+
+        SaleHandler(int... amounts) {
+            for (int amount : amounts) {
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("amount", amount);
+                rows.add(row);
+            }
+        }
+
+        @Override
+        public List<Object> loadAll(LoadContext<Object> ctx) {
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List<Object> loadAll(LoadContext<Object> ctx, VirtualQuery query) {
+            return (List) loadAllKeyValue(null, query);
+        }
+
+        @Override
+        public Object loadOne(LoadContext<Object> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx, VirtualQuery query) {
+            lastQuery = query;
+            List<KeyValueEntity> out = new ArrayList<>(rows);
+            if (query.isSorted()) {
+                out.sort(VirtualRows.comparator(query.getSort()));
+            }
+            return query.hasPaging() ? VirtualRows.page(out, query.getOffset(), query.getLimit()) : out;
+        }
+
+        @Override
+        public boolean supportsPaging() {
+            return true;
+        }
+
+        @Override
+        public boolean supportsSorting() {
+            return true;
+        }
+    }
+}
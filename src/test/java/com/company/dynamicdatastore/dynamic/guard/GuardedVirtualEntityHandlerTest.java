@@ -0,0 +1,265 @@
+package com.company.dynamicdatastore.dynamic.guard;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import io.jmix.core.LoadContext;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bulkhead / timeout / circuit breaker / last known good của GuardedVirtualEntityHandler trên handler giả.
+ */
+public class GuardedVirtualEntityHandlerTest {
+
+    private static final VirtualQuery FIRST_PAGE = VirtualQuery.ALL.withPaging(0, 10);
+    private static final VirtualQuery SECOND_PAGE = VirtualQuery.ALL.withPaging(10, 10);
+    private static final Executor NEW_THREAD = task -> new Thread(task).start();
+
+    private final HandlerGuardExecutor executor = new HandlerGuardExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void bulkheadRejectsWhenAllSlotsAreBusy() throws Exception {
+        FakeHandler backend = new FakeHandler();
+        CountDownLatch gate = new CountDownLatch(1);
+        backend.gate = gate;
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(1, null));
+
+        CompletableFuture<List<KeyValueEntity>> first = CompletableFuture.supplyAsync(
+                () -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE));
+        backend.entered.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE))
+                .isInstanceOf(HandlerUnavailableException.class)
+                .extracting(e -> ((HandlerUnavailableException) e).getReason())
+                .isEqualTo(HandlerUnavailableException.Reason.BULKHEAD_FULL);
+
+        gate.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(guarded.getActiveCalls()).isZero();
+        // từ chối vì bulkhead không phải lỗi của backend
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void timeoutReturnsEarlyButHungCallKeepsItsSlot() {
+        FakeHandler backend = new FakeHandler();
+        CountDownLatch gate = new CountDownLatch(1);
+        backend.gate = gate;
+        backend.ignoreInterrupt = true;
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(1, Duration.ofMillis(100)));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE))
+                .isInstanceOf(HandlerUnavailableException.class)
+                .extracting(e -> ((HandlerUnavailableException) e).getReason())
+                .isEqualTo(HandlerUnavailableException.Reason.TIMEOUT);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+
+        // lời gọi treo vẫn chiếm chỗ -> lời gọi sau bị từ chối ngay, không thêm thread nào bị kẹt
+        assertThat(guarded.getActiveCalls()).isEqualTo(1);
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), SECOND_PAGE))
+                .isInstanceOf(HandlerUnavailableException.class)
+                .extracting(e -> ((HandlerUnavailableException) e).getReason())
+                .isEqualTo(HandlerUnavailableException.Reason.BULKHEAD_FULL);
+
+        gate.countDown();
+        awaitNoActiveCalls(guarded);
+        assertThat(guarded.loadAllKeyValue(ctx(), SECOND_PAGE)).hasSize(1);
+    }
+
+    @Test
+    void openCircuitFailsFastAndServesLastKnownGood() throws Exception {
+        FakeHandler backend = new FakeHandler();
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(4, null)
+                .withCircuitBreaker(50, 4, 4, Duration.ofMillis(300))
+                .withHalfOpenCalls(2)
+                .withLastKnownGood(Duration.ofMinutes(1), 10));
+
+        List<KeyValueEntity> good = guarded.loadAllKeyValue(ctx(), FIRST_PAGE);
+        assertThat(good).hasSize(1);
+
+        backend.failure = new IllegalStateException("backend down");
+        for (int i = 0; i < 4; i++) {
+            // lỗi nhưng có kết quả cũ -> trả bản sao của kết quả cũ
+            List<KeyValueEntity> stale = guarded.loadAllKeyValue(ctx(), FIRST_PAGE);
+            assertThat(stale).hasSize(1);
+            assertThat(stale.get(0)).isNotSameAs(good.get(0));
+            assertThat((Object) stale.get(0).getValue("name")).isEqualTo("row");
+        }
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        int calls = backend.calls.get();
+        assertThat(guarded.loadAllKeyValue(ctx(), FIRST_PAGE)).hasSize(1);
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), SECOND_PAGE))
+                .isInstanceOf(HandlerUnavailableException.class)
+                .extracting(e -> ((HandlerUnavailableException) e).getReason())
+                .isEqualTo(HandlerUnavailableException.Reason.CIRCUIT_OPEN);
+        assertThat(backend.calls.get()).isEqualTo(calls);
+
+        // hết openDuration: backend đã ổn, đủ 2 lời gọi thử thành công thì đóng mạch
+        backend.failure = null;
+        Thread.sleep(400);
+        guarded.loadAllKeyValue(ctx(), SECOND_PAGE);
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        guarded.loadAllKeyValue(ctx(), SECOND_PAGE);
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedTrialReopensCircuit() throws Exception {
+        FakeHandler backend = new FakeHandler();
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(4, null)
+                .withCircuitBreaker(100, 2, 2, Duration.ofMillis(200)));
+
+        backend.failure = new IllegalStateException("backend down");
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE)).isSameAs(backend.failure);
+        }
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(300);
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE)).isSameAs(backend.failure);
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void callerErrorsDoNotOpenCircuit() {
+        FakeHandler backend = new FakeHandler();
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(4, Duration.ofSeconds(5))
+                .withCircuitBreaker(50, 4, 4, Duration.ofSeconds(30)));
+
+        backend.failure = new IllegalArgumentException("unknown property");
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE)).isSameAs(backend.failure);
+        }
+        assertThat(guarded.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(guarded.getActiveCalls()).isZero();
+    }
+
+    @Test
+    void asyncCallsAreGuardedToo() {
+        FakeHandler backend = new FakeHandler();
+        CountDownLatch gate = new CountDownLatch(1);
+        backend.gate = gate;
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(1, Duration.ofMillis(100)));
+
+        CompletableFuture<List<KeyValueEntity>> slow = guarded.loadAllKeyValueAsync(ctx(), FIRST_PAGE, NEW_THREAD);
+        assertThatThrownBy(() -> slow.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(HandlerUnavailableException.class);
+        gate.countDown();
+        awaitNoActiveCalls(guarded);
+
+        assertThat(guarded.loadAllKeyValueAsync(ctx(), SECOND_PAGE, NEW_THREAD).join()).hasSize(1);
+    }
+
+    @Test
+    void inexactFilterIsNeverServedFromLastKnownGood() {
+        FakeHandler backend = new FakeHandler();
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(4, null)
+                .withLastKnownGood(Duration.ofMinutes(1), 10));
+        // phần điều kiện không dịch được chỉ nằm trong context -> cùng VirtualQuery vẫn có thể là query khác
+        VirtualQuery inexact = new VirtualQuery(0, 10, List.of(), List.of(), null, Map.of(), false);
+
+        assertThat(guarded.loadAllKeyValue(ctx(), inexact)).hasSize(1);
+        backend.failure = new IllegalStateException("backend down");
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), inexact)).isSameAs(backend.failure);
+    }
+
+    @Test
+    void closedExecutorRejectsTimedCalls() {
+        FakeHandler backend = new FakeHandler();
+        GuardedVirtualEntityHandler guarded = guard(backend, HandlerGuardSpec.of(1, Duration.ofSeconds(5)));
+        executor.shutdown();
+
+        assertThatThrownBy(() -> guarded.loadAllKeyValue(ctx(), FIRST_PAGE))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(guarded.getActiveCalls()).isZero();
+        assertThat(backend.calls.get()).isZero();
+    }
+
+    private GuardedVirtualEntityHandler guard(FakeHandler backend, HandlerGuardSpec spec) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("Fake");
+        meta.setAttributes(Map.of("name", String.class));
+        return new GuardedVirtualEntityHandler("testStore", "Fake", () -> meta, backend, spec, executor, null);
+    }
+
+    private static ValueLoadContext ctx() {
+        return ValueLoadContext.create().setQuery(new ValueLoadContext.Query("select e.name from Fake e"));
+    }
+
+    private static void awaitNoActiveCalls(GuardedVirtualEntityHandler guarded) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (guarded.getActiveCalls() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(guarded.getActiveCalls()).isZero();
+    }
+
+    private static final class FakeHandler implements VirtualEntityHandler<KeyValueEntity> {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+        volatile boolean ignoreInterrupt;
+        volatile RuntimeException failure;
+
+        @Override
+        public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx) {
+            return loadAllKeyValue(null);
+        }
+
+        @Override
+        public KeyValueEntity loadOne(LoadContext<KeyValueEntity> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            calls.incrementAndGet();
+            entered.countDown();
+            CountDownLatch g = gate;
+            if (g != null) {
+                gate = null;
+                awaitGate(g);
+            }
+            RuntimeException f = failure;
+            if (f != null) throw f;
+            KeyValueEntity row = new KeyValueEntity();
+            row.setValue("name", "row");
+            return List.of(row);
+        }
+
+        private void awaitGate(CountDownLatch g) {
+            while (true) {
+                try {
+                    g.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // backend không phản hồi interrupt (socket read bị treo...)
+                    if (!ignoreInterrupt) throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
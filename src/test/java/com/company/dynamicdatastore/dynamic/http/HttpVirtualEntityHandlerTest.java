@@ -0,0 +1,239 @@
+package com.company.dynamicdatastore.dynamic.http;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HttpVirtualEntityHandler trên HTTP server giả chạy trong JVM (com.sun.net.httpserver), không ra mạng ngoài.
+ */
+public class HttpVirtualEntityHandlerTest {
+
+    private static final int ROWS = 50;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private EntityMeta meta;
+    private String baseUrl;
+    private final AtomicInteger listHits = new AtomicInteger();
+    private final AtomicInteger oneHits = new AtomicInteger();
+    private final AtomicInteger batchHits = new AtomicInteger();
+    private volatile CountDownLatch listGate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/api/orders", this::handle);
+        server.createContext("/api/broken", exchange -> respond(exchange, 500, "{\"error\":\"boom\"}"));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        meta = new EntityMeta();
+        meta.setName("HttpOrder");
+        Map<String, Class<?>> attributes = new LinkedHashMap<>();
+        attributes.put("id", Long.class);
+        attributes.put("number", String.class);
+        attributes.put("amount", BigDecimal.class);
+        attributes.put("paid", Boolean.class);
+        attributes.put("customerId", UUID.class);
+        attributes.put("date", LocalDate.class);
+        meta.setAttributes(attributes);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private HttpVirtualEntityHandler handler() {
+        return new HttpVirtualEntityHandler(meta,
+                HttpEndpointSpec.of(baseUrl, "/api/orders", "/api/orders/{id}")
+                        .withItemsField("items")
+                        .withCountPath("/api/orders/count")
+                        .withField("number", "order_no"));
+    }
+
+    @Test
+    void loadsAndConvertsFields() {
+        List<KeyValueEntity> rows = handler().loadAll(null);
+        assertThat(rows).hasSize(ROWS);
+        KeyValueEntity first = rows.get(0);
+        assertThat((Long) first.getValue("id")).isEqualTo(1L);
+        assertThat((String) first.getValue("number")).isEqualTo("SO-1");
+        assertThat((BigDecimal) first.getValue("amount")).isEqualByComparingTo("10.50");
+        assertThat((Boolean) first.getValue("paid")).isFalse();
+        assertThat((UUID) first.getValue("customerId")).isEqualTo(new UUID(0, 1));
+        assertThat((LocalDate) first.getValue("date")).isEqualTo(LocalDate.of(2026, 1, 2));
+        // field lồng nhau / lạ bị bỏ qua, field null giữ null
+        assertThat((Object) rows.get(2).getValue("amount")).isNull();
+    }
+
+    @Test
+    void loadOneAndMissing() {
+        HttpVirtualEntityHandler handler = handler();
+        assertThat((String) handler.loadOne(null, 7L).getValue("number")).isEqualTo("SO-7");
+        assertThat(handler.loadOne(null, 999L)).isNull();
+        assertThat(handler.count(null)).isEqualTo(ROWS);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneCall() throws Exception {
+        HttpVirtualEntityHandler handler = handler();
+        listGate = new CountDownLatch(1);
+        List<CompletableFuture<List<KeyValueEntity>>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(handler.loadAllAsync(null, VirtualQuery.ALL, Runnable::run));
+        }
+        listGate.countDown();
+
+        List<List<KeyValueEntity>> results = new ArrayList<>();
+        for (CompletableFuture<List<KeyValueEntity>> call : calls) {
+            results.add(call.get(10, TimeUnit.SECONDS));
+        }
+        assertThat(listHits.get()).isEqualTo(1);
+        assertThat(results).allSatisfy(rows -> assertThat(rows).hasSize(ROWS));
+        // mỗi bên một bản sao: sửa row của mình không ảnh hưởng bên khác
+        results.get(0).get(0).setValue("number", "changed");
+        assertThat((String) results.get(1).get(0).getValue("number")).isEqualTo("SO-1");
+
+        // xong rồi thì không nhớ kết quả
+        listGate = null;
+        handler.loadAll(null);
+        assertThat(listHits.get()).isEqualTo(2);
+    }
+
+    @Test
+    void loadManyUsesBatchEndpoint() {
+        HttpVirtualEntityHandler handler = new HttpVirtualEntityHandler(meta,
+                HttpEndpointSpec.of(baseUrl, "/api/orders", "/api/orders/{id}")
+                        .withItemsField("items")
+                        .withBatchPath("/api/orders?ids={ids}")
+                        .withIdBatchSize(2)
+                        .withField("number", "order_no"));
+        List<KeyValueEntity> rows = handler.loadMany(null, List.of(1L, 2L, 3L, 2L, 4L, 500L));
+        assertThat(ids(rows)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+        assertThat(batchHits.get()).isEqualTo(3);
+        assertThat(oneHits.get()).isZero();
+    }
+
+    @Test
+    void loadManyWithoutBatchEndpointCallsInParallel() {
+        List<KeyValueEntity> rows = handler().loadMany(null, List.of(5L, 6L, 7L, 6L, 500L));
+        assertThat(ids(rows)).containsExactlyInAnyOrder(5L, 6L, 7L);
+        assertThat(oneHits.get()).isEqualTo(4);
+    }
+
+    @Test
+    void streamParsesWhileReading() {
+        try (Stream<KeyValueEntity> rows = handler().stream(null, VirtualQuery.ALL)) {
+            assertThat(rows.limit(5).map(r -> (Long) r.getValue("id")).collect(Collectors.toList()))
+                    .containsExactly(1L, 2L, 3L, 4L, 5L);
+        }
+    }
+
+    @Test
+    void errorStatusFails() {
+        HttpVirtualEntityHandler handler = new HttpVirtualEntityHandler(meta,
+                HttpEndpointSpec.of(baseUrl, "/api/broken", "/api/broken/{id}"));
+        assertThatThrownBy(() -> handler.loadAll(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("500");
+    }
+
+    //====================== server giả ======================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (path.equals("/api/orders/count")) {
+            respond(exchange, 200, "{\"count\": " + ROWS + "}");
+        } else if (path.equals("/api/orders") && query != null && query.startsWith("ids=")) {
+            batchHits.incrementAndGet();
+            List<String> items = new ArrayList<>();
+            for (String id : query.substring(4).split(",")) {
+                long n = Long.parseLong(id);
+                if (n >= 1 && n <= ROWS) items.add(order(n));
+            }
+            respond(exchange, 200, "{\"items\": [" + String.join(",", items) + "]}");
+        } else if (path.equals("/api/orders")) {
+            listHits.incrementAndGet();
+            CountDownLatch gate = listGate;
+            if (gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<String> items = new ArrayList<>();
+            for (long n = 1; n <= ROWS; n++) items.add(order(n));
+            respond(exchange, 200, "{\"total\": " + ROWS + ", \"items\": [" + String.join(",", items) + "]}");
+        } else {
+            oneHits.incrementAndGet();
+            long n = Long.parseLong(path.substring("/api/orders/".length()));
+            if (n < 1 || n > ROWS) {
+                respond(exchange, 404, "{}");
+            } else {
+                respond(exchange, 200, order(n));
+            }
+        }
+    }
+
+    private static String order(long n) {
+        return "{\"id\": " + n
+                + ", \"order_no\": \"SO-" + n + "\""
+                + ", \"amount\": " + (n % 3 == 0 ? "null" : n * 10 + ".50")
+                + ", \"paid\": " + (n % 2 == 0)
+                + ", \"customerId\": \"" + new UUID(0, n) + "\""
+                + ", \"date\": \"2026-01-0" + (1 + n % 9) + "\""
+                + ", \"lines\": [{\"sku\": \"A\", \"qty\": 1}], \"meta\": {\"tags\": [\"x\"]}}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Object> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> r.getValue("id")).collect(Collectors.toList());
+    }
+}
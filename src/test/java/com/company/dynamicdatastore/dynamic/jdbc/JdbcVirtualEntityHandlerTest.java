@@ -0,0 +1,272 @@
+package com.company.dynamicdatastore.dynamic.jdbc;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateFunction;
+import com.company.dynamicdatastore.dynamic.aggregate.AggregateQuery;
+import com.company.dynamicdatastore.dynamic.memory.InMemoryVirtualEntityHandler;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JdbcVirtualEntityHandler trên HSQLDB in-memory (runtime dependency của app).
+ * Kết quả filter / sort / paging / count phải giống hệt InMemoryVirtualEntityHandler trên cùng dữ liệu.
+ */
+public class JdbcVirtualEntityHandlerTest {
+
+    private static final int ROWS = 200;
+    private static final String[] NAMES = {"Alpha", "alpha", "Beta", "Gamma 50%", "delta_x", "Omega!"};
+
+    private static DriverManagerDataSource dataSource;
+    private static EntityMeta meta;
+    private static JdbcVirtualEntityHandler jdbc;
+    private static InMemoryVirtualEntityHandler memory;
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:jdbc_handler_test", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table TEST_ORDER (ID bigint primary key, NAME varchar(50), AMOUNT decimal(10, 2),"
+                + " QTY integer, ACTIVE boolean, CODE uuid)");
+
+        meta = new EntityMeta();
+        meta.setName("TEST_ORDER");
+        Map<String, Class<?>> attributes = new LinkedHashMap<>();
+        attributes.put("id", Long.class);
+        attributes.put("name", String.class);
+        attributes.put("amount", BigDecimal.class);
+        attributes.put("quantity", Integer.class);
+        attributes.put("active", Boolean.class);
+        attributes.put("code", UUID.class);
+        meta.setAttributes(attributes);
+
+        jdbc = new JdbcVirtualEntityHandler(dataSource, meta,
+                JdbcTableSpec.of("TEST_ORDER").withColumn("quantity", "QTY").withFetchSize(16).withIdBatchSize(3));
+        memory = new InMemoryVirtualEntityHandler(meta);
+
+        Random random = new Random(42);
+        RowLayout layout = RowLayout.of(meta);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= ROWS; id++) {
+            String name = random.nextInt(8) == 0 ? null : NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(20);
+            BigDecimal amount = random.nextInt(8) == 0 ? null : BigDecimal.valueOf(random.nextInt(10_000), 2);
+            Integer quantity = random.nextInt(8) == 0 ? null : random.nextInt(30);
+            Boolean active = random.nextInt(8) == 0 ? null : random.nextBoolean();
+            UUID code = new UUID(0, id);
+            rows.add(new Object[]{id, name, amount, quantity, active, code});
+            memory.put(layout.row("id", id, "name", name, "amount", amount, "quantity", quantity,
+                    "active", active, "code", code));
+        }
+        template.batchUpdate("insert into TEST_ORDER (ID, NAME, AMOUNT, QTY, ACTIVE, CODE) values (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        new JdbcTemplate(dataSource).execute("shutdown");
+    }
+
+    @Test
+    void sameResultsAsInMemoryHandler() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            VirtualFilter filter = randomFilter(random, 2);
+            Map<String, Object> params = new HashMap<>();
+            params.put("qs", Arrays.asList(1, null, 5, 7, 11));
+            List<VirtualQuery.SortKey> sort = List.of(
+                    new VirtualQuery.SortKey(randomProperty(random), random.nextBoolean()),
+                    new VirtualQuery.SortKey("id", false));
+            int offset = random.nextInt(3) == 0 ? random.nextInt(20) : 0;
+            int limit = random.nextBoolean() ? 1 + random.nextInt(25) : 0;
+            VirtualQuery query = new VirtualQuery(offset, limit, sort, List.of(), filter, params, true);
+
+            assertThat(ids(jdbc.loadAll(null, query)))
+                    .as("%s", query)
+                    .isEqualTo(ids(memory.loadAll(null, query)));
+            assertThat(jdbc.count(null, query.withoutPaging()))
+                    .as("count %s", filter)
+                    .isEqualTo(memory.count(null, query.withoutPaging()));
+        }
+    }
+
+    @Test
+    void readsTypedValues() {
+        KeyValueEntity one = jdbc.loadOne(null, 10L);
+        KeyValueEntity expected = memory.loadOne(null, 10L);
+        for (String property : meta.getAttributes().keySet()) {
+            Object actual = one.getValue(property);
+            Object value = expected.getValue(property);
+            if (value instanceof BigDecimal) {
+                assertThat((BigDecimal) actual).isEqualByComparingTo((BigDecimal) value);
+            } else {
+                assertThat(actual).as(property).isEqualTo(value);
+            }
+        }
+        assertThat(jdbc.loadOne(null, -1L)).isNull();
+    }
+
+    @Test
+    void loadManyInBatches() {
+        List<KeyValueEntity> rows = jdbc.loadMany(null, List.of(5L, 6L, 5L, 7L, 8L, 9L, 10L, 1000L, 11L));
+        assertThat(ids(rows)).containsExactlyInAnyOrder(5L, 6L, 7L, 8L, 9L, 10L, 11L);
+    }
+
+    @Test
+    void projectionOnlyReadsRequestedColumns() {
+        VirtualQuery query = new VirtualQuery(0, 5, List.of(new VirtualQuery.SortKey("id", false)),
+                List.of("id", "quantity"));
+        List<KeyValueEntity> rows = jdbc.loadAllKeyValue(null, query);
+        assertThat(ids(rows)).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(rows).allMatch(r -> r.getValue("name") == null && r.getValue("code") == null);
+        assertThat(rows.stream().map(r -> r.getValue("quantity")).collect(Collectors.toList()))
+                .isEqualTo(memory.loadAllKeyValue(null, query).stream().map(r -> r.getValue("quantity"))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void textOperatorOnNumberColumnIsFilteredByHandler() {
+        // like trên cột số không đẩy xuống SQL, handler tự lọc rồi mới cắt trang
+        VirtualFilter filter = VirtualFilter.and(List.of(
+                VirtualFilter.compare("quantity", FilterOperator.STARTS_WITH, Operand.literal("1")),
+                VirtualFilter.compare("active", FilterOperator.EQUAL, Operand.literal(true))));
+        VirtualQuery query = new VirtualQuery(2, 5, List.of(new VirtualQuery.SortKey("id", true)), List.of(),
+                filter, Map.of(), true);
+        assertThat(ids(jdbc.loadAll(null, query))).isEqualTo(ids(memory.loadAll(null, query)));
+        assertThat(jdbc.count(null, query.withoutPaging())).isEqualTo(memory.count(null, query.withoutPaging()));
+    }
+
+    @Test
+    void streamReadsWithCursor() {
+        VirtualQuery query = new VirtualQuery(0, 0, List.of(new VirtualQuery.SortKey("id", false)), List.of());
+        try (Stream<KeyValueEntity> rows = jdbc.stream(null, query)) {
+            assertThat(rows.limit(40).map(r -> (Long) r.getValue("id")).collect(Collectors.toList()))
+                    .hasSize(40)
+                    .startsWith(1L, 2L, 3L);
+        }
+        try (Stream<KeyValueEntity> rows = jdbc.stream(null, query)) {
+            assertThat(rows.count()).isEqualTo(ROWS);
+        }
+    }
+
+    @Test
+    void aggregateInSqlMatchesInMemoryHandler() {
+        List<AggregateQuery.Column> columns = List.of(
+                AggregateQuery.Column.group("active", null),
+                AggregateQuery.Column.measure(AggregateFunction.COUNT, null, "n"),
+                AggregateQuery.Column.measure(AggregateFunction.COUNT, "amount", null),
+                AggregateQuery.Column.measure(AggregateFunction.SUM, "amount", "total"),
+                AggregateQuery.Column.measure(AggregateFunction.SUM, "quantity", null),
+                AggregateQuery.Column.measure(AggregateFunction.AVG, "quantity", null),
+                AggregateQuery.Column.measure(AggregateFunction.MIN, "quantity", null),
+                AggregateQuery.Column.measure(AggregateFunction.MAX, "amount", null));
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            VirtualFilter filter = i == 0 ? null : randomFilter(random, 2);
+            Map<String, Object> params = new HashMap<>();
+            params.put("qs", Arrays.asList(1, null, 5, 7, 11));
+            AggregateQuery query = new AggregateQuery(columns, List.of("active"), filter, params);
+
+            assertThat(jdbc.supportsAggregate(query)).as("%s", filter).isTrue();
+            assertThat(groups(jdbc.aggregate(null, query)))
+                    .as("%s", filter)
+                    .isEqualTo(groups(memory.aggregate(null, query)));
+        }
+
+        // không group by: luôn một nhóm, kể cả khi không có bản ghi nào
+        AggregateQuery empty = new AggregateQuery(columns.subList(1, 4), List.of(),
+                VirtualFilter.compare("id", FilterOperator.LESS, Operand.literal(0)), Map.of());
+        assertThat(jdbc.aggregate(null, empty)).containsExactly(new Object[]{0L, 0L, null});
+        assertThat(memory.aggregate(null, empty)).containsExactly(new Object[]{0L, 0L, null});
+    }
+
+    // nhóm -> giá trị đã làm tròn (thứ tự nhóm và scale của BigDecimal / sai số avg không quan trọng)
+    private static Map<Object, List<Object>> groups(List<Object[]> rows) {
+        Map<Object, List<Object>> out = new HashMap<>();
+        for (Object[] row : rows) {
+            List<Object> values = new ArrayList<>();
+            for (int i = 1; i < row.length; i++) {
+                Object v = row[i];
+                if (v instanceof BigDecimal) v = ((BigDecimal) v).setScale(2, RoundingMode.HALF_UP);
+                if (v instanceof Double) v = BigDecimal.valueOf((Double) v).setScale(6, RoundingMode.HALF_UP);
+                values.add(v);
+            }
+            assertThat(out.put(row[0], values)).as("duplicate group %s", row[0]).isNull();
+        }
+        return out;
+    }
+
+    private static VirtualFilter randomFilter(Random random, int depth) {
+        int kind = depth > 0 ? random.nextInt(6) : 5;
+        switch (kind) {
+            case 0:
+                return VirtualFilter.and(List.of(randomFilter(random, depth - 1), randomFilter(random, depth - 1)));
+            case 1:
+                return VirtualFilter.or(List.of(randomFilter(random, depth - 1), randomFilter(random, depth - 1)));
+            case 2:
+                return VirtualFilter.not(randomFilter(random, depth - 1));
+            default:
+                return randomComparison(random);
+        }
+    }
+
+    private static VirtualFilter randomComparison(Random random) {
+        switch (random.nextInt(12)) {
+            case 0:
+                return VirtualFilter.compare("quantity", FilterOperator.IN, Operand.parameter("qs"));
+            case 1:
+                return VirtualFilter.compare("quantity", FilterOperator.NOT_IN, Operand.literal(3), Operand.literal(4));
+            case 2:
+                return VirtualFilter.compare("amount", FilterOperator.BETWEEN,
+                        Operand.literal(random.nextInt(50)), Operand.literal(new BigDecimal("75.50")));
+            case 3:
+                return VirtualFilter.compare("amount", FilterOperator.GREATER, Operand.literal(random.nextInt(100)));
+            case 4:
+                return VirtualFilter.compare("name", FilterOperator.LIKE, Operand.literal("%a 1%"));
+            case 5:
+                return VirtualFilter.compare("name", FilterOperator.CONTAINS, Operand.literal("ALPHA"));
+            case 6:
+                return VirtualFilter.compare("name", FilterOperator.STARTS_WITH, Operand.literal("gamma 50%"));
+            case 7:
+                return VirtualFilter.compare("name", FilterOperator.ENDS_WITH, Operand.literal("_x 1"));
+            case 8:
+                return VirtualFilter.compare(randomProperty(random), FilterOperator.IS_NULL);
+            case 9:
+                return VirtualFilter.compare("active", FilterOperator.NOT_EQUAL, Operand.literal(true));
+            case 10:
+                return VirtualFilter.compare("code", FilterOperator.EQUAL, Operand.literal(new UUID(0, random.nextInt(ROWS))));
+            default:
+                return VirtualFilter.compare("quantity", FilterOperator.LESS_OR_EQUAL, Operand.literal(random.nextInt(30)));
+        }
+    }
+
+    private static String randomProperty(Random random) {
+        List<String> properties = new ArrayList<>(meta.getAttributes().keySet());
+        return properties.get(random.nextInt(properties.size()));
+    }
+
+    private static List<Object> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> r.getValue("id")).collect(Collectors.toList());
+    }
+}
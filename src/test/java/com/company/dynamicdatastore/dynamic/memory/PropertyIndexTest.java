@@ -0,0 +1,110 @@
+package com.company.dynamicdatastore.dynamic.memory;
+
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PropertyIndex: tra ứng viên theo giá trị đã chuẩn hoá, range trên index sorted, null / NaN, cập nhật.
+ */
+public class PropertyIndexTest {
+
+    @Test
+    void hashLookupNormalizesNumbers() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.hash("qty"), Long.class);
+        index.add("a", 1L);
+        index.add("b", 2L);
+        index.add("c", 1L);
+
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(1))).containsExactlyInAnyOrder("a", "c");
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(new BigDecimal("1.00")))).containsExactlyInAnyOrder("a", "c");
+        assertThat(index.lookup(FilterOperator.IN, List.of(2L, 3L))).containsExactly("b");
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(9L))).isEmpty();
+    }
+
+    @Test
+    void hashIndexDoesNotAnswerRanges() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.hash("qty"), Long.class);
+        index.add("a", 1L);
+
+        assertThat(index.lookup(FilterOperator.GREATER, List.of(0L))).isNull();
+        assertThat(index.lookup(FilterOperator.LIKE, List.of("x"))).isNull();
+    }
+
+    @Test
+    void incompatibleParameterIsLeftToFilter() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.hash("name"), String.class);
+        index.add("a", "x");
+
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(1L))).isNull();
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of())).isNull();
+    }
+
+    @Test
+    void sortedRanges() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.sorted("qty"), Long.class);
+        for (long i = 1; i <= 5; i++) index.add("r" + i, i);
+        index.add("n", null);
+
+        assertThat(index.lookup(FilterOperator.GREATER, List.of(3L))).containsExactly("r4", "r5");
+        assertThat(index.lookup(FilterOperator.GREATER_OR_EQUAL, List.of(3.0d))).containsExactly("r3", "r4", "r5");
+        assertThat(index.lookup(FilterOperator.LESS, List.of(2L))).containsExactly("r1");
+        assertThat(index.lookup(FilterOperator.LESS_OR_EQUAL, List.of(new BigDecimal("2.0")))).containsExactly("r1", "r2");
+        assertThat(index.lookup(FilterOperator.BETWEEN, List.of(2L, 4L))).containsExactly("r2", "r3", "r4");
+        assertThat(index.lookup(FilterOperator.BETWEEN, List.of(4L, 2L))).isEmpty();
+    }
+
+    @Test
+    void nonFiniteValuesAreAlwaysCandidates() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.sorted("ratio"), Double.class);
+        index.add("a", 1.0d);
+        index.add("nan", Double.NaN);
+
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(5.0d))).containsExactly("nan");
+        assertThat(index.lookup(FilterOperator.GREATER, List.of(0.5d))).containsExactlyInAnyOrder("a", "nan");
+        // tham số NaN: index không trả lời
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of(Double.NaN))).isNull();
+    }
+
+    @Test
+    void updateMovesIdBetweenKeys() {
+        PropertyIndex index = PropertyIndex.of(IndexSpec.hash("status"), String.class);
+        index.add("a", "NEW");
+
+        index.update("a", "NEW", "DONE");
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of("NEW"))).isEmpty();
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of("DONE"))).containsExactly("a");
+
+        index.update("a", "DONE", null);
+        assertThat(index.lookup(FilterOperator.EQUAL, List.of("DONE"))).isEmpty();
+        assertThat(index.nullIds).containsExactly("a");
+
+        index.remove("a", null);
+        assertThat(index.nullIds).isEmpty();
+        assertThat(index.map()).isEmpty();
+    }
+
+    @Test
+    void orderedIdsPutNullsFirstAscending() {
+        PropertyIndex.Sorted index = (PropertyIndex.Sorted) PropertyIndex.of(IndexSpec.sorted("qty"), Long.class);
+        index.add("b", 2L);
+        index.add("n", null);
+        index.add("a", 1L);
+
+        assertThat(drain(index.orderedIds(false))).containsExactly("n", "a", "b");
+        assertThat(drain(index.orderedIds(true))).containsExactly("b", "a", "n");
+    }
+
+    private static Collection<Object> drain(Iterator<Object> it) {
+        List<Object> out = new ArrayList<>();
+        it.forEachRemaining(out::add);
+        return out;
+    }
+}
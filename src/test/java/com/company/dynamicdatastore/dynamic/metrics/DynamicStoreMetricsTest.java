@@ -0,0 +1,91 @@
+package com.company.dynamicdatastore.dynamic.metrics;
+
+import io.jmix.core.entity.KeyValueEntity;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * DynamicStoreMetrics: timer theo outcome, rows / bytes, counter lỗi theo exception, tag store / entity / operation.
+ */
+public class DynamicStoreMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DynamicStoreMetrics metrics = new DynamicStoreMetrics(registry);
+
+    @Test
+    void listCallRecordsLatencyRowsAndBytes() {
+        List<KeyValueEntity> rows = metrics.recordList("storeA", "Order", "loadAll", List.of("id", "name"),
+                () -> rows(3));
+
+        assertThat(rows).hasSize(3);
+        assertThat(timer("loadAll", "success").count()).isEqualTo(1L);
+        assertThat(timer("loadAll", "error").count()).isEqualTo(0L);
+        assertThat(registry.find(DynamicStoreMetrics.ROWS).tag("store", "storeA").tag("entity", "Order")
+                .tag("operation", "loadAll").summary().totalAmount()).isEqualTo(3.0);
+        assertThat(registry.find(DynamicStoreMetrics.BYTES).tag("operation", "loadAll").summary().totalAmount())
+                .isGreaterThan(0.0);
+    }
+
+    @Test
+    void failedCallIsTimedAsErrorAndCountedByException() {
+        IllegalStateException error = new IllegalStateException("backend down");
+
+        assertThatThrownBy(() -> metrics.recordCount("storeA", "Order", "countAll", () -> {
+            throw error;
+        })).isSameAs(error);
+
+        assertThat(timer("countAll", "error").count()).isEqualTo(1L);
+        assertThat(timer("countAll", "success").count()).isEqualTo(0L);
+        assertThat(registry.find(DynamicStoreMetrics.ERRORS).tag("operation", "countAll")
+                .tag("exception", "IllegalStateException").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void missingEntityIsTaggedUnknown() {
+        Object one = metrics.recordOne("storeA", null, "loadOne", () -> null);
+
+        assertThat(one).isNull();
+        assertThat(registry.find(DynamicStoreMetrics.CALLS).tag("entity", "unknown").tag("outcome", "success")
+                .timer().count()).isEqualTo(1L);
+        assertThat(registry.find(DynamicStoreMetrics.ROWS).tag("entity", "unknown").summary().totalAmount())
+                .isEqualTo(0.0);
+    }
+
+    @Test
+    void metersAreReusedPerStoreEntityAndOperation() {
+        metrics.recordList("storeA", "Order", "loadAll", List.of("id"), () -> rows(1));
+        int meterCount = registry.getMeters().size();
+        metrics.recordList("storeA", "Order", "loadAll", List.of("id"), () -> rows(2));
+
+        assertThat(registry.getMeters()).hasSize(meterCount);
+        assertThat(timer("loadAll", "success").count()).isEqualTo(2L);
+
+        metrics.recordList("storeB", "Order", "loadAll", List.of("id"), () -> rows(1));
+        assertThat(registry.find(DynamicStoreMetrics.CALLS).tag("store", "storeB").tag("outcome", "success")
+                .timer().count()).isEqualTo(1L);
+        assertThat(timer("loadAll", "success").count()).isEqualTo(2L);
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return registry.find(DynamicStoreMetrics.CALLS).tag("store", "storeA").tag("entity", "Order")
+                .tag("operation", operation).tag("outcome", outcome).timer();
+    }
+
+    private static List<KeyValueEntity> rows(int n) {
+        List<KeyValueEntity> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            KeyValueEntity row = new KeyValueEntity();
+            row.setValue("id", i);
+            row.setValue("name", "row-" + i);
+            out.add(row);
+        }
+        return out;
+    }
+}
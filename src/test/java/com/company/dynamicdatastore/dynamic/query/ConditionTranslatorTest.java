@@ -0,0 +1,97 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import io.jmix.core.querycondition.JpqlCondition;
+import io.jmix.core.querycondition.LogicalCondition;
+import io.jmix.core.querycondition.PropertyCondition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dịch Condition của Jmix sang VirtualFilter: filter ra không bao giờ hẹp hơn điều kiện gốc,
+ * và isExact() = false khi có phần bị bỏ.
+ */
+public class ConditionTranslatorTest {
+
+    @Test
+    void noConditionIsExactAndUnfiltered() {
+        ConditionTranslator.Translation t = ConditionTranslator.translate(null, null);
+
+        assertThat(t.getFilter()).isNull();
+        assertThat(t.isExact()).isTrue();
+    }
+
+    @Test
+    void propertyConditionsBecomeComparisons() {
+        ConditionTranslator.Translation t = ConditionTranslator.translate(LogicalCondition.and(
+                PropertyCondition.create("age", PropertyCondition.Operation.GREATER_OR_EQUAL, 18),
+                PropertyCondition.create("name", PropertyCondition.Operation.NOT_CONTAINS, "x"),
+                PropertyCondition.create("city", PropertyCondition.Operation.IN_LIST, List.of("A", "B"))), null);
+
+        assertThat(t.isExact()).isTrue();
+        assertThat(t.getFilter()).isEqualTo(VirtualFilter.and(List.of(
+                VirtualFilter.compare("age", FilterOperator.GREATER_OR_EQUAL, Operand.literal(18)),
+                VirtualFilter.not(VirtualFilter.compare("name", FilterOperator.CONTAINS, Operand.literal("x"))),
+                VirtualFilter.compare("city", FilterOperator.IN, Operand.literal(List.of("A", "B"))))));
+    }
+
+    @Test
+    void parameterValueComesFromQueryParameters() {
+        PropertyCondition condition = PropertyCondition.createWithParameterName(
+                "status", PropertyCondition.Operation.EQUAL, "status");
+
+        assertThat(ConditionTranslator.translate(condition, Map.of("status", "NEW")).getFilter())
+                .isEqualTo(VirtualFilter.compare("status", FilterOperator.EQUAL, Operand.parameter("status")));
+        // tham số không có giá trị -> Jmix bỏ điều kiện, ở đây cũng vậy (vẫn exact)
+        ConditionTranslator.Translation missing = ConditionTranslator.translate(condition, Map.of());
+        assertThat(missing.getFilter()).isNull();
+        assertThat(missing.isExact()).isTrue();
+    }
+
+    @Test
+    void isSetMapsToNullChecks() {
+        assertThat(ConditionTranslator.translate(PropertyCondition.isSet("email", true), null).getFilter())
+                .isEqualTo(VirtualFilter.compare("email", FilterOperator.IS_NOT_NULL));
+        assertThat(ConditionTranslator.translate(PropertyCondition.isSet("email", false), null).getFilter())
+                .isEqualTo(VirtualFilter.compare("email", FilterOperator.IS_NULL));
+    }
+
+    @Test
+    void untranslatablePartOfAndIsDropped() {
+        ConditionTranslator.Translation t = ConditionTranslator.translate(LogicalCondition.and(
+                PropertyCondition.equal("status", "NEW"),
+                JpqlCondition.create("e.total > e.limit", null)), null);
+
+        assertThat(t.isExact()).isFalse();
+        assertThat(t.getFilter()).isEqualTo(VirtualFilter.and(List.of(
+                VirtualFilter.compare("status", FilterOperator.EQUAL, Operand.literal("NEW")))));
+    }
+
+    @Test
+    void untranslatablePartOfOrDropsWholeBranch() {
+        ConditionTranslator.Translation t = ConditionTranslator.translate(LogicalCondition.and(
+                PropertyCondition.equal("region", "EU"),
+                LogicalCondition.or(
+                        PropertyCondition.equal("status", "NEW"),
+                        JpqlCondition.create("e.total > e.limit", null))), null);
+
+        assertThat(t.isExact()).isFalse();
+        assertThat(t.getFilter()).isEqualTo(VirtualFilter.and(List.of(
+                VirtualFilter.compare("region", FilterOperator.EQUAL, Operand.literal("EU")))));
+    }
+
+    @Test
+    void unknownOperationIsInexact() {
+        ConditionTranslator.Translation t = ConditionTranslator.translate(
+                PropertyCondition.create("name", "sounds_like", "Smith"), null);
+
+        assertThat(t.getFilter()).isNull();
+        assertThat(t.isExact()).isFalse();
+    }
+}
@@ -0,0 +1,81 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tập JPQL JpqlParser hỗ trợ, literal số và cách parseLenient lùi về tên entity.
+ */
+public class JpqlParserTest {
+
+    @Test
+    void parsesSelectWhereOrderBy() {
+        ParsedJpql parsed = JpqlParser.parse(
+                "select e.name, e.age from Person e where e.age >= :minAge and e.city.name = 'Hanoi' order by e.name desc");
+
+        assertThat(parsed.isComplete()).isTrue();
+        assertThat(parsed.getEntityName()).isEqualTo("Person");
+        assertThat(parsed.getAlias()).isEqualTo("e");
+        assertThat(parsed.getSelectedProperties()).isEqualTo(List.of("name", "age"));
+        assertThat(parsed.getWhere()).isEqualTo(VirtualFilter.and(List.of(
+                VirtualFilter.compare("age", FilterOperator.GREATER_OR_EQUAL, Operand.parameter("minAge")),
+                VirtualFilter.compare("city.name", FilterOperator.EQUAL, Operand.literal("Hanoi")))));
+        assertThat(parsed.getOrderBy()).isEqualTo(List.of(new VirtualQuery.SortKey("name", true)));
+    }
+
+    @Test
+    void selectingEntityNeedsAllProperties() {
+        ParsedJpql parsed = JpqlParser.parse("select e from Person e");
+
+        assertThat(parsed.getSelectedProperties()).isEmpty();
+        assertThat(parsed.getWhere()).isNull();
+        assertThat(parsed.isAggregate()).isFalse();
+    }
+
+    @Test
+    void numberLiterals() {
+        assertThat(literal("e.age = 42")).isEqualTo(42L);
+        assertThat(literal("e.age = -7")).isEqualTo(-7L);
+        assertThat(literal("e.age = 99999999999999999999")).isEqualTo(new BigDecimal("99999999999999999999"));
+        assertThat(literal("e.score = 1.5")).isEqualTo(new BigDecimal("1.5"));
+        assertThat(literal("e.score = 1e-3")).isEqualTo(new BigDecimal("1e-3"));
+        assertThat(literal("e.score = 2E+2")).isEqualTo(new BigDecimal("2E+2"));
+    }
+
+    @Test
+    void malformedNumberIsParseError() {
+        for (String number : List.of("1e", "1.2.3", "1.e", "1e+")) {
+            assertThatThrownBy(() -> JpqlParser.parse("select e from Person e where e.age = " + number))
+                    .isInstanceOf(JpqlParseException.class)
+                    .hasMessageContaining(number);
+        }
+    }
+
+    @Test
+    void lenientParseKeepsEntityNameOfUnsupportedQuery() {
+        ParsedJpql parsed = JpqlParser.parseLenient("select e from Person e where e.age = 1.2.3");
+
+        assertThat(parsed.isComplete()).isFalse();
+        assertThat(parsed.getEntityName()).isEqualTo("Person");
+    }
+
+    @Test
+    void unsupportedClauseIsParseError() {
+        assertThatThrownBy(() -> JpqlParser.parse("select e from Person e join e.city c"))
+                .isInstanceOf(JpqlParseException.class);
+    }
+
+    private static Object literal(String condition) {
+        VirtualFilter where = JpqlParser.parse("select e from Person e where " + condition).getWhere();
+        return ((VirtualFilter.Comparison) where).getOperands().get(0).getLiteral();
+    }
+}
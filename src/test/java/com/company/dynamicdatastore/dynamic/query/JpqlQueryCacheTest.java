@@ -0,0 +1,99 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LRU gần đúng của JpqlQueryCache: giữ bản đã parse, bỏ câu ít dùng trong mẫu khi vượt maxSize, tra cứu song song không khoá.
+ */
+public class JpqlQueryCacheTest {
+
+    private static final String Q1 = "select e from A e";
+    private static final String Q2 = "select e from B e";
+    private static final String Q3 = "select e from C e";
+
+    @Test
+    void sameQueryIsParsedOnce() {
+        JpqlQueryCache cache = new JpqlQueryCache(4);
+
+        assertThat(cache.get(Q1)).isSameAs(cache.get(Q1));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        JpqlQueryCache cache = new JpqlQueryCache(2);
+        ParsedJpql first = cache.get(Q1);
+        ParsedJpql second = cache.get(Q2);
+        cache.get(Q1); // Q1 vừa dùng -> Q2 là cũ nhất
+
+        cache.get(Q3);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(Q1)).isSameAs(first);
+        assertThat(cache.get(Q2)).isNotSameAs(second);
+    }
+
+    @Test
+    void staysBoundedAndKeepsHotQuery() {
+        JpqlQueryCache cache = new JpqlQueryCache(16);
+        ParsedJpql hot = cache.get(Q1);
+
+        for (int i = 0; i < 200; i++) {
+            cache.get("select e from E" + i + " e");
+            assertThat(cache.get(Q1)).isSameAs(hot);
+        }
+
+        assertThat(cache.size()).isEqualTo(16);
+    }
+
+    @Test
+    void concurrentLookupsStayBounded() throws Exception {
+        JpqlQueryCache cache = new JpqlQueryCache(32);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String jpql = "select e from E" + ((i * 31 + seed) % 100) + " e";
+                        assertThat(cache.get(jpql).getEntityName()).isEqualTo(jpql.split(" ")[3]);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(32);
+    }
+
+    @Test
+    void unsupportedQueryIsCachedAsIncomplete() {
+        JpqlQueryCache cache = new JpqlQueryCache(2);
+
+        ParsedJpql parsed = cache.get("select e from A e join e.b b");
+
+        assertThat(parsed.isComplete()).isFalse();
+        assertThat(parsed.getEntityName()).isEqualTo("A");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsNonPositiveSize() {
+        assertThatThrownBy(() -> new JpqlQueryCache(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Key của RowEvaluatorCache: hình dạng query + EntityMeta / map attribute theo identity, không gồm tham số.
+ */
+public class RowEvaluatorCacheTest {
+
+    private static final VirtualFilter FILTER =
+            VirtualFilter.compare("qty", FilterOperator.GREATER, Operand.parameter("min"));
+    private static final List<VirtualQuery.SortKey> SORT = List.of(new VirtualQuery.SortKey("qty", true));
+
+    @Test
+    void sameShapeReusesEvaluator() {
+        RowEvaluatorCache cache = new RowEvaluatorCache(8);
+        EntityMeta meta = meta(Long.class);
+
+        RowEvaluator first = cache.get(meta, FILTER, SORT);
+
+        assertThat(cache.get(meta, VirtualFilter.compare("qty", FilterOperator.GREATER, Operand.parameter("min")),
+                List.of(new VirtualQuery.SortKey("qty", true)))).isSameAs(first);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void changedAttributesCompileAgain() {
+        RowEvaluatorCache cache = new RowEvaluatorCache(8);
+        EntityMeta meta = meta(Long.class);
+        RowEvaluator first = cache.get(meta, FILTER, SORT);
+
+        meta.setAttributes(Map.of("id", Long.class, "qty", Double.class));
+
+        assertThat(cache.get(meta, FILTER, SORT)).isNotSameAs(first);
+        assertThat(cache.get(meta(Long.class), FILTER, SORT)).isNotSameAs(first);
+    }
+
+    @Test
+    void differentSortIsDifferentKey() {
+        RowEvaluatorCache cache = new RowEvaluatorCache(8);
+        EntityMeta meta = meta(Long.class);
+
+        RowEvaluator desc = cache.get(meta, FILTER, SORT);
+
+        assertThat(cache.get(meta, FILTER, List.of(new VirtualQuery.SortKey("qty", false)))).isNotSameAs(desc);
+        assertThat(cache.get(meta, null, SORT)).isNotSameAs(desc);
+    }
+
+    @Test
+    void boundedBySize() {
+        RowEvaluatorCache cache = new RowEvaluatorCache(2);
+        EntityMeta meta = meta(Long.class);
+        for (int i = 0; i < 5; i++) {
+            cache.get(meta, VirtualFilter.compare("qty", FilterOperator.EQUAL, Operand.literal((long) i)), List.of());
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    private static EntityMeta meta(Class<?> qtyType) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("CachedRow");
+        meta.setAttributes(Map.of("id", Long.class, "qty", qtyType));
+        return meta;
+    }
+}
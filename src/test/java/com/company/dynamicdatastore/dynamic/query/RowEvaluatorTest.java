@@ -0,0 +1,168 @@
+package com.company.dynamicdatastore.dynamic.query;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.row.RowLayout;
+import com.company.dynamicdatastore.dynamic.virtual.FilterOperator;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import com.company.dynamicdatastore.dynamic.virtual.VirtualQuery;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nhánh chuyên biệt theo kiểu của RowEvaluator phải cho cùng kết quả với so sánh tổng quát (meta = null),
+ * trên cả CompactRow lẫn KeyValueEntity thường.
+ */
+public class RowEvaluatorTest {
+
+    private static final UUID U1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID U2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private static final EntityMeta META = meta();
+    private static final RowLayout LAYOUT = RowLayout.of(META);
+
+    @Test
+    void specializedFilterMatchesGeneric() {
+        List<KeyValueEntity> rows = rows();
+        List<VirtualFilter> filters = List.of(
+                cmp("qty", FilterOperator.GREATER, 5L),
+                cmp("qty", FilterOperator.BETWEEN, 2, 8),
+                cmp("qty", FilterOperator.IN, 1L, 3L, 9L),
+                cmp("qty", FilterOperator.EQUAL, new BigDecimal("1.5")),
+                cmp("rating", FilterOperator.LESS_OR_EQUAL, 0.5d),
+                cmp("active", FilterOperator.EQUAL, true),
+                cmp("price", FilterOperator.GREATER_OR_EQUAL, new BigDecimal("5.0")),
+                cmp("price", FilterOperator.LESS, 5L),
+                cmp("price", FilterOperator.EQUAL, new BigDecimal("2.50")),
+                cmp("ref", FilterOperator.EQUAL, U2),
+                cmp("ref", FilterOperator.NOT_IN, U1),
+                cmp("name", FilterOperator.STARTS_WITH, "n1"),
+                cmp("name", FilterOperator.NOT_EQUAL, "n3"),
+                VirtualFilter.compare("qty", FilterOperator.IS_NULL),
+                VirtualFilter.compare("price", FilterOperator.IS_NOT_NULL),
+                VirtualFilter.or(List.of(cmp("qty", FilterOperator.LESS, 2L),
+                        VirtualFilter.not(cmp("name", FilterOperator.CONTAINS, "7")))));
+
+        for (VirtualFilter filter : filters) {
+            Predicate<Object> specialized = RowEvaluator.compile(META, filter, List.of()).predicate(Map.of());
+            Predicate<Object> generic = RowEvaluator.compile(null, filter, List.of()).predicate(Map.of());
+            for (KeyValueEntity row : rows) {
+                KeyValueEntity plain = plain(row);
+                assertThat(specialized.test(row)).as(filter + " on " + row).isEqualTo(generic.test(plain));
+                assertThat(specialized.test(plain)).as(filter + " on plain " + row).isEqualTo(generic.test(plain));
+            }
+        }
+    }
+
+    @Test
+    void parametersAreBoundPerCall() {
+        VirtualFilter filter = VirtualFilter.compare("qty", FilterOperator.GREATER_OR_EQUAL, Operand.parameter("min"));
+        RowEvaluator evaluator = RowEvaluator.compile(META, filter, List.of());
+        KeyValueEntity row = LAYOUT.row("id", 1L, "qty", 5L);
+
+        assertThat(evaluator.predicate(Map.of("min", 5)).test(row)).isTrue();
+        assertThat(evaluator.predicate(Map.of("min", 6L)).test(row)).isFalse();
+        // tham số không phải số nguyên -> so sánh tổng quát, vẫn đúng
+        assertThat(evaluator.predicate(Map.of("min", new BigDecimal("4.5"))).test(row)).isTrue();
+    }
+
+    @Test
+    void specializedSortMatchesGeneric() {
+        List<KeyValueEntity> rows = rows();
+        for (String property : List.of("qty", "rating", "active", "price", "ref", "name")) {
+            for (boolean descending : new boolean[]{false, true}) {
+                List<VirtualQuery.SortKey> sort = List.of(new VirtualQuery.SortKey(property, descending),
+                        new VirtualQuery.SortKey("id", false));
+                List<KeyValueEntity> specialized = new ArrayList<>(rows);
+                specialized.sort(RowEvaluator.compile(META, null, sort).comparator());
+                List<KeyValueEntity> generic = new ArrayList<>(rows);
+                generic.sort(RowEvaluator.compile(null, null, sort).comparator());
+
+                assertThat(ids(specialized)).as(sort.toString()).isEqualTo(ids(generic));
+            }
+        }
+    }
+
+    @Test
+    void nullsSortFirstAscending() {
+        List<KeyValueEntity> rows = new ArrayList<>(List.of(
+                LAYOUT.row("id", 1L, "qty", 3L), LAYOUT.row("id", 2L), LAYOUT.row("id", 3L, "qty", -1L)));
+
+        rows.sort(RowEvaluator.compile(META, null, List.of(new VirtualQuery.SortKey("qty", false))).comparator());
+
+        assertThat(ids(rows)).isEqualTo(List.of(2L, 3L, 1L));
+    }
+
+    @Test
+    void noFilterAcceptsEverything() {
+        RowEvaluator evaluator = RowEvaluator.compile(META, null, List.of());
+
+        assertThat(evaluator.hasFilter()).isFalse();
+        assertThat(evaluator.isSorted()).isFalse();
+        assertThat(evaluator.predicate(null).test(LAYOUT.row("id", 1L))).isTrue();
+    }
+
+    private static List<KeyValueEntity> rows() {
+        Random random = new Random(17);
+        List<KeyValueEntity> out = new ArrayList<>();
+        for (long i = 0; i < 60; i++) {
+            KeyValueEntity row = LAYOUT.row("id", i);
+            if (random.nextInt(6) > 0) row.setValue("qty", (long) random.nextInt(10));
+            if (random.nextInt(6) > 0) row.setValue("rating", random.nextInt(5) == 0 ? -0.0d : random.nextDouble());
+            if (random.nextInt(6) > 0) row.setValue("active", random.nextBoolean());
+            if (random.nextInt(6) > 0) {
+                // scale khác nhau + vài số quá lớn cho 2 ô long
+                row.setValue("price", random.nextInt(8) == 0
+                        ? new BigDecimal("12345678901234567890.5")
+                        : BigDecimal.valueOf(random.nextInt(1000), random.nextInt(3)));
+            }
+            if (random.nextInt(6) > 0) row.setValue("ref", random.nextBoolean() ? U1 : U2);
+            if (random.nextInt(6) > 0) row.setValue("name", "n" + random.nextInt(20));
+            out.add(row);
+        }
+        return out;
+    }
+
+    private static KeyValueEntity plain(KeyValueEntity row) {
+        KeyValueEntity out = new KeyValueEntity();
+        for (String name : META.getAttributes().keySet()) {
+            out.setValue(name, row.getValue(name));
+        }
+        return out;
+    }
+
+    private static VirtualFilter cmp(String property, FilterOperator operator, Object... values) {
+        Operand[] operands = new Operand[values.length];
+        for (int i = 0; i < values.length; i++) operands[i] = Operand.literal(values[i]);
+        return VirtualFilter.compare(property, operator, operands);
+    }
+
+    private static List<Object> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> r.getValue("id")).collect(Collectors.toList());
+    }
+
+    private static EntityMeta meta() {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("EvalRow");
+        meta.setAttributes(Map.of(
+                "id", Long.class,
+                "qty", Long.class,
+                "rating", Double.class,
+                "active", Boolean.class,
+                "price", BigDecimal.class,
+                "ref", UUID.class,
+                "name", String.class));
+        return meta;
+    }
+}
@@ -0,0 +1,155 @@
+package com.company.dynamicdatastore.dynamic.registry;
+
+import com.company.dynamicdatastore.dynamic.DynamicDataStore;
+import com.company.dynamicdatastore.dynamic.DynamicMetaClass;
+import com.company.dynamicdatastore.dynamic.DynamicStoreProperties;
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.MetaClassVersion;
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import com.company.dynamicdatastore.dynamic.StoreSchema;
+import com.company.dynamicdatastore.dynamic.cache.VirtualEntityCache;
+import com.company.dynamicdatastore.dynamic.guard.HandlerGuardExecutor;
+import com.company.dynamicdatastore.dynamic.metrics.DynamicStoreMetrics;
+import io.jmix.core.EntityStates;
+import io.jmix.core.KeyValueMapper;
+import io.jmix.core.Metadata;
+import io.jmix.core.MetadataTools;
+import io.jmix.core.metamodel.model.MetaClass;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MetaClassVersion trong registry: field không đổi thì dùng lại MetaClass, đổi thì build lại và tăng version;
+ * registerEntities publish cả lô trong một snapshot.
+ */
+public class DynamicStoreRegistryTest {
+
+    private static final List<RuntimeFieldDef> FIELDS = List.of(
+            new RuntimeFieldDef("id", UUID.class),
+            new RuntimeFieldDef("name", String.class));
+
+    private final DynamicStoreRegistry registry = registry();
+    private final AtomicInteger builds = new AtomicInteger();
+
+    @Test
+    void sameFieldsReuseMetaClass() {
+        MetaClass first = registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+        MetaClass second = registry.getOrBuildMetaClass("s", "Order", List.copyOf(FIELDS), builder());
+
+        assertThat(second).isSameAs(first);
+        assertThat(builds.get()).isEqualTo(1);
+        assertThat(registry.getMetaClassVersion("s", "Order").getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void changedFieldsBuildNewVersion() {
+        MetaClass first = registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+        List<RuntimeFieldDef> changed = List.of(
+                new RuntimeFieldDef("id", UUID.class),
+                new RuntimeFieldDef("name", String.class),
+                new RuntimeFieldDef("amount", Long.class));
+
+        MetaClass second = registry.getOrBuildMetaClass("s", "Order", changed, builder());
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(builds.get()).isEqualTo(2);
+        MetaClassVersion current = registry.getMetaClassVersion("s", "Order");
+        assertThat(current.getVersion()).isEqualTo(2L);
+        assertThat(current.getFields()).isEqualTo(changed);
+        assertThat(registry.getMetaClass("s", "Order")).isSameAs(second);
+    }
+
+    @Test
+    void registeredMetaClassIsNeverReusedForFields() {
+        registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+        DynamicMetaClass manual = metaClass("Order");
+
+        registry.registerMetaClass("s", "Order", manual);
+        assertThat(registry.getMetaClassVersion("s", "Order").getVersion()).isEqualTo(2L);
+
+        // bản đăng ký thẳng không rõ field -> lần sau phải build lại
+        MetaClass rebuilt = registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+        assertThat(rebuilt).isNotSameAs(manual);
+        assertThat(registry.getMetaClassVersion("s", "Order").getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void removedEntityStartsOver() {
+        registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+
+        registry.removeEntity("s", "Order");
+        assertThat(registry.getMetaClassVersion("s", "Order")).isNull();
+
+        registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+        assertThat(registry.getMetaClassVersion("s", "Order").getVersion()).isEqualTo(1L);
+        assertThat(builds.get()).isEqualTo(2);
+    }
+
+    @Test
+    void registeredEntitiesArePublishedInOneSnapshot() {
+        DynamicDataStore store = registry.registerStore("s");
+        long before = store.getSchema().getVersion();
+        MetaClass kept = registry.getOrBuildMetaClass("s", "Order", FIELDS, builder());
+
+        registry.registerEntities("s", List.of(
+                new EntityRegistration(meta("Order"), FIELDS, metaClass("Order"), null),
+                new EntityRegistration(meta("Invoice"), FIELDS, metaClass("Invoice"), null)));
+
+        StoreSchema schema = store.getSchema();
+        assertThat(schema.getVersion()).isEqualTo(before + 2);
+        assertThat(schema.getBindings()).hasSize(2);
+        // field không đổi -> MetaClass đang có được giữ nguyên
+        assertThat(registry.getMetaClass("s", "Order")).isSameAs(kept);
+        assertThat(registry.getMetaClassVersion("s", "Invoice").getVersion()).isEqualTo(1L);
+        assertThat(store.getEntity("Invoice").getName()).isEqualTo("Invoice");
+    }
+
+    private Function<List<RuntimeFieldDef>, MetaClass> builder() {
+        return fields -> {
+            builds.incrementAndGet();
+            return metaClass("Order");
+        };
+    }
+
+    private static EntityMeta meta(String name) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName(name);
+        meta.setAttributes(Map.of("id", UUID.class, "name", String.class));
+        return meta;
+    }
+
+    private static DynamicMetaClass metaClass(String name) {
+        DynamicMetaClass metaClass = new DynamicMetaClass();
+        metaClass.setName(name);
+        return metaClass;
+    }
+
+    // dựng registry ngoài Spring: các bean Jmix chỉ cần có mặt, test không gọi tới
+    static DynamicStoreRegistry registry() {
+        DynamicStoreProperties properties = new DynamicStoreProperties();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("keyValueMapper", new KeyValueMapper());
+        beans.addBean("metadata", Proxy.newProxyInstance(Metadata.class.getClassLoader(),
+                new Class<?>[]{Metadata.class}, (proxy, method, args) -> null));
+        beans.addBean("metadataTools", new MetadataTools());
+        beans.addBean("entityStates", new EntityStates());
+        return new DynamicStoreRegistry(
+                beans.getBeanProvider(KeyValueMapper.class),
+                beans.getBeanProvider(Metadata.class),
+                beans.getBeanProvider(MetadataTools.class),
+                beans.getBeanProvider(EntityStates.class),
+                beans.getBeanProvider(DynamicStoreMetrics.class),
+                properties,
+                new VirtualEntityCache(properties),
+                new HandlerGuardExecutor());
+    }
+}
@@ -0,0 +1,131 @@
+package com.company.dynamicdatastore.dynamic.row;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CompactRow: giá trị đi vào slot và đọc ra đúng như KeyValueEntity, sai kiểu / ngoài layout thì vào map.
+ */
+public class CompactRowTest {
+
+    private static final UUID REF = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+
+    private final RowLayout layout = RowLayout.of(meta());
+
+    @Test
+    void valuesRoundTripThroughSlots() {
+        CompactRow row = layout.row(
+                "id", 7L, "count", 3, "ratio", -0.0d, "active", true, "ref", REF,
+                "price", new BigDecimal("12.50"), "name", "abc");
+
+        assertThat((Object) row.getValue("id")).isEqualTo(7L);
+        assertThat((Object) row.getValue("count")).isEqualTo(3);
+        assertThat((Object) row.getValue("ratio")).isEqualTo(-0.0d);
+        assertThat((Object) row.getValue("active")).isEqualTo(true);
+        assertThat((Object) row.getValue("ref")).isEqualTo(REF);
+        assertThat((Object) row.getValue("price")).isEqualTo(new BigDecimal("12.50"));
+        assertThat((Object) row.getValue("name")).isEqualTo("abc");
+        assertThat(row.getId()).isEqualTo(7L);
+
+        int price = layout.column("price");
+        assertThat(row.isInlineDecimal(price)).isTrue();
+        assertThat(row.getUnscaled(price)).isEqualTo(1250L);
+        assertThat(row.getScale(price)).isEqualTo(2);
+        assertThat(row.overrides("price")).isFalse();
+    }
+
+    @Test
+    void unsetColumnsAreNull() {
+        CompactRow row = layout.newRow();
+
+        for (int c = 0; c < layout.getColumnCount(); c++) {
+            assertThat(row.isNull(c)).isTrue();
+            assertThat(row.get(c)).isNull();
+        }
+        row.set("count", 0);
+        assertThat(row.isNull(layout.column("count"))).isFalse();
+        row.set("count", null);
+        assertThat(row.isNull(layout.column("count"))).isTrue();
+    }
+
+    @Test
+    void decimalTooLargeForLongIsKeptAsObject() {
+        BigDecimal big = new BigDecimal("123456789012345678901234.5");
+        CompactRow row = layout.row("price", big);
+
+        assertThat(row.isInlineDecimal(layout.column("price"))).isFalse();
+        assertThat((Object) row.getValue("price")).isEqualTo(big);
+
+        row.set("price", BigDecimal.ONE);
+        assertThat(row.isInlineDecimal(layout.column("price"))).isTrue();
+        assertThat((Object) row.getValue("price")).isEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void wrongTypeAndUnknownPropertyGoToMap() {
+        CompactRow row = layout.row("count", "not a number", "extra", 1);
+
+        assertThat(row.overrides("count")).isTrue();
+        assertThat((Object) row.getValue("count")).isEqualTo("not a number");
+        assertThat((Object) row.getValue("extra")).isEqualTo(1);
+
+        // đúng kiểu trở lại -> về slot, bỏ bản trong map
+        row.set("count", 5);
+        assertThat(row.overrides("count")).isFalse();
+        assertThat((Object) row.getValue("count")).isEqualTo(5);
+    }
+
+    @Test
+    void setValueEndsInSlot() {
+        CompactRow row = layout.row("id", 1L);
+
+        row.setValue("name", "changed");
+        row.setValue("active", false);
+
+        assertThat(row.overrides("name")).isFalse();
+        assertThat(row.overrides("active")).isFalse();
+        assertThat((Object) row.getValue("name")).isEqualTo("changed");
+        assertThat((Object) row.getValue("active")).isEqualTo(false);
+    }
+
+    @Test
+    void copyIsIndependent() {
+        CompactRow row = layout.row("id", 1L, "name", "a", "extra", "x");
+        CompactRow copy = row.copy();
+
+        row.set("name", "b");
+        row.set("extra", "y");
+
+        assertThat((Object) copy.getValue("name")).isEqualTo("a");
+        assertThat((Object) copy.getValue("extra")).isEqualTo("x");
+        assertThat(copy.getLayout()).isSameAs(layout);
+    }
+
+    @Test
+    void estimatedBytesGrowsWithContent() {
+        long empty = layout.newRow().estimatedBytes();
+
+        assertThat(layout.row("name", "some longer text").estimatedBytes()).isGreaterThan(empty);
+        assertThat(layout.row("extra", 1).estimatedBytes()).isGreaterThan(empty);
+    }
+
+    private static EntityMeta meta() {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("CompactEntity");
+        meta.setAttributes(Map.of(
+                "id", Long.class,
+                "count", Integer.class,
+                "ratio", Double.class,
+                "active", Boolean.class,
+                "ref", UUID.class,
+                "price", BigDecimal.class,
+                "name", String.class));
+        return meta;
+    }
+}
@@ -0,0 +1,82 @@
+package com.company.dynamicdatastore.dynamic.row;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RowLayout: thứ tự cột ổn định, kiểu slot theo kiểu attribute, quá 64 cột primitive thì về Object[].
+ */
+public class RowLayoutTest {
+
+    @Test
+    void idFirstThenByName() {
+        RowLayout layout = RowLayout.of(meta(Map.of(
+                "name", String.class, "id", UUID.class, "amount", BigDecimal.class, "active", Boolean.class)));
+
+        assertThat(layout.getColumnCount()).isEqualTo(4);
+        assertThat(layout.getName(0)).isEqualTo("id");
+        assertThat(layout.getName(1)).isEqualTo("active");
+        assertThat(layout.getName(2)).isEqualTo("amount");
+        assertThat(layout.getName(3)).isEqualTo("name");
+        assertThat(layout.column("amount")).isEqualTo(2);
+        assertThat(layout.column("missing")).isEqualTo(-1);
+    }
+
+    @Test
+    void kindFollowsAttributeType() {
+        RowLayout layout = RowLayout.of(meta(Map.of(
+                "id", Long.class, "count", int.class, "ratio", Double.class, "active", boolean.class,
+                "ref", UUID.class, "price", BigDecimal.class, "name", String.class)));
+
+        assertThat(layout.getKind(layout.column("id"))).isEqualTo(RowLayout.Kind.LONG);
+        assertThat(layout.getKind(layout.column("count"))).isEqualTo(RowLayout.Kind.INTEGER);
+        assertThat(layout.getKind(layout.column("ratio"))).isEqualTo(RowLayout.Kind.DOUBLE);
+        assertThat(layout.getKind(layout.column("active"))).isEqualTo(RowLayout.Kind.BOOLEAN);
+        assertThat(layout.getKind(layout.column("ref"))).isEqualTo(RowLayout.Kind.UUID);
+        assertThat(layout.getKind(layout.column("price"))).isEqualTo(RowLayout.Kind.DECIMAL);
+        assertThat(layout.getKind(layout.column("name"))).isEqualTo(RowLayout.Kind.OBJECT);
+    }
+
+    @Test
+    void primitiveColumnsBeyondNullMaskFallBackToObject() {
+        Map<String, Class<?>> attributes = new HashMap<>();
+        attributes.put("id", Long.class);
+        for (int i = 0; i < 70; i++) attributes.put(String.format("c%02d", i), Long.class);
+        RowLayout layout = RowLayout.of(meta(attributes));
+
+        // id + c00..c62 = 64 cột primitive
+        assertThat(layout.getKind(layout.column("c62"))).isEqualTo(RowLayout.Kind.LONG);
+        assertThat(layout.getKind(layout.column("c63"))).isEqualTo(RowLayout.Kind.OBJECT);
+
+        CompactRow row = layout.newRow();
+        row.set("c62", 62L);
+        row.set("c69", 69L);
+        assertThat((Object) row.getValue("c62")).isEqualTo(62L);
+        assertThat((Object) row.getValue("c69")).isEqualTo(69L);
+        assertThat((Object) row.getValue("c00")).isNull();
+    }
+
+    @Test
+    void sameShapeComparesNamesAndKinds() {
+        RowLayout a = RowLayout.of(meta(Map.of("id", Long.class, "name", String.class)));
+        RowLayout b = RowLayout.of(meta(Map.of("name", String.class, "id", Long.class)));
+        RowLayout c = RowLayout.of(meta(Map.of("id", Integer.class, "name", String.class)));
+
+        assertThat(a.sameShape(b)).isTrue();
+        assertThat(a.sameShape(c)).isFalse();
+    }
+
+    private static EntityMeta meta(Map<String, Class<?>> attributes) {
+        EntityMeta meta = new EntityMeta();
+        meta.setName("LayoutRow");
+        meta.setAttributes(attributes);
+        return meta;
+    }
+}
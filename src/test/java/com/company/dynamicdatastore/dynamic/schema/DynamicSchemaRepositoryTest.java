@@ -0,0 +1,105 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DynamicSchemaRepository trên HSQLDB in-memory, cùng bảng như changelog Liquibase.
+ */
+public class DynamicSchemaRepositoryTest {
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static DynamicSchemaRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:dynamic_schema_test", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table DYNAMIC_STORE_ENTITY (ID uuid not null primary key,"
+                + " STORE_NAME varchar(255) not null, ENTITY_NAME varchar(255) not null,"
+                + " ID_PROPERTY varchar(255) not null, HANDLER_TYPE varchar(255), VERSION int not null,"
+                + " UPDATE_TS timestamp, constraint IDX_DYNAMIC_STORE_ENTITY_UNQ unique (STORE_NAME, ENTITY_NAME))");
+        jdbc.execute("create table DYNAMIC_STORE_ATTRIBUTE (ID uuid not null primary key, ENTITY_ID uuid not null,"
+                + " NAME varchar(255) not null, JAVA_TYPE varchar(500) not null, POSITION_ int not null,"
+                + " constraint IDX_DYNAMIC_STORE_ATTRIBUTE_UNQ unique (ENTITY_ID, NAME),"
+                + " constraint FK_DYNAMIC_STORE_ATTRIBUTE_ON_ENTITY foreign key (ENTITY_ID)"
+                + " references DYNAMIC_STORE_ENTITY (ID) on delete cascade)");
+        repository = new DynamicSchemaRepository(dataSource, new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        jdbc.execute("shutdown");
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("delete from DYNAMIC_STORE_ATTRIBUTE");
+        jdbc.update("delete from DYNAMIC_STORE_ENTITY");
+    }
+
+    @Test
+    void savedDefinitionsLoadBackWithFieldOrder() {
+        EntityDefinition order = new EntityDefinition("storeA", "Order", "id", List.of(
+                new RuntimeFieldDef("id", UUID.class),
+                new RuntimeFieldDef("total", BigDecimal.class),
+                new RuntimeFieldDef("customer", String.class)), InMemoryHandlerFactory.TYPE);
+        EntityDefinition customer = new EntityDefinition("storeA", "Customer", "code", List.of(
+                new RuntimeFieldDef("code", String.class)), null);
+
+        repository.save(order);
+        repository.save(customer);
+
+        // sắp theo store rồi tên entity
+        assertThat(repository.loadAll()).isEqualTo(List.of(customer, order));
+    }
+
+    @Test
+    void saveReplacesExistingDefinition() {
+        repository.save(new EntityDefinition("storeA", "Order", "id", List.of(
+                new RuntimeFieldDef("id", Long.class), new RuntimeFieldDef("old", String.class)), null));
+        EntityDefinition changed = new EntityDefinition("storeA", "Order", "id", List.of(
+                new RuntimeFieldDef("id", Long.class), new RuntimeFieldDef("amount", Double.class)),
+                InMemoryHandlerFactory.TYPE);
+
+        repository.save(changed);
+
+        assertThat(repository.loadAll()).isEqualTo(List.of(changed));
+        assertThat(jdbc.queryForObject("select VERSION from DYNAMIC_STORE_ENTITY", Integer.class)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("select count(*) from DYNAMIC_STORE_ATTRIBUTE", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void deleteRemovesEntityAndAttributes() {
+        repository.save(new EntityDefinition("storeA", "Order", "id", List.of(new RuntimeFieldDef("id", Long.class)), null));
+
+        assertThat(repository.delete("storeA", "Order")).isTrue();
+        assertThat(repository.delete("storeA", "Order")).isFalse();
+        assertThat(repository.loadAll()).isEmpty();
+        assertThat(jdbc.queryForObject("select count(*) from DYNAMIC_STORE_ATTRIBUTE", Integer.class)).isEqualTo(0);
+    }
+
+    @Test
+    void entityWithUnknownFieldClassIsSkipped() {
+        EntityDefinition kept = new EntityDefinition("storeA", "Kept", "id", List.of(new RuntimeFieldDef("id", Long.class)), null);
+        repository.save(kept);
+        repository.save(new EntityDefinition("storeA", "Broken", "id", List.of(new RuntimeFieldDef("id", Long.class)), null));
+        jdbc.update("update DYNAMIC_STORE_ATTRIBUTE set JAVA_TYPE = 'com.example.RemovedType' where ENTITY_ID ="
+                + " (select ID from DYNAMIC_STORE_ENTITY where ENTITY_NAME = 'Broken')");
+
+        assertThat(repository.loadAll()).isEqualTo(List.of(kept));
+    }
+}
@@ -0,0 +1,52 @@
+package com.company.dynamicdatastore.dynamic.schema;
+
+import com.company.dynamicdatastore.dynamic.EntityMeta;
+import com.company.dynamicdatastore.dynamic.RuntimeFieldDef;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * EntityDefinition: kiểm tra id property, EntityMeta giữ thứ tự field, bất biến.
+ */
+public class EntityDefinitionTest {
+
+    @Test
+    void toEntityMetaKeepsFieldOrder() {
+        EntityDefinition definition = new EntityDefinition("storeA", "Invoice", "number", List.of(
+                new RuntimeFieldDef("total", BigDecimal.class),
+                new RuntimeFieldDef("number", String.class),
+                new RuntimeFieldDef("customer", String.class)), null);
+
+        EntityMeta meta = definition.toEntityMeta();
+
+        assertThat(meta.getName()).isEqualTo("Invoice");
+        assertThat(meta.getIdProperty()).isEqualTo("number");
+        assertThat(new ArrayList<>(meta.getAttributes().keySet())).isEqualTo(List.of("total", "number", "customer"));
+        assertThat(meta.getAttributes().get("total")).isEqualTo(BigDecimal.class);
+    }
+
+    @Test
+    void idPropertyMustBeAField() {
+        assertThatThrownBy(() -> new EntityDefinition("storeA", "Invoice", "id",
+                List.of(new RuntimeFieldDef("number", String.class)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fieldsAreCopied() {
+        List<RuntimeFieldDef> fields = new ArrayList<>(List.of(new RuntimeFieldDef("id", Long.class)));
+        EntityDefinition definition = new EntityDefinition("storeA", "Invoice", "id", fields, null);
+
+        fields.add(new RuntimeFieldDef("extra", String.class));
+
+        assertThat(definition.getFields()).hasSize(1);
+        assertThat(definition).isEqualTo(new EntityDefinition("storeA", "Invoice", "id",
+                List.of(new RuntimeFieldDef("id", Long.class)), null));
+    }
+}
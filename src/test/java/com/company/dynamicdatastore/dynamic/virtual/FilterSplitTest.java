@@ -0,0 +1,66 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import com.company.dynamicdatastore.dynamic.virtual.VirtualFilter.Operand;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FilterSplit: phần handler làm được đẩy xuống, phần còn lại store tự lọc.
+ */
+public class FilterSplitTest {
+
+    private static final VirtualFilter EQ = VirtualFilter.compare("status", FilterOperator.EQUAL, Operand.literal("NEW"));
+    private static final VirtualFilter GT = VirtualFilter.compare("total", FilterOperator.GREATER, Operand.literal(10));
+    private static final VirtualFilter LIKE = VirtualFilter.compare("name", FilterOperator.LIKE, Operand.literal("a%"));
+
+    private static final Set<FilterOperator> EQ_GT = EnumSet.of(FilterOperator.EQUAL, FilterOperator.GREATER);
+
+    @Test
+    void nothingSupportedKeepsWholeFilter() {
+        FilterSplit split = FilterSplit.of(EQ, Set.of());
+
+        assertThat(split.getPushed()).isNull();
+        assertThat(split.getResidual()).isEqualTo(EQ);
+    }
+
+    @Test
+    void fullySupportedTreeIsPushed() {
+        VirtualFilter filter = VirtualFilter.or(List.of(EQ, VirtualFilter.not(GT)));
+
+        FilterSplit split = FilterSplit.of(filter, EQ_GT);
+
+        assertThat(split.getPushed()).isEqualTo(filter);
+        assertThat(split.getResidual()).isNull();
+    }
+
+    @Test
+    void topLevelAndIsSplitPerChild() {
+        FilterSplit split = FilterSplit.of(VirtualFilter.and(List.of(EQ, LIKE, GT)), EQ_GT);
+
+        assertThat(split.getPushed()).isEqualTo(VirtualFilter.and(List.of(EQ, GT)));
+        assertThat(split.getResidual()).isEqualTo(VirtualFilter.and(List.of(LIKE)));
+    }
+
+    @Test
+    void orWithUnsupportedChildIsNotSplit() {
+        VirtualFilter filter = VirtualFilter.or(List.of(EQ, LIKE));
+
+        FilterSplit split = FilterSplit.of(filter, EQ_GT);
+
+        assertThat(split.getPushed()).isNull();
+        assertThat(split.getResidual()).isEqualTo(filter);
+    }
+
+    @Test
+    void noFilter() {
+        FilterSplit split = FilterSplit.of(null, EQ_GT);
+
+        assertThat(split.getPushed()).isNull();
+        assertThat(split.getResidual()).isNull();
+    }
+}
@@ -0,0 +1,138 @@
+package com.company.dynamicdatastore.dynamic.virtual;
+
+import io.jmix.core.LoadContext;
+import io.jmix.core.Sort;
+import io.jmix.core.ValueLoadContext;
+import io.jmix.core.entity.KeyValueEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Push-down paging / sort của VirtualRows và tương thích với handler cũ chỉ override hàm không có VirtualQuery.
+ */
+public class VirtualRowsTest {
+
+    private static final int ROWS = 25;
+
+    @Test
+    void legacyHandlerPagingByContextIsNotPagedTwice() {
+        LegacyHandler handler = new LegacyHandler();
+        ValueLoadContext ctx = ValueLoadContext.create()
+                .setQuery(new ValueLoadContext.Query("select e.id from LegacyRow e").setFirstResult(10).setMaxResults(10));
+
+        VirtualQuery query = VirtualQuery.of(ctx);
+        List<KeyValueEntity> rows = VirtualRows.applyInStore(handler, query,
+                handler.loadAllKeyValue(ctx, VirtualRows.pushDown(handler, query)));
+
+        assertThat(ids(rows)).isEqualTo(range(10, 20));
+        // handler nhận context không paging, context gốc không bị sửa
+        assertThat(handler.lastFirstResult).isEqualTo(0);
+        assertThat(handler.lastMaxResults).isEqualTo(0);
+        assertThat(ctx.getQuery().getFirstResult()).isEqualTo(10);
+    }
+
+    @Test
+    void legacyCountIgnoresContextPaging() {
+        LegacyHandler handler = new LegacyHandler();
+        ValueLoadContext ctx = ValueLoadContext.create()
+                .setQuery(new ValueLoadContext.Query("select e.id from LegacyRow e").setFirstResult(20).setMaxResults(10));
+
+        VirtualQuery query = VirtualQuery.of(ctx).withoutPaging().withoutSort();
+
+        assertThat(handler.countKeyValue(ctx, VirtualRows.pushDown(handler, query))).isEqualTo(ROWS);
+    }
+
+    @Test
+    void legacyContextKeepsWhatWasPushedDown() {
+        ValueLoadContext ctx = ValueLoadContext.create().setQuery(new ValueLoadContext.Query("select e.id from LegacyRow e")
+                .setFirstResult(5).setMaxResults(5).setSort(Sort.by(Sort.Direction.DESC, "id")));
+        ctx.setStoreName("legacyStore");
+        ctx.setProperties(List.of("id"));
+
+        // handler tự sort + cắt trang -> context đã khớp, không copy
+        VirtualQuery pushed = VirtualQuery.of(ctx);
+        assertThat(VirtualRows.legacyContext(ctx, pushed)).isSameAs(ctx);
+
+        // store tự sort + cắt trang -> bỏ cả sort lẫn paging, giữ phần còn lại của context
+        ValueLoadContext legacy = VirtualRows.legacyContext(ctx, pushed.withoutSort().withoutPaging());
+        assertThat(legacy).isNotSameAs(ctx);
+        assertThat(legacy.getQuery().getQueryString()).isEqualTo("select e.id from LegacyRow e");
+        assertThat(legacy.getQuery().getFirstResult()).isEqualTo(0);
+        assertThat(legacy.getQuery().getMaxResults()).isEqualTo(0);
+        assertThat(legacy.getQuery().getSort()).isNull();
+        assertThat(legacy.getStoreName()).isEqualTo("legacyStore");
+        assertThat(legacy.getProperties()).isEqualTo(List.of("id"));
+        assertThat(ctx.getQuery().getMaxResults()).isEqualTo(5);
+    }
+
+    @Test
+    void storeSortAndPageKeepsOnlyTopK() {
+        List<KeyValueEntity> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) rows.add(row((i * 7) % ROWS));
+        VirtualQuery query = new VirtualQuery(3, 4, List.of(new VirtualQuery.SortKey("id", true)), List.of());
+
+        List<KeyValueEntity> page = VirtualRows.applyInStore(new LegacyHandler(), query, rows);
+
+        assertThat(ids(page)).isEqualTo(List.of(21, 20, 19, 18));
+    }
+
+    private static List<Integer> ids(List<KeyValueEntity> rows) {
+        return rows.stream().map(r -> (Integer) r.getValue("id")).collect(Collectors.toList());
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = from; i < to; i++) out.add(i);
+        return out;
+    }
+
+    private static KeyValueEntity row(int id) {
+        KeyValueEntity row = new KeyValueEntity();
+        row.setValue("id", id);
+        return row;
+    }
+
+    /**
+     * Handler viết trước khi có VirtualQuery: tự cắt trang theo context, không khai báo supportsPaging().
+     */
+    private static final class LegacyHandler implements VirtualEntityHandler<KeyValueEntity> {
+        int lastFirstResult = -1;
+        int lastMaxResults = -1;
+
+        @Override
+        public List<KeyValueEntity> loadAll(LoadContext<KeyValueEntity> ctx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public KeyValueEntity loadOne(LoadContext<KeyValueEntity> ctx, Object id) {
+            return null;
+        }
+
+        @Override
+        public List<KeyValueEntity> loadAllKeyValue(ValueLoadContext ctx) {
+            ValueLoadContext.Query q = ctx.getQuery();
+            lastFirstResult = q.getFirstResult();
+            lastMaxResults = q.getMaxResults();
+            int to = q.getMaxResults() > 0 ? Math.min(ROWS, q.getFirstResult() + q.getMaxResults()) : ROWS;
+            List<KeyValueEntity> out = new ArrayList<>();
+            for (int i = q.getFirstResult(); i < to; i++) out.add(row(i));
+            return out;
+        }
+
+        @Override
+        public boolean supportsCount() {
+            return true;
+        }
+
+        @Override
+        public long countKeyValue(ValueLoadContext ctx) {
+            return loadAllKeyValue(ctx).size();
+        }
+    }
+}